@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import de.maxwell.qa.domain.answer.Answer;
+import de.maxwell.qa.domain.comment.Comment;
+import de.maxwell.qa.domain.profile.Profile;
+import de.maxwell.qa.domain.question.Question;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQL95Dialect;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Postgres with the schema of the qa migrations and generated content. Uses the database given with
+ * {@code -Dbenchmark.jdbc.url}, {@code -Dbenchmark.jdbc.username} and {@code -Dbenchmark.jdbc.password}, otherwise
+ * starts a container like the integration tests.
+ */
+class BenchmarkDatabase implements AutoCloseable {
+
+    static final long ID = 10_000_000L;
+
+    static final int QUESTIONS = 20_000;
+
+    static final int ANSWERS = 100_000;
+
+    static final int COMMENTS = 100_000;
+
+    static final int PROFILES = 20_000;
+
+    static final int USERS = 500;
+
+    private final PostgreSQLContainer<?> container;
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private BenchmarkDatabase(final PostgreSQLContainer<?> container, final String url, final String username, final String password) {
+        this.container = container;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    static BenchmarkDatabase start() throws SQLException {
+        BenchmarkDatabase database;
+
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (url != null) {
+            database = new BenchmarkDatabase(null, url,
+                    System.getProperty("benchmark.jdbc.username", "postgres"),
+                    System.getProperty("benchmark.jdbc.password", "postgres"));
+        } else {
+            PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:12-alpine")
+                    .withDatabaseName("postgres")
+                    .withUsername("postgres")
+                    .withPassword("postgres");
+            container.start();
+
+            database = new BenchmarkDatabase(container, container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        }
+
+        database.migrate();
+        database.seed();
+
+        return database;
+    }
+
+    /**
+     * Hibernate on the same entities and schema as the application, without Quarkus
+     */
+    SessionFactory createSessionFactory() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.URL, url)
+                .applySetting(AvailableSettings.USER, username)
+                .applySetting(AvailableSettings.PASS, password)
+                .applySetting(AvailableSettings.DIALECT, PostgreSQL95Dialect.class.getName())
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "validate")
+                .build();
+
+        return new MetadataSources(registry)
+                .addAnnotatedClass(Question.class)
+                .addAnnotatedClass(Answer.class)
+                .addAnnotatedClass(Comment.class)
+                .addAnnotatedClass(Profile.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            execute("DELETE FROM TAB_COMMENT WHERE COL_ID >= " + ID);
+            execute("DELETE FROM TAB_ANSWER WHERE COL_ID >= " + ID);
+            execute("DELETE FROM TAB_QUESTION WHERE COL_ID >= " + ID);
+            execute("DELETE FROM TAB_PROFILE WHERE COL_ID >= " + ID);
+        } finally {
+            if (container != null) {
+                container.stop();
+            }
+        }
+    }
+
+    private void migrate() {
+        Flyway.configure()
+                .dataSource(url, username, password)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    private void seed() throws SQLException {
+        // the same shape as in the QueryPlanIT: 5 answers per question, half of the comments on questions, half on answers
+        execute("INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'bench-' || i % " + USERS + ", 'title', 'description', 0, 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (QUESTIONS - 1) + ") i");
+        execute("INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'bench-' || i % " + USERS + ", " + ID + " + i % " + QUESTIONS + ", 'description', 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (ANSWERS - 1) + ") i");
+        execute("INSERT INTO TAB_COMMENT (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_ANSWER_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'bench-' || i % " + USERS + ", "
+                + "CASE WHEN i % 2 = 0 THEN " + ID + " + i % " + QUESTIONS + " END, "
+                + "CASE WHEN i % 2 = 1 THEN " + ID + " + i % " + ANSWERS + " END, 'description', 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (COMMENTS - 1) + ") i");
+        execute("INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_FIRST_NAME, COL_LAST_NAME, COL_REPUTATION, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'bench-' || i, 'first', 'last', 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (PROFILES - 1) + ") i");
+        execute("ANALYZE TAB_QUESTION, TAB_ANSWER, TAB_COMMENT, TAB_PROFILE");
+    }
+
+    private void execute(final String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import de.maxwell.qa.infrastructure.search.MinHashIndex;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near-duplicate lookups over the generated questions of the {@link SearchBenchmark}. Their common words make many
+ * unrelated questions share buckets, so the lookups compare the most candidates they may.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DuplicateBenchmark {
+
+    private static final double THRESHOLD = 0.5;
+
+    @Param({"100000", "1000000"})
+    private int questions;
+
+    private MinHashIndex index;
+
+    private String text;
+
+    private long id;
+
+    @Setup
+    public void setUp() {
+        index = new MinHashIndex();
+        SearchBenchmark.fill(questions, (id, fields) -> {
+            String text = String.join("\n", fields);
+            index.put(id, text);
+            if (id == 1) {
+                this.text = text;
+            }
+        });
+    }
+
+    @Benchmark
+    public List<SearchHit> similarToQuestion() {
+        id = id % questions + 1;
+        return index.similar(id, 10, THRESHOLD);
+    }
+
+    /**
+     * A new question with the text of an existing one, like a question before it is posted
+     */
+    @Benchmark
+    public List<SearchHit> similarToText() {
+        return index.similar(text, 10, THRESHOLD);
+    }
+
+    /**
+     * Replace the text of a question, like an edit of its description
+     */
+    @Benchmark
+    public void put() {
+        id = id % questions + 1;
+        index.put(id, text);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import org.eclipse.microprofile.jwt.Claims;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static de.maxwell.qa.infrastructure.helper.JWTCheck.checkJWT;
+
+/**
+ * The ownership check every mutating request runs against the subject of its token
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JWTCheckBenchmark {
+
+    private JsonWebToken jwt = new StaticJsonWebToken("5a2d7a0c-8d4f-4b5e-9c61-3f0e1b2a7d44");
+
+    private String owner = "5a2d7a0c-8d4f-4b5e-9c61-3f0e1b2a7d44";
+
+    private String other = "5a2d7a0c-8d4f-4b5e-9c61-3f0e1b2a7d45";
+
+    @Benchmark
+    public boolean checkOwner() {
+        return checkJWT(jwt, owner);
+    }
+
+    @Benchmark
+    public boolean checkOther() {
+        return checkJWT(jwt, other);
+    }
+
+    /**
+     * Token with fixed claims, like the one the OIDC extension injects after the signature was verified
+     */
+    private static class StaticJsonWebToken implements JsonWebToken {
+
+        private final Map<String, Object> claims = new HashMap<>();
+
+        StaticJsonWebToken(final String subject) {
+            claims.put(Claims.sub.name(), subject);
+            claims.put(Claims.iss.name(), "http://keycloak:8080/auth/realms/master");
+        }
+
+        @Override
+        public String getName() {
+            return getSubject();
+        }
+
+        @Override
+        public Set<String> getClaimNames() {
+            return Collections.unmodifiableSet(claims.keySet());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getClaim(final String claimName) {
+            return (T) claims.get(claimName);
+        }
+    }
+}
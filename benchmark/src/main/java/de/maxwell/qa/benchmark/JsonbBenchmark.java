@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import de.maxwell.qa.domain.answer.Answer;
+import de.maxwell.qa.domain.comment.Comment;
+import de.maxwell.qa.domain.profile.Profile;
+import de.maxwell.qa.domain.question.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-B serialization of the entity lists the list endpoints return
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonbBenchmark {
+
+    @Param({"10", "100"})
+    private int size;
+
+    private Jsonb jsonb;
+
+    private List<Question> questions;
+
+    private List<Answer> answers;
+
+    private List<Comment> comments;
+
+    private List<Profile> profiles;
+
+    @Setup
+    public void setUp() {
+        jsonb = JsonbBuilder.create();
+
+        questions = new ArrayList<>(size);
+        answers = new ArrayList<>(size);
+        comments = new ArrayList<>(size);
+        profiles = new ArrayList<>(size);
+
+        for (long id = 1; id <= size; id++) {
+            Question question = Question.newBuilder()
+                    .withUserID("user-" + id)
+                    .withTitle("title of question " + id)
+                    .withDescription("description of question " + id)
+                    .build();
+            question.setId(id);
+            questions.add(question);
+
+            Answer answer = Answer.newBuilder()
+                    .withUserID("user-" + id)
+                    .withQuestionID(id)
+                    .withDescription("description of answer " + id)
+                    .build();
+            answer.setId(id);
+            answers.add(answer);
+
+            Comment comment = Comment.newBuilder()
+                    .withUserID("user-" + id)
+                    .withAnswerID(id)
+                    .withDescription("description of comment " + id)
+                    .build();
+            comment.setId(id);
+            comments.add(comment);
+
+            Profile profile = Profile.newBuilder()
+                    .withUserID("user-" + id)
+                    .withFirstName("first " + id)
+                    .withLastName("last " + id)
+                    .withDescription("description of profile " + id)
+                    .build();
+            profile.setId(id);
+            profiles.add(profile);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public String serializeQuestions() {
+        return jsonb.toJson(questions);
+    }
+
+    @Benchmark
+    public String serializeAnswers() {
+        return jsonb.toJson(answers);
+    }
+
+    @Benchmark
+    public String serializeComments() {
+        return jsonb.toJson(comments);
+    }
+
+    @Benchmark
+    public String serializeProfiles() {
+        return jsonb.toJson(profiles);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Registry outside of any transaction, the read paths of the repositories never start one
+ */
+class NoTransactionRegistry implements TransactionSynchronizationRegistry {
+
+    @Override
+    public Object getTransactionKey() {
+        return null;
+    }
+
+    @Override
+    public void putResource(final Object key, final Object value) {
+        throw new IllegalStateException("no transaction");
+    }
+
+    @Override
+    public Object getResource(final Object key) {
+        throw new IllegalStateException("no transaction");
+    }
+
+    @Override
+    public void registerInterposedSynchronization(final Synchronization sync) {
+        throw new IllegalStateException("no transaction");
+    }
+
+    @Override
+    public int getTransactionStatus() {
+        return Status.STATUS_NO_TRANSACTION;
+    }
+
+    @Override
+    public void setRollbackOnly() {
+        throw new IllegalStateException("no transaction");
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        throw new IllegalStateException("no transaction");
+    }
+}
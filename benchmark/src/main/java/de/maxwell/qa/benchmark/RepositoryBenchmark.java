@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import de.maxwell.qa.domain.answer.Answer;
+import de.maxwell.qa.domain.answer.AnswerRepository;
+import de.maxwell.qa.domain.comment.Comment;
+import de.maxwell.qa.domain.comment.CommentRepository;
+import de.maxwell.qa.domain.profile.Profile;
+import de.maxwell.qa.domain.profile.ProfileRepository;
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionNotFoundException;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionViewCounter;
+import de.maxwell.qa.infrastructure.cache.EntityCache;
+import de.maxwell.qa.infrastructure.cache.IdFilters;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.persistence.EntityManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * The read paths of the repositories against Postgres, see {@link BenchmarkDatabase}. The repositories and their
+ * caches are wired by hand, as CDI would inject them, on top of a plain Hibernate session factory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+
+    private static final int LIMIT = 20;
+
+    private BenchmarkDatabase database;
+
+    private SessionFactory sessionFactory;
+
+    private EntityManager em;
+
+    private EntityCache entityCache;
+
+    private QuestionRepository questionRepository;
+
+    private AnswerRepository answerRepository;
+
+    private CommentRepository commentRepository;
+
+    private ProfileRepository profileRepository;
+
+    private Cursor cursor;
+
+    private List<Long> answerIDs;
+
+    private long next;
+
+    @Setup
+    public void setUp() throws Exception {
+        // the repositories log every call, which would be most of the measured time
+        Logger.getLogger("").setLevel(java.util.logging.Level.WARNING);
+
+        database = BenchmarkDatabase.start();
+        sessionFactory = database.createSessionFactory();
+        em = sessionFactory.createEntityManager();
+
+        MetricRegistry metricRegistry = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+        TransactionSynchronizationRegistry transactionRegistry = new NoTransactionRegistry();
+
+        entityCache = new EntityCache();
+        inject(entityCache, "maxSize", 10_000);
+        inject(entityCache, "ttl", Duration.ofSeconds(30));
+        inject(entityCache, "metricRegistry", metricRegistry);
+        inject(entityCache, "transactionRegistry", transactionRegistry);
+
+        IdFilters idFilters = new IdFilters();
+        inject(idFilters, "em", em);
+        inject(idFilters, "metricRegistry", metricRegistry);
+        inject(idFilters, "transactionRegistry", transactionRegistry);
+        idFilters.rebuild();
+
+        questionRepository = new QuestionRepository();
+        inject(questionRepository, "viewCounter", new QuestionViewCounter());
+        answerRepository = new AnswerRepository();
+        commentRepository = new CommentRepository();
+        profileRepository = new ProfileRepository();
+
+        for (Object repository : new Object[]{questionRepository, answerRepository, commentRepository, profileRepository}) {
+            inject(repository, "em", em);
+            inject(repository, "entityCache", entityCache);
+            inject(repository, "idFilters", idFilters);
+        }
+
+        Page<Question> first = questionRepository.listAllAfter(LIMIT, null);
+        cursor = Cursor.decode(first.getNext());
+
+        answerIDs = answerRepository.listAllAnswers(BenchmarkDatabase.ID)
+                .stream()
+                .map(Answer::getId)
+                .collect(Collectors.toList());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        em.close();
+        sessionFactory.close();
+        database.close();
+    }
+
+    /**
+     * Queries leave their results managed, which must not pile up over the iterations
+     */
+    @Setup(Level.Invocation)
+    public void clear() {
+        em.clear();
+    }
+
+    @Benchmark
+    public Question findQuestionCached() {
+        return questionRepository.findById(BenchmarkDatabase.ID);
+    }
+
+    @Benchmark
+    public Question findQuestionUncached() {
+        Long id = nextQuestionID();
+        entityCache.invalidate(Question.class, id);
+
+        return questionRepository.findById(id);
+    }
+
+    @Benchmark
+    public Object findMissingQuestion() {
+        try {
+            return questionRepository.findById(BenchmarkDatabase.ID - 1);
+        } catch (QuestionNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Page<Question> listQuestionsAfter() {
+        return questionRepository.listAllAfter(LIMIT, cursor);
+    }
+
+    @Benchmark
+    public List<Question> listQuestionsPaginated() {
+        return questionRepository.listAllPaginated(LIMIT, 10);
+    }
+
+    @Benchmark
+    public Long countQuestionsOfUser() {
+        return questionRepository.countNumberOfQuestionsOfUser("bench-1");
+    }
+
+    @Benchmark
+    public List<Answer> listAnswersOfQuestion() {
+        return answerRepository.listAllAnswers(nextQuestionID());
+    }
+
+    @Benchmark
+    public List<Comment> listCommentsOfThread() {
+        return commentRepository.listAllByQuestionIDOrAnswerIDs(BenchmarkDatabase.ID, answerIDs);
+    }
+
+    @Benchmark
+    public List<Profile> listProfilesPaginated() {
+        return profileRepository.listAllPaginated(LIMIT, 10);
+    }
+
+    private Long nextQuestionID() {
+        next = (next + 1) % BenchmarkDatabase.QUESTIONS;
+        return BenchmarkDatabase.ID + next;
+    }
+
+    private static void inject(final Object target, final String name, final Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import de.maxwell.qa.infrastructure.search.InvertedIndex;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import de.maxwell.qa.infrastructure.search.SegmentedIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Searches of the question search index over generated questions, with the postings on the heap or in mapped segment
+ * files. The words are drawn with a Zipf-like distribution, so the common words have long postings like in real text
+ * and the rare words short ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    static final int VOCABULARY = 50_000;
+
+    private static final int TITLE_WORDS = 8;
+
+    private static final int DESCRIPTION_WORDS = 40;
+
+    @Param({"100000", "1000000"})
+    private int questions;
+
+    @Param({"heap", "mapped"})
+    private String storage;
+
+    private Path directory;
+
+    private SegmentedIndex segmentedIndex;
+
+    private BiFunction<String, Integer, List<SearchHit>> index;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("heap".equals(storage)) {
+            InvertedIndex inMemory = new InvertedIndex(2, 1);
+            fill(questions, inMemory::put);
+            index = inMemory::search;
+        } else {
+            directory = Files.createTempDirectory("search-benchmark");
+            segmentedIndex = createSegmentedIndex(directory, questions);
+            index = segmentedIndex::search;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (segmentedIndex != null) {
+            segmentedIndex.close();
+            delete(directory);
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> commonTerm() {
+        return index.apply(word(1), 20);
+    }
+
+    @Benchmark
+    public List<SearchHit> rareTerm() {
+        return index.apply(word(VOCABULARY / 2), 20);
+    }
+
+    @Benchmark
+    public List<SearchHit> threeTerms() {
+        return index.apply(word(3) + " " + word(100) + " " + word(5_000), 20);
+    }
+
+    @Benchmark
+    public List<SearchHit> prefix() {
+        return index.apply(word(100).substring(0, 3) + "*", 20);
+    }
+
+    interface Sink {
+        void put(long id, String... fields);
+    }
+
+    static void fill(final int questions, final Sink index) {
+        Random random = new Random(42);
+        for (long id = 1; id <= questions; id++) {
+            index.put(id, text(random, TITLE_WORDS), text(random, DESCRIPTION_WORDS));
+        }
+    }
+
+    /**
+     * Segmented index like after a rebuild: loaded, flushed and merged
+     */
+    static SegmentedIndex createSegmentedIndex(final Path directory, final int questions) {
+        SegmentedIndex index = SegmentedIndex.open(directory, 10_000, 2, 1);
+        fill(questions, index::load);
+        index.flush();
+        while (index.merge()) {
+            // down to a few segments
+        }
+        return index;
+    }
+
+    static void delete(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String text(final Random random, final int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            // rank between 1 and the size of the vocabulary, rank r with a probability of about 1 / r
+            int rank = (int) Math.pow(VOCABULARY, random.nextDouble());
+            text.append(word(rank)).append(' ');
+        }
+        return text.toString();
+    }
+
+    static String word(final int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.benchmark;
+
+import de.maxwell.qa.infrastructure.search.CompletionTrie;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title completion over generated titles of the words of the {@link SearchBenchmark}, with view counts spread like
+ * popularity usually is: few questions with many views, many with few
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SuggestBenchmark {
+
+    private static final int TITLE_WORDS = 6;
+
+    @Param({"100000", "1000000"})
+    private int questions;
+
+    private CompletionTrie trie;
+
+    private long id;
+
+    @Setup
+    public void setUp() {
+        trie = new CompletionTrie();
+
+        Random random = new Random(42);
+        for (long id = 1; id <= questions; id++) {
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < TITLE_WORDS; i++) {
+                title.append(SearchBenchmark.word((int) Math.pow(SearchBenchmark.VOCABULARY, random.nextDouble()))).append(' ');
+            }
+            trie.put(id, title.toString(), (long) Math.pow(100_000, random.nextDouble()));
+        }
+    }
+
+    /**
+     * A single character matches most titles
+     */
+    @Benchmark
+    public List<SearchHit> shortPrefix() {
+        return trie.complete("w", 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> wordPrefix() {
+        return trie.complete(SearchBenchmark.word(1) + " " + SearchBenchmark.word(2).substring(0, 2), 10);
+    }
+
+    /**
+     * Views of a question while others complete, like the view flush does
+     */
+    @Benchmark
+    public boolean adjust() {
+        id = id % questions + 1;
+        return trie.adjust(id, 1L);
+    }
+}
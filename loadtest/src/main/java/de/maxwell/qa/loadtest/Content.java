@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.function.IntFunction;
+
+/**
+ * Users and the ids of the content created for them before the run, which the requests of the mix refer to
+ */
+class Content {
+    private static final Logger LOG = LoggerFactory.getLogger(Content.class);
+
+    private final String[] users;
+
+    final long[] profileIDs;
+
+    final long[] questionIDs;
+
+    final long[] answerIDs;
+
+    final long[] commentIDs;
+
+    private Content(final String[] users, final long[] profileIDs, final long[] questionIDs, final long[] answerIDs, final long[] commentIDs) {
+        this.users = users;
+        this.profileIDs = profileIDs;
+        this.questionIDs = questionIDs;
+        this.answerIDs = answerIDs;
+        this.commentIDs = commentIDs;
+    }
+
+    String user(final Random random) {
+        return users[random.nextInt(users.length)];
+    }
+
+    static long pick(final long[] ids, final Random random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    /**
+     * Create a profile for every user and spread the questions, answers and comments over them through the bulk
+     * endpoints
+     */
+    static Content seed(final LoadTestConfig config, final String baseUrl, final OidcStub oidc) throws IOException {
+        Random random = new Random(42);
+
+        String[] users = new String[config.users];
+        List<Long> profileIDs = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            users[i] = "loadtest-user-" + i;
+            profileIDs.addAll(post(baseUrl + "/profile", oidc.token(users[i]),
+                    "{\"userID\":\"" + users[i] + "\",\"firstName\":\"Load\",\"lastName\":\"Test " + i + "\"}"));
+        }
+
+        List<Long> questionIDs = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            String user = users[i];
+            questionIDs.addAll(post(baseUrl + "/question/bulk", oidc.token(user), array(share(config.questions, users.length, i),
+                    n -> "{\"userID\":\"" + user + "\",\"title\":\"Question " + n + " of " + user + "\","
+                            + "\"description\":\"How does " + user + " do " + n + "?\"}")));
+        }
+        long[] questions = toArray(questionIDs);
+
+        List<Long> answerIDs = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            String user = users[i];
+            answerIDs.addAll(post(baseUrl + "/answer/bulk", oidc.token(user), array(share(config.answers, users.length, i),
+                    n -> "{\"userID\":\"" + user + "\",\"questionID\":" + pick(questions, random) + ","
+                            + "\"description\":\"Answer " + n + " of " + user + "\"}")));
+        }
+        long[] answers = toArray(answerIDs);
+
+        List<Long> commentIDs = new ArrayList<>();
+        for (int i = 0; i < users.length; i++) {
+            String user = users[i];
+            commentIDs.addAll(post(baseUrl + "/comment/bulk", oidc.token(user), array(share(config.comments, users.length, i),
+                    n -> "{\"userID\":\"" + user + "\","
+                            + (n % 2 == 0 ? "\"questionID\":" + pick(questions, random) : "\"answerID\":" + pick(answers, random)) + ","
+                            + "\"description\":\"Comment " + n + " of " + user + "\"}")));
+        }
+
+        LOG.info("Seeded {} profiles, {} questions, {} answers and {} comments",
+                profileIDs.size(), questionIDs.size(), answerIDs.size(), commentIDs.size());
+
+        return new Content(users, toArray(profileIDs), questions, answers, toArray(commentIDs));
+    }
+
+    private static List<Long> post(final String url, final String token, final String json) throws IOException {
+        Http response = Http.send("POST", url, token, json);
+        if (!response.isSuccess()) {
+            throw new IllegalStateException("Seeding " + url + " failed with " + response.status + ": " + response.body);
+        }
+
+        return response.ids();
+    }
+
+    /**
+     * @return number of elements of the user with the index, the first users take the remainder
+     */
+    private static int share(final int total, final int users, final int index) {
+        return total / users + (index < total % users ? 1 : 0);
+    }
+
+    private static String array(final int size, final IntFunction<String> element) {
+        StringJoiner array = new StringJoiner(",", "[", "]");
+        for (int n = 0; n < size; n++) {
+            array.add(element.apply(n));
+        }
+        return array.toString();
+    }
+
+    private static long[] toArray(final List<Long> ids) {
+        return ids.stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+}
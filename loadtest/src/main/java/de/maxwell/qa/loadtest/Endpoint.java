@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Requests of the mix, each against a random piece of the seeded content
+ */
+enum Endpoint {
+    getQuestion {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/question/" + Content.pick(content.questionIDs, random), null, null);
+        }
+    },
+    getThread {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/question/" + Content.pick(content.questionIDs, random) + "/thread", null, null);
+        }
+    },
+    listQuestions {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/question?limit=20&offset=0", null, null);
+        }
+    },
+    viewQuestion {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("PUT", baseUrl + "/question/" + Content.pick(content.questionIDs, random) + "/view", null, null);
+        }
+    },
+    upvoteQuestion {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("PUT", baseUrl + "/question/" + Content.pick(content.questionIDs, random) + "/rating", null, null);
+        }
+    },
+    getAnswer {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/answer/" + Content.pick(content.answerIDs, random), null, null);
+        }
+    },
+    listAnswers {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/answer?questionID=" + Content.pick(content.questionIDs, random)
+                    + "&limit=20&offset=0", null, null);
+        }
+    },
+    getComment {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/comment/" + Content.pick(content.commentIDs, random), null, null);
+        }
+    },
+    listComments {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/comment?questionID=" + Content.pick(content.questionIDs, random)
+                    + "&limit=20&offset=0", null, null);
+        }
+    },
+    getProfile {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/profile/" + Content.pick(content.profileIDs, random), null, null);
+        }
+    },
+    listProfiles {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            return Http.send("GET", baseUrl + "/profile?limit=20&offset=0", null, null);
+        }
+    },
+    createQuestion {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            String user = content.user(random);
+            return Http.send("POST", baseUrl + "/question", oidc.token(user),
+                    "{\"userID\":\"" + user + "\",\"title\":\"Load test question\",\"description\":\"Asked during the load test\"}");
+        }
+    },
+    createAnswer {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            String user = content.user(random);
+            return Http.send("POST", baseUrl + "/answer", oidc.token(user),
+                    "{\"userID\":\"" + user + "\",\"questionID\":" + Content.pick(content.questionIDs, random) + ","
+                            + "\"description\":\"Answered during the load test\"}");
+        }
+    },
+    createComment {
+        @Override
+        Http send(final String baseUrl, final Content content, final OidcStub oidc, final Random random) throws IOException {
+            // the single create expects both ids
+            String user = content.user(random);
+            return Http.send("POST", baseUrl + "/comment", oidc.token(user),
+                    "{\"userID\":\"" + user + "\",\"questionID\":" + Content.pick(content.questionIDs, random) + ","
+                            + "\"answerID\":" + Content.pick(content.answerIDs, random) + ","
+                            + "\"description\":\"Commented during the load test\"}");
+        }
+    };
+
+    /**
+     * Send one request of this endpoint
+     *
+     * @return status and body of the response
+     */
+    abstract Http send(String baseUrl, Content content, OidcStub oidc, Random random) throws IOException;
+
+    static Endpoint byName(final String name) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint " + name + ", known are "
+                        + Arrays.stream(values()).map(Endpoint::name).collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Boots the qa application against a throwaway Postgres and a stub OIDC issuer, seeds it with content and drives a
+ * request mix at a fixed rate against it:
+ * <pre>
+ * mvn -B package -DskipTests
+ * java -Dloadtest.rate=500 -jar loadtest/target/loadtest-runner.jar
+ * </pre>
+ * The settings are described at {@link LoadTestConfig}.
+ */
+public class LoadTest {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    public static void main(final String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+
+        try (PostgresStandIn database = PostgresStandIn.start(config);
+             OidcStub oidc = OidcStub.start();
+             QaApplication application = QaApplication.start(config, database, oidc)) {
+            Content content = Content.seed(config, application.baseUrl, oidc);
+
+            Map<Endpoint, OpenLoopDriver.Stats> stats = new OpenLoopDriver(config, application.baseUrl, content, oidc).run();
+
+            Report report = new Report(stats, config.duration);
+            report.print(System.out);
+            report.write(config.report);
+
+            LOG.info("Report written to {}", config.report);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * Settings of a load test run, read from system properties:
+ * <ul>
+ * <li>{@code loadtest.rate} requests per second, spread evenly over time (default 200)</li>
+ * <li>{@code loadtest.warmup} seconds of traffic before the measurement, not reported (default 15)</li>
+ * <li>{@code loadtest.duration} seconds of measured traffic (default 60)</li>
+ * <li>{@code loadtest.mix} weight of every endpoint, for example {@code getQuestion:40,createAnswer:2}</li>
+ * <li>{@code loadtest.threads} concurrent connections to the application (default 256)</li>
+ * <li>{@code loadtest.users}, {@code loadtest.questions}, {@code loadtest.answers}, {@code loadtest.comments}
+ * content created before the run</li>
+ * <li>{@code loadtest.app} the runner jar of the qa application (default qa/target/qa-runner.jar)</li>
+ * <li>{@code loadtest.port} http port of the application (default 8090)</li>
+ * <li>{@code loadtest.jdbc.url}, {@code loadtest.jdbc.username}, {@code loadtest.jdbc.password} an existing empty
+ * database, otherwise a Postgres container is started</li>
+ * <li>{@code loadtest.report} csv file of the results (default loadtest/target/loadtest-report.csv)</li>
+ * </ul>
+ */
+class LoadTestConfig {
+
+    /**
+     * Read-heavy like a Q&A site: mostly question pages, few new posts
+     */
+    static final String DEFAULT_MIX = "getQuestion:25,getThread:20,listQuestions:10,viewQuestion:10,getAnswer:5,"
+            + "listAnswers:5,getComment:5,listComments:5,getProfile:4,listProfiles:3,upvoteQuestion:3,"
+            + "createQuestion:2,createAnswer:2,createComment:1";
+
+    final int rate;
+
+    final int warmup;
+
+    final int duration;
+
+    final Map<Endpoint, Integer> mix;
+
+    final int threads;
+
+    final int users;
+
+    final int questions;
+
+    final int answers;
+
+    final int comments;
+
+    final Path app;
+
+    final int port;
+
+    final String jdbcUrl;
+
+    final String jdbcUsername;
+
+    final String jdbcPassword;
+
+    final Path report;
+
+    private LoadTestConfig() {
+        rate = Integer.getInteger("loadtest.rate", 200);
+        warmup = Integer.getInteger("loadtest.warmup", 15);
+        duration = Integer.getInteger("loadtest.duration", 60);
+        mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+        threads = Integer.getInteger("loadtest.threads", 256);
+        users = Integer.getInteger("loadtest.users", 50);
+        questions = Integer.getInteger("loadtest.questions", 2_000);
+        answers = Integer.getInteger("loadtest.answers", 6_000);
+        comments = Integer.getInteger("loadtest.comments", 6_000);
+        app = Paths.get(System.getProperty("loadtest.app", "qa/target/qa-runner.jar"));
+        port = Integer.getInteger("loadtest.port", 8090);
+        jdbcUrl = System.getProperty("loadtest.jdbc.url");
+        jdbcUsername = System.getProperty("loadtest.jdbc.username", "postgres");
+        jdbcPassword = System.getProperty("loadtest.jdbc.password", "postgres");
+        report = Paths.get(System.getProperty("loadtest.report", "loadtest/target/loadtest-report.csv"));
+
+        isTrue(rate > 0, "loadtest.rate must be positive");
+        isTrue(duration > 0, "loadtest.duration must be positive");
+        isTrue(warmup >= 0, "loadtest.warmup cannot be negative");
+        isTrue(threads > 0, "loadtest.threads must be positive");
+        isTrue(users > 0 && questions >= users, "loadtest.questions must be at least loadtest.users");
+        isTrue(answers >= users && comments >= users, "loadtest.answers and loadtest.comments must be at least loadtest.users");
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig();
+    }
+
+    private static Map<Endpoint, Integer> parseMix(final String mix) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            isTrue(parts.length == 2, "loadtest.mix entries look like endpoint:weight, not %s", entry);
+
+            int weight = Integer.parseInt(parts[1].trim());
+            isTrue(weight >= 0, "weight of %s cannot be negative", parts[0]);
+
+            weights.put(Endpoint.byName(parts[0].trim()), weight);
+        }
+        isTrue(weights.values().stream().mapToInt(Integer::intValue).sum() > 0, "loadtest.mix needs a positive weight");
+
+        return weights;
+    }
+}
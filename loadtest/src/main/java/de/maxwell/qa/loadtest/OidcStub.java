@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OpenID provider for the application under load, in place of Keycloak. Serves the discovery document and the
+ * public key, and signs RS256 tokens for any user, so requests are verified like in production without a token
+ * endpoint round trip.
+ */
+class OidcStub implements AutoCloseable {
+
+    static final String REALM = "/auth/realms/master";
+
+    private static final String KEY_ID = "loadtest";
+
+    private static final long TOKEN_LIFETIME_SECONDS = 24 * 60 * 60;
+
+    private final HttpServer server;
+
+    private final KeyPair keys;
+
+    private final String issuer;
+
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+    private OidcStub(final HttpServer server, final KeyPair keys) {
+        this.server = server;
+        this.keys = keys;
+        this.issuer = "http://localhost:" + server.getAddress().getPort() + REALM;
+    }
+
+    static OidcStub start() throws IOException, GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        OidcStub stub = new OidcStub(server, generator.generateKeyPair());
+
+        server.createContext(REALM + "/.well-known/openid-configuration", exchange -> stub.respond(exchange, stub.discovery()));
+        server.createContext(REALM + "/protocol/openid-connect/certs", exchange -> stub.respond(exchange, stub.jwks()));
+        server.start();
+
+        return stub;
+    }
+
+    /**
+     * @return value of quarkus.oidc.auth-server-url
+     */
+    String issuer() {
+        return issuer;
+    }
+
+    /**
+     * @param subject user id the application compares with the userID of the request
+     * @return signed access token, the same one for every call with the subject
+     */
+    String token(final String subject) {
+        return tokens.computeIfAbsent(subject, this::sign);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private String sign(final String subject) {
+        long now = System.currentTimeMillis() / 1000;
+
+        String header = "{\"alg\":\"RS256\",\"typ\":\"JWT\",\"kid\":\"" + KEY_ID + "\"}";
+        String payload = "{\"iss\":\"" + issuer + "\",\"sub\":\"" + subject + "\",\"aud\":\"account\","
+                + "\"azp\":\"qa-backend\",\"typ\":\"Bearer\",\"preferred_username\":\"" + subject + "\","
+                + "\"realm_access\":{\"roles\":[\"user\"]},\"iat\":" + now + ",\"exp\":" + (now + TOKEN_LIFETIME_SECONDS) + "}";
+
+        String content = base64(header.getBytes(StandardCharsets.UTF_8)) + "." + base64(payload.getBytes(StandardCharsets.UTF_8));
+        try {
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keys.getPrivate());
+            signature.update(content.getBytes(StandardCharsets.US_ASCII));
+
+            return content + "." + base64(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign token of " + subject, e);
+        }
+    }
+
+    private String discovery() {
+        String openIdConnect = issuer + "/protocol/openid-connect";
+
+        return "{\"issuer\":\"" + issuer + "\","
+                + "\"authorization_endpoint\":\"" + openIdConnect + "/auth\","
+                + "\"token_endpoint\":\"" + openIdConnect + "/token\","
+                + "\"userinfo_endpoint\":\"" + openIdConnect + "/userinfo\","
+                + "\"introspection_endpoint\":\"" + openIdConnect + "/token/introspect\","
+                + "\"jwks_uri\":\"" + openIdConnect + "/certs\","
+                + "\"id_token_signing_alg_values_supported\":[\"RS256\"]}";
+    }
+
+    private String jwks() {
+        RSAPublicKey key = (RSAPublicKey) keys.getPublic();
+
+        return "{\"keys\":[{\"kid\":\"" + KEY_ID + "\",\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\","
+                + "\"n\":\"" + base64(unsigned(key.getModulus())) + "\","
+                + "\"e\":\"" + base64(unsigned(key.getPublicExponent())) + "\"}]}";
+    }
+
+    private void respond(final HttpExchange exchange, final String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String base64(final byte[] bytes) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(bytes);
+    }
+
+    /**
+     * JWK wants the big-endian magnitude without the sign byte of {@link BigInteger#toByteArray()}
+     */
+    private static byte[] unsigned(final BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] != 0) {
+            return bytes;
+        }
+
+        byte[] magnitude = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, magnitude, 0, magnitude.length);
+        return magnitude;
+    }
+}
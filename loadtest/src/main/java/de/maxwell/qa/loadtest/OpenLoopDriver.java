@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a constant rate regardless of how fast the application answers. Request i is due at
+ * {@code start + i / rate}; when all connections are busy it waits in the queue and that wait counts towards its
+ * latency, so a stalled application shows up in the percentiles instead of silently lowering the load.
+ */
+class OpenLoopDriver {
+    private static final Logger LOG = LoggerFactory.getLogger(OpenLoopDriver.class);
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LoadTestConfig config;
+
+    private final String baseUrl;
+
+    private final Content content;
+
+    private final OidcStub oidc;
+
+    OpenLoopDriver(final LoadTestConfig config, final String baseUrl, final Content content, final OidcStub oidc) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.content = content;
+        this.oidc = oidc;
+    }
+
+    /**
+     * Latencies of the measured requests of one endpoint, in microseconds
+     */
+    static class Stats {
+        /**
+         * From the time the request was due until the response was read
+         */
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+        /**
+         * From the time the request was sent until the response was read, what a closed loop would report
+         */
+        final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+        final LongAdder errors = new LongAdder();
+    }
+
+    Map<Endpoint, Stats> run() throws InterruptedException {
+        Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+        config.mix.forEach((endpoint, weight) -> {
+            if (weight > 0) {
+                stats.put(endpoint, new Stats());
+            }
+        });
+        Endpoint[] endpoints = stats.keySet().toArray(new Endpoint[0]);
+        int[] cumulativeWeights = new int[endpoints.length];
+        int totalWeight = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            totalWeight += config.mix.get(endpoints[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / config.rate;
+        long requests = (long) (config.warmup + config.duration) * config.rate;
+        Random random = new Random(42);
+
+        LOG.info("Sending {} requests per second for {}s of warmup and {}s of measurement", config.rate, config.warmup, config.duration);
+
+        ExecutorService executor = Executors.newFixedThreadPool(config.threads);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(config.warmup);
+        try {
+            for (long i = 0; i < requests; i++) {
+                long due = start + i * interval;
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Endpoint endpoint = pick(endpoints, cumulativeWeights, random.nextInt(totalWeight));
+                boolean measured = due >= measureFrom;
+                executor.execute(() -> send(endpoint, due, measured ? stats.get(endpoint) : null));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(5, TimeUnit.MINUTES);
+
+        LOG.info("Dispatched {} requests in {}s", requests, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+
+        return stats;
+    }
+
+    /**
+     * @param stats where to record the request, null during warmup
+     */
+    private void send(final Endpoint endpoint, final long due, final Stats stats) {
+        long begin = System.nanoTime();
+        boolean success;
+        try {
+            success = endpoint.send(baseUrl, content, oidc, ThreadLocalRandom.current()).isSuccess();
+        } catch (IOException e) {
+            LOG.debug("{} failed", endpoint, e);
+            success = false;
+        }
+        long end = System.nanoTime();
+
+        if (stats != null) {
+            stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(end - due), HIGHEST_MICROS));
+            stats.serviceTime.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(end - begin), HIGHEST_MICROS));
+            if (!success) {
+                stats.errors.increment();
+            }
+        }
+    }
+
+    private static Endpoint pick(final Endpoint[] endpoints, final int[] cumulativeWeights, final int value) {
+        int i = 0;
+        while (cumulativeWeights[i] <= value) {
+            i++;
+        }
+        return endpoints[i];
+    }
+}
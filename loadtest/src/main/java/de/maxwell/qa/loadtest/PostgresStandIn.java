@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Database of the application under load: the one of {@code loadtest.jdbc.url}, otherwise a container with the
+ * Postgres version of docker-compose.yml. The application creates the schema with its migrations on startup.
+ */
+class PostgresStandIn implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> container;
+
+    final String url;
+
+    final String username;
+
+    final String password;
+
+    private PostgresStandIn(final PostgreSQLContainer<?> container, final String url, final String username, final String password) {
+        this.container = container;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    static PostgresStandIn start(final LoadTestConfig config) {
+        if (config.jdbcUrl != null) {
+            return new PostgresStandIn(null, config.jdbcUrl, config.jdbcUsername, config.jdbcPassword);
+        }
+
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:12-alpine")
+                .withDatabaseName("qa")
+                .withUsername("postgres")
+                .withPassword("postgres");
+        container.start();
+
+        return new PostgresStandIn(container, container.getJdbcUrl(), container.getUsername(), container.getPassword());
+    }
+
+    @Override
+    public void close() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+/**
+ * The qa runner jar in its own JVM, like in the container of docker-compose.yml, wired to the Postgres stand-in and
+ * the OIDC stub
+ */
+class QaApplication implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(QaApplication.class);
+
+    private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private final Process process;
+
+    final String baseUrl;
+
+    private QaApplication(final Process process, final String baseUrl) {
+        this.process = process;
+        this.baseUrl = baseUrl;
+    }
+
+    static QaApplication start(final LoadTestConfig config, final PostgresStandIn database, final OidcStub oidc) throws IOException, InterruptedException {
+        isTrue(Files.isRegularFile(config.app), "%s not found, build it with mvn package first", config.app);
+
+        Path log = config.report.resolveSibling("qa.log");
+        Files.createDirectories(log.getParent());
+
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dquarkus.http.port=" + config.port);
+        command.add("-Dquarkus.datasource.url=" + database.url);
+        command.add("-Dquarkus.datasource.username=" + database.username);
+        command.add("-Dquarkus.datasource.password=" + database.password);
+        command.add("-Dquarkus.oidc.auth-server-url=" + oidc.issuer());
+        command.add("-Dqa.search.directory=" + log.resolveSibling("search"));
+        command.add("-Dqa.blob.directory=" + log.resolveSibling("blobs"));
+        command.add("-Dqa.thumbnail.directory=" + log.resolveSibling("thumbnails"));
+        command.add("-jar");
+        command.add(config.app.toString());
+
+        LOG.info("Start {}, output in {}", config.app, log);
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+
+        QaApplication application = new QaApplication(process, "http://localhost:" + config.port);
+        try {
+            application.awaitReady();
+        } catch (RuntimeException | InterruptedException e) {
+            application.close();
+            throw e;
+        }
+
+        return application;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("qa exited with " + process.exitValue() + " during startup");
+            }
+
+            try {
+                if (Http.send("GET", baseUrl + "/health/ready", null, null).status == 200) {
+                    LOG.info("qa is ready at {}", baseUrl);
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+
+            Thread.sleep(500);
+        }
+
+        throw new IllegalStateException("qa was not ready within " + STARTUP_TIMEOUT_MILLIS + " ms");
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput, errors and latency percentiles of every endpoint in milliseconds. The latencies are measured from the
+ * time a request was due, the uncorrected p99 next to them is the service time a closed loop client would report.
+ */
+class Report {
+
+    private static final String[] COLUMNS = {"endpoint", "requests", "errors", "throughput", "p50", "p99", "p999",
+            "max", "p99_uncorrected"};
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    Report(final Map<Endpoint, OpenLoopDriver.Stats> stats, final int duration) {
+        stats.forEach((endpoint, endpointStats) -> {
+            Histogram latency = endpointStats.latency;
+            rows.add(new Object[]{endpoint.name(), latency.getTotalCount(), endpointStats.errors.sum(),
+                    (double) latency.getTotalCount() / duration, millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()), millis(endpointStats.serviceTime.getValueAtPercentile(99))});
+        });
+    }
+
+    void print(final PrintStream out) {
+        out.printf("%-16s %9s %7s %10s %9s %9s %9s %9s %16s%n", (Object[]) COLUMNS);
+        for (Object[] row : rows) {
+            out.printf(Locale.ROOT, "%-16s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %16.2f%n", row);
+        }
+    }
+
+    void write(final Path csv) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.join(",", COLUMNS));
+        for (Object[] row : rows) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f", row));
+        }
+
+        Files.createDirectories(csv.toAbsolutePath().getParent());
+        Files.write(csv, lines, StandardCharsets.UTF_8);
+    }
+
+    private static double millis(final long micros) {
+        return micros / 1000.0;
+    }
+}
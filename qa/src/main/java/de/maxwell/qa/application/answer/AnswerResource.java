@@ -27,11 +27,11 @@ package de.maxwell.qa.application.answer;
 import de.maxwell.qa.domain.answer.Answer;
 import de.maxwell.qa.domain.answer.AnswerNotFoundException;
 import de.maxwell.qa.domain.answer.AnswerService;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Page;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.eclipse.microprofile.metrics.Counter;
 import org.eclipse.microprofile.metrics.MetricRegistry;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.validation.constraints.Size;
@@ -47,14 +47,16 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static de.maxwell.qa.infrastructure.helper.JWTCheck.checkJWT;
+import static org.apache.commons.lang3.Validate.notNull;
 
 @Path("answer")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class AnswerResource {
-    private static final Logger LOG = LoggerFactory.getLogger(AnswerResource.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(AnswerResource.class);
 
     @Inject
     MetricRegistry metricRegistry;
@@ -96,9 +98,22 @@ public class AnswerResource {
     }
 
     @GET
-    public Response listQuestionsPaginated(@Size(min = 0) @QueryParam("questionID") final Long questionID, @Size(min = 0, max = 50) @QueryParam("limit") final Integer limit, @Size(min = 0) @QueryParam("offset") final Integer offset) {
+    public Response listQuestionsPaginated(@Size(min = 0) @QueryParam("questionID") final Long questionID, @Size(min = 0, max = 50) @QueryParam("limit") final Integer limit, @Size(min = 0) @QueryParam("offset") final Integer offset, @QueryParam("cursor") final String cursor, @QueryParam("fields") final String fields) {
         try {
-            List<Answer> answers = this.service.findAnswersByQuestionID(questionID, limit, offset);
+            if (cursor != null) {
+                Page<?> page = fields == null
+                        ? this.service.findAnswersByQuestionIDAfter(questionID, limit, cursor)
+                        : this.service.findAnswersByQuestionIDAfter(questionID, limit, cursor, fields);
+                LOG.info("Found {} answers of question with id: {} after cursor {}", page.getItems().size(), questionID, cursor);
+
+                return Response.ok()
+                        .entity(page)
+                        .build();
+            }
+
+            List<?> answers = fields == null
+                    ? this.service.findAnswersByQuestionID(questionID, limit, offset)
+                    : this.service.findAnswersByQuestionID(questionID, limit, offset, fields);
             LOG.info("Found {} answers of question with id: {}", limit * offset, questionID);
 
             return Response.ok()
@@ -108,6 +123,10 @@ public class AnswerResource {
             LOG.info("Argument was not correct");
             return Response.status(Response.Status.BAD_REQUEST)
                     .build();
+        } catch (IllegalArgumentException i) {
+            LOG.info("Invalid cursor {} or fields {}", cursor, fields);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
         } catch (Exception e) {
             Counter list_answers_by_question_id_total_500 = metricRegistry.counter("list_answers_by_question_id_total_500");
             list_answers_by_question_id_total_500
@@ -120,9 +139,22 @@ public class AnswerResource {
     }
 
     @GET
-    public Response listQuestionsPaginated(@Size(min = 0, max = 50) @QueryParam("limit") final Integer limit, @Size(min = 0) @QueryParam("offset") final Integer offset) {
+    public Response listQuestionsPaginated(@Size(min = 0, max = 50) @QueryParam("limit") final Integer limit, @Size(min = 0) @QueryParam("offset") final Integer offset, @QueryParam("cursor") final String cursor, @QueryParam("fields") final String fields) {
         try {
-            List<Answer> answers = this.service.findAnswers(limit, offset);
+            if (cursor != null) {
+                Page<?> page = fields == null
+                        ? this.service.findAnswersAfter(limit, cursor)
+                        : this.service.findAnswersAfter(limit, cursor, fields);
+                LOG.info("Found {} answers after cursor {}", page.getItems().size(), cursor);
+
+                return Response.ok()
+                        .entity(page)
+                        .build();
+            }
+
+            List<?> answers = fields == null
+                    ? this.service.findAnswers(limit, offset)
+                    : this.service.findAnswers(limit, offset, fields);
             LOG.info("Found {} answers", limit * offset);
 
             return Response.ok()
@@ -132,6 +164,10 @@ public class AnswerResource {
             LOG.info("Argument was not correct");
             return Response.status(Response.Status.BAD_REQUEST)
                     .build();
+        } catch (IllegalArgumentException i) {
+            LOG.info("Invalid cursor {} or fields {}", cursor, fields);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
         } catch (Exception e) {
             Counter list_answers_total_500 = metricRegistry.counter("list_answers_total_500");
             list_answers_total_500
@@ -170,6 +206,45 @@ public class AnswerResource {
         }
     }
 
+    @POST
+    @Path("/bulk")
+    public Response createAnswers(final List<AnswerNewDTO> baseAnswers) {
+        try {
+            notNull(baseAnswers, "new answers cannot be null");
+
+            LOG.info("Create {} new answers", baseAnswers.size());
+
+            boolean check = baseAnswers.stream()
+                    .allMatch(baseAnswer -> checkJWT(jwt, baseAnswer.getUserID()));
+            if (!check) {
+                return Response.status(Response.Status.UNAUTHORIZED)
+                        .build();
+            }
+
+            List<Answer> answers = baseAnswers.stream()
+                    .map(baseAnswer -> Answer.newBuilder()
+                            .withUserID(baseAnswer.getUserID())
+                            .withQuestionID(baseAnswer.getQuestionID())
+                            .withDescription(baseAnswer.getDescription())
+                            .build())
+                    .collect(Collectors.toList());
+
+            List<Answer> created = this.service.createAnswers(answers);
+
+            LOG.info("{} new answers created", created.size());
+
+            return Response
+                    .status(Response.Status.CREATED)
+                    .entity(created)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException | IllegalStateException n) {
+            LOG.info("Wrong input for new answers {}", n.getMessage());
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
     @PUT
     public Response updateDescription(final AnswerUpdateDescriptionDTO updateDescriptionDTO) {
         try {
@@ -27,9 +27,9 @@ package de.maxwell.qa.application.comment;
 import de.maxwell.qa.domain.comment.Comment;
 import de.maxwell.qa.domain.comment.CommentNotFoundException;
 import de.maxwell.qa.domain.comment.CommentService;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Page;
 import org.eclipse.microprofile.jwt.JsonWebToken;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -44,6 +44,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static de.maxwell.qa.infrastructure.helper.JWTCheck.checkJWT;
 import static org.apache.commons.lang3.Validate.notNull;
@@ -52,7 +53,7 @@ import static org.apache.commons.lang3.Validate.notNull;
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class CommentResource {
-    private static final Logger LOG = LoggerFactory.getLogger(CommentResource.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(CommentResource.class);
 
     @Inject
     CommentService service;
@@ -85,13 +86,26 @@ public class CommentResource {
     }
 
     @GET
-    public Response listCommentsByQuestionID(@QueryParam("questionID") final Long questionID, @QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset) {
+    public Response listCommentsByQuestionID(@QueryParam("questionID") final Long questionID, @QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset, @QueryParam("cursor") final String cursor, @QueryParam("fields") final String fields) {
         try {
             notNull(questionID, "questionID cannot be null");
             notNull(limit, "limit cannot be null");
+
+            if (cursor != null) {
+                Page<?> page = fields == null
+                        ? this.service.listCommentsByQuestionIDAfter(questionID, limit, cursor)
+                        : this.service.listCommentsByQuestionIDAfter(questionID, limit, cursor, fields);
+
+                return Response.ok()
+                        .entity(page)
+                        .build();
+            }
+
             notNull(offset, "offset cannot be null");
 
-            List<Comment> comments = this.service.listCommentsPaginatedByQuestionID(questionID, limit, offset);
+            List<?> comments = fields == null
+                    ? this.service.listCommentsPaginatedByQuestionID(questionID, limit, offset)
+                    : this.service.listCommentsPaginatedByQuestionID(questionID, limit, offset, fields);
 
             return Response.ok()
                     .entity(comments)
@@ -100,17 +114,34 @@ public class CommentResource {
             LOG.info("Wrong user input");
             return Response.status(Response.Status.BAD_REQUEST)
                     .build();
+        } catch (IllegalArgumentException i) {
+            LOG.info("Invalid cursor {} or fields {}", cursor, fields);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
         }
     }
 
     @GET
-    public Response listCommentsByAnswerID(@QueryParam("answerID") final Long answerID, @QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset) {
+    public Response listCommentsByAnswerID(@QueryParam("answerID") final Long answerID, @QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset, @QueryParam("cursor") final String cursor, @QueryParam("fields") final String fields) {
         try {
             notNull(answerID, "questionID cannot be null");
             notNull(limit, "limit cannot be null");
+
+            if (cursor != null) {
+                Page<?> page = fields == null
+                        ? this.service.listCommentsByAnswerIDAfter(answerID, limit, cursor)
+                        : this.service.listCommentsByAnswerIDAfter(answerID, limit, cursor, fields);
+
+                return Response.ok()
+                        .entity(page)
+                        .build();
+            }
+
             notNull(offset, "offset cannot be null");
 
-            List<Comment> comments = this.service.listCommentsPaginatedByAnswerID(answerID, limit, offset);
+            List<?> comments = fields == null
+                    ? this.service.listCommentsPaginatedByAnswerID(answerID, limit, offset)
+                    : this.service.listCommentsPaginatedByAnswerID(answerID, limit, offset, fields);
 
             return Response.ok()
                     .entity(comments)
@@ -119,6 +150,10 @@ public class CommentResource {
             LOG.info("Wrong user input");
             return Response.status(Response.Status.BAD_REQUEST)
                     .build();
+        } catch (IllegalArgumentException i) {
+            LOG.info("Invalid cursor {} or fields {}", cursor, fields);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
         }
     }
 
@@ -149,6 +184,46 @@ public class CommentResource {
         }
     }
 
+    @POST
+    @Path("/bulk")
+    public Response createComments(final List<CommentNewDTO> newComments) {
+        try {
+            notNull(newComments, "new comments cannot be null");
+
+            LOG.info("Create {} new comments", newComments.size());
+
+            boolean check = newComments.stream()
+                    .allMatch(newComment -> checkJWT(jwt, newComment.getUserID()));
+            if (!check) {
+                return Response.status(Response.Status.UNAUTHORIZED)
+                        .build();
+            }
+
+            List<Comment> comments = newComments.stream()
+                    .map(newComment -> Comment.newBuilder()
+                            .withUserID(newComment.getUserID())
+                            .withQuestionID(newComment.getQuestionID())
+                            .withAnswerID(newComment.getAnswerID())
+                            .withDescription(newComment.getDescription())
+                            .build())
+                    .collect(Collectors.toList());
+
+            List<Comment> created = this.service.createComments(comments);
+
+            LOG.info("{} new comments created", created.size());
+
+            return Response
+                    .status(Response.Status.CREATED)
+                    .entity(created)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException | IllegalStateException n) {
+            LOG.info("Wrong input for new comments {}", n.getMessage());
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
     @PUT
     public Response updateDescription(final CommentUpdateDescriptionDTO newDescription) {
         try {
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.application.health;
+
+import io.agroal.api.AgroalDataSource;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Checks in the background whether the database answers, so the readiness check only has to read the last result.
+ * The interval is configured with {@code qa.health.probe-interval}, the time the database has to answer with
+ * {@code qa.health.probe-timeout}.
+ */
+@ApplicationScoped
+public class DatabaseProbe {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatabaseProbe.class);
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @ConfigProperty(name = "qa.health.probe-timeout")
+    Duration timeout;
+
+    private volatile Result last;
+
+    public static class Result {
+        private final boolean valid;
+
+        private final Duration latency;
+
+        private final long probedAt;
+
+        private Result(final boolean valid, final Duration latency, final long probedAt) {
+            this.valid = valid;
+            this.latency = latency;
+            this.probedAt = probedAt;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public Duration getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return time since the probe finished
+         */
+        public Duration getAge() {
+            return Duration.ofNanos(System.nanoTime() - probedAt);
+        }
+    }
+
+    @Scheduled(every = "{qa.health.probe-interval}")
+    void scheduledProbe() {
+        probe();
+    }
+
+    /**
+     * Borrow a connection from the pool and check that the database answers within the timeout
+     *
+     * @return result, which is also kept as the last one
+     */
+    public Result probe() {
+        long start = System.nanoTime();
+
+        boolean valid;
+        try (Connection connection = dataSource.getConnection()) {
+            valid = connection.isValid((int) Math.max(1L, timeout.getSeconds()));
+        } catch (SQLException e) {
+            LOG.warn("Database probe failed: {}", e.getMessage());
+            valid = false;
+        }
+
+        long end = System.nanoTime();
+        Result result = new Result(valid, Duration.ofNanos(end - start), end);
+        this.last = result;
+
+        return result;
+    }
+
+    /**
+     * @return result of the last probe, empty before the first one finished
+     */
+    public Optional<Result> last() {
+        return Optional.ofNullable(last);
+    }
+}
@@ -24,38 +24,87 @@
 
 package de.maxwell.qa.application.health;
 
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.AgroalDataSourceMetrics;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.health.Readiness;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Optional;
 
+/**
+ * Ready while the last {@link DatabaseProbe} succeeded and is recent, at most three probe intervals old, and the
+ * connection pool is not saturated. The saturation counts the connections in use and the requests waiting for one
+ * against the size of the pool; above {@code qa.health.max-pool-saturation} the service reports not ready, so the
+ * load balancer sends traffic elsewhere until the pool recovers. Only reads the last probe and the pool metrics, so
+ * it never blocks.
+ */
 @Readiness
 @ApplicationScoped
 public class ServiceReadyHealthCheck implements HealthCheck {
 
     @Inject
-    private DataSource datasource;
-
-    // checks if the database connection is valid every 10 seconds
-    public boolean isHealthy() {
-        try {
-            return datasource.getConnection()
-                    .isValid(10);
-        } catch (Exception e) {
-            return false;
-        }
-    }
+    AgroalDataSource datasource;
+
+    @Inject
+    DatabaseProbe probe;
+
+    @ConfigProperty(name = "qa.health.probe-interval")
+    Duration probeInterval;
+
+    @ConfigProperty(name = "qa.health.max-pool-saturation")
+    double maxPoolSaturation;
 
     @Override
     public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named(ServiceReadyHealthCheck.class.getSimpleName());
 
-        return HealthCheckResponse.named(ServiceReadyHealthCheck.class.getSimpleName())
-                .withData("ready", isHealthy())
-                .up()
-                .build();
+        Optional<DatabaseProbe.Result> last = probe.last();
+        String reason = null;
+        if (!last.isPresent()) {
+            reason = "database not probed yet";
+        } else {
+            DatabaseProbe.Result result = last.get();
+            response.withData("probe_valid", result.isValid())
+                    .withData("probe_latency_ms", result.getLatency().toMillis())
+                    .withData("probe_age_ms", result.getAge().toMillis());
 
+            if (!result.isValid()) {
+                reason = "database probe failed";
+            } else if (result.getAge().compareTo(probeInterval.multipliedBy(3)) > 0) {
+                reason = "database probe is stale";
+            }
+        }
+
+        AgroalDataSourceMetrics metrics = datasource.getMetrics();
+        int maxSize = datasource.getConfiguration()
+                .connectionPoolConfiguration()
+                .maxSize();
+        double saturation = (double) (metrics.activeCount() + metrics.awaitingCount()) / maxSize;
+
+        response.withData("pool_active", metrics.activeCount())
+                .withData("pool_available", metrics.availableCount())
+                .withData("pool_awaiting", metrics.awaitingCount())
+                .withData("pool_max", maxSize)
+                .withData("pool_saturation_percent", Math.round(saturation * 100))
+                .withData("pool_wait_average_ms", metrics.blockingTimeAverage().toMillis())
+                .withData("pool_wait_max_ms", metrics.blockingTimeMax().toMillis());
+
+        if (reason == null && saturation > maxPoolSaturation) {
+            reason = "connection pool saturated";
+        }
+
+        if (reason != null) {
+            response.withData("reason", reason);
+        }
+
+        return response.withData("ready", reason == null)
+                .state(reason == null)
+                .build();
     }
 }
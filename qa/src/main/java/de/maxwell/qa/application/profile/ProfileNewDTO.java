@@ -27,8 +27,6 @@ package de.maxwell.qa.application.profile;
 public class ProfileNewDTO {
     private String userID;
 
-    private Byte[] image;
-
     private Long reputation;
 
     private String firstName;
@@ -48,14 +46,6 @@ public class ProfileNewDTO {
         this.userID = userID;
     }
 
-    public Byte[] getImage() {
-        return image;
-    }
-
-    public void setImage(final Byte[] image) {
-        this.image = image;
-    }
-
     public Long getReputation() {
         return reputation;
     }
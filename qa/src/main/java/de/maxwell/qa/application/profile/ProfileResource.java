@@ -27,9 +27,11 @@ package de.maxwell.qa.application.profile;
 import de.maxwell.qa.domain.profile.Profile;
 import de.maxwell.qa.domain.profile.ProfileNotFoundException;
 import de.maxwell.qa.domain.profile.ProfileService;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.storage.Blob;
+import de.maxwell.qa.infrastructure.storage.BlobTooLargeException;
 import org.eclipse.microprofile.jwt.JsonWebToken;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
@@ -41,9 +43,18 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
 import java.util.List;
+import java.util.Optional;
 
 import static de.maxwell.qa.infrastructure.helper.JWTCheck.checkJWT;
 import static org.apache.commons.lang3.Validate.notNull;
@@ -52,7 +63,9 @@ import static org.apache.commons.lang3.Validate.notNull;
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class ProfileResource {
-    private static final Logger LOG = LoggerFactory.getLogger(ProfileResource.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(ProfileResource.class);
+
+    private static final String THUMBNAIL_CACHE_CONTROL = "public, max-age=31536000, immutable";
 
     @Inject
     ProfileService service;
@@ -86,15 +99,157 @@ public class ProfileResource {
         }
     }
 
+    /**
+     * Stream the image straight from the blob store. The hash of the image is its ETag, so a client revalidates its
+     * copy without downloading it again.
+     */
+    @GET
+    @Path("/{id}/image")
+    @Produces({"image/png", "image/jpeg", "image/gif", "image/webp", MediaType.APPLICATION_OCTET_STREAM})
+    public Response findImage(@PathParam("id") final Long id, @Context final Request request) {
+        try {
+            Optional<Blob> image = this.service.findImage(id);
+            if (!image.isPresent()) {
+                LOG.info("Profile with id {} has no image", id);
+
+                return Response.status(Response.Status.NOT_FOUND)
+                        .build();
+            }
+
+            Blob blob = image.get();
+            EntityTag tag = new EntityTag(blob.getHash());
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+
+            StreamingOutput body = output -> blob.transferTo(Channels.newChannel(output));
+
+            return Response.ok(body)
+                    .type(mediaType(blob))
+                    .tag(tag)
+                    .header(HttpHeaders.CONTENT_LENGTH, blob.getSize())
+                    .build();
+        } catch (ProfileNotFoundException p) {
+            LOG.info("Could not find profile with id: {}", id);
+
+            return Response.status(Response.Status.NOT_FOUND)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Wrong user input");
+
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    /**
+     * Serve a thumbnail of a profile image by the hash of the image. The thumbnail under this path never changes, so
+     * clients and proxies keep it for a year and revalidate it without the thumbnail being read at all.
+     */
     @GET
-    public Response listProfile(@QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset) {
+    @Path("/thumbnail/{hash}/{size}")
+    @Produces("image/png")
+    public Response findThumbnail(@PathParam("hash") final String hash, @PathParam("size") final Integer size, @Context final Request request) {
+        try {
+            this.service.checkThumbnail(hash, size);
+
+            EntityTag tag = new EntityTag(hash + "-" + size);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.header(HttpHeaders.CACHE_CONTROL, THUMBNAIL_CACHE_CONTROL)
+                        .build();
+            }
+
+            Optional<byte[]> thumbnail = this.service.findThumbnail(hash, size);
+            if (!thumbnail.isPresent()) {
+                LOG.info("Found no thumbnail of image {}", hash);
+
+                return Response.status(Response.Status.NOT_FOUND)
+                        .build();
+            }
+
+            return Response.ok(thumbnail.get())
+                    .type("image/png")
+                    .tag(tag)
+                    .header(HttpHeaders.CACHE_CONTROL, THUMBNAIL_CACHE_CONTROL)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Wrong user input");
+
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    /**
+     * Store the request body as the image of the profile while it is read
+     */
+    @PUT
+    @Path("/{id}/image")
+    @Consumes(MediaType.WILDCARD)
+    public Response updateImage(@PathParam("id") final Long id, final InputStream image) {
+        try {
+            Profile profile = this.service.findProfile(id);
+
+            boolean check = checkJWT(jwt, profile.getUserID());
+            if (!check) {
+                return Response.status(Response.Status.UNAUTHORIZED)
+                        .build();
+            }
+
+            this.service.updateImage(id, image);
+
+            return Response.ok()
+                    .entity(this.service.findProfile(id))
+                    .build();
+        } catch (ProfileNotFoundException p) {
+            LOG.info("Could not find profile with id: {}", id);
+
+            return Response.status(Response.Status.NOT_FOUND)
+                    .build();
+        } catch (BlobTooLargeException b) {
+            LOG.info("Image too large {}", b.getMessage());
+
+            return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+                    .build();
+        } catch (IllegalStateException s) {
+            LOG.info("Image was removed while it was stored {}", s.getMessage());
+
+            return Response.status(Response.Status.CONFLICT)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Wrong user input");
+
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    @GET
+    public Response listProfile(@QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset, @QueryParam("cursor") final String cursor, @QueryParam("fields") final String fields) {
         try {
             notNull(limit, "limit cannot be null");
+
+            if (cursor != null) {
+                LOG.info("Find profiles after cursor {}", cursor);
+
+                Page<?> page = fields == null
+                        ? this.service.listProfilesAfter(limit, cursor)
+                        : this.service.listProfilesAfter(limit, cursor, fields);
+
+                return Response.ok()
+                        .entity(page)
+                        .build();
+            }
+
             notNull(offset, "offset cannot be null");
 
             LOG.info("Find profiles");
 
-            List<Profile> profiles = this.service.listProfiles(limit, offset);
+            List<?> profiles = fields == null
+                    ? this.service.listProfiles(limit, offset)
+                    : this.service.listProfiles(limit, offset, fields);
 
             return Response.ok()
                     .entity(profiles)
@@ -102,6 +257,11 @@ public class ProfileResource {
         } catch (NullPointerException n) {
             LOG.info("Wrong user input");
 
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        } catch (IllegalArgumentException i) {
+            LOG.info("Invalid cursor {} or fields {}", cursor, fields);
+
             return Response.status(Response.Status.BAD_REQUEST)
                     .build();
         }
@@ -278,4 +438,47 @@ public class ProfileResource {
                     .build();
         }
     }
+
+    /**
+     * @return media type from the signature at the start of the image
+     */
+    private static String mediaType(final Blob blob) {
+        byte[] head = new byte[12];
+        int length = 0;
+        try (InputStream content = blob.open()) {
+            int read;
+            while (length < head.length && (read = content.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+        } catch (IOException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 'R', 'I', 'F', 'F') && length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private static boolean startsWith(final byte[] head, final int length, final int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -28,13 +28,16 @@ import de.maxwell.qa.domain.answer.AnswerNotFoundException;
 import de.maxwell.qa.domain.question.Question;
 import de.maxwell.qa.domain.question.QuestionNotFoundException;
 import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.domain.question.QuestionSummary;
+import de.maxwell.qa.domain.question.QuestionThread;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Page;
 import org.eclipse.microprofile.jwt.JsonWebToken;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -45,15 +48,17 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static de.maxwell.qa.infrastructure.helper.JWTCheck.checkJWT;
+import static org.apache.commons.lang3.Validate.notNull;
 
 @Path("question")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class QuestionResource {
 
-    private static final Logger LOG = LoggerFactory.getLogger(QuestionResource.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(QuestionResource.class);
 
     @Inject
     QuestionService service;
@@ -83,6 +88,86 @@ public class QuestionResource {
         }
     }
 
+    @GET
+    @Path("/{id}/thread")
+    public Response getThread(@PathParam("id") final Long questionId) {
+        try {
+            LOG.info("Find thread of question with ID: {}", questionId);
+
+            QuestionThread thread = this.service.findThread(questionId);
+
+            return Response.ok()
+                    .entity(thread)
+                    .build();
+        } catch (QuestionNotFoundException q) {
+            LOG.info("Could not find question with ID: {}", questionId);
+            return Response.status(Response.Status.NOT_FOUND)
+                    .build();
+        } catch (NullPointerException n) {
+            LOG.info("Arguments have errors {}", n.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/hot")
+    public Response findHotQuestions(@QueryParam("limit") @DefaultValue("20") final Integer limit) {
+        try {
+            List<Question> questions = this.service.findHotQuestions(limit);
+            LOG.info("Found {} hot questions", questions.size());
+
+            return Response.ok()
+                    .entity(questions)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Invalid hot questions request {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    /**
+     * List the questions as read from the summary table, a page never reads the descriptions or the profiles
+     */
+    @GET
+    @Path("/summaries")
+    public Response listQuestionSummaries(@QueryParam("limit") @DefaultValue("20") final Integer limit, @QueryParam("cursor") final String cursor) {
+        try {
+            Page<QuestionSummary> page = this.service.findQuestionSummariesAfter(limit, cursor);
+            LOG.info("Found {} question summaries after cursor {}", page.getItems().size(), cursor);
+
+            return Response.ok()
+                    .entity(page)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Invalid question summaries request {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/{id}/similar")
+    public Response findSimilarQuestions(@PathParam("id") final Long questionId, @QueryParam("limit") @DefaultValue("10") final Integer limit) {
+        try {
+            List<Question> questions = this.service.findSimilarQuestions(questionId, limit);
+            LOG.info("Found {} questions similar to question with ID: {}", questions.size(), questionId);
+
+            return Response.ok()
+                    .entity(questions)
+                    .build();
+        } catch (QuestionNotFoundException q) {
+            LOG.info("Could not find question with ID: {}", questionId);
+            return Response.status(Response.Status.NOT_FOUND)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Invalid similar questions request {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
     @POST
     public Response createQuestion(final QuestionNewDTO baseQuestion) {
         try {
@@ -109,10 +194,62 @@ public class QuestionResource {
         }
     }
 
+    @POST
+    @Path("/bulk")
+    public Response createQuestions(final List<QuestionNewDTO> baseQuestions) {
+        try {
+            notNull(baseQuestions, "new questions cannot be null");
+
+            LOG.info("Create {} new questions", baseQuestions.size());
+
+            boolean check = baseQuestions.stream()
+                    .allMatch(baseQuestion -> checkJWT(jwt, baseQuestion.getUserID()));
+            if (!check) {
+                return Response.status(Response.Status.UNAUTHORIZED)
+                        .build();
+            }
+
+            List<Question> questions = baseQuestions.stream()
+                    .map(baseQuestion -> Question.newBuilder()
+                            .withUserID(baseQuestion.getUserID())
+                            .withTitle(baseQuestion.getTitle())
+                            .withDescription(baseQuestion.getDescription())
+                            .build())
+                    .collect(Collectors.toList());
+
+            List<Question> created = this.service.createQuestions(questions);
+
+            LOG.info("{} new questions created", created.size());
+
+            return Response
+                    .status(Response.Status.CREATED)
+                    .entity(created)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException | IllegalStateException n) {
+            LOG.info("Wrong input for new questions {}", n.getMessage());
+            return Response
+                    .status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
     @GET
-    public Response listQuestionsPaginated(@QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset) {
+    public Response listQuestionsPaginated(@QueryParam("limit") final Integer limit, @QueryParam("offset") final Integer offset, @QueryParam("cursor") final String cursor, @QueryParam("fields") final String fields) {
         try {
-            List<Question> questions = this.service.findQuestions(limit, offset);
+            if (cursor != null) {
+                Page<?> page = fields == null
+                        ? this.service.findQuestionsAfter(limit, cursor)
+                        : this.service.findQuestionsAfter(limit, cursor, fields);
+                LOG.info("Found {} questions after cursor {}", page.getItems().size(), cursor);
+
+                return Response.ok()
+                        .entity(page)
+                        .build();
+            }
+
+            List<?> questions = fields == null
+                    ? this.service.findQuestions(limit, offset)
+                    : this.service.findQuestions(limit, offset, fields);
             LOG.info("Find up to {} questions", limit * (offset + 1));
 
             return Response.ok()
@@ -122,6 +259,44 @@ public class QuestionResource {
             LOG.info("Argument was not correct");
             return Response.status(Response.Status.BAD_REQUEST)
                     .build();
+        } catch (IllegalArgumentException i) {
+            LOG.info("Invalid cursor {} or fields {}", cursor, fields);
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/search")
+    public Response searchQuestions(@QueryParam("q") final String query, @QueryParam("limit") @DefaultValue("20") final Integer limit) {
+        try {
+            List<Question> questions = this.service.searchQuestions(query, limit);
+            LOG.info("Found {} questions for {}", questions.size(), query);
+
+            return Response.ok()
+                    .entity(questions)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Invalid search {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
+        }
+    }
+
+    @GET
+    @Path("/suggest")
+    public Response suggestQuestions(@QueryParam("prefix") final String prefix, @QueryParam("limit") @DefaultValue("10") final Integer limit) {
+        try {
+            List<Question> questions = this.service.suggestQuestions(prefix, limit);
+            LOG.info("Suggested {} questions for {}", questions.size(), prefix);
+
+            return Response.ok()
+                    .entity(questions)
+                    .build();
+        } catch (NullPointerException | IllegalArgumentException e) {
+            LOG.info("Invalid suggestion request {}", e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .build();
         }
     }
 
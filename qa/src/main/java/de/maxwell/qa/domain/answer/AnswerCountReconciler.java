@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.answer;
+
+import io.quarkus.scheduler.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Compares the number of answers stored in the questions with the actual number of answers, in batches of questions
+ * in the interval configured with {@code qa.answer.reconcile-interval}, and repairs the ones which drifted apart,
+ * e.g. after answers were changed directly in the database.
+ */
+@ApplicationScoped
+public class AnswerCountReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnswerCountReconciler.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Inject
+    AnswerRepository answerRepository;
+
+    @Scheduled(every = "{qa.answer.reconcile-interval}")
+    void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not reconcile the number of answers, trying again later", e);
+        }
+    }
+
+    /**
+     * @return number of repaired questions
+     */
+    public synchronized int reconcile() {
+        int repaired = 0;
+        long after = 0L;
+        List<Long> batch;
+        do {
+            batch = answerRepository.listQuestionIDsAfter(after, BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            long last = batch.get(batch.size() - 1);
+            repaired += answerRepository.repairNumberOfAnswers(batch.get(0), last).size();
+            after = last;
+        } while (batch.size() == BATCH_SIZE);
+
+        if (repaired > 0) {
+            LOG.warn("Repaired the number of answers of {} questions", repaired);
+        }
+        return repaired;
+    }
+}
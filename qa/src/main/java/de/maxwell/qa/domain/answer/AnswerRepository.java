@@ -24,9 +24,20 @@
 
 package de.maxwell.qa.domain.answer;
 
+import de.maxwell.qa.domain.question.HotQuestions;
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionSummaryRepository;
+import de.maxwell.qa.infrastructure.cache.EntityCache;
+import de.maxwell.qa.infrastructure.cache.IdFilters;
+import de.maxwell.qa.infrastructure.helper.BatchInsert;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.metrics.SqlMetrics;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Repository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
 
 import javax.inject.Inject;
 import javax.persistence.EntityExistsException;
@@ -34,21 +45,56 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.transaction.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
+import static de.maxwell.qa.infrastructure.helper.BulkDelete.deleteWhere;
+import static de.maxwell.qa.infrastructure.helper.CounterUpdate.increment;
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Repository
 public class AnswerRepository {
-    private static final Logger LOG = LoggerFactory.getLogger(AnswerRepository.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(AnswerRepository.class);
+
+    // concurrent answers wait for these locks, so none of them is counted twice or missed by the repair
+    private static final String LOCK_QUESTIONS = "SELECT COL_ID FROM TAB_QUESTION WHERE COL_ID BETWEEN ? AND ? ORDER BY COL_ID FOR UPDATE";
+
+    private static final String REPAIR_NUMBER_OF_ANSWERS = "UPDATE TAB_QUESTION q SET COL_NUM_ANSWER = c.actual "
+            + "FROM (SELECT p.COL_ID, (SELECT count(*) FROM TAB_ANSWER a WHERE a.COL_QUESTION_ID = p.COL_ID) AS actual "
+            + "FROM TAB_QUESTION p WHERE p.COL_ID BETWEEN ? AND ?) c "
+            + "WHERE q.COL_ID = c.COL_ID AND q.COL_NUM_ANSWER IS DISTINCT FROM c.actual "
+            + "RETURNING q.COL_ID";
 
     @Inject
     EntityManager em;
 
+    @Inject
+    EntityCache entityCache;
+
+    @Inject
+    IdFilters idFilters;
+
+    @Inject
+    HotQuestions hotQuestions;
+
+    @Inject
+    QuestionSummaryRepository questionSummaries;
+
+    @ConfigProperty(name = "qa.bulk.batch-size")
+    int batchSize;
+
     /**
      * Find the answer by id
      *
@@ -60,12 +106,23 @@ public class AnswerRepository {
 
         LOG.info("Find answer with id {}", id);
 
+        if (!idFilters.mightExist(Answer.class, id)) {
+            LOG.info("Found no answer with id {}", id);
+            throw new AnswerNotFoundException(id);
+        }
+
+        return entityCache.find(Answer.class, id, this::load);
+    }
+
+    private Answer load(final Long id) {
         Answer answer = em.find(Answer.class, id);
         if (answer == null) {
             LOG.info("Found no answer with id {}", id);
+            idFilters.notFound(Answer.class, id);
             throw new AnswerNotFoundException(id);
         }
 
+        em.detach(answer);
         return answer;
     }
 
@@ -89,6 +146,7 @@ public class AnswerRepository {
         Root<Answer> root = cq.from(Answer.class);
         cq.select(root);
         cq.where(cb.equal(root.get("questionID"), questionID));
+        cq.orderBy(Cursor.order(cb, root));
 
         TypedQuery<Answer> query = em.createQuery(cq);
         query.setFirstResult(offset * limit);
@@ -119,6 +177,7 @@ public class AnswerRepository {
 
         Root<Answer> root = cq.from(Answer.class);
         cq.select(root);
+        cq.orderBy(Cursor.order(cb, root));
 
         TypedQuery<Answer> query = em.createQuery(cq);
         query.setFirstResult(offset * limit);
@@ -132,7 +191,166 @@ public class AnswerRepository {
     }
 
     /**
-     * Find all answers of a question
+     * Find a page of answers of a question after the cursor, ordered by creation date
+     *
+     * @param questionID id of the question
+     * @param limit      max number of answers per page
+     * @param cursor     position after the last answer of the previous page, null for the first page
+     * @return page of answers
+     */
+    public Page<Answer> listAllByQuestionIDAfter(final Long questionID, final Integer limit, final Cursor cursor) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} answers of question {} after {}", limit, questionID, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Answer> cq = cb.createQuery(Answer.class);
+
+        Root<Answer> root = cq.from(Answer.class);
+        cq.select(root);
+        Predicate predicate = cb.equal(root.get("questionID"), questionID);
+        if (cursor != null) {
+            predicate = cb.and(predicate, cursor.after(cb, root));
+        }
+        cq.where(predicate);
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<Answer> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<Answer> answers = query.getResultList();
+
+        LOG.info("Found {} answers", answers.size());
+
+        return Page.of(answers, limit, answer -> new Cursor(answer.getCreatedAt(), answer.getId()));
+    }
+
+    /**
+     * Find a page of answers after the cursor, ordered by creation date
+     *
+     * @param limit  max number of answers per page
+     * @param cursor position after the last answer of the previous page, null for the first page
+     * @return page of answers
+     */
+    public Page<Answer> listAllAfter(final Integer limit, final Cursor cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} answers after {}", limit, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Answer> cq = cb.createQuery(Answer.class);
+
+        Root<Answer> root = cq.from(Answer.class);
+        cq.select(root);
+        if (cursor != null) {
+            cq.where(cursor.after(cb, root));
+        }
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<Answer> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<Answer> answers = query.getResultList();
+
+        LOG.info("Found {} answers", answers.size());
+
+        return Page.of(answers, limit, answer -> new Cursor(answer.getCreatedAt(), answer.getId()));
+    }
+
+    /**
+     * Find paginated answers of a question with only the fields of the projection
+     *
+     * @param questionID id of the question
+     * @param projection selected fields
+     * @param limit      max number of answers per page
+     * @param offset     of the page
+     * @return list of rows with the selected fields
+     */
+    public List<Map<String, Object>> listAllPaginatedByQuestionID(final Long questionID, final Projection<Answer> projection, final Integer limit, final Integer offset) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+
+        LOG.info("Find {} answers of question {} with fields {} and offset {}", limit, questionID, projection.getFields(), offset);
+
+        List<Map<String, Object>> rows = projection.list(em, (cb, root) -> cb.equal(root.get("questionID"), questionID), limit, offset);
+
+        LOG.info("Found {} answers", rows.size());
+
+        return rows;
+    }
+
+    /**
+     * Find a page of answers of a question after the cursor with only the fields of the projection, ordered by
+     * creation date
+     *
+     * @param questionID id of the question
+     * @param projection selected fields
+     * @param limit      max number of answers per page
+     * @param cursor     position after the last answer of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAllByQuestionIDAfter(final Long questionID, final Projection<Answer> projection, final Integer limit, final Cursor cursor) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} answers of question {} with fields {} after {}", limit, questionID, projection.getFields(), cursor);
+
+        Page<Map<String, Object>> page = projection.listAfter(em, (cb, root) -> cb.equal(root.get("questionID"), questionID), limit, cursor);
+
+        LOG.info("Found {} answers", page.getItems().size());
+
+        return page;
+    }
+
+    /**
+     * Find paginated answers with only the fields of the projection
+     *
+     * @param projection selected fields
+     * @param limit      max number of answers per page
+     * @param offset     of the page
+     * @return list of rows with the selected fields
+     */
+    public List<Map<String, Object>> listAllPaginated(final Projection<Answer> projection, final Integer limit, final Integer offset) {
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+
+        LOG.info("Find {} answers with fields {} and offset {}", limit, projection.getFields(), offset);
+
+        List<Map<String, Object>> rows = projection.list(em, null, limit, offset);
+
+        LOG.info("Found {} answers", rows.size());
+
+        return rows;
+    }
+
+    /**
+     * Find a page of answers after the cursor with only the fields of the projection, ordered by creation date
+     *
+     * @param projection selected fields
+     * @param limit      max number of answers per page
+     * @param cursor     position after the last answer of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAllAfter(final Projection<Answer> projection, final Integer limit, final Cursor cursor) {
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} answers with fields {} after {}", limit, projection.getFields(), cursor);
+
+        Page<Map<String, Object>> page = projection.listAfter(em, null, limit, cursor);
+
+        LOG.info("Found {} answers", page.getItems().size());
+
+        return page;
+    }
+
+    /**
+     * Find all answers of a question, ordered by creation date
      *
      * @return list of answers
      */
@@ -147,6 +365,7 @@ public class AnswerRepository {
         Root<Answer> root = cq.from(Answer.class);
         cq.select(root);
         cq.where(cb.equal(root.get("questionID"), questionID));
+        cq.orderBy(Cursor.order(cb, root));
 
         List<Answer> list = em.createQuery(cq)
                 .getResultList();
@@ -178,6 +397,9 @@ public class AnswerRepository {
                     .build();
 
             em.persist(answer);
+            idFilters.created(Answer.class, answer.getId());
+            hotQuestions.answered(questionID, 1);
+            addToNumberOfAnswers(questionID, 1);
 
             LOG.info("Create answer with id {}", answer.getId());
 
@@ -187,6 +409,35 @@ public class AnswerRepository {
         }
     }
 
+    /**
+     * Create many new answers in JDBC batches
+     *
+     * @param answers built with the builder, without id
+     * @return the answers with their ids
+     */
+    @Transactional
+    public List<Answer> createAnswers(final List<Answer> answers) {
+        notNull(answers, "answers cannot be null");
+
+        BatchInsert.persistAll(em, answers, batchSize);
+
+        List<Long> ids = answers.stream()
+                .map(Answer::getId)
+                .collect(Collectors.toList());
+        idFilters.createdAll(Answer.class, ids);
+        // ordered by question id, so concurrent bulk inserts lock the questions in the same order
+        answers.stream()
+                .collect(Collectors.groupingBy(Answer::getQuestionID, TreeMap::new, Collectors.counting()))
+                .forEach((questionID, count) -> {
+                    hotQuestions.answered(questionID, count.intValue());
+                    addToNumberOfAnswers(questionID, count);
+                });
+
+        LOG.info("Created {} answers", ids.size());
+
+        return answers;
+    }
+
     /**
      * update the description of the answer
      *
@@ -211,6 +462,7 @@ public class AnswerRepository {
         answer.setDescription(newDescription);
         answer.setModifiedAt(LocalDateTime.now());
         em.merge(answer);
+        entityCache.invalidate(Answer.class, id);
 
         return answer;
     }
@@ -228,20 +480,17 @@ public class AnswerRepository {
         notNull(rating, "rating cannot be null");
 
         if (rating == 1 || rating == -1 || rating != 0) {
-            Answer answer = em.find(Answer.class, id);
-            if (answer == null) {
+            LOG.info("Update rating of answer with id {}", id);
+
+            Optional<Long> newRating = increment(em, "TAB_ANSWER", "COL_RATING", id, rating);
+            if (!newRating.isPresent()) {
                 LOG.info("Found no answer with id {}", id);
                 throw new AnswerNotFoundException(id);
             }
 
-            LOG.info("Update rating of answer with id {}", id);
-
-            answer.setRating(answer.getRating() + rating);
-            answer.setModifiedAt(LocalDateTime.now());
-
-            em.merge(answer);
+            entityCache.invalidate(Answer.class, id);
 
-            return answer.getRating();
+            return newRating.get();
         }
         throw new IllegalArgumentException("rating must be either 1 or -1");
     }
@@ -270,6 +519,7 @@ public class AnswerRepository {
         answer.setModifiedAt(LocalDateTime.now());
 
         em.merge(answer);
+        entityCache.invalidate(Answer.class, id);
 
         return answer.getCorrectAnswer();
     }
@@ -299,29 +549,103 @@ public class AnswerRepository {
     }
 
     /**
-     * Counts the number of answers belonging to the given question
+     * Counts the number of answers belonging to the given question, read from the counter of the question
      *
      * @param questionID given question
-     * @return number of answers
+     * @return number of answers, 0 if there is no such question
      */
     public Long countNumberOfAnswersOfQuestion(final Long questionID) {
+        notNull(questionID, "questionID cannot be null");
+
         LOG.info("Find answers of question: {}", questionID);
 
+        if (!idFilters.mightExist(Question.class, questionID)) {
+            LOG.info("Found no question with id {}", questionID);
+            return 0L;
+        }
+
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Long> cq = cb.createQuery(Long.class);
 
-        Root<Answer> root = cq.from(Answer.class);
-        cq.select(cb.count(root));
-        cq.where(cb.equal(root.get("questionID"), questionID));
+        Root<Question> root = cq.from(Question.class);
+        cq.select(root.get("numberOfAnswers"));
+        cq.where(cb.equal(root.get("id"), questionID));
 
-        Long count = em.createQuery(cq)
-                .getSingleResult();
+        List<Long> counts = em.createQuery(cq)
+                .getResultList();
+        Long count = counts.isEmpty() || counts.get(0) == null ? 0L : counts.get(0);
 
         LOG.info("Found {} answers of question with id: {}", count, questionID);
 
         return count;
     }
 
+    /**
+     * Ids of the questions after the given id, to compare their number of answers batch by batch
+     *
+     * @param afterID the ids are greater than this one
+     * @param limit   maximum number of ids
+     * @return ids in ascending order
+     */
+    public List<Long> listQuestionIDsAfter(final Long afterID, final Integer limit) {
+        notNull(afterID, "afterID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+
+        Root<Question> root = cq.from(Question.class);
+        cq.select(root.get("id"));
+        cq.where(cb.greaterThan(root.get("id"), afterID));
+        cq.orderBy(cb.asc(root.get("id")));
+
+        return em.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Compare the number of answers stored in the questions of the id range with the actual number of answers and
+     * repair the ones which drifted apart
+     *
+     * @param fromID first question id of the range
+     * @param toID   last question id of the range
+     * @return ids of the repaired questions
+     */
+    @Transactional
+    public List<Long> repairNumberOfAnswers(final Long fromID, final Long toID) {
+        notNull(fromID, "fromID cannot be null");
+        notNull(toID, "toID cannot be null");
+
+        List<Long> repaired = em.unwrap(Session.class)
+                .doReturningWork(connection -> {
+                    try (PreparedStatement lock = connection.prepareStatement(LOCK_QUESTIONS);
+                         PreparedStatement repair = connection.prepareStatement(REPAIR_NUMBER_OF_ANSWERS)) {
+                        lock.setLong(1, fromID);
+                        lock.setLong(2, toID);
+                        SqlMetrics.timed(SqlMetrics.STATEMENT, lock::executeQuery).close();
+
+                        repair.setLong(1, fromID);
+                        repair.setLong(2, toID);
+                        List<Long> ids = new ArrayList<>();
+                        try (ResultSet rows = SqlMetrics.timed(SqlMetrics.STATEMENT, repair::executeQuery)) {
+                            while (rows.next()) {
+                                ids.add(rows.getLong(1));
+                            }
+                        }
+                        return ids;
+                    }
+                });
+
+        if (!repaired.isEmpty()) {
+            LOG.info("Repaired the number of answers of questions {}", repaired);
+            entityCache.invalidateAll(Question.class, repaired);
+            questionSummaries.counted(repaired);
+        }
+
+        return repaired;
+    }
+
     /**
      * Remove a answer with the given id
      *
@@ -340,5 +664,45 @@ public class AnswerRepository {
         LOG.info("Remove answer with id {}", id);
 
         em.remove(answer);
+        entityCache.invalidate(Answer.class, id);
+        idFilters.removed(Answer.class, id);
+        hotQuestions.answered(answer.getQuestionID(), -1);
+        addToNumberOfAnswers(answer.getQuestionID(), -1);
+    }
+
+    /**
+     * Remove all answers of a question in one statement
+     *
+     * @param questionID of the question
+     * @return ids of the removed answers
+     */
+    @Transactional
+    public List<Long> removeAllAnswersOfQuestion(final Long questionID) {
+        notNull(questionID, "questionID cannot be null");
+
+        List<Long> ids = deleteWhere(em, "TAB_ANSWER", "COL_QUESTION_ID = ?", questionID);
+
+        LOG.info("Removed {} answers of question with id {}", ids.size(), questionID);
+
+        entityCache.invalidateAll(Answer.class, ids);
+        idFilters.removedAll(Answer.class, ids);
+        if (!ids.isEmpty()) {
+            addToNumberOfAnswers(questionID, -ids.size());
+        }
+
+        return ids;
+    }
+
+    /**
+     * Keep the number of answers stored in the question in step with the answers, in the same transaction
+     */
+    private void addToNumberOfAnswers(final Long questionID, final long delta) {
+        if (!increment(em, "TAB_QUESTION", "COL_NUM_ANSWER", questionID, delta, false).isPresent()) {
+            LOG.info("Found no question with id {} to count its answers", questionID);
+            return;
+        }
+
+        entityCache.invalidate(Question.class, questionID);
+        questionSummaries.counted(Collections.singletonList(questionID));
     }
 }
@@ -24,21 +24,24 @@
 
 package de.maxwell.qa.domain.answer;
 
-import de.maxwell.qa.domain.comment.Comment;
 import de.maxwell.qa.domain.comment.CommentService;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Service;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.transaction.Transactional;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Service
 public class AnswerService {
-    private static final Logger LOG = LoggerFactory.getLogger(AnswerService.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(AnswerService.class);
 
     @Inject
     AnswerRepository answerRepository;
@@ -63,6 +66,33 @@ public class AnswerService {
         return this.answerRepository.listAllPaginated(limit, offset);
     }
 
+    public List<Map<String, Object>> findAnswers(final Integer limit, final Integer offset, final String fields) {
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} answers with fields {}", limit * offset, fields);
+
+        return this.answerRepository.listAllPaginated(Projection.of(Answer.class, fields), limit, offset);
+    }
+
+    public Page<Answer> findAnswersAfter(final Integer limit, final String cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} answers after cursor {}", limit, cursor);
+
+        return this.answerRepository.listAllAfter(limit, Cursor.decode(cursor));
+    }
+
+    public Page<Map<String, Object>> findAnswersAfter(final Integer limit, final String cursor, final String fields) {
+        notNull(limit, "limit cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} answers after cursor {} with fields {}", limit, cursor, fields);
+
+        return this.answerRepository.listAllAfter(Projection.of(Answer.class, fields), limit, Cursor.decode(cursor));
+    }
+
     public List<Answer> findAnswersByQuestionID(final Long questionID, final Integer limit, final Integer offset) {
         notNull(questionID, "questionID cannot be null");
         notNull(limit, "limit cannot be null");
@@ -73,6 +103,36 @@ public class AnswerService {
         return this.answerRepository.listAllPaginatedByQuestionID(questionID, limit, offset);
     }
 
+    public List<Map<String, Object>> findAnswersByQuestionID(final Long questionID, final Integer limit, final Integer offset, final String fields) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} answers with fields {}", limit * offset, fields);
+
+        return this.answerRepository.listAllPaginatedByQuestionID(questionID, Projection.of(Answer.class, fields), limit, offset);
+    }
+
+    public Page<Answer> findAnswersByQuestionIDAfter(final Long questionID, final Integer limit, final String cursor) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} answers of question with id: {} after cursor {}", limit, questionID, cursor);
+
+        return this.answerRepository.listAllByQuestionIDAfter(questionID, limit, Cursor.decode(cursor));
+    }
+
+    public Page<Map<String, Object>> findAnswersByQuestionIDAfter(final Long questionID, final Integer limit, final String cursor, final String fields) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} answers of question with id: {} after cursor {} with fields {}", limit, questionID, cursor, fields);
+
+        return this.answerRepository.listAllByQuestionIDAfter(questionID, Projection.of(Answer.class, fields), limit, Cursor.decode(cursor));
+    }
+
     public List<Answer> findAllAnswersOfQuestion(final Long questionID) {
         notNull(questionID, "questionID cannot be null");
 
@@ -93,6 +153,15 @@ public class AnswerService {
         return this.answerRepository.createAnswer(userID, questionID, description);
     }
 
+    public List<Answer> createAnswers(final List<Answer> answers) {
+        notNull(answers, "answers cannot be null");
+        notEmpty(answers, "answers cannot be empty");
+
+        LOG.info("Create {} new answers", answers.size());
+
+        return this.answerRepository.createAnswers(answers);
+    }
+
     public Answer updateDescription(final Long id, final String newDescription) {
         notNull(id, "id cannot be null");
         notNull(newDescription, "newDescription cannot be null");
@@ -153,18 +222,26 @@ public class AnswerService {
         return this.answerRepository.countNumberOfAnswersOfQuestion(questionID);
     }
 
+    /**
+     * Remove an answer with all its comments in a fixed number of statements
+     *
+     * @param id of the answer
+     */
+    @Transactional
     public void removeAnswer(final Long id) {
         notNull(id, "id cannot be null");
 
         LOG.info("Remove answer by id: {}", id);
 
         this.answerRepository.removeAnswer(id);
-
-        this.commentService.listCommentsByAnswerID(id)
-                .forEach(this::removeComment);
+        this.commentService.removeCommentsOfAnswer(id);
     }
 
-    private void removeComment(Comment comment) {
-        this.commentService.removeComment(comment.getId());
+    public void removeAnswersOfQuestion(final Long questionID) {
+        notNull(questionID, "questionID cannot be null");
+
+        LOG.info("Remove all answers of question with id: {}", questionID);
+
+        this.answerRepository.removeAllAnswersOfQuestion(questionID);
     }
 }
@@ -24,9 +24,15 @@
 
 package de.maxwell.qa.domain.comment;
 
+import de.maxwell.qa.infrastructure.cache.EntityCache;
+import de.maxwell.qa.infrastructure.cache.IdFilters;
+import de.maxwell.qa.infrastructure.helper.BatchInsert;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Repository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.inject.Inject;
 import javax.persistence.EntityExistsException;
@@ -34,21 +40,38 @@ import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
+import static de.maxwell.qa.infrastructure.helper.BulkDelete.deleteWhere;
+import static de.maxwell.qa.infrastructure.helper.CounterUpdate.increment;
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Repository
 public class CommentRepository {
-    private static final Logger LOG = LoggerFactory.getLogger(CommentRepository.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(CommentRepository.class);
 
     @Inject
     EntityManager em;
 
+    @Inject
+    EntityCache entityCache;
+
+    @Inject
+    IdFilters idFilters;
+
+    @ConfigProperty(name = "qa.bulk.batch-size")
+    int batchSize;
+
     /**
      * Find the comment by id
      *
@@ -60,12 +83,23 @@ public class CommentRepository {
 
         LOG.info("Find comment with id {}", id);
 
+        if (!idFilters.mightExist(Comment.class, id)) {
+            LOG.info("Found no comment with id {}", id);
+            throw new CommentNotFoundException(id);
+        }
+
+        return entityCache.find(Comment.class, id, this::load);
+    }
+
+    private Comment load(final Long id) {
         Comment comment = em.find(Comment.class, id);
         if (comment == null) {
             LOG.info("Found no comment with id {}", id);
+            idFilters.notFound(Comment.class, id);
             throw new CommentNotFoundException(id);
         }
 
+        em.detach(comment);
         return comment;
     }
 
@@ -90,6 +124,7 @@ public class CommentRepository {
         cq.select(root);
 
         cq.where(cb.equal(root.get("questionID"), questionID));
+        cq.orderBy(Cursor.order(cb, root));
 
         TypedQuery<Comment> query = em.createQuery(cq);
         query.setFirstResult(offset * limit);
@@ -149,6 +184,7 @@ public class CommentRepository {
         cq.select(root);
 
         cq.where(cb.equal(root.get("answerID"), answerID));
+        cq.orderBy(Cursor.order(cb, root));
 
         TypedQuery<Comment> query = em.createQuery(cq);
         query.setFirstResult(offset * limit);
@@ -187,6 +223,208 @@ public class CommentRepository {
         return comments;
     }
 
+    /**
+     * Find the comments of a question and of its answers in one query, ordered by creation date
+     *
+     * @param questionID id of the question
+     * @param answerIDs  ids of the answers of the question
+     * @return list of comments
+     */
+    public List<Comment> listAllByQuestionIDOrAnswerIDs(final Long questionID, final Collection<Long> answerIDs) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(answerIDs, "answerIDs cannot be null");
+
+        LOG.info("Find comments of question {} and its {} answers", questionID, answerIDs.size());
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Comment> cq = cb.createQuery(Comment.class);
+
+        Root<Comment> root = cq.from(Comment.class);
+        cq.select(root);
+
+        Predicate predicate = cb.equal(root.get("questionID"), questionID);
+        if (!answerIDs.isEmpty()) {
+            predicate = cb.or(predicate, root.get("answerID").in(answerIDs));
+        }
+        cq.where(predicate);
+        cq.orderBy(Cursor.order(cb, root));
+
+        List<Comment> comments = em.createQuery(cq)
+                .getResultList();
+
+        LOG.info("Found {} comments", comments.size());
+
+        return comments;
+    }
+
+    /**
+     * Find a page of comments of a question after the cursor, ordered by creation date
+     *
+     * @param questionID id of the question
+     * @param limit      max number of comments per page
+     * @param cursor     position after the last comment of the previous page, null for the first page
+     * @return page of comments
+     */
+    public Page<Comment> listAllByQuestionIDAfter(final Long questionID, final Integer limit, final Cursor cursor) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} comments of question {} after {}", limit, questionID, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Comment> cq = cb.createQuery(Comment.class);
+
+        Root<Comment> root = cq.from(Comment.class);
+        cq.select(root);
+        Predicate predicate = cb.equal(root.get("questionID"), questionID);
+        if (cursor != null) {
+            predicate = cb.and(predicate, cursor.after(cb, root));
+        }
+        cq.where(predicate);
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<Comment> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<Comment> comments = query.getResultList();
+
+        LOG.info("Found {} comments", comments.size());
+
+        return Page.of(comments, limit, comment -> new Cursor(comment.getCreatedAt(), comment.getId()));
+    }
+
+    /**
+     * Find a page of comments of an answer after the cursor, ordered by creation date
+     *
+     * @param answerID id of the answer
+     * @param limit    max number of comments per page
+     * @param cursor   position after the last comment of the previous page, null for the first page
+     * @return page of comments
+     */
+    public Page<Comment> listAllByAnswerIDAfter(final Long answerID, final Integer limit, final Cursor cursor) {
+        notNull(answerID, "answerID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} comments of answer {} after {}", limit, answerID, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Comment> cq = cb.createQuery(Comment.class);
+
+        Root<Comment> root = cq.from(Comment.class);
+        cq.select(root);
+        Predicate predicate = cb.equal(root.get("answerID"), answerID);
+        if (cursor != null) {
+            predicate = cb.and(predicate, cursor.after(cb, root));
+        }
+        cq.where(predicate);
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<Comment> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<Comment> comments = query.getResultList();
+
+        LOG.info("Found {} comments", comments.size());
+
+        return Page.of(comments, limit, comment -> new Cursor(comment.getCreatedAt(), comment.getId()));
+    }
+
+    /**
+     * Find paginated comments of a question with only the fields of the projection
+     *
+     * @param questionID id of the question
+     * @param projection selected fields
+     * @param limit      max number of comments per page
+     * @param offset     of the page
+     * @return list of rows with the selected fields
+     */
+    public List<Map<String, Object>> listAllPaginatedByQuestionID(final Long questionID, final Projection<Comment> projection, final Integer limit, final Integer offset) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+
+        LOG.info("Find {} comments of question {} with fields {} and offset {}", limit, questionID, projection.getFields(), offset);
+
+        List<Map<String, Object>> rows = projection.list(em, (cb, root) -> cb.equal(root.get("questionID"), questionID), limit, offset);
+
+        LOG.info("Found {} comments", rows.size());
+
+        return rows;
+    }
+
+    /**
+     * Find a page of comments of a question after the cursor with only the fields of the projection, ordered by
+     * creation date
+     *
+     * @param questionID id of the question
+     * @param projection selected fields
+     * @param limit      max number of comments per page
+     * @param cursor     position after the last comment of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAllByQuestionIDAfter(final Long questionID, final Projection<Comment> projection, final Integer limit, final Cursor cursor) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} comments of question {} with fields {} after {}", limit, questionID, projection.getFields(), cursor);
+
+        Page<Map<String, Object>> page = projection.listAfter(em, (cb, root) -> cb.equal(root.get("questionID"), questionID), limit, cursor);
+
+        LOG.info("Found {} comments", page.getItems().size());
+
+        return page;
+    }
+
+    /**
+     * Find paginated comments of an answer with only the fields of the projection
+     *
+     * @param answerID id of the answer
+     * @param projection selected fields
+     * @param limit      max number of comments per page
+     * @param offset     of the page
+     * @return list of rows with the selected fields
+     */
+    public List<Map<String, Object>> listAllPaginatedByAnswerID(final Long answerID, final Projection<Comment> projection, final Integer limit, final Integer offset) {
+        notNull(answerID, "answerID cannot be null");
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+
+        LOG.info("Find {} comments of answer {} with fields {} and offset {}", limit, answerID, projection.getFields(), offset);
+
+        List<Map<String, Object>> rows = projection.list(em, (cb, root) -> cb.equal(root.get("answerID"), answerID), limit, offset);
+
+        LOG.info("Found {} comments", rows.size());
+
+        return rows;
+    }
+
+    /**
+     * Find a page of comments of an answer after the cursor with only the fields of the projection, ordered by
+     * creation date
+     *
+     * @param answerID id of the answer
+     * @param projection selected fields
+     * @param limit      max number of comments per page
+     * @param cursor     position after the last comment of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAllByAnswerIDAfter(final Long answerID, final Projection<Comment> projection, final Integer limit, final Cursor cursor) {
+        notNull(answerID, "answerID cannot be null");
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} comments of answer {} with fields {} after {}", limit, answerID, projection.getFields(), cursor);
+
+        Page<Map<String, Object>> page = projection.listAfter(em, (cb, root) -> cb.equal(root.get("answerID"), answerID), limit, cursor);
+
+        LOG.info("Found {} comments", page.getItems().size());
+
+        return page;
+    }
+
     /**
      * Create a new comment
      *
@@ -221,6 +459,7 @@ public class CommentRepository {
 
 
             em.persist(comment);
+            idFilters.created(Comment.class, comment.getId());
 
             LOG.info("Create comment with id {}", comment.getId());
 
@@ -230,6 +469,28 @@ public class CommentRepository {
         }
     }
 
+    /**
+     * Create many new comments in JDBC batches
+     *
+     * @param comments built with the builder, without id
+     * @return the comments with their ids
+     */
+    @Transactional
+    public List<Comment> createComments(final List<Comment> comments) {
+        notNull(comments, "comments cannot be null");
+
+        BatchInsert.persistAll(em, comments, batchSize);
+
+        List<Long> ids = comments.stream()
+                .map(Comment::getId)
+                .collect(Collectors.toList());
+        idFilters.createdAll(Comment.class, ids);
+
+        LOG.info("Created {} comments", ids.size());
+
+        return comments;
+    }
+
     /**
      * update the description of the comment
      *
@@ -254,6 +515,7 @@ public class CommentRepository {
         comment.setDescription(newDescription);
         comment.setModifiedAt(LocalDateTime.now());
         em.merge(comment);
+        entityCache.invalidate(Comment.class, id);
 
         return comment;
     }
@@ -271,20 +533,17 @@ public class CommentRepository {
         notNull(rating, "rating cannot be null");
 
         if (rating == 1 || rating == -1 || rating != 0) {
-            Comment comment = em.find(Comment.class, id);
-            if (comment == null) {
+            LOG.info("Update rating of comment with id {}", id);
+
+            Optional<Long> newRating = increment(em, "TAB_COMMENT", "COL_RATING", id, rating);
+            if (!newRating.isPresent()) {
                 LOG.info("Found no comment with id {}", id);
                 throw new CommentNotFoundException(id);
             }
 
-            LOG.info("Update rating of comment with id {}", id);
-
-            comment.setRating(comment.getRating() + rating);
-            comment.setModifiedAt(LocalDateTime.now());
-
-            em.merge(comment);
+            entityCache.invalidate(Comment.class, id);
 
-            return comment.getRating();
+            return newRating.get();
         }
         throw new IllegalArgumentException("rating must be either 1 or -1");
     }
@@ -307,5 +566,50 @@ public class CommentRepository {
         LOG.info("Remove comment with id {}", id);
 
         em.remove(comment);
+        entityCache.invalidate(Comment.class, id);
+        idFilters.removed(Comment.class, id);
+    }
+
+    /**
+     * Remove all comments of a question and of its answers in two statements, as a single one with OR cannot use the
+     * indexes. Has to run before the answers are removed.
+     *
+     * @param questionID of the question
+     * @return ids of the removed comments
+     */
+    @Transactional
+    public List<Long> removeAllCommentsOfQuestion(final Long questionID) {
+        notNull(questionID, "questionID cannot be null");
+
+        List<Long> ids = new ArrayList<>(deleteWhere(em, "TAB_COMMENT", "COL_QUESTION_ID = ?", questionID));
+        ids.addAll(deleteWhere(em, "TAB_COMMENT",
+                "COL_ANSWER_ID IN (SELECT COL_ID FROM TAB_ANSWER WHERE COL_QUESTION_ID = ?)", questionID));
+
+        LOG.info("Removed {} comments of question with id {}", ids.size(), questionID);
+
+        entityCache.invalidateAll(Comment.class, ids);
+        idFilters.removedAll(Comment.class, ids);
+
+        return ids;
+    }
+
+    /**
+     * Remove all comments of an answer in one statement
+     *
+     * @param answerID of the answer
+     * @return ids of the removed comments
+     */
+    @Transactional
+    public List<Long> removeAllCommentsOfAnswer(final Long answerID) {
+        notNull(answerID, "answerID cannot be null");
+
+        List<Long> ids = deleteWhere(em, "TAB_COMMENT", "COL_ANSWER_ID = ?", answerID);
+
+        LOG.info("Removed {} comments of answer with id {}", ids.size(), answerID);
+
+        entityCache.invalidateAll(Comment.class, ids);
+        idFilters.removedAll(Comment.class, ids);
+
+        return ids;
     }
 }
@@ -24,19 +24,23 @@
 
 package de.maxwell.qa.domain.comment;
 
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Service;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Service
 public class CommentService {
-    private static final Logger LOG = LoggerFactory.getLogger(CommentService.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(CommentService.class);
 
     @Inject
     CommentRepository commentRepository;
@@ -59,6 +63,36 @@ public class CommentService {
         return this.commentRepository.listAllPaginatedByQuestionID(questionID, limit, offset);
     }
 
+    public List<Map<String, Object>> listCommentsPaginatedByQuestionID(final Long questionID, final Integer limit, final Integer offset, final String fields) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} comments by question id with fields {}", limit * offset, fields);
+
+        return this.commentRepository.listAllPaginatedByQuestionID(questionID, Projection.of(Comment.class, fields), limit, offset);
+    }
+
+    public Page<Comment> listCommentsByQuestionIDAfter(final Long questionID, final Integer limit, final String cursor) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} comments by question id after cursor {}", limit, cursor);
+
+        return this.commentRepository.listAllByQuestionIDAfter(questionID, limit, Cursor.decode(cursor));
+    }
+
+    public Page<Map<String, Object>> listCommentsByQuestionIDAfter(final Long questionID, final Integer limit, final String cursor, final String fields) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} comments by question id after cursor {} with fields {}", limit, cursor, fields);
+
+        return this.commentRepository.listAllByQuestionIDAfter(questionID, Projection.of(Comment.class, fields), limit, Cursor.decode(cursor));
+    }
+
     public List<Comment> listCommentsByQuestionID(final Long questionID) {
         notNull(questionID, "questionID cannot be null");
 
@@ -67,6 +101,15 @@ public class CommentService {
         return this.commentRepository.listAllByQuestionID(questionID);
     }
 
+    public List<Comment> listCommentsOfThread(final Long questionID, final Collection<Long> answerIDs) {
+        notNull(questionID, "questionID cannot be null");
+        notNull(answerIDs, "answerIDs cannot be null");
+
+        LOG.info("Find comments of question {} and of answers {}", questionID, answerIDs);
+
+        return this.commentRepository.listAllByQuestionIDOrAnswerIDs(questionID, answerIDs);
+    }
+
     public List<Comment> listCommentsPaginatedByAnswerID(final Long answerID, final Integer limit, final Integer offset) {
         notNull(answerID, "answerID cannot be null");
         notNull(limit, "limit cannot be null");
@@ -77,6 +120,36 @@ public class CommentService {
         return this.commentRepository.listAllPaginatedByAnswerID(answerID, limit, offset);
     }
 
+    public List<Map<String, Object>> listCommentsPaginatedByAnswerID(final Long answerID, final Integer limit, final Integer offset, final String fields) {
+        notNull(answerID, "answerID cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} comments by answer id with fields {}", limit * offset, fields);
+
+        return this.commentRepository.listAllPaginatedByAnswerID(answerID, Projection.of(Comment.class, fields), limit, offset);
+    }
+
+    public Page<Comment> listCommentsByAnswerIDAfter(final Long answerID, final Integer limit, final String cursor) {
+        notNull(answerID, "answerID cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} comments by answer id after cursor {}", limit, cursor);
+
+        return this.commentRepository.listAllByAnswerIDAfter(answerID, limit, Cursor.decode(cursor));
+    }
+
+    public Page<Map<String, Object>> listCommentsByAnswerIDAfter(final Long answerID, final Integer limit, final String cursor, final String fields) {
+        notNull(answerID, "answerID cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} comments by answer id after cursor {} with fields {}", limit, cursor, fields);
+
+        return this.commentRepository.listAllByAnswerIDAfter(answerID, Projection.of(Comment.class, fields), limit, Cursor.decode(cursor));
+    }
+
     public List<Comment> listCommentsByAnswerID(final Long answerID) {
         notNull(answerID, "answerID cannot be null");
 
@@ -98,6 +171,15 @@ public class CommentService {
         return this.commentRepository.createComment(userID, questionID, answerID, description);
     }
 
+    public List<Comment> createComments(final List<Comment> comments) {
+        notNull(comments, "comments cannot be null");
+        notEmpty(comments, "comments cannot be empty");
+
+        LOG.info("Create {} new comments", comments.size());
+
+        return this.commentRepository.createComments(comments);
+    }
+
     public Comment updateDescription(final Long id, final String newDescription) {
         notNull(id, "id cannot be null");
         notNull(newDescription, "newDescription cannot be null");
@@ -132,4 +214,20 @@ public class CommentService {
 
         this.commentRepository.removeComment(id);
     }
+
+    public void removeCommentsOfQuestion(final Long questionID) {
+        notNull(questionID, "questionID cannot be null");
+
+        LOG.info("Remove all comments of question with id: {}", questionID);
+
+        this.commentRepository.removeAllCommentsOfQuestion(questionID);
+    }
+
+    public void removeCommentsOfAnswer(final Long answerID) {
+        notNull(answerID, "answerID cannot be null");
+
+        LOG.info("Remove all comments of answer with id: {}", answerID);
+
+        this.commentRepository.removeAllCommentsOfAnswer(answerID);
+    }
 }
@@ -24,28 +24,39 @@
 
 package de.maxwell.qa.domain.profile;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import java.time.LocalDateTime;
 
 @Entity
+@DynamicUpdate
 @Table(name = "TAB_PROFILE")
 public class Profile {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "SEQ_PROFILE")
+    @GenericGenerator(name = "SEQ_PROFILE", strategy = "de.maxwell.qa.infrastructure.cache.IdBlockSequenceGenerator",
+            parameters = {@Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "SEQ_PROFILE"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")})
     @Column(name = "COL_ID", nullable = false)
     private Long id;
 
     @Column(name = "COL_USER_ID", nullable = false)
     private String userID;
 
-    @Column(name = "COL_IMAGE")
-    private Byte[] image;
+    /**
+     * SHA-256 hash of the image in the blob store, null without an image
+     */
+    @Column(name = "COL_IMAGE_HASH")
+    private String imageHash;
 
     @Column(name = "COL_REPUTATION", nullable = false)
     private Long reputation;
@@ -94,12 +105,12 @@ public class Profile {
         this.userID = userID;
     }
 
-    public Byte[] getImage() {
-        return image;
+    public String getImageHash() {
+        return imageHash;
     }
 
-    public void setImage(Byte[] image) {
-        this.image = image;
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
     }
 
     public Long getReputation() {
@@ -48,9 +48,9 @@ public class ProfileBuilder {
         return this;
     }
 
-    public ProfileBuilder withImage(final Byte[] img) {
-        notNull(img, "img cannot be null");
-        this.profile.setImage(img);
+    public ProfileBuilder withImageHash(final String imageHash) {
+        notNull(imageHash, "imageHash cannot be null");
+        this.profile.setImageHash(imageHash);
         return this;
     }
 
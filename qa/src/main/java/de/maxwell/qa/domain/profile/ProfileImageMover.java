@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.profile;
+
+import io.quarkus.scheduler.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Moves the images which are still stored in the profile table into the blob store, in batches right after startup.
+ * Once all images are moved it does nothing anymore, a failed run is retried in the interval configured with
+ * {@code qa.blob.move-interval}.
+ */
+@ApplicationScoped
+public class ProfileImageMover {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileImageMover.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    @Inject
+    ProfileRepository profileRepository;
+
+    private volatile boolean done;
+
+    @Scheduled(every = "{qa.blob.move-interval}")
+    void scheduledMove() {
+        if (done) {
+            return;
+        }
+
+        try {
+            move();
+            done = true;
+        } catch (RuntimeException e) {
+            LOG.warn("Could not move the stored profile images, trying again later", e);
+        }
+    }
+
+    /**
+     * @return number of moved images
+     */
+    public synchronized int move() {
+        int moved = 0;
+        int batch;
+        do {
+            batch = profileRepository.moveStoredImages(BATCH_SIZE);
+            moved += batch;
+        } while (batch == BATCH_SIZE);
+
+        if (moved > 0) {
+            LOG.info("Moved {} stored profile images into the blob store", moved);
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.profile;
+
+import io.quarkus.scheduler.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Removes the profile images which may have lost their last reference, in the interval configured with
+ * {@code qa.blob.sweep-interval}. The references are counted again while the image is locked, so an image which
+ * got a new reference in the meantime is kept. Images of a failed removal are tried again in the next run.
+ */
+@ApplicationScoped
+public class ProfileImageSweeper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileImageSweeper.class);
+
+    @Inject
+    ProfileRepository profileRepository;
+
+    private final Set<String> hashes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param hash of an image which may not be referenced anymore, after the transaction which dropped the
+     *             reference completed
+     */
+    public void add(final String hash) {
+        notNull(hash, "hash cannot be null");
+
+        hashes.add(hash);
+    }
+
+    @Scheduled(every = "{qa.blob.sweep-interval}")
+    void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * @return number of removed images
+     */
+    public synchronized int sweep() {
+        List<String> batch = new ArrayList<>(hashes);
+        hashes.removeAll(batch);
+
+        int removed = 0;
+        for (String hash : batch) {
+            try {
+                if (profileRepository.removeUnreferencedImage(hash)) {
+                    removed++;
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Could not remove image {}, trying again later", hash, e);
+                hashes.add(hash);
+            }
+        }
+
+        if (removed > 0) {
+            LOG.info("Removed {} unreferenced profile images", removed);
+        }
+        return removed;
+    }
+}
@@ -24,9 +24,18 @@
 
 package de.maxwell.qa.domain.profile;
 
+import de.maxwell.qa.domain.question.QuestionSummaryRepository;
+import de.maxwell.qa.infrastructure.cache.EntityCache;
+import de.maxwell.qa.infrastructure.cache.IdFilters;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.metrics.SqlMetrics;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Repository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import de.maxwell.qa.infrastructure.storage.Blob;
+import de.maxwell.qa.infrastructure.storage.BlobStore;
+import org.hibernate.Session;
 
 import javax.inject.Inject;
 import javax.persistence.EntityExistsException;
@@ -35,20 +44,64 @@ import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import static de.maxwell.qa.infrastructure.helper.AfterCompletion.afterCommit;
+import static de.maxwell.qa.infrastructure.helper.AfterCompletion.afterCompletion;
+import static de.maxwell.qa.infrastructure.helper.CounterUpdate.increment;
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Repository
 public class ProfileRepository {
-    private static final Logger LOG = LoggerFactory.getLogger(ProfileRepository.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(ProfileRepository.class);
+
+    private static final String FIND_STORED_IMAGES = "SELECT COL_ID, COL_IMAGE FROM TAB_PROFILE WHERE COL_IMAGE IS NOT NULL "
+            + "ORDER BY COL_ID LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String MOVE_STORED_IMAGE = "UPDATE TAB_PROFILE SET COL_IMAGE_HASH = ?, COL_IMAGE = NULL WHERE COL_ID = ?";
+
+    // held until the end of the transaction, by the transactions which refer to an image and the one removing it
+    private static final String LOCK_IMAGE = "SELECT pg_advisory_xact_lock(?)";
 
     @Inject
     EntityManager em;
 
+    @Inject
+    EntityCache entityCache;
+
+    @Inject
+    IdFilters idFilters;
+
+    @Inject
+    BlobStore blobStore;
+
+    @Inject
+    ProfileThumbnails thumbnails;
+
+    @Inject
+    ProfileImageSweeper imageSweeper;
+
+    @Inject
+    QuestionSummaryRepository questionSummaries;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
     /**
      * Find the profile by id
      *
@@ -58,14 +111,25 @@ public class ProfileRepository {
     public Profile findById(final Long id) {
         notNull(id, "id cannot be null");
 
-        LOG.info("Find answer with id {}", id);
+        LOG.info("Find profile with id {}", id);
+
+        if (!idFilters.mightExist(Profile.class, id)) {
+            LOG.info("Found no profile with id {}", id);
+            throw new ProfileNotFoundException(id);
+        }
+
+        return entityCache.find(Profile.class, id, this::load);
+    }
 
+    private Profile load(final Long id) {
         Profile profile = em.find(Profile.class, id);
         if (profile == null) {
-            LOG.info("Found no answer with id {}", id);
+            LOG.info("Found no profile with id {}", id);
+            idFilters.notFound(Profile.class, id);
             throw new ProfileNotFoundException(id);
         }
 
+        em.detach(profile);
         return profile;
     }
 
@@ -87,6 +151,7 @@ public class ProfileRepository {
 
         Root<Profile> root = cq.from(Profile.class);
         cq.select(root);
+        cq.orderBy(Cursor.order(cb, root));
 
         TypedQuery<Profile> query = em.createQuery(cq);
         query.setFirstResult(offset * limit);
@@ -99,6 +164,81 @@ public class ProfileRepository {
         return profiles;
     }
 
+    /**
+     * Find a page of profiles after the cursor, ordered by creation date
+     *
+     * @param limit  max number of profiles per page
+     * @param cursor position after the last profile of the previous page, null for the first page
+     * @return page of profiles
+     */
+    public Page<Profile> listAllAfter(final Integer limit, final Cursor cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} profiles after {}", limit, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Profile> cq = cb.createQuery(Profile.class);
+
+        Root<Profile> root = cq.from(Profile.class);
+        cq.select(root);
+        if (cursor != null) {
+            cq.where(cursor.after(cb, root));
+        }
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<Profile> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<Profile> profiles = query.getResultList();
+
+        LOG.info("Found {} profiles", profiles.size());
+
+        return Page.of(profiles, limit, profile -> new Cursor(profile.getCreatedAt(), profile.getId()));
+    }
+
+    /**
+     * Find paginated profiles with only the fields of the projection
+     *
+     * @param projection selected fields
+     * @param limit      max number of profiles per page
+     * @param offset     of the page
+     * @return list of rows with the selected fields
+     */
+    public List<Map<String, Object>> listAllPaginated(final Projection<Profile> projection, final Integer limit, final Integer offset) {
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+
+        LOG.info("Find {} profiles with fields {} and offset {}", limit, projection.getFields(), offset);
+
+        List<Map<String, Object>> rows = projection.list(em, null, limit, offset);
+
+        LOG.info("Found {} profiles", rows.size());
+
+        return rows;
+    }
+
+    /**
+     * Find a page of profiles after the cursor with only the fields of the projection, ordered by creation date
+     *
+     * @param projection selected fields
+     * @param limit      max number of profiles per page
+     * @param cursor     position after the last profile of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAllAfter(final Projection<Profile> projection, final Integer limit, final Cursor cursor) {
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} profiles with fields {} after {}", limit, projection.getFields(), cursor);
+
+        Page<Map<String, Object>> page = projection.listAfter(em, null, limit, cursor);
+
+        LOG.info("Found {} profiles", page.getItems().size());
+
+        return page;
+    }
+
     /**
      * Create a new profile
      *
@@ -123,6 +263,8 @@ public class ProfileRepository {
                     .build();
 
             em.persist(profile);
+            idFilters.created(Profile.class, profile.getId());
+            questionSummaries.authorRenamed(userID);
 
             LOG.info("Create profile with id {}", profile.getId());
 
@@ -156,6 +298,8 @@ public class ProfileRepository {
         profile.setFirstName(newFirstName);
         profile.setModifiedAt(LocalDateTime.now());
         em.merge(profile);
+        entityCache.invalidate(Profile.class, id);
+        questionSummaries.authorRenamed(profile.getUserID());
 
         return profile;
     }
@@ -184,6 +328,8 @@ public class ProfileRepository {
         profile.setLastName(newLastName);
         profile.setModifiedAt(LocalDateTime.now());
         em.merge(profile);
+        entityCache.invalidate(Profile.class, id);
+        questionSummaries.authorRenamed(profile.getUserID());
 
         return profile;
     }
@@ -212,33 +358,164 @@ public class ProfileRepository {
         profile.setDescription(newDescription);
         profile.setModifiedAt(LocalDateTime.now());
         em.merge(profile);
+        entityCache.invalidate(Profile.class, id);
 
         return profile;
     }
 
     /**
-     * update the image of the profile
+     * Find the image of the profile
+     *
+     * @param id of the profile
+     * @return image, empty if the profile has none
+     */
+    public Optional<Blob> findImage(final Long id) {
+        String hash = findById(id).getImageHash();
+        if (hash == null) {
+            return Optional.empty();
+        }
+
+        return blobStore.find(hash);
+    }
+
+    /**
+     * Store the image of the profile while it is read, the profile only keeps the hash of the image. The thumbnails
+     * of the image are made in the background once it is committed. The previous image, or the new one if the
+     * transaction is rolled back, is removed with its thumbnails by the {@link ProfileImageSweeper} if no profile
+     * refers to it anymore.
      *
      * @param id    of the profile
-     * @param image new image of the profile
-     * @return new reputation
+     * @param image new image of the profile, read to its end
+     * @return hash of the new image
      */
     @Transactional
-    public void updateImage(final Long id, final Byte[] image) {
+    public String updateImage(final Long id, final InputStream image) {
         notNull(id, "id cannot be null");
         notNull(image, "new image cannot be null");
 
-        Profile profile = em.find(Profile.class, id);
-        if (profile == null) {
+        // stored before the first statement, so the upload holds no connection
+        String hash = blobStore.put(image);
+        afterCompletion(transactionRegistry, status -> {
+            if (status != Status.STATUS_COMMITTED) {
+                imageSweeper.add(hash);
+            }
+        });
+
+        List<String> previous = em.createQuery("SELECT p.imageHash FROM Profile p WHERE p.id = :id", String.class)
+                .setParameter("id", id)
+                .getResultList();
+        if (previous.isEmpty()) {
             LOG.info("Found no profile with id {}", id);
             throw new ProfileNotFoundException(id);
         }
 
         LOG.info("Update image of profile with id {}", id);
 
-        profile.setImage(image);
-        profile.setModifiedAt(LocalDateTime.now());
-        em.merge(profile);
+        em.unwrap(Session.class).doWork(connection -> lockImage(connection, hash));
+        if (!blobStore.find(hash).isPresent()) {
+            // an equal image was removed by the sweeper between storing and locking it
+            throw new IllegalStateException("Image " + hash + " was removed while it was stored");
+        }
+
+        em.createQuery("UPDATE Profile p SET p.imageHash = :hash, p.modifiedAt = :now WHERE p.id = :id")
+                .setParameter("hash", hash)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", id)
+                .executeUpdate();
+        entityCache.invalidate(Profile.class, id);
+        afterCommit(transactionRegistry, () -> thumbnails.generate(hash));
+
+        String old = previous.get(0);
+        if (old != null && !old.equals(hash)) {
+            afterCommit(transactionRegistry, () -> imageSweeper.add(old));
+        }
+
+        return hash;
+    }
+
+    /**
+     * Move images which are still stored in the profile table into the blob store
+     *
+     * @param limit maximum number of images
+     * @return number of moved images
+     */
+    @Transactional
+    public int moveStoredImages(final int limit) {
+        List<Long> ids = em.unwrap(Session.class)
+                .doReturningWork(connection -> {
+                    List<Long> moved = new ArrayList<>();
+                    try (PreparedStatement find = connection.prepareStatement(FIND_STORED_IMAGES);
+                         PreparedStatement move = connection.prepareStatement(MOVE_STORED_IMAGE)) {
+                        find.setInt(1, limit);
+                        try (ResultSet rows = find.executeQuery()) {
+                            while (rows.next()) {
+                                long id = rows.getLong(1);
+                                try (InputStream image = rows.getBinaryStream(2)) {
+                                    String hash = blobStore.put(image);
+                                    // an equal image removed before the lock is stored again below
+                                    lockImage(connection, hash);
+                                    if (!blobStore.find(hash).isPresent()) {
+                                        try (InputStream again = rows.getBinaryStream(2)) {
+                                            blobStore.put(again);
+                                        }
+                                    }
+                                    move.setString(1, hash);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                                move.setLong(2, id);
+                                move.addBatch();
+                                moved.add(id);
+                            }
+                        }
+                        move.executeBatch();
+                    }
+                    return moved;
+                });
+
+        LOG.info("Moved {} stored profile images into the blob store", ids.size());
+        entityCache.invalidateAll(Profile.class, ids);
+
+        return ids.size();
+    }
+
+    /**
+     * Remove the image with its thumbnails if no profile refers to it. The transactions which refer to the image
+     * lock it as well, so none of them can commit a reference until the image is removed, and they find it missing
+     * afterwards.
+     *
+     * @param hash of the image
+     * @return whether the image was removed
+     */
+    @Transactional
+    public boolean removeUnreferencedImage(final String hash) {
+        notNull(hash, "hash cannot be null");
+
+        em.unwrap(Session.class).doWork(connection -> lockImage(connection, hash));
+        if (countImageReferences(hash) > 0L) {
+            return false;
+        }
+
+        LOG.info("Remove unreferenced image {}", hash);
+
+        // while the lock is held, the transaction writes nothing a rollback could undo
+        blobStore.remove(hash);
+        thumbnails.removed(hash);
+        return true;
+    }
+
+    private static void lockImage(final Connection connection, final String hash) throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement(LOCK_IMAGE)) {
+            // the first 64 bits of the hash, equal keys of different images only lock more than needed
+            lock.setLong(1, Long.parseUnsignedLong(hash.substring(0, 16), 16));
+            SqlMetrics.timed(SqlMetrics.STATEMENT, lock::executeQuery).close();
+        }
+    }
+
+    private long countImageReferences(final String hash) {
+        return em.createQuery("SELECT count(p) FROM Profile p WHERE p.imageHash = :hash", Long.class)
+                .setParameter("hash", hash)
+                .getSingleResult();
     }
 
     /**
@@ -253,20 +530,17 @@ public class ProfileRepository {
         notNull(id, "id cannot be null");
         notNull(reputation, "reputation cannot be null");
 
-        Profile profile = em.find(Profile.class, id);
-        if (profile == null) {
+        LOG.info("Update reputation of profile with id {}", id);
+
+        Optional<Long> newReputation = increment(em, "TAB_PROFILE", "COL_REPUTATION", id, reputation);
+        if (!newReputation.isPresent()) {
             LOG.info("Found no profile with id {}", id);
             throw new ProfileNotFoundException(id);
         }
 
-        LOG.info("Update reputation of profile with id {}", id);
-
-        profile.setReputation(profile.getReputation() + reputation);
-        profile.setModifiedAt(LocalDateTime.now());
+        entityCache.invalidate(Profile.class, id);
 
-        em.merge(profile);
-
-        return profile.getReputation();
+        return newReputation.get();
     }
 
     /**
@@ -287,5 +561,12 @@ public class ProfileRepository {
         LOG.info("Remove profile with id {}", id);
 
         em.remove(profile);
+        entityCache.invalidate(Profile.class, id);
+        idFilters.removed(Profile.class, id);
+        questionSummaries.authorRenamed(profile.getUserID());
+        String hash = profile.getImageHash();
+        if (hash != null) {
+            afterCommit(transactionRegistry, () -> imageSweeper.add(hash));
+        }
     }
 }
@@ -24,23 +24,32 @@
 
 package de.maxwell.qa.domain.profile;
 
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Service;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import de.maxwell.qa.infrastructure.storage.Blob;
 
 import javax.inject.Inject;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Service
 public class ProfileService {
-    private static final Logger LOG = LoggerFactory.getLogger(ProfileService.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(ProfileService.class);
 
     @Inject
     ProfileRepository profileRepository;
 
+    @Inject
+    ProfileThumbnails thumbnails;
+
     public Profile findProfile(final Long id) {
         notNull(id, "id cannot be null");
 
@@ -49,6 +58,55 @@ public class ProfileService {
         return this.profileRepository.findById(id);
     }
 
+    public Optional<Blob> findImage(final Long id) {
+        notNull(id, "id cannot be null");
+
+        LOG.info("Find image of profile with id: {}", id);
+
+        return this.profileRepository.findImage(id);
+    }
+
+    /**
+     * Find a thumbnail of a profile image by the hash of the image, without the database
+     *
+     * @param hash of the image
+     * @param size width and height in pixels, one of the configured sizes
+     * @return thumbnail as PNG, empty if there is no such image
+     */
+    public Optional<byte[]> findThumbnail(final String hash, final Integer size) {
+        notNull(hash, "hash cannot be null");
+        notNull(size, "size cannot be null");
+
+        LOG.info("Find thumbnail of size {} of image {}", size, hash);
+
+        return this.thumbnails.find(hash, size);
+    }
+
+    /**
+     * Check a thumbnail request before a client copy is revalidated against it
+     */
+    public void checkThumbnail(final String hash, final Integer size) {
+        notNull(hash, "hash cannot be null");
+        notNull(size, "size cannot be null");
+
+        this.thumbnails.checkSize(size);
+        this.thumbnails.checkHash(hash);
+    }
+
+    /**
+     * Store the image of the profile while it is uploaded
+     *
+     * @return hash of the image
+     */
+    public String updateImage(final Long id, final InputStream image) {
+        notNull(id, "id cannot be null");
+        notNull(image, "image cannot be null");
+
+        LOG.info("Update image of profile with id: {}", id);
+
+        return this.profileRepository.updateImage(id, image);
+    }
+
     public List<Profile> listProfiles(final Integer limit, final Integer offset) {
         notNull(limit, "limit cannot be null");
         notNull(offset, "offset cannot be null");
@@ -58,6 +116,33 @@ public class ProfileService {
         return this.profileRepository.listAllPaginated(limit, offset);
     }
 
+    public List<Map<String, Object>> listProfiles(final Integer limit, final Integer offset, final String fields) {
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} profiles with fields {}", limit * offset, fields);
+
+        return this.profileRepository.listAllPaginated(Projection.of(Profile.class, fields), limit, offset);
+    }
+
+    public Page<Profile> listProfilesAfter(final Integer limit, final String cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} profiles after cursor {}", limit, cursor);
+
+        return this.profileRepository.listAllAfter(limit, Cursor.decode(cursor));
+    }
+
+    public Page<Map<String, Object>> listProfilesAfter(final Integer limit, final String cursor, final String fields) {
+        notNull(limit, "limit cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} profiles after cursor {} with fields {}", limit, cursor, fields);
+
+        return this.profileRepository.listAllAfter(Projection.of(Profile.class, fields), limit, Cursor.decode(cursor));
+    }
+
     public Profile createProfile(final String userID, final String firstName, final String lastName) {
         notNull(userID, "userID cannot be null");
         notNull(firstName, "firstName cannot be null");
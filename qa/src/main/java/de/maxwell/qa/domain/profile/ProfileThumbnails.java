@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.profile;
+
+import de.maxwell.qa.infrastructure.cache.ByteCache;
+import de.maxwell.qa.infrastructure.image.Thumbnailer;
+import de.maxwell.qa.infrastructure.storage.Blob;
+import de.maxwell.qa.infrastructure.storage.BlobStore;
+import io.quarkus.runtime.ShutdownEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Square thumbnails of the profile images in the sizes configured with {@code qa.thumbnail.sizes}. A new image gets
+ * its thumbnails from a pool of {@code qa.thumbnail.workers} threads once it is stored, an image the workers did not
+ * get to, for example because their queue was full, gets them when they are first read. The thumbnails are written
+ * next to each other in {@code qa.thumbnail.directory} and the most recently read ones are kept in memory, up to
+ * {@code qa.thumbnail.cache-size} bytes. A thumbnail is named by the hash of its image and its size, so it never
+ * changes and is read without the database.
+ */
+@ApplicationScoped
+public class ProfileThumbnails {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProfileThumbnails.class);
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int QUEUE_SIZE = 1000;
+
+    @Inject
+    BlobStore blobStore;
+
+    @ConfigProperty(name = "qa.thumbnail.sizes")
+    List<Integer> sizes;
+
+    @ConfigProperty(name = "qa.thumbnail.directory")
+    String directory;
+
+    @ConfigProperty(name = "qa.thumbnail.workers")
+    int workers;
+
+    @ConfigProperty(name = "qa.thumbnail.cache-size")
+    long cacheSize;
+
+    private Path base;
+
+    private Path temporary;
+
+    private ByteCache cache;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        base = Paths.get(directory);
+        temporary = base.resolve("tmp");
+        try {
+            Files.createDirectories(temporary);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the thumbnail directory " + base, e);
+        }
+
+        cache = new ByteCache(cacheSize);
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return width and height of the thumbnails in pixels
+     */
+    public List<Integer> sizes() {
+        return sizes;
+    }
+
+    /**
+     * Make the thumbnails of a stored image in the background
+     *
+     * @param hash of the image
+     */
+    public void generate(final String hash) {
+        checkHash(hash);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    for (int size : sizes) {
+                        if (!Files.exists(file(hash, size))) {
+                            create(hash, size);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Could not make the thumbnails of image {}", hash, e);
+                } catch (Error e) {
+                    // e.g. out of memory, the worker carries on with the next image
+                    LOG.error("Could not make the thumbnails of image {}", hash, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.info("Thumbnail workers are busy, the thumbnails of image {} are made when they are read", hash);
+        }
+    }
+
+    /**
+     * Find a thumbnail in memory, on disk or make it from the stored image
+     *
+     * @param hash of the image
+     * @param size one of the configured sizes
+     * @return thumbnail as PNG, empty if there is no such image or it is no image ImageIO reads
+     */
+    public Optional<byte[]> find(final String hash, final int size) {
+        checkHash(hash);
+        checkSize(size);
+
+        String key = hash + "-" + size;
+        byte[] thumbnail = cache.get(key);
+        if (thumbnail != null) {
+            return Optional.of(thumbnail);
+        }
+
+        try {
+            thumbnail = Files.readAllBytes(file(hash, size));
+        } catch (NoSuchFileException e) {
+            try {
+                thumbnail = create(hash, size).orElse(null);
+            } catch (IOException c) {
+                throw new UncheckedIOException(c);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (thumbnail == null) {
+            return Optional.empty();
+        }
+        cache.put(key, thumbnail);
+        return Optional.of(thumbnail);
+    }
+
+    /**
+     * Remove the thumbnails of an image which was removed from the blob store
+     *
+     * @param hash of the image
+     */
+    public void removed(final String hash) {
+        checkHash(hash);
+
+        for (int size : sizes) {
+            cache.remove(hash + "-" + size);
+            try {
+                Files.deleteIfExists(file(hash, size));
+            } catch (IOException e) {
+                LOG.warn("Could not remove the thumbnail {}", file(hash, size), e);
+            }
+        }
+    }
+
+    public void checkSize(final int size) {
+        isTrue(sizes.contains(size), "size must be one of %s", sizes);
+    }
+
+    public void checkHash(final String hash) {
+        notNull(hash, "hash cannot be null");
+        isTrue(HASH.matcher(hash).matches(), "hash must be 64 lower case hex digits");
+    }
+
+    private Optional<byte[]> create(final String hash, final int size) throws IOException {
+        Optional<Blob> image = blobStore.find(hash);
+        if (!image.isPresent()) {
+            return Optional.empty();
+        }
+
+        Optional<byte[]> thumbnail;
+        try (InputStream in = image.get().open()) {
+            thumbnail = Thumbnailer.thumbnail(in, size);
+        }
+        if (!thumbnail.isPresent()) {
+            LOG.info("Image {} cannot be read, it has no thumbnails", hash);
+            return thumbnail;
+        }
+
+        Path file = file(hash, size);
+        Files.createDirectories(file.getParent());
+        Path written = Files.createTempFile(temporary, hash, ".png");
+        try {
+            Files.write(written, thumbnail.get());
+            Files.move(written, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(written);
+        }
+        return thumbnail;
+    }
+
+    private Path file(final String hash, final int size) {
+        return base.resolve(hash.substring(0, 2)).resolve(hash + "-" + size + ".png");
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import de.maxwell.qa.infrastructure.helper.CommittedChanges;
+import de.maxwell.qa.infrastructure.search.DecayingTopK;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Ranks the questions by their recent activity. A question gains {@link #CREATED_WEIGHT} when it is asked, one per
+ * view, {@link #RATING_WEIGHT} per point of rating and {@link #ANSWER_WEIGHT} per answer, and every gain loses half of
+ * its value each half-life configured with {@code qa.hot.half-life}. The repositories report the events, which are
+ * applied once their transaction is committed, so the ranking follows them without reading the questions again.
+ * <p>
+ * The {@link HotQuestionsRebuilder} builds the ranking from the database at startup and rarely after, for changes of
+ * other instances. The database holds no times of past events, so a rebuild counts them at the creation of the
+ * question. The changes committed during a rebuild are applied again to the rebuilt ranking as described at
+ * {@link CommittedChanges}.
+ */
+@ApplicationScoped
+public class HotQuestions {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HotQuestions.class);
+
+    static final double CREATED_WEIGHT = 50.0;
+
+    static final double RATING_WEIGHT = 10.0;
+
+    static final double ANSWER_WEIGHT = 20.0;
+
+    private static final int REBUILD_BATCH_SIZE = 1_000;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @ConfigProperty(name = "qa.hot.half-life")
+    Duration halfLife;
+
+    @ConfigProperty(name = "qa.hot.capacity")
+    int capacity;
+
+    private CommittedChanges<DecayingTopK> ranking;
+
+    @PostConstruct
+    void init() {
+        ranking = new CommittedChanges<>(transactionRegistry, new DecayingTopK(halfLife, capacity));
+    }
+
+    /**
+     * Rank a new question once the current transaction is committed
+     */
+    public void created(final Question question) {
+        notNull(question, "question cannot be null");
+
+        long id = question.getId();
+        long created = millis(question.getCreatedAt());
+
+        ranking.afterCommit(id, topK -> topK.add(id, CREATED_WEIGHT, created));
+    }
+
+    /**
+     * Rank new questions once the current transaction is committed
+     */
+    public void createdAll(final List<Question> questions) {
+        notNull(questions, "questions cannot be null");
+
+        questions.forEach(this::created);
+    }
+
+    /**
+     * Rank new views once the current transaction is committed
+     *
+     * @param views number of new views by question id
+     */
+    public void viewed(final Map<Long, Long> views) {
+        notNull(views, "views cannot be null");
+
+        views.forEach((id, viewed) -> ranking.afterCommit(id, topK -> topK.add(id, viewed)));
+    }
+
+    /**
+     * Rank a vote once the current transaction is committed
+     *
+     * @param delta of the rating
+     */
+    public void rated(final Long id, final int delta) {
+        notNull(id, "id cannot be null");
+
+        ranking.afterCommit(id, topK -> topK.add(id, delta * RATING_WEIGHT));
+    }
+
+    /**
+     * Rank new or removed answers once the current transaction is committed
+     *
+     * @param delta number of new answers, negative for removed ones
+     */
+    public void answered(final Long id, final int delta) {
+        notNull(id, "id cannot be null");
+
+        ranking.afterCommit(id, topK -> topK.add(id, delta * ANSWER_WEIGHT));
+    }
+
+    /**
+     * Stop ranking a deleted question once the current transaction is committed
+     */
+    public void removed(final Long id) {
+        notNull(id, "id cannot be null");
+
+        ranking.afterCommit(id, topK -> topK.remove(id));
+    }
+
+    /**
+     * @param limit maximum number of ids
+     * @return ids of the questions, most active first
+     */
+    public List<Long> hot(final int limit) {
+        return ranking.current().top(limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Read all views, ratings, answer counts and creation times in batches into a new ranking and replace the current
+     * one. The hot questions come from the current ranking until the new one is complete. The changes applied since a
+     * batch was read are applied again to the questions of the batch.
+     */
+    @Transactional
+    public void rebuild() {
+        DecayingTopK rebuilt = new DecayingTopK(halfLife, capacity);
+
+        ranking.rebuild(rebuilt, REBUILD_BATCH_SIZE, last -> {
+            List<Object[]> rows = em.createQuery("SELECT q.id, q.views, q.rating, q.createdAt, "
+                    + "(SELECT count(a) FROM Answer a WHERE a.questionID = q.id) "
+                    + "FROM Question q WHERE q.id > :last ORDER BY q.id", Object[].class)
+                    .setParameter("last", last)
+                    .setMaxResults(REBUILD_BATCH_SIZE)
+                    .getResultList();
+            em.clear();
+            return rows;
+        }, (topK, row) -> topK.add((Long) row[0], weight((Long) row[1], (Long) row[2], (Long) row[4]), millis((LocalDateTime) row[3])));
+
+        LOG.info("Rebuilt hot questions with {} questions", rebuilt.size());
+    }
+
+    static double weight(final Long views, final Long rating, final Long answers) {
+        return CREATED_WEIGHT
+                + (views == null ? 0L : views)
+                + (rating == null ? 0L : rating) * RATING_WEIGHT
+                + (answers == null ? 0L : answers) * ANSWER_WEIGHT;
+    }
+
+    private static long millis(final LocalDateTime time) {
+        return time == null ? System.currentTimeMillis() : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
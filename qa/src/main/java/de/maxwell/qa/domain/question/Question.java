@@ -24,20 +24,28 @@
 
 package de.maxwell.qa.domain.question;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import java.time.LocalDateTime;
 
 @Entity
+@DynamicUpdate
 @Table(name = "TAB_QUESTION")
 public class Question {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "SEQ_QUESTION")
+    @GenericGenerator(name = "SEQ_QUESTION", strategy = "de.maxwell.qa.infrastructure.cache.IdBlockSequenceGenerator",
+            parameters = {@Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "SEQ_QUESTION"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")})
     @Column(name = "COL_ID", nullable = false)
     private Long id;
 
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import de.maxwell.qa.infrastructure.search.MinHashIndex;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static de.maxwell.qa.infrastructure.helper.AfterCompletion.afterCommit;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Finds questions with nearly the same title and description. The {@link QuestionRepository} reports changes, which
+ * are applied once their transaction is committed, the {@link QuestionDuplicatesRebuilder} rebuilds the index from
+ * the database. Questions count as similar from the estimated similarity configured with
+ * {@code qa.duplicates.threshold}.
+ */
+@ApplicationScoped
+public class QuestionDuplicates {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionDuplicates.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1_000;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @ConfigProperty(name = "qa.duplicates.threshold")
+    double threshold;
+
+    private volatile MinHashIndex index = new MinHashIndex();
+
+    /**
+     * Changes applied while a rebuild runs, applied again to the rebuilt index. Null without a rebuild.
+     */
+    private List<Consumer<MinHashIndex>> changedDuringRebuild;
+
+    /**
+     * Index a new or changed question once the current transaction is committed
+     */
+    public void indexed(final Question question) {
+        notNull(question, "question cannot be null");
+
+        long id = question.getId();
+        String text = text(question.getTitle(), question.getDescription());
+
+        afterCommit(transactionRegistry, () -> apply(index -> index.put(id, text)));
+    }
+
+    /**
+     * Index new questions once the current transaction is committed
+     */
+    public void indexedAll(final List<Question> questions) {
+        notNull(questions, "questions cannot be null");
+
+        List<Question> indexed = new ArrayList<>(questions);
+
+        afterCommit(transactionRegistry, () -> apply(index -> indexed.forEach(question ->
+                index.put(question.getId(), text(question.getTitle(), question.getDescription())))));
+    }
+
+    /**
+     * Remove a deleted question once the current transaction is committed
+     */
+    public void removed(final Long id) {
+        notNull(id, "id cannot be null");
+
+        afterCommit(transactionRegistry, () -> apply(index -> index.remove(id)));
+    }
+
+    /**
+     * @param limit maximum number of ids
+     * @return ids of the questions similar to the question, most similar first, without the question itself
+     */
+    public List<Long> similarTo(final Long id, final int limit) {
+        notNull(id, "id cannot be null");
+
+        return index.similar(id, limit, threshold)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of indexed questions
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Read all titles and descriptions in batches into a new index and replace the current one. Lookups use the
+     * current index until the new one is complete.
+     */
+    @Transactional
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new ArrayList<>();
+        }
+
+        try {
+            MinHashIndex rebuilt = new MinHashIndex();
+
+            long last = 0L;
+            List<Object[]> rows;
+            do {
+                rows = em.createQuery("SELECT q.id, q.title, q.description FROM Question q WHERE q.id > :last ORDER BY q.id", Object[].class)
+                        .setParameter("last", last)
+                        .setMaxResults(REBUILD_BATCH_SIZE)
+                        .getResultList();
+                for (Object[] row : rows) {
+                    last = (Long) row[0];
+                    rebuilt.put(last, text((String) row[1], (String) row[2]));
+                }
+                em.clear();
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+
+            synchronized (this) {
+                changedDuringRebuild.forEach(change -> change.accept(rebuilt));
+                rebuilt.compact();
+                index = rebuilt;
+            }
+
+            LOG.info("Rebuilt question duplicates with {} questions", rebuilt.size());
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    private static String text(final String title, final String description) {
+        return (title == null ? "" : title) + "\n" + (description == null ? "" : description);
+    }
+
+    private synchronized void apply(final Consumer<MinHashIndex> change) {
+        change.accept(index);
+
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(change);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import io.quarkus.scheduler.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Builds the {@link QuestionDuplicates} right after startup and rebuilds them periodically, so questions changed by
+ * others are found and removed questions are dropped from the index. The interval is configured with
+ * {@code qa.duplicates.rebuild-interval}.
+ */
+@ApplicationScoped
+public class QuestionDuplicatesRebuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionDuplicatesRebuilder.class);
+
+    @Inject
+    QuestionDuplicates duplicates;
+
+    @Scheduled(every = "{qa.duplicates.rebuild-interval}")
+    void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not rebuild the question duplicates, keeping the current ones", e);
+        }
+    }
+
+    public synchronized void rebuild() {
+        duplicates.rebuild();
+    }
+}
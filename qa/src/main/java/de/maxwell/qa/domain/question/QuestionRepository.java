@@ -24,9 +24,17 @@
 
 package de.maxwell.qa.domain.question;
 
+import de.maxwell.qa.infrastructure.cache.EntityCache;
+import de.maxwell.qa.infrastructure.cache.IdFilters;
+import de.maxwell.qa.infrastructure.helper.BatchInsert;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.metrics.SqlMetrics;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Repository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Session;
 
 import javax.inject.Inject;
 import javax.persistence.EntityExistsException;
@@ -36,20 +44,59 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.transaction.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
+import static de.maxwell.qa.infrastructure.helper.CounterUpdate.increment;
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Repository
 public class QuestionRepository {
 
-    private static final Logger LOG = LoggerFactory.getLogger(QuestionRepository.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(QuestionRepository.class);
+
+    private static final String ADD_VIEWS = "UPDATE TAB_QUESTION SET COL_VIEWS = COALESCE(COL_VIEWS, 0) + ?, COL_MODIFIED = ? WHERE COL_ID = ?";
 
     @Inject
     EntityManager em;
 
+    @Inject
+    EntityCache entityCache;
+
+    @Inject
+    IdFilters idFilters;
+
+    @ConfigProperty(name = "qa.bulk.batch-size")
+    int batchSize;
+
+    @Inject
+    QuestionViewCounter viewCounter;
+
+    @Inject
+    QuestionSearchIndex searchIndex;
+
+    @Inject
+    QuestionSuggestions suggestions;
+
+    @Inject
+    QuestionDuplicates duplicates;
+
+    @Inject
+    HotQuestions hotQuestions;
+
+    @Inject
+    QuestionSummaryRepository summaries;
+
     /**
      * Find the question by id
      *
@@ -61,15 +108,100 @@ public class QuestionRepository {
 
         LOG.info("Find question with id {}", id);
 
+        if (!idFilters.mightExist(Question.class, id)) {
+            LOG.info("Found no question with id {}", id);
+            throw new QuestionNotFoundException(id);
+        }
+
+        return withPendingViews(entityCache.find(Question.class, id, this::load));
+    }
+
+    private Question load(final Long id) {
         Question question = em.find(Question.class, id);
         if (question == null) {
             LOG.info("Found no question with id {}", id);
+            idFilters.notFound(Question.class, id);
             throw new QuestionNotFoundException(id);
         }
 
+        em.detach(question);
         return question;
     }
 
+    /**
+     * Find the questions of a ranked list of ids. Cached questions are taken from the cache, all others are loaded
+     * with one query.
+     *
+     * @param ids of the questions
+     * @return found questions in the order of the ids, without the ids which do not exist
+     */
+    public List<Question> findAllById(final List<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        LOG.info("Find {} questions by id", ids.size());
+
+        List<Long> candidates = ids.stream()
+                .filter(id -> idFilters.mightExist(Question.class, id))
+                .collect(Collectors.toList());
+
+        Map<Long, Question> found = entityCache.findAll(Question.class, candidates, this::loadAll);
+
+        List<Question> questions = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            Question question = found.get(id);
+            if (question != null) {
+                questions.add(withPendingViews(question));
+            }
+        }
+        return questions;
+    }
+
+    private Map<Long, Question> loadAll(final Collection<Long> ids) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Question> cq = cb.createQuery(Question.class);
+
+        Root<Question> root = cq.from(Question.class);
+        cq.select(root);
+        cq.where(root.get("id").in(ids));
+
+        Map<Long, Question> questions = new HashMap<>();
+        for (Question question : em.createQuery(cq).getResultList()) {
+            em.detach(question);
+            questions.put(question.getId(), question);
+        }
+
+        ids.stream()
+                .filter(id -> !questions.containsKey(id))
+                .forEach(id -> idFilters.notFound(Question.class, id));
+
+        return questions;
+    }
+
+    /**
+     * Take the views of a tracked question from the view counter, which includes the views not written to the
+     * database yet. The cached question is shared, so the views are set on a copy of it.
+     */
+    private Question withPendingViews(final Question question) {
+        Optional<Long> views = viewCounter.views(question.getId());
+        if (!views.isPresent() || views.get().equals(question.getViews())) {
+            return question;
+        }
+
+        Question copy = new Question();
+        copy.setId(question.getId());
+        copy.setUserID(question.getUserID());
+        copy.setTitle(question.getTitle());
+        copy.setDescription(question.getDescription());
+        copy.setRating(question.getRating());
+        copy.setNumberOfAnswers(question.getNumberOfAnswers());
+        copy.setCorrectAnswer(question.getCorrectAnswer());
+        copy.setViews(views.get());
+        copy.setCreatedAt(question.getCreatedAt());
+        copy.setModifiedAt(question.getModifiedAt());
+
+        return copy;
+    }
+
     /**
      * Find paginated questions
      *
@@ -88,6 +220,7 @@ public class QuestionRepository {
 
         Root<Question> root = cq.from(Question.class);
         cq.select(root);
+        cq.orderBy(Cursor.order(cb, root));
 
         TypedQuery<Question> query = em.createQuery(cq);
         query.setFirstResult(offset * limit);
@@ -100,6 +233,81 @@ public class QuestionRepository {
         return questions;
     }
 
+    /**
+     * Find a page of questions after the cursor, ordered by creation date
+     *
+     * @param limit  max number of questions per page
+     * @param cursor position after the last question of the previous page, null for the first page
+     * @return page of questions
+     */
+    public Page<Question> listAllAfter(final Integer limit, final Cursor cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} questions after {}", limit, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Question> cq = cb.createQuery(Question.class);
+
+        Root<Question> root = cq.from(Question.class);
+        cq.select(root);
+        if (cursor != null) {
+            cq.where(cursor.after(cb, root));
+        }
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<Question> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<Question> questions = query.getResultList();
+
+        LOG.info("Found {} questions", questions.size());
+
+        return Page.of(questions, limit, question -> new Cursor(question.getCreatedAt(), question.getId()));
+    }
+
+    /**
+     * Find paginated questions with only the fields of the projection
+     *
+     * @param projection selected fields
+     * @param limit      max number of questions per page
+     * @param offset     of the page
+     * @return list of rows with the selected fields
+     */
+    public List<Map<String, Object>> listAllPaginated(final Projection<Question> projection, final Integer limit, final Integer offset) {
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+
+        LOG.info("Find {} questions with fields {} and offset {}", limit, projection.getFields(), offset);
+
+        List<Map<String, Object>> rows = projection.list(em, null, limit, offset);
+
+        LOG.info("Found {} questions", rows.size());
+
+        return rows;
+    }
+
+    /**
+     * Find a page of questions after the cursor with only the fields of the projection, ordered by creation date
+     *
+     * @param projection selected fields
+     * @param limit      max number of questions per page
+     * @param cursor     position after the last question of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAllAfter(final Projection<Question> projection, final Integer limit, final Cursor cursor) {
+        notNull(projection, "projection cannot be null");
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} questions with fields {} after {}", limit, projection.getFields(), cursor);
+
+        Page<Map<String, Object>> page = projection.listAfter(em, null, limit, cursor);
+
+        LOG.info("Found {} questions", page.getItems().size());
+
+        return page;
+    }
+
     /**
      * Create a new question
      *
@@ -124,6 +332,12 @@ public class QuestionRepository {
                     .build();
 
             em.persist(question);
+            idFilters.created(Question.class, question.getId());
+            searchIndex.indexed(question);
+            suggestions.titled(question);
+            duplicates.indexed(question);
+            hotQuestions.created(question);
+            summaries.refresh(Collections.singletonList(question.getId()));
 
             LOG.info("Create question with id {}", question.getId());
 
@@ -133,6 +347,33 @@ public class QuestionRepository {
         }
     }
 
+    /**
+     * Create many new questions in JDBC batches
+     *
+     * @param questions built with the builder, without id
+     * @return the questions with their ids
+     */
+    @Transactional
+    public List<Question> createQuestions(final List<Question> questions) {
+        notNull(questions, "questions cannot be null");
+
+        BatchInsert.persistAll(em, questions, batchSize);
+
+        List<Long> ids = questions.stream()
+                .map(Question::getId)
+                .collect(Collectors.toList());
+        idFilters.createdAll(Question.class, ids);
+        searchIndex.indexedAll(questions);
+        suggestions.titledAll(questions);
+        duplicates.indexedAll(questions);
+        hotQuestions.createdAll(questions);
+        summaries.refresh(ids);
+
+        LOG.info("Created {} questions", ids.size());
+
+        return questions;
+    }
+
     /**
      * Update the title of the question
      *
@@ -157,6 +398,11 @@ public class QuestionRepository {
         question.setTitle(newTitle);
         question.setModifiedAt(LocalDateTime.now());
         em.merge(question);
+        entityCache.invalidate(Question.class, id);
+        searchIndex.indexed(question);
+        suggestions.titled(question);
+        duplicates.indexed(question);
+        summaries.refresh(Collections.singletonList(id));
 
         return question;
     }
@@ -185,34 +431,101 @@ public class QuestionRepository {
         question.setDescription(newDescription);
         question.setModifiedAt(LocalDateTime.now());
         em.merge(question);
+        entityCache.invalidate(Question.class, id);
+        searchIndex.indexed(question);
+        duplicates.indexed(question);
+        summaries.refresh(Collections.singletonList(id));
 
         return question;
     }
 
     /**
-     * Increment the view of the question
+     * Increment the view of the question. The view is counted in memory and written to the database by the
+     * {@link QuestionViewFlusher}
      *
      * @param id of the question
      * @return new view counter
      */
-    @Transactional
     public Long incrementView(final Long id) {
         notNull(id, "id cannot be null");
 
-        Question question = em.find(Question.class, id);
-        if (question == null) {
-            LOG.info("Found no question with id {}", id);
-            throw new QuestionNotFoundException(id);
+        LOG.info("Increment view of question with id {}", id);
+
+        return viewCounter.increment(id, () -> findPersistedViews(id));
+    }
+
+    /**
+     * Add views to the questions in one batched update
+     *
+     * @param views number of new views by question id
+     * @return ids of questions which do not exist anymore
+     */
+    @Transactional
+    public List<Long> addViews(final Map<Long, Long> views) {
+        notNull(views, "views cannot be null");
+
+        List<Long> ids = new ArrayList<>(views.size());
+        views.forEach((id, delta) -> {
+            if (delta != 0L) {
+                ids.add(id);
+            }
+        });
+
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        LOG.info("Increment view of question with id {}", id);
+        LOG.info("Add views to {} questions", ids.size());
+
+        ids.forEach(id -> entityCache.invalidate(Question.class, id));
+        suggestions.viewed(views);
+        hotQuestions.viewed(views);
+
+        List<Long> notFound = em.unwrap(Session.class)
+                .doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(ADD_VIEWS)) {
+                        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+                        for (Long id : ids) {
+                            statement.setLong(1, views.get(id));
+                            statement.setTimestamp(2, now);
+                            statement.setLong(3, id);
+                            statement.addBatch();
+                        }
+
+                        int[] updated = SqlMetrics.timed(SqlMetrics.BATCH, statement::executeBatch);
+
+                        List<Long> missing = new ArrayList<>();
+                        for (int i = 0; i < updated.length; i++) {
+                            if (updated[i] == 0) {
+                                missing.add(ids.get(i));
+                            }
+                        }
+                        return missing;
+                    }
+                });
+        summaries.counted(ids);
+
+        return notFound;
+    }
 
-        question.setViews(question.getViews() + 1L);
-        question.setModifiedAt(LocalDateTime.now());
+    private long findPersistedViews(final Long id) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
 
-        em.merge(question);
+        Root<Question> root = cq.from(Question.class);
+        cq.select(root.get("views"));
+        cq.where(cb.equal(root.get("id"), id));
 
-        return question.getViews();
+        List<Long> views = em.createQuery(cq)
+                .getResultList();
+        if (views.isEmpty()) {
+            LOG.info("Found no question with id {}", id);
+            throw new QuestionNotFoundException(id);
+        }
+
+        Long persisted = views.get(0);
+        return persisted == null ? 0L : persisted;
     }
 
     /**
@@ -228,20 +541,20 @@ public class QuestionRepository {
         notNull(rating, "rating cannot be null");
 
         if (rating == 1 || rating == -1 || rating != 0) {
-            Question question = em.find(Question.class, id);
-            if (question == null) {
+            LOG.info("Update rating of question with id {}", id);
+
+            Optional<Long> newRating = increment(em, "TAB_QUESTION", "COL_RATING", id, rating);
+            if (!newRating.isPresent()) {
                 LOG.info("Found no question with id {}", id);
                 throw new QuestionNotFoundException(id);
             }
 
-            LOG.info("Update rating of question with id {}", id);
-
-            question.setRating(question.getRating() + rating);
-            question.setModifiedAt(LocalDateTime.now());
-
-            em.merge(question);
+            entityCache.invalidate(Question.class, id);
+            suggestions.rated(id, rating);
+            hotQuestions.rated(id, rating);
+            summaries.counted(Collections.singletonList(id));
 
-            return question.getRating();
+            return newRating.get();
         }
         throw new IllegalArgumentException("rating must be either 1 or -1");
     }
@@ -270,6 +583,7 @@ public class QuestionRepository {
         question.setModifiedAt(LocalDateTime.now());
 
         em.merge(question);
+        entityCache.invalidate(Question.class, id);
 
         return question.getCorrectAnswer();
     }
@@ -316,5 +630,13 @@ public class QuestionRepository {
         LOG.info("Remove question with id {}", id);
 
         em.remove(question);
+        entityCache.invalidate(Question.class, id);
+        idFilters.removed(Question.class, id);
+        viewCounter.evict(id);
+        searchIndex.removed(id);
+        suggestions.removed(id);
+        duplicates.removed(id);
+        hotQuestions.removed(id);
+        summaries.removed(Collections.singletonList(id));
     }
 }
@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import de.maxwell.qa.infrastructure.search.SegmentedIndex;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import javax.persistence.EntityManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static de.maxwell.qa.infrastructure.helper.AfterCompletion.afterCommit;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Full-text index of the titles and descriptions of all questions, a word in the title counts twice. The
+ * {@link QuestionRepository} reports changes, which are applied once their transaction is committed, the
+ * {@link QuestionSearchIndexRebuilder} merges its segments and rebuilds it from the database.
+ * <p>
+ * Every rebuild writes a new {@link SegmentedIndex} into a directory named after the time of the rebuild, below
+ * {@code qa.search.directory}. The file current names the directory in use, so a restart opens the last index
+ * instead of rebuilding it.
+ */
+@ApplicationScoped
+public class QuestionSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionSearchIndex.class);
+
+    private static final int TITLE_WEIGHT = 2;
+
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int REBUILD_BATCH_SIZE = 1_000;
+
+    private static final String CURRENT = "current";
+
+    private static final String GENERATION_PREFIX = "index-";
+
+    @ConfigProperty(name = "qa.search.directory")
+    String directory;
+
+    @ConfigProperty(name = "qa.search.buffer-size")
+    int bufferSize;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final Object maintenance = new Object();
+
+    private volatile SegmentedIndex index;
+
+    /**
+     * Time of the rebuild which wrote the current index, the epoch if it was never rebuilt
+     */
+    private volatile Instant rebuilt;
+
+    /**
+     * Changes applied while a rebuild runs, applied again to the rebuilt index. Null without a rebuild.
+     */
+    private List<Consumer<SegmentedIndex>> changedDuringRebuild;
+
+    /**
+     * Open the current index before the scheduler starts the {@link QuestionSearchIndexRebuilder}
+     */
+    void onStart(@Observes @Priority(Interceptor.Priority.LIBRARY_BEFORE) final StartupEvent event) {
+        Path base = Paths.get(directory);
+
+        String generation = GENERATION_PREFIX + 0;
+        try {
+            Path current = base.resolve(CURRENT);
+            if (Files.exists(current)) {
+                generation = new String(Files.readAllBytes(current), StandardCharsets.UTF_8).trim();
+                if (!Files.isDirectory(base.resolve(generation))) {
+                    throw new IllegalStateException("the current question search index is missing");
+                }
+            }
+            index = SegmentedIndex.open(base.resolve(generation), bufferSize, TITLE_WEIGHT, DESCRIPTION_WEIGHT);
+            rebuilt = Instant.ofEpochMilli(Long.parseLong(generation.substring(GENERATION_PREFIX.length())));
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not open the question search index in {}, starting with an empty one", base.resolve(generation), e);
+
+            generation = GENERATION_PREFIX + 0;
+            deleteDirectory(base.resolve(generation));
+            index = SegmentedIndex.open(base.resolve(generation), bufferSize, TITLE_WEIGHT, DESCRIPTION_WEIGHT);
+            rebuilt = Instant.EPOCH;
+        }
+
+        // left behind by rebuilds which did not complete
+        deleteGenerationsExcept(generation);
+
+        LOG.info("Opened question search index with {} questions in {} segments from {}", index.size(), index.segments(), base.resolve(generation));
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        synchronized (maintenance) {
+            closeQuietly(index);
+        }
+    }
+
+    /**
+     * Index a new or changed question once the current transaction is committed
+     */
+    public void indexed(final Question question) {
+        notNull(question, "question cannot be null");
+
+        long id = question.getId();
+        String title = question.getTitle();
+        String description = question.getDescription();
+
+        afterCommit(transactionRegistry, () -> apply(index -> index.put(id, title, description)));
+    }
+
+    /**
+     * Index new questions once the current transaction is committed
+     */
+    public void indexedAll(final List<Question> questions) {
+        notNull(questions, "questions cannot be null");
+
+        List<Question> indexed = new ArrayList<>(questions);
+
+        afterCommit(transactionRegistry, () -> apply(index -> indexed.forEach(question ->
+                index.put(question.getId(), question.getTitle(), question.getDescription()))));
+    }
+
+    /**
+     * Remove a deleted question once the current transaction is committed
+     */
+    public void removed(final Long id) {
+        notNull(id, "id cannot be null");
+
+        afterCommit(transactionRegistry, () -> apply(index -> index.remove(id)));
+    }
+
+    /**
+     * @param query terms separated by white space, a term ending with * matches all words starting with it
+     * @param limit maximum number of ids
+     * @return ids of the matching questions, best match first
+     */
+    public List<Long> search(final String query, final int limit) {
+        return index.search(query, limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of indexed questions
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return time since the current index was rebuilt from the database
+     */
+    public Duration age() {
+        return Duration.between(rebuilt, clock.instant());
+    }
+
+    /**
+     * Merge segments until there is nothing left to merge
+     */
+    public void merge() {
+        synchronized (maintenance) {
+            while (index.merge()) {
+                LOG.info("Merged question search index segments, {} segments left", index.segments());
+            }
+        }
+    }
+
+    /**
+     * Read all questions in batches into a new index in a new directory and replace the current one. Searches use the
+     * current index until the new one is complete.
+     */
+    @Transactional
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new ArrayList<>();
+        }
+
+        Instant started = clock.instant();
+        String generation = GENERATION_PREFIX + started.toEpochMilli();
+        Path base = Paths.get(directory);
+        SegmentedIndex rebuiltIndex = SegmentedIndex.open(base.resolve(generation), bufferSize, TITLE_WEIGHT, DESCRIPTION_WEIGHT);
+        SegmentedIndex replaced;
+        try {
+            long last = 0L;
+            List<Object[]> rows;
+            do {
+                rows = em.createQuery("SELECT q.id, q.title, q.description FROM Question q WHERE q.id > :last ORDER BY q.id", Object[].class)
+                        .setParameter("last", last)
+                        .setMaxResults(REBUILD_BATCH_SIZE)
+                        .getResultList();
+                for (Object[] row : rows) {
+                    last = (Long) row[0];
+                    rebuiltIndex.load(last, (String) row[1], (String) row[2]);
+                }
+                em.clear();
+            } while (rows.size() == REBUILD_BATCH_SIZE);
+
+            rebuiltIndex.flush();
+            while (rebuiltIndex.merge()) {
+                // down to a few segments before the index is used
+            }
+
+            synchronized (this) {
+                changedDuringRebuild.forEach(change -> change.accept(rebuiltIndex));
+                writeCurrent(base, generation);
+
+                replaced = index;
+                index = rebuiltIndex;
+                rebuilt = started;
+            }
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(rebuiltIndex);
+            deleteDirectory(base.resolve(generation));
+            throw e instanceof IOException
+                    ? new UncheckedIOException("Could not rebuild the question search index", (IOException) e)
+                    : (RuntimeException) e;
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+
+        synchronized (maintenance) {
+            closeQuietly(replaced);
+        }
+        deleteGenerationsExcept(generation);
+
+        LOG.info("Rebuilt question search index with {} questions in {} segments", rebuiltIndex.size(), rebuiltIndex.segments());
+    }
+
+    private synchronized void apply(final Consumer<SegmentedIndex> change) {
+        change.accept(index);
+
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(change);
+        }
+    }
+
+    /**
+     * Replace the file naming the current directory atomically
+     */
+    private static void writeCurrent(final Path base, final String generation) throws IOException {
+        Path temporary = base.resolve(CURRENT + ".tmp");
+        Files.write(temporary, generation.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, base.resolve(CURRENT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteGenerationsExcept(final String generation) {
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(Paths.get(directory), GENERATION_PREFIX + "*")) {
+            for (Path other : generations) {
+                if (!other.getFileName().toString().equals(generation)) {
+                    deleteDirectory(other);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not list the question search index directories in {}", directory, e);
+        }
+    }
+
+    private static void deleteDirectory(final Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not delete {}", path, e);
+        }
+    }
+
+    private static void closeQuietly(final SegmentedIndex index) {
+        try {
+            index.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close the question search index", e);
+        }
+    }
+}
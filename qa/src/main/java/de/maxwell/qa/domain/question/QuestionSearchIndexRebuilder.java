@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+
+/**
+ * Merges the segments of the {@link QuestionSearchIndex} in the interval {@code qa.search.maintenance-interval} and
+ * rebuilds the index once it is older than {@code qa.search.rebuild-interval}, so questions changed by others get
+ * found. An index which was never rebuilt is rebuilt right after startup, a persisted one is used as it is.
+ */
+@ApplicationScoped
+public class QuestionSearchIndexRebuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionSearchIndexRebuilder.class);
+
+    @ConfigProperty(name = "qa.search.rebuild-interval")
+    Duration rebuildInterval;
+
+    @Inject
+    QuestionSearchIndex searchIndex;
+
+    @Scheduled(every = "{qa.search.maintenance-interval}")
+    void scheduledMaintenance() {
+        try {
+            if (searchIndex.age().compareTo(rebuildInterval) >= 0) {
+                rebuild();
+            } else {
+                merge();
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Could not maintain the question search index, keeping the current one", e);
+        }
+    }
+
+    public synchronized void rebuild() {
+        searchIndex.rebuild();
+    }
+
+    public synchronized void merge() {
+        searchIndex.merge();
+    }
+}
@@ -28,20 +28,37 @@ import de.maxwell.qa.domain.answer.Answer;
 import de.maxwell.qa.domain.answer.AnswerService;
 import de.maxwell.qa.domain.comment.Comment;
 import de.maxwell.qa.domain.comment.CommentService;
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.pagination.Projection;
 import de.maxwell.qa.infrastructure.stereotype.Service;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.transaction.Transactional;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notBlank;
 import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 @Service
 public class QuestionService {
 
-    private static final Logger LOG = LoggerFactory.getLogger(QuestionService.class);
+    private static final SampledLogger LOG = SampledLogger.getLogger(QuestionService.class);
+
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private static final int MAX_SUGGEST_LIMIT = 20;
+
+    private static final int MAX_SIMILAR_LIMIT = 20;
+
+    private static final int MAX_HOT_LIMIT = 100;
+
+    private static final int MAX_SUMMARY_LIMIT = 100;
 
     @Inject
     QuestionRepository questionRepository;
@@ -52,12 +69,47 @@ public class QuestionService {
     @Inject
     CommentService commentService;
 
+    @Inject
+    QuestionSearchIndex searchIndex;
+
+    @Inject
+    QuestionSuggestions suggestions;
+
+    @Inject
+    QuestionDuplicates duplicates;
+
+    @Inject
+    HotQuestions hotQuestions;
+
+    @Inject
+    QuestionSummaryRepository summaryRepository;
+
     public Question findQuestion(final Long id) {
         notNull(id, "id cannot be null");
 
         LOG.info("Find Question with ID: {}", id);
 
-        return questionRepository.findById(id);
+        return this.questionRepository.findById(id);
+    }
+
+    /**
+     * Load the question, its answers and all comments of the question and the answers with three queries,
+     * independent of the number of answers
+     */
+    public QuestionThread findThread(final Long id) {
+        notNull(id, "id cannot be null");
+
+        LOG.info("Find thread of Question with ID: {}", id);
+
+        Question question = questionRepository.findById(id);
+        List<Answer> answers = answerService.findAllAnswersOfQuestion(id);
+
+        List<Long> answerIDs = answers.stream()
+                .map(Answer::getId)
+                .collect(Collectors.toList());
+        List<Comment> comments = commentService.listCommentsOfThread(id, answerIDs);
+
+        return QuestionThread.of(question, answers, comments);
     }
 
     public List<Question> findQuestions(final Integer limit, final Integer offset) {
@@ -69,6 +121,118 @@ public class QuestionService {
         return this.questionRepository.listAllPaginated(limit, offset);
     }
 
+    public List<Map<String, Object>> findQuestions(final Integer limit, final Integer offset, final String fields) {
+        notNull(limit, "limit cannot be null");
+        notNull(offset, "offset cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} questions with fields {}", limit * (offset + 1), fields);
+
+        return this.questionRepository.listAllPaginated(Projection.of(Question.class, fields), limit, offset);
+    }
+
+    public Page<Question> findQuestionsAfter(final Integer limit, final String cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} questions after cursor {}", limit, cursor);
+
+        return this.questionRepository.listAllAfter(limit, Cursor.decode(cursor));
+    }
+
+    public Page<Map<String, Object>> findQuestionsAfter(final Integer limit, final String cursor, final String fields) {
+        notNull(limit, "limit cannot be null");
+        notNull(fields, "fields cannot be null");
+
+        LOG.info("Find {} questions after cursor {} with fields {}", limit, cursor, fields);
+
+        return this.questionRepository.listAllAfter(Projection.of(Question.class, fields), limit, Cursor.decode(cursor));
+    }
+
+    /**
+     * Find a page of the question list from the summary table, ordered by creation date
+     *
+     * @param limit  maximum number of summaries, at most 100
+     * @param cursor position after the last summary of the previous page, null for the first page
+     * @return page of summaries
+     */
+    public Page<QuestionSummary> findQuestionSummariesAfter(final Integer limit, final String cursor) {
+        notNull(limit, "limit cannot be null");
+        isTrue(limit > 0 && limit <= MAX_SUMMARY_LIMIT, "limit must be between 1 and %d", MAX_SUMMARY_LIMIT);
+
+        LOG.info("Find {} question summaries after cursor {}", limit, cursor);
+
+        return this.summaryRepository.listAllAfter(limit, Cursor.decode(cursor));
+    }
+
+    /**
+     * Full-text search over the titles and descriptions of the questions
+     *
+     * @param query terms separated by white space, a term ending with * matches all words starting with it
+     * @param limit maximum number of questions, at most 100
+     * @return matching questions, best match first
+     */
+    public List<Question> searchQuestions(final String query, final Integer limit) {
+        notNull(query, "query cannot be null");
+        notNull(limit, "limit cannot be null");
+        notBlank(query, "query cannot be blank");
+        isTrue(limit > 0 && limit <= MAX_SEARCH_LIMIT, "limit must be between 1 and %d", MAX_SEARCH_LIMIT);
+
+        LOG.info("Search up to {} questions for {}", limit, query);
+
+        return questionRepository.findAllById(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Complete the beginning of a title to the most viewed and best rated questions
+     *
+     * @param prefix beginning of the title, a trailing space only completes whole words
+     * @param limit  maximum number of questions, at most 20
+     * @return questions with a title starting with the prefix, most popular first
+     */
+    public List<Question> suggestQuestions(final String prefix, final Integer limit) {
+        notNull(prefix, "prefix cannot be null");
+        notNull(limit, "limit cannot be null");
+        notBlank(prefix, "prefix cannot be blank");
+        isTrue(limit > 0 && limit <= MAX_SUGGEST_LIMIT, "limit must be between 1 and %d", MAX_SUGGEST_LIMIT);
+
+        LOG.info("Suggest up to {} questions for {}", limit, prefix);
+
+        return questionRepository.findAllById(suggestions.suggest(prefix, limit));
+    }
+
+    /**
+     * Find questions with nearly the same title and description, in a time independent of the number of questions
+     *
+     * @param id    of the question
+     * @param limit maximum number of questions, at most 20
+     * @return similar questions, most similar first
+     */
+    public List<Question> findSimilarQuestions(final Long id, final Integer limit) {
+        notNull(id, "id cannot be null");
+        notNull(limit, "limit cannot be null");
+        isTrue(limit > 0 && limit <= MAX_SIMILAR_LIMIT, "limit must be between 1 and %d", MAX_SIMILAR_LIMIT);
+
+        LOG.info("Find up to {} questions similar to Question with ID: {}", limit, id);
+
+        findQuestion(id);
+        return questionRepository.findAllById(duplicates.similarTo(id, limit));
+    }
+
+    /**
+     * Find the questions with the most recent views, votes and answers, read from memory
+     *
+     * @param limit maximum number of questions, at most 100
+     * @return hot questions, most active first
+     */
+    public List<Question> findHotQuestions(final Integer limit) {
+        notNull(limit, "limit cannot be null");
+        isTrue(limit > 0 && limit <= MAX_HOT_LIMIT, "limit must be between 1 and %d", MAX_HOT_LIMIT);
+
+        LOG.info("Find {} hot questions", limit);
+
+        return questionRepository.findAllById(hotQuestions.hot(limit));
+    }
+
     public Question createQuestion(final String userID, final String title, final String description) {
         notNull(userID, "userID cannot be null");
         notNull(title, "title cannot be null");
@@ -83,6 +247,15 @@ public class QuestionService {
         return questionRepository.createQuestion(userID, title, description);
     }
 
+    public List<Question> createQuestions(final List<Question> questions) {
+        notNull(questions, "questions cannot be null");
+        notEmpty(questions, "questions cannot be empty");
+
+        LOG.info("Create {} new questions", questions.size());
+
+        return this.questionRepository.createQuestions(questions);
+    }
+
     public Question updateTitle(final Long id, final String title) {
         notNull(id, "id cannot be null");
 
@@ -149,25 +322,19 @@ public class QuestionService {
         return questionRepository.countNumberOfQuestionsOfUser(userID);
     }
 
+    /**
+     * Remove a question with all its answers and the comments of both in a fixed number of statements
+     *
+     * @param id of the question
+     */
+    @Transactional
     public void removeQuestion(final Long id) {
         notNull(id, "id cannot be null");
 
         LOG.info("Delete question with id: {}", id);
 
         this.questionRepository.removeQuestion(id);
-
-        this.answerService.findAllAnswersOfQuestion(id)
-                .forEach(this::removeAnswer);
-
-        this.commentService.listCommentsByQuestionID(id)
-                .forEach(this::removeComment);
-    }
-
-    private void removeAnswer(Answer answer) {
-        this.answerService.removeAnswer(answer.getId());
-    }
-
-    private void removeComment(Comment comment) {
-        this.commentService.removeComment(comment.getId());
+        this.commentService.removeCommentsOfQuestion(id);
+        this.answerService.removeAnswersOfQuestion(id);
     }
 }
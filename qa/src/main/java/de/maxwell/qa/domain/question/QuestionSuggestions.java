@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import de.maxwell.qa.infrastructure.helper.CommittedChanges;
+import de.maxwell.qa.infrastructure.search.CompletionTrie;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Completes the beginning of a question title to the titles of the most popular questions. A question weighs its
+ * views plus {@link #RATING_WEIGHT} views per point of rating. The {@link QuestionRepository} reports changes, which
+ * are applied once their transaction is committed, the {@link QuestionSuggestionsRebuilder} rebuilds the suggestions
+ * from the database. The changes committed during a rebuild are applied again to the rebuilt suggestions as described
+ * at {@link CommittedChanges}.
+ */
+@ApplicationScoped
+public class QuestionSuggestions {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionSuggestions.class);
+
+    /**
+     * A point of rating weighs as much as this many views
+     */
+    static final long RATING_WEIGHT = 10L;
+
+    private static final int REBUILD_BATCH_SIZE = 1_000;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private CommittedChanges<CompletionTrie> trie;
+
+    @PostConstruct
+    void init() {
+        trie = new CommittedChanges<>(transactionRegistry, new CompletionTrie());
+    }
+
+    /**
+     * Suggest a new question or a question with a new title once the current transaction is committed
+     */
+    public void titled(final Question question) {
+        notNull(question, "question cannot be null");
+
+        long id = question.getId();
+        String title = question.getTitle();
+        long weight = weight(question.getViews(), question.getRating());
+
+        trie.afterCommit(id, suggestions -> suggestions.put(id, title, weight));
+    }
+
+    /**
+     * Suggest new questions once the current transaction is committed
+     */
+    public void titledAll(final List<Question> questions) {
+        notNull(questions, "questions cannot be null");
+
+        questions.forEach(this::titled);
+    }
+
+    /**
+     * Weigh new views once the current transaction is committed
+     *
+     * @param views number of new views by question id
+     */
+    public void viewed(final Map<Long, Long> views) {
+        notNull(views, "views cannot be null");
+
+        views.forEach((id, viewed) -> trie.afterCommit(id, suggestions -> suggestions.adjust(id, viewed)));
+    }
+
+    /**
+     * Weigh a vote once the current transaction is committed
+     *
+     * @param delta of the rating
+     */
+    public void rated(final Long id, final int delta) {
+        notNull(id, "id cannot be null");
+
+        trie.afterCommit(id, suggestions -> suggestions.adjust(id, delta * RATING_WEIGHT));
+    }
+
+    /**
+     * Stop suggesting a deleted question once the current transaction is committed
+     */
+    public void removed(final Long id) {
+        notNull(id, "id cannot be null");
+
+        trie.afterCommit(id, suggestions -> suggestions.remove(id));
+    }
+
+    /**
+     * @param prefix beginning of the title, a trailing space only completes whole words
+     * @param limit  maximum number of ids
+     * @return ids of the questions, most popular first
+     */
+    public List<Long> suggest(final String prefix, final int limit) {
+        return trie.current().complete(prefix, limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of suggested questions
+     */
+    public int size() {
+        return trie.current().size();
+    }
+
+    /**
+     * Read all titles, views and ratings in batches into a new trie and replace the current one. Suggestions come
+     * from the current trie until the new one is complete. The changes applied since a batch was read are applied
+     * again to the questions of the batch.
+     */
+    @Transactional
+    public void rebuild() {
+        CompletionTrie rebuilt = new CompletionTrie();
+
+        trie.rebuild(rebuilt, REBUILD_BATCH_SIZE, last -> {
+            List<Object[]> rows = em.createQuery("SELECT q.id, q.title, q.views, q.rating FROM Question q WHERE q.id > :last ORDER BY q.id", Object[].class)
+                    .setParameter("last", last)
+                    .setMaxResults(REBUILD_BATCH_SIZE)
+                    .getResultList();
+            em.clear();
+            return rows;
+        }, (suggestions, row) -> suggestions.put((Long) row[0], (String) row[1], weight((Long) row[2], (Long) row[3])));
+
+        LOG.info("Rebuilt question suggestions with {} questions", rebuilt.size());
+    }
+
+    static long weight(final Long views, final Long rating) {
+        return (views == null ? 0L : views) + (rating == null ? 0L : rating) * RATING_WEIGHT;
+    }
+}
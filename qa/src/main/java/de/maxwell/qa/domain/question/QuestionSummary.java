@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Row of the question list with everything the list shows and nothing more. It is written only by the
+ * {@link QuestionSummaryRepository}, in the transactions which change the question or the profile of its author.
+ */
+@Entity
+@Immutable
+@Table(name = "TAB_QUESTION_SUMMARY")
+public class QuestionSummary {
+
+    @Id
+    @Column(name = "COL_ID", nullable = false)
+    private Long id;
+
+    @Column(name = "COL_USER_ID", nullable = false)
+    private String userID;
+
+    @Column(name = "COL_AUTHOR_NAME", nullable = false)
+    private String authorName;
+
+    @Column(name = "COL_TITLE", nullable = false)
+    private String title;
+
+    @Column(name = "COL_EXCERPT", nullable = false)
+    private String excerpt;
+
+    @Column(name = "COL_RATING", nullable = false)
+    private Long rating;
+
+    @Column(name = "COL_NUM_ANSWER", nullable = false)
+    private Long numberOfAnswers;
+
+    @Column(name = "COL_VIEWS", nullable = false)
+    private Long views;
+
+    @Column(name = "COL_CREATED", nullable = false)
+    private LocalDateTime createdAt;
+
+    protected QuestionSummary() {
+    }
+
+    /**
+     * @return id of the question
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public String getUserID() {
+        return userID;
+    }
+
+    /**
+     * @return first and last name of the profile of the author, the user id if the author has no profile
+     */
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return beginning of the description with white space collapsed, at most 200 characters
+     */
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public Long getRating() {
+        return rating;
+    }
+
+    public Long getNumberOfAnswers() {
+        return numberOfAnswers;
+    }
+
+    public Long getViews() {
+        return views;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
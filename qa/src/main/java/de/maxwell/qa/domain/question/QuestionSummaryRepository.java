@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import de.maxwell.qa.infrastructure.logging.SampledLogger;
+import de.maxwell.qa.infrastructure.metrics.SqlMetrics;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import de.maxwell.qa.infrastructure.stereotype.Repository;
+import org.hibernate.Session;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.transaction.Transactional;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Keeps the {@link QuestionSummary} of every question in the transaction which changes the question or the name of
+ * its author. The question writes call this repository after their own statements, the rows are copied from the
+ * question table in one statement, so a summary never shows a change which was rolled back.
+ */
+@Repository
+public class QuestionSummaryRepository {
+
+    private static final SampledLogger LOG = SampledLogger.getLogger(QuestionSummaryRepository.class);
+
+    private static final String AUTHOR_NAME = "COALESCE((SELECT TRIM(p.COL_FIRST_NAME || ' ' || COALESCE(p.COL_LAST_NAME, '')) FROM TAB_PROFILE p "
+            + "WHERE p.COL_USER_ID = q.COL_USER_ID ORDER BY p.COL_ID LIMIT 1), q.COL_USER_ID)";
+
+    private static final String REFRESH = "INSERT INTO TAB_QUESTION_SUMMARY "
+            + "(COL_ID, COL_USER_ID, COL_AUTHOR_NAME, COL_TITLE, COL_EXCERPT, COL_RATING, COL_NUM_ANSWER, COL_VIEWS, COL_CREATED) "
+            + "SELECT q.COL_ID, q.COL_USER_ID, " + AUTHOR_NAME + ", q.COL_TITLE, LEFT(REGEXP_REPLACE(q.COL_DESCRIPTION, '\\s+', ' ', 'g'), 200), "
+            + "COALESCE(q.COL_RATING, 0), COALESCE(q.COL_NUM_ANSWER, 0), COALESCE(q.COL_VIEWS, 0), q.COL_CREATED "
+            + "FROM TAB_QUESTION q WHERE q.COL_ID = ANY(?) "
+            + "ON CONFLICT (COL_ID) DO UPDATE SET COL_USER_ID = EXCLUDED.COL_USER_ID, COL_AUTHOR_NAME = EXCLUDED.COL_AUTHOR_NAME, "
+            + "COL_TITLE = EXCLUDED.COL_TITLE, COL_EXCERPT = EXCLUDED.COL_EXCERPT, COL_RATING = EXCLUDED.COL_RATING, "
+            + "COL_NUM_ANSWER = EXCLUDED.COL_NUM_ANSWER, COL_VIEWS = EXCLUDED.COL_VIEWS, COL_CREATED = EXCLUDED.COL_CREATED";
+
+    private static final String COUNTED = "UPDATE TAB_QUESTION_SUMMARY s SET COL_RATING = COALESCE(q.COL_RATING, 0), "
+            + "COL_NUM_ANSWER = COALESCE(q.COL_NUM_ANSWER, 0), COL_VIEWS = COALESCE(q.COL_VIEWS, 0) "
+            + "FROM TAB_QUESTION q WHERE q.COL_ID = s.COL_ID AND s.COL_ID = ANY(?)";
+
+    private static final String AUTHOR_RENAMED = "UPDATE TAB_QUESTION_SUMMARY s SET COL_AUTHOR_NAME = " + AUTHOR_NAME + " "
+            + "FROM TAB_QUESTION q WHERE q.COL_ID = s.COL_ID AND s.COL_USER_ID = :userID";
+
+    private static final String REMOVE = "DELETE FROM TAB_QUESTION_SUMMARY WHERE COL_ID = ANY(?)";
+
+    @Inject
+    EntityManager em;
+
+    /**
+     * Find a page of summaries after the cursor, ordered by creation date
+     *
+     * @param limit  max number of summaries per page
+     * @param cursor position after the last summary of the previous page, null for the first page
+     * @return page of summaries
+     */
+    public Page<QuestionSummary> listAllAfter(final Integer limit, final Cursor cursor) {
+        notNull(limit, "limit cannot be null");
+
+        LOG.info("Find {} question summaries after {}", limit, cursor);
+
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<QuestionSummary> cq = cb.createQuery(QuestionSummary.class);
+
+        Root<QuestionSummary> root = cq.from(QuestionSummary.class);
+        cq.select(root);
+        if (cursor != null) {
+            cq.where(cursor.after(cb, root));
+        }
+        cq.orderBy(Cursor.order(cb, root));
+
+        TypedQuery<QuestionSummary> query = em.createQuery(cq);
+        query.setMaxResults(limit + 1);
+
+        List<QuestionSummary> summaries = query.getResultList();
+
+        LOG.info("Found {} question summaries", summaries.size());
+
+        return Page.of(summaries, limit, summary -> new Cursor(summary.getCreatedAt(), summary.getId()));
+    }
+
+    /**
+     * Write the whole summaries of new questions or questions with a new title or description
+     *
+     * @param ids of the questions
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void refresh(final Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        execute(REFRESH, ids);
+    }
+
+    /**
+     * Copy the rating, the views and the number of answers of the questions to their summaries
+     *
+     * @param ids of the questions
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void counted(final Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        execute(COUNTED, ids);
+    }
+
+    /**
+     * Write the name of the author to the summaries of their questions after their profile was created, renamed or
+     * removed
+     *
+     * @param userID of the author
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void authorRenamed(final String userID) {
+        notNull(userID, "userID cannot be null");
+
+        em.flush();
+        int updated = em.createNativeQuery(AUTHOR_RENAMED)
+                .setParameter("userID", userID)
+                .executeUpdate();
+
+        LOG.info("Renamed the author of {} question summaries", updated);
+    }
+
+    /**
+     * @param ids of the removed questions
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void removed(final Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        execute(REMOVE, ids);
+    }
+
+    private void execute(final String statement, final Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        // the question statements of the transaction go first, the summaries are copied from their results
+        em.flush();
+
+        // one array parameter instead of one parameter per id, a bulk write can have more ids than a statement
+        // can have parameters
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(statement)) {
+                update.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+                SqlMetrics.timed(SqlMetrics.STATEMENT, update::executeUpdate);
+            }
+        });
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import de.maxwell.qa.domain.answer.Answer;
+import de.maxwell.qa.domain.comment.Comment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Everything shown on the page of a question: the question, its comments and its answers with their comments
+ */
+public class QuestionThread {
+
+    private final Question question;
+
+    private final List<Comment> comments;
+
+    private final List<AnswerThread> answers;
+
+    public QuestionThread(final Question question, final List<Comment> comments, final List<AnswerThread> answers) {
+        notNull(question, "question cannot be null");
+        notNull(comments, "comments cannot be null");
+        notNull(answers, "answers cannot be null");
+
+        this.question = question;
+        this.comments = comments;
+        this.answers = answers;
+    }
+
+    /**
+     * Assemble a thread from the comments of the question and of all its answers, which were loaded together.
+     * Answers and comments keep the order in which they were loaded.
+     *
+     * @param question of the thread
+     * @param answers  all answers of the question
+     * @param comments all comments of the question and of its answers
+     * @return thread
+     */
+    public static QuestionThread of(final Question question, final List<Answer> answers, final List<Comment> comments) {
+        notNull(answers, "answers cannot be null");
+        notNull(comments, "comments cannot be null");
+
+        List<Comment> questionComments = new ArrayList<>();
+        Map<Long, List<Comment>> answerComments = new HashMap<>();
+
+        for (Comment comment : comments) {
+            if (comment.getAnswerID() != null) {
+                answerComments.computeIfAbsent(comment.getAnswerID(), answerID -> new ArrayList<>())
+                        .add(comment);
+            } else {
+                questionComments.add(comment);
+            }
+        }
+
+        List<AnswerThread> answerThreads = new ArrayList<>(answers.size());
+        for (Answer answer : answers) {
+            answerThreads.add(new AnswerThread(answer, answerComments.getOrDefault(answer.getId(), new ArrayList<>())));
+        }
+
+        return new QuestionThread(question, questionComments, answerThreads);
+    }
+
+    public Question getQuestion() {
+        return question;
+    }
+
+    public List<Comment> getComments() {
+        return comments;
+    }
+
+    public List<AnswerThread> getAnswers() {
+        return answers;
+    }
+}
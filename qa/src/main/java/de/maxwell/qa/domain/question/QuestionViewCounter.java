@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * In-memory accumulator for question views. Views are counted per question in a striped cell and written to the
+ * database in batches by the {@link QuestionViewFlusher}. A cell keeps the persisted views it started with next to
+ * all views it counted and the ones flushed from it, so reading a tracked question does not depend on whether a flush
+ * is committed yet.
+ * <p>
+ * The flush retires a cell without pending views by marking it as retiring before it checks the count a last time,
+ * and then removes it or keeps it. An increment checks the state after counting and waits while the cell is retiring,
+ * so either the flush sees the view and keeps the cell, or the increment sees the cell removed and counts the view
+ * again in the next cell.
+ */
+@ApplicationScoped
+public class QuestionViewCounter {
+
+    private static final int LIVE = 0;
+
+    private static final int RETIRING = 1;
+
+    private static final int REMOVED = 2;
+
+    private final ConcurrentMap<Long, ViewCell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * Count a view of the question
+     *
+     * @param id             of the question
+     * @param persistedViews loads the persisted views, only called for untracked questions
+     * @return persisted views plus pending views
+     */
+    public Long increment(final Long id, final LongSupplier persistedViews) {
+        notNull(id, "id cannot be null");
+        notNull(persistedViews, "persistedViews cannot be null");
+
+        while (true) {
+            ViewCell cell = cells.get(id);
+            if (cell == null) {
+                long persisted = persistedViews.getAsLong();
+                cell = cells.computeIfAbsent(id, key -> new ViewCell(persisted));
+            }
+
+            cell.counted.increment();
+
+            int state;
+            while ((state = cell.state) == RETIRING) {
+                Thread.yield();
+            }
+            if (state == LIVE) {
+                return cell.views();
+            }
+            // lost the race against the flush, the view stays in the removed cell
+        }
+    }
+
+    /**
+     * Number of views of the question which are not written to the database yet
+     *
+     * @param id of the question
+     * @return pending views
+     */
+    public Long pendingViews(final Long id) {
+        notNull(id, "id cannot be null");
+
+        ViewCell cell = cells.get(id);
+        if (cell == null) {
+            return 0L;
+        }
+
+        return cell.pending();
+    }
+
+    /**
+     * Persisted plus pending views of a tracked question, unaffected by a flush
+     *
+     * @param id of the question
+     * @return views, empty if the question is not tracked
+     */
+    public Optional<Long> views(final Long id) {
+        notNull(id, "id cannot be null");
+
+        ViewCell cell = cells.get(id);
+        if (cell == null || cell.state == REMOVED) {
+            return Optional.empty();
+        }
+
+        return Optional.of(cell.views());
+    }
+
+    /**
+     * Snapshot of the pending views of all tracked questions. Questions without pending views are included with
+     * a delta of 0, so {@link #commit(Map)} can release them.
+     *
+     * @return pending views by question id
+     */
+    public Map<Long, Long> snapshot() {
+        Map<Long, Long> snapshot = new HashMap<>();
+
+        cells.forEach((id, cell) -> {
+            if (cell.state != REMOVED) {
+                snapshot.put(id, cell.pending());
+            }
+        });
+
+        return snapshot;
+    }
+
+    /**
+     * Drop flushed views from pending once they are committed to the database. The total views of the question do
+     * not change, views counted after the snapshot stay pending. Questions which had no views since the last flush
+     * are released and reloaded on their next view. Must not run concurrently with itself.
+     *
+     * @param flushed views by question id, as returned by {@link #snapshot()}
+     */
+    public void commit(final Map<Long, Long> flushed) {
+        notNull(flushed, "flushed cannot be null");
+
+        flushed.forEach((id, delta) -> {
+            ViewCell cell = cells.get(id);
+            if (cell == null) {
+                return;
+            }
+
+            if (delta == 0L) {
+                cell.state = RETIRING;
+                if (cell.counted.sum() == cell.flushed) {
+                    cells.remove(id, cell);
+                    cell.state = REMOVED;
+                } else {
+                    // a view was counted since the snapshot, the cell is released with a later flush
+                    cell.state = LIVE;
+                }
+                return;
+            }
+
+            cell.flushed += delta;
+        });
+    }
+
+    /**
+     * Stop tracking the question and drop its pending views
+     *
+     * @param id of the question
+     */
+    public void evict(final Long id) {
+        notNull(id, "id cannot be null");
+
+        cells.remove(id);
+    }
+
+    private static final class ViewCell {
+
+        private final long persisted;
+
+        private final LongAdder counted = new LongAdder();
+
+        /**
+         * Counted views written to the database, only changed by the flush
+         */
+        private volatile long flushed;
+
+        /**
+         * Only changed by the flush
+         */
+        private volatile int state = LIVE;
+
+        private ViewCell(final long persisted) {
+            this.persisted = persisted;
+        }
+
+        private long views() {
+            return persisted + counted.sum();
+        }
+
+        private long pending() {
+            return counted.sum() - flushed;
+        }
+    }
+}
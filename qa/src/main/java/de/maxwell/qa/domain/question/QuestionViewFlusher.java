@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.domain.question;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically writes the views accumulated in the {@link QuestionViewCounter} to the database.
+ * The interval is configured with {@code qa.question.views.flush-interval}.
+ */
+@ApplicationScoped
+public class QuestionViewFlusher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionViewFlusher.class);
+
+    @Inject
+    QuestionViewCounter viewCounter;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Scheduled(every = "{qa.question.views.flush-interval}")
+    void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not flush question views, retrying with the next flush", e);
+        }
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        LOG.info("Flush question views on shutdown");
+
+        flush();
+    }
+
+    /**
+     * Flush all pending views. Pending views stay in the counter if the update fails.
+     */
+    public synchronized void flush() {
+        Map<Long, Long> pending = viewCounter.snapshot();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> missing = questionRepository.addViews(pending);
+
+        viewCounter.commit(pending);
+        missing.forEach(viewCounter::evict);
+    }
+}
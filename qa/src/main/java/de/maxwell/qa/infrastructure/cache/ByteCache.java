@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Cache of byte arrays by key, bounded by the sum of their lengths. Drops the least recently used arrays once the sum
+ * exceeds the maximum, an array larger than the maximum is not cached at all. The arrays are shared between callers,
+ * so they must not be modified.
+ */
+public class ByteCache {
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    public ByteCache(final long maxBytes) {
+        isTrue(maxBytes > 0, "maxBytes must be positive");
+
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cached array, null on a miss
+     */
+    public synchronized byte[] get(final String key) {
+        notNull(key, "key cannot be null");
+
+        return entries.get(key);
+    }
+
+    public synchronized void put(final String key, final byte[] value) {
+        notNull(key, "key cannot be null");
+        notNull(value, "value cannot be null");
+
+        remove(key);
+        if (value.length > maxBytes) {
+            return;
+        }
+
+        entries.put(key, value);
+        bytes += value.length;
+        evictEldest();
+    }
+
+    public synchronized void remove(final String key) {
+        notNull(key, "key cannot be null");
+
+        byte[] removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.length;
+        }
+    }
+
+    /**
+     * @return sum of the lengths of the cached arrays
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Cache of one entity type by id. Holds at most maxSize entries, drops the least recently used entry when it is
+ * full and reloads an entry once it is older than the ttl.
+ * <p>
+ * The ids are spread over segments with a lock and a least recently used order each, so lookups of different ids
+ * rarely wait for each other. Each segment holds its share of maxSize.
+ *
+ * @param <T> type of the cached entities
+ */
+public class CacheRegion<T> {
+
+    private final Segment<T>[] segments;
+
+    private final long ttlNanos;
+
+    private final LongSupplier ticker;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public CacheRegion(final int maxSize, final long ttlNanos, final LongSupplier ticker,
+                       final Counter hits, final Counter misses, final Counter evictions) {
+        this(maxSize, 1, ttlNanos, ticker, hits, misses, evictions);
+    }
+
+    /**
+     * @param segments number of independently locked parts, at most maxSize
+     */
+    @SuppressWarnings("unchecked")
+    public CacheRegion(final int maxSize, final int segments, final long ttlNanos, final LongSupplier ticker,
+                       final Counter hits, final Counter misses, final Counter evictions) {
+        isTrue(maxSize > 0, "maxSize must be positive");
+        isTrue(segments > 0 && segments <= maxSize, "segments must be positive and at most maxSize");
+        isTrue(ttlNanos > 0, "ttl must be positive");
+        notNull(ticker, "ticker cannot be null");
+        notNull(hits, "hits cannot be null");
+        notNull(misses, "misses cannot be null");
+        notNull(evictions, "evictions cannot be null");
+
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment<>((maxSize + segments - 1) / segments);
+        }
+        this.ttlNanos = ttlNanos;
+        this.ticker = ticker;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Get the cached entity or load it. The loader runs without holding a lock, its exceptions are passed on and
+     * nothing is cached for them. A loaded entity is not cached if its id was invalidated while it was loading,
+     * because it may be older than the write which caused the invalidation.
+     *
+     * @param id     of the entity
+     * @param loader loads the entity on a miss
+     * @return entity
+     */
+    public T get(final Long id, final Function<Long, T> loader) {
+        notNull(id, "id cannot be null");
+        notNull(loader, "loader cannot be null");
+
+        Segment<T> segment = segment(id);
+
+        Version version;
+        long stamp;
+        synchronized (segment) {
+            Entry<T> entry = segment.entries.get(id);
+            if (entry != null) {
+                if (ticker.getAsLong() - entry.loadedAt < ttlNanos) {
+                    hits.inc();
+                    return entry.value;
+                }
+
+                segment.entries.remove(id);
+                evictions.inc();
+            }
+
+            misses.inc();
+            version = segment.loading.computeIfAbsent(id, key -> new Version());
+            version.loads++;
+            stamp = version.invalidations;
+        }
+
+        T value;
+        try {
+            value = loader.apply(id);
+        } catch (RuntimeException | Error e) {
+            synchronized (segment) {
+                segment.loaded(id, version);
+            }
+            throw e;
+        }
+
+        synchronized (segment) {
+            if (stamp == version.invalidations) {
+                segment.entries.put(id, new Entry<>(value, ticker.getAsLong()));
+                evictions.inc(segment.evictEldest());
+            }
+            segment.loaded(id, version);
+        }
+
+        return value;
+    }
+
+    /**
+     * Get the cached entities and load all missing ones with a single call of the loader. Follows the rules of
+     * {@link #get(Long, Function)} for each id. Ids the loader does not return are missing in the result.
+     *
+     * @param ids    of the entities
+     * @param loader loads the entities of the missing ids, by id
+     * @return found entities by id
+     */
+    public Map<Long, T> getAll(final Collection<Long> ids, final Function<Collection<Long>, Map<Long, T>> loader) {
+        notNull(ids, "ids cannot be null");
+        notNull(loader, "loader cannot be null");
+
+        Map<Long, T> found = new HashMap<>();
+        Map<Long, Version> versions = new LinkedHashMap<>();
+        Map<Long, Long> stamps = new HashMap<>();
+        long now = ticker.getAsLong();
+
+        for (Long id : ids) {
+            notNull(id, "id cannot be null");
+            if (found.containsKey(id) || versions.containsKey(id)) {
+                continue;
+            }
+
+            Segment<T> segment = segment(id);
+            synchronized (segment) {
+                Entry<T> entry = segment.entries.get(id);
+                if (entry != null) {
+                    if (now - entry.loadedAt < ttlNanos) {
+                        hits.inc();
+                        found.put(id, entry.value);
+                        continue;
+                    }
+
+                    segment.entries.remove(id);
+                    evictions.inc();
+                }
+
+                misses.inc();
+                Version version = segment.loading.computeIfAbsent(id, key -> new Version());
+                version.loads++;
+                versions.put(id, version);
+                stamps.put(id, version.invalidations);
+            }
+        }
+
+        if (versions.isEmpty()) {
+            return found;
+        }
+
+        Map<Long, T> loaded;
+        try {
+            loaded = loader.apply(Collections.unmodifiableSet(versions.keySet()));
+        } catch (RuntimeException | Error e) {
+            versions.forEach((id, version) -> {
+                Segment<T> segment = segment(id);
+                synchronized (segment) {
+                    segment.loaded(id, version);
+                }
+            });
+            throw e;
+        }
+
+        versions.forEach((id, version) -> {
+            T value = loaded.get(id);
+            Segment<T> segment = segment(id);
+            synchronized (segment) {
+                if (value != null && stamps.get(id) == version.invalidations) {
+                    segment.entries.put(id, new Entry<>(value, ticker.getAsLong()));
+                    evictions.inc(segment.evictEldest());
+                }
+                segment.loaded(id, version);
+            }
+            if (value != null) {
+                found.put(id, value);
+            }
+        });
+
+        return found;
+    }
+
+    /**
+     * Remove the entity, the next {@link #get(Long, Function)} loads it again
+     *
+     * @param id of the entity
+     */
+    public void invalidate(final Long id) {
+        notNull(id, "id cannot be null");
+
+        Segment<T> segment = segment(id);
+        synchronized (segment) {
+            Version version = segment.loading.get(id);
+            if (version != null) {
+                version.invalidations++;
+            }
+            segment.entries.remove(id);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<T> segment(final Long id) {
+        int hash = id.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    private static final class Segment<T> {
+
+        private final int maxSize;
+
+        private final LinkedHashMap<Long, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Invalidations of the ids which are loading right now, only kept while a load is running
+         */
+        private final Map<Long, Version> loading = new HashMap<>();
+
+        private Segment(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private void loaded(final Long id, final Version version) {
+            if (--version.loads == 0) {
+                loading.remove(id);
+            }
+        }
+
+        /**
+         * @return number of evicted entries
+         */
+        private int evictEldest() {
+            int evicted = 0;
+            Iterator<Map.Entry<Long, Entry<T>>> iterator = entries.entrySet().iterator();
+            while (entries.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+    }
+
+    private static final class Version {
+
+        private long invalidations;
+
+        private int loads;
+    }
+
+    private static final class Entry<T> {
+
+        private final T value;
+
+        private final long loadedAt;
+
+        private Entry(final T value, final long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
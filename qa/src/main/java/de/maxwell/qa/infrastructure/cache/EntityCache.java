@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Read-through cache in front of the findById methods of the repositories, with one {@link CacheRegion} per entity
+ * type. The cached entities are detached and shared between callers, so they must not be modified.
+ * Concurrent misses of the same id share one load through {@link SingleFlight}.
+ * Hits, misses and evictions are counted as entity_cache_&lt;type&gt;_hits, _misses and _evictions.
+ */
+@ApplicationScoped
+public class EntityCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityCache.class);
+
+    /**
+     * Independently locked parts of each region
+     */
+    private static final int SEGMENTS = 16;
+
+    private final ConcurrentMap<Class<?>, CacheRegion<?>> regions = new ConcurrentHashMap<>();
+
+    @ConfigProperty(name = "qa.cache.max-size")
+    int maxSize;
+
+    @ConfigProperty(name = "qa.cache.ttl")
+    Duration ttl;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    SingleFlight singleFlight;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Get the cached entity or load it
+     *
+     * @param type   of the entity
+     * @param id     of the entity
+     * @param loader loads a detached entity on a miss
+     * @param <T>    type of the entity
+     * @return entity
+     */
+    public <T> T find(final Class<T> type, final Long id, final Function<Long, T> loader) {
+        notNull(type, "type cannot be null");
+
+        return region(type).get(id, key -> singleFlight.load(type, key, loader));
+    }
+
+    /**
+     * Get the cached entities and load all missing ones at once
+     *
+     * @param type   of the entities
+     * @param ids    of the entities
+     * @param loader loads the detached entities of the missing ids, by id
+     * @param <T>    type of the entities
+     * @return found entities by id, without the ids the loader did not find
+     */
+    public <T> Map<Long, T> findAll(final Class<T> type, final Collection<Long> ids,
+                                    final Function<Collection<Long>, Map<Long, T>> loader) {
+        notNull(type, "type cannot be null");
+
+        return region(type).getAll(ids, loader);
+    }
+
+    /**
+     * Remove the entity from the cache now and again once the current transaction completed, so a reader cannot
+     * cache the state from before the commit in between. A running load of the entity is not joined afterwards.
+     *
+     * @param type of the entity
+     * @param id   of the entity
+     */
+    public void invalidate(final Class<?> type, final Long id) {
+        notNull(type, "type cannot be null");
+        notNull(id, "id cannot be null");
+
+        CacheRegion<?> region = region(type);
+        invalidate(type, region, id);
+
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(final int status) {
+                    invalidate(type, region, id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Invalidate all ids of a set-based delete now and again after the current transaction has completed
+     */
+    public void invalidateAll(final Class<?> type, final Collection<Long> ids) {
+        notNull(type, "type cannot be null");
+        notNull(ids, "ids cannot be null");
+
+        CacheRegion<?> region = region(type);
+        ids.forEach(id -> invalidate(type, region, id));
+
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(final int status) {
+                    ids.forEach(id -> invalidate(type, region, id));
+                }
+            });
+        }
+    }
+
+    /**
+     * The flight is forgotten first, a miss seeing the new version of the region can then only start a new load
+     */
+    private void invalidate(final Class<?> type, final CacheRegion<?> region, final Long id) {
+        singleFlight.forget(type, id);
+        region.invalidate(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CacheRegion<T> region(final Class<T> type) {
+        return (CacheRegion<T>) regions.computeIfAbsent(type, this::createRegion);
+    }
+
+    private CacheRegion<?> createRegion(final Class<?> type) {
+        String name = "entity_cache_" + type.getSimpleName().toLowerCase(Locale.ROOT);
+
+        LOG.info("Create cache {} with max size {} and ttl {}", name, maxSize, ttl);
+
+        return new CacheRegion<>(maxSize, Math.min(SEGMENTS, maxSize), ttl.toNanos(), System::nanoTime,
+                metricRegistry.counter(name + "_hits"),
+                metricRegistry.counter(name + "_misses"),
+                metricRegistry.counter(name + "_evictions"));
+    }
+}
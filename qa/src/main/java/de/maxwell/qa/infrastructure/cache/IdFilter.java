@@ -0,0 +1,235 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Bitmap of the existing ids of one entity type, which answers lookups of ids that certainly do not exist without a
+ * database round trip. The ids are generated by a sequence and therefore dense, so one bit per id is exact and
+ * supports removals.
+ * <p>
+ * The bitmap knows the ids up to the highest id read by the last rebuild or taken from the sequence since, higher ids
+ * are rejected as well. Ids which are not committed yet are kept apart, so a rebuild which cannot see them yet does
+ * not drop them. Entities created by others become known with the next rebuild. Until the first rebuild all lookups
+ * pass.
+ */
+public class IdFilter {
+
+    private final Counter checked;
+
+    private final Counter rejected;
+
+    private final Counter falsePositives;
+
+    private volatile Bitmap bits = new Bitmap();
+
+    private volatile boolean built;
+
+    /**
+     * Highest id read by the last rebuild or taken from the sequence since
+     */
+    private volatile long watermark;
+
+    private long allocated;
+
+    private Bitmap next;
+
+    private final Set<Long> uncommitted = new HashSet<>();
+
+    public IdFilter(final Counter checked, final Counter rejected, final Counter falsePositives) {
+        notNull(checked, "checked cannot be null");
+        notNull(rejected, "rejected cannot be null");
+        notNull(falsePositives, "falsePositives cannot be null");
+
+        this.checked = checked;
+        this.rejected = rejected;
+        this.falsePositives = falsePositives;
+    }
+
+    /**
+     * @param id of the entity
+     * @return false if the entity certainly does not exist
+     */
+    public boolean mightContain(final long id) {
+        if (!built) {
+            return true;
+        }
+
+        checked.inc();
+        if (id <= watermark && bits.get(id)) {
+            return true;
+        }
+
+        rejected.inc();
+        return false;
+    }
+
+    /**
+     * Record that an entity the filter let through was not found
+     *
+     * @param id of the entity
+     */
+    public void falsePositive(final long id) {
+        if (built) {
+            falsePositives.inc();
+        }
+    }
+
+    /**
+     * Record a block of ids taken from the sequence, before any of them is handed out
+     *
+     * @param last id of the block
+     */
+    public synchronized void allocated(final long last) {
+        allocated = Math.max(allocated, last);
+        watermark = Math.max(watermark, last);
+    }
+
+    /**
+     * Add the id of a new entity. Must happen before the entity is committed, otherwise a lookup in between would be
+     * rejected. The id counts as uncommitted until {@link #settled(long)}, so a rebuild which cannot see the entity
+     * yet keeps it.
+     */
+    public synchronized void add(final long id) {
+        allocated(id);
+        bits.set(id);
+        if (next != null) {
+            next.set(id);
+        }
+        uncommitted.add(id);
+    }
+
+    /**
+     * The transaction which created the entity completed
+     */
+    public synchronized void settled(final long id) {
+        uncommitted.remove(id);
+    }
+
+    /**
+     * Remove the id of a deleted entity. Must happen after the deletion is committed, otherwise a lookup in between
+     * would be rejected although the entity still exists.
+     */
+    public synchronized void remove(final long id) {
+        bits.clear(id);
+        if (next != null) {
+            next.clear(id);
+        }
+    }
+
+    /**
+     * Start a rebuild. The new bitmap starts with the uncommitted ids, ids added or removed until
+     * {@link #endRebuild(long)} go into the old and the new bitmap.
+     */
+    public synchronized void beginRebuild() {
+        next = new Bitmap();
+        uncommitted.forEach(next::set);
+    }
+
+    public synchronized void addRebuilt(final Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        for (Long id : ids) {
+            next.set(id);
+        }
+    }
+
+    /**
+     * Replace the bitmap with the rebuilt one
+     *
+     * @param highestId highest id which was read by the rebuild
+     */
+    public synchronized void endRebuild(final long highestId) {
+        bits = next;
+        watermark = Math.max(highestId, allocated);
+        built = true;
+        next = null;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return share of the lookups let through by the filter which did not find an entity
+     */
+    public double falsePositiveRate() {
+        long passed = checked.getCount() - rejected.getCount();
+        if (passed == 0) {
+            return 0d;
+        }
+
+        return (double) falsePositives.getCount() / passed;
+    }
+
+    /**
+     * Sparse bitmap in blocks of 65536 ids, so gaps in the ids cost no memory
+     */
+    private static final class Bitmap {
+
+        private static final int BLOCK_SHIFT = 16;
+
+        private static final int BLOCK_WORDS = (1 << BLOCK_SHIFT) / Long.SIZE;
+
+        private final ConcurrentMap<Long, AtomicLongArray> blocks = new ConcurrentHashMap<>();
+
+        boolean get(final long id) {
+            AtomicLongArray block = blocks.get(id >>> BLOCK_SHIFT);
+            return block != null && (block.get(word(id)) & mask(id)) != 0;
+        }
+
+        void set(final long id) {
+            AtomicLongArray block = blocks.computeIfAbsent(id >>> BLOCK_SHIFT, index -> new AtomicLongArray(BLOCK_WORDS));
+            long mask = mask(id);
+            block.getAndUpdate(word(id), word -> word | mask);
+        }
+
+        void clear(final long id) {
+            AtomicLongArray block = blocks.get(id >>> BLOCK_SHIFT);
+            if (block != null) {
+                long mask = mask(id);
+                block.getAndUpdate(word(id), word -> word & ~mask);
+            }
+        }
+
+        private static int word(final long id) {
+            return (int) ((id & ((1 << BLOCK_SHIFT) - 1)) >>> 6);
+        }
+
+        private static long mask(final long id) {
+            return 1L << (id & (Long.SIZE - 1));
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.EntityType;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static de.maxwell.qa.infrastructure.helper.AfterCompletion.afterCommit;
+import static de.maxwell.qa.infrastructure.helper.AfterCompletion.afterCompletion;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Negative lookup filters for the findById methods of the repositories, with one {@link IdFilter} per entity type.
+ * The {@link IdBlockSequenceGenerator} reports the blocks of ids taken from the sequences, the repositories report
+ * created and removed entities and the {@link IdFilterRebuilder} rebuilds the filters from the database. Lookups are counted as id_filter_&lt;type&gt;_checked, _rejected and _false_positives, the gauge
+ * id_filter_&lt;type&gt;_false_positive_rate is the share of checked and passed lookups which found nothing.
+ */
+@ApplicationScoped
+public class IdFilters {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdFilters.class);
+
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+
+    private final ConcurrentMap<Class<?>, IdFilter> filters = new ConcurrentHashMap<>();
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * @param type of the entity
+     * @param id   of the entity
+     * @return false if the entity certainly does not exist
+     */
+    public boolean mightExist(final Class<?> type, final Long id) {
+        notNull(id, "id cannot be null");
+
+        return filter(type).mightContain(id);
+    }
+
+    /**
+     * Record that a lookup which passed the filter found no entity
+     */
+    public void notFound(final Class<?> type, final Long id) {
+        notNull(id, "id cannot be null");
+
+        filter(type).falsePositive(id);
+    }
+
+    /**
+     * Record a block of ids taken from the sequence of the entity type
+     */
+    public void allocated(final Class<?> type, final long last) {
+        filter(type).allocated(last);
+    }
+
+    /**
+     * Add a new entity, call it right after the entity got its id
+     */
+    public void created(final Class<?> type, final Long id) {
+        notNull(id, "id cannot be null");
+
+        IdFilter filter = filter(type);
+        filter.add(id);
+
+        afterCompletion(transactionRegistry, status -> filter.settled(id));
+    }
+
+    /**
+     * Add the new entities of a batch insert, call it before the transaction is committed
+     */
+    public void createdAll(final Class<?> type, final Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        IdFilter filter = filter(type);
+        ids.forEach(filter::add);
+
+        afterCompletion(transactionRegistry, status -> ids.forEach(filter::settled));
+    }
+
+    /**
+     * Remove a deleted entity once the current transaction is committed
+     */
+    public void removed(final Class<?> type, final Long id) {
+        notNull(id, "id cannot be null");
+
+        IdFilter filter = filter(type);
+
+        afterCommit(transactionRegistry, () -> filter.remove(id));
+    }
+
+    /**
+     * Remove all entities of a set-based delete once the current transaction is committed
+     */
+    public void removedAll(final Class<?> type, final Collection<Long> ids) {
+        notNull(ids, "ids cannot be null");
+
+        IdFilter filter = filter(type);
+
+        afterCommit(transactionRegistry, () -> ids.forEach(filter::remove));
+    }
+
+    /**
+     * Read the ids of all entity types with a Long id in batches and replace their filters
+     */
+    @Transactional
+    public void rebuild() {
+        em.getMetamodel()
+                .getEntities()
+                .stream()
+                .filter(entity -> Long.class.equals(entity.getIdType().getJavaType()))
+                .forEach(this::rebuild);
+    }
+
+    private void rebuild(final EntityType<?> entity) {
+        IdFilter filter = filter(entity.getJavaType());
+        String id = "e." + entity.getId(Long.class).getName();
+        String query = "SELECT " + id + " FROM " + entity.getName() + " e WHERE " + id + " > :last ORDER BY " + id;
+
+        filter.beginRebuild();
+
+        long last = 0L;
+        long count = 0L;
+        List<Long> ids;
+        do {
+            ids = em.createQuery(query, Long.class)
+                    .setParameter("last", last)
+                    .setMaxResults(REBUILD_BATCH_SIZE)
+                    .getResultList();
+            if (!ids.isEmpty()) {
+                filter.addRebuilt(ids);
+                last = ids.get(ids.size() - 1);
+                count += ids.size();
+            }
+        } while (ids.size() == REBUILD_BATCH_SIZE);
+
+        filter.endRebuild(last);
+
+        LOG.info("Rebuilt id filter of {} with {} ids up to {}", entity.getName(), count, last);
+    }
+
+    private IdFilter filter(final Class<?> type) {
+        notNull(type, "type cannot be null");
+
+        return filters.computeIfAbsent(type, this::createFilter);
+    }
+
+    private IdFilter createFilter(final Class<?> type) {
+        String name = "id_filter_" + type.getSimpleName().toLowerCase(Locale.ROOT);
+
+        IdFilter filter = new IdFilter(metricRegistry.counter(name + "_checked"),
+                metricRegistry.counter(name + "_rejected"),
+                metricRegistry.counter(name + "_false_positives"));
+
+        Metadata rate = Metadata.builder()
+                .withName(name + "_false_positive_rate")
+                .withType(MetricType.GAUGE)
+                .build();
+        metricRegistry.register(rate, (Gauge<Double>) filter::falsePositiveRate);
+
+        return filter;
+    }
+}
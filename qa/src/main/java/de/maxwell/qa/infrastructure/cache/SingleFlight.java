@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Coalesces concurrent lookups of the same entity into one load, with one {@link SingleFlightGroup} per entity type.
+ * The {@link EntityCache} runs its misses through it, so only real database loads are coalesced.
+ * Loads and joined lookups are counted as single_flight_&lt;type&gt;_loads and _coalesced.
+ */
+@ApplicationScoped
+public class SingleFlight {
+
+    private final ConcurrentMap<Class<?>, SingleFlightGroup<?>> groups = new ConcurrentHashMap<>();
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    /**
+     * Load the entity or join the load which is already running for it
+     *
+     * @param type   of the entity
+     * @param id     of the entity
+     * @param loader loads the entity
+     * @param <T>    type of the entity
+     * @return entity
+     */
+    public <T> T load(final Class<T> type, final Long id, final Function<Long, T> loader) {
+        notNull(type, "type cannot be null");
+
+        return group(type).load(id, loader);
+    }
+
+    /**
+     * Let the next load of the entity start a new flight
+     *
+     * @param type of the entity
+     * @param id   of the entity
+     */
+    public void forget(final Class<?> type, final Long id) {
+        notNull(type, "type cannot be null");
+
+        group(type).forget(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> SingleFlightGroup<T> group(final Class<T> type) {
+        return (SingleFlightGroup<T>) groups.computeIfAbsent(type, this::createGroup);
+    }
+
+    private SingleFlightGroup<?> createGroup(final Class<?> type) {
+        String name = "single_flight_" + type.getSimpleName().toLowerCase(Locale.ROOT);
+
+        return new SingleFlightGroup<>(metricRegistry.counter(name + "_loads"), metricRegistry.counter(name + "_coalesced"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.cache;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Lets concurrent loads of the same id share one load. The first caller runs the loader, callers arriving while it
+ * runs wait for its result or its exception instead of loading again.
+ *
+ * @param <T> type of the loaded entities
+ */
+public class SingleFlightGroup<T> {
+
+    private final ConcurrentMap<Long, CompletableFuture<T>> flights = new ConcurrentHashMap<>();
+
+    private final Counter loads;
+
+    private final Counter coalesced;
+
+    public SingleFlightGroup(final Counter loads, final Counter coalesced) {
+        notNull(loads, "loads cannot be null");
+        notNull(coalesced, "coalesced cannot be null");
+
+        this.loads = loads;
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * Load the entity or join the load which is already running for the id
+     *
+     * @param id     of the entity
+     * @param loader loads the entity
+     * @return entity
+     */
+    public T load(final Long id, final Function<Long, T> loader) {
+        notNull(id, "id cannot be null");
+        notNull(loader, "loader cannot be null");
+
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> running = flights.putIfAbsent(id, flight);
+        if (running != null) {
+            coalesced.inc();
+            return await(running);
+        }
+
+        loads.inc();
+        try {
+            T value = loader.apply(id);
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // errors too, otherwise the callers waiting for the flight would wait forever
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(id, flight);
+        }
+    }
+
+    /**
+     * Let the next load of the id start a new flight instead of joining the running one, which may have read the
+     * entity before a write
+     *
+     * @param id of the entity
+     */
+    public void forget(final Long id) {
+        notNull(id, "id cannot be null");
+
+        flights.remove(id);
+    }
+
+    public int inFlight() {
+        return flights.size();
+    }
+
+    private T await(final CompletableFuture<T> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
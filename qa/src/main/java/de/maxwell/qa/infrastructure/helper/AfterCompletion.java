@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.helper;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.function.IntConsumer;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+public class AfterCompletion {
+
+    /**
+     * Run the action once the current transaction completed, or right away with status committed without one
+     *
+     * @param registry of the current transaction
+     * @param action   gets the {@link Status} the transaction completed with
+     */
+    public static void afterCompletion(final TransactionSynchronizationRegistry registry, final IntConsumer action) {
+        notNull(registry, "registry cannot be null");
+        notNull(action, "action cannot be null");
+
+        if (registry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            action.accept(Status.STATUS_COMMITTED);
+            return;
+        }
+
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                action.accept(status);
+            }
+        });
+    }
+
+    /**
+     * Run the action once the current transaction is committed, or right away without one
+     *
+     * @param registry of the current transaction
+     * @param action   skipped on rollback
+     */
+    public static void afterCommit(final TransactionSynchronizationRegistry registry, final Runnable action) {
+        notNull(action, "action cannot be null");
+
+        afterCompletion(registry, status -> {
+            if (status == Status.STATUS_COMMITTED) {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.helper;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+public class BatchInsert {
+
+    /**
+     * Persists the entities in JDBC batches of the given size. The ids come from a pooled sequence, so persist does
+     * not need a round trip per entity. The persistence context is flushed and cleared after every batch to keep it
+     * small. Must be called inside a transaction.
+     *
+     * @param em        entity manager of the current transaction
+     * @param entities  new entities, all of the same type so the inserts are already ordered
+     * @param batchSize number of inserts sent to the database at once
+     * @param <T>       type of the entities
+     * @return the entities with their ids, detached
+     */
+    public static <T> List<T> persistAll(final EntityManager em, final List<T> entities, final int batchSize) {
+        notNull(em, "em cannot be null");
+        notNull(entities, "entities cannot be null");
+        isTrue(batchSize > 0, "batchSize must be positive");
+
+        em.unwrap(Session.class)
+                .setJdbcBatchSize(batchSize);
+
+        for (int i = 0; i < entities.size(); i++) {
+            em.persist(entities.get(i));
+
+            if ((i + 1) % batchSize == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+
+        em.flush();
+        em.clear();
+
+        return entities;
+    }
+}
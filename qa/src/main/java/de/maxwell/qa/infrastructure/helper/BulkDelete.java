@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.helper;
+
+import de.maxwell.qa.infrastructure.metrics.SqlMetrics;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.notEmpty;
+import static org.apache.commons.lang3.Validate.notNull;
+
+public class BulkDelete {
+
+    /**
+     * Deletes all matching rows in a single {@code DELETE ... RETURNING} statement, so the caller can evict the
+     * deleted entities from the in-memory caches. Must be called inside a transaction.
+     *
+     * @param em         entity manager of the current transaction
+     * @param table      of the entity, needs the column COL_ID
+     * @param where      condition of the rows, with ? for the ids
+     * @param parameters ids bound to the ? of the condition in order
+     * @return ids of the deleted rows
+     */
+    public static List<Long> deleteWhere(final EntityManager em, final String table, final String where, final Long... parameters) {
+        notNull(em, "em cannot be null");
+        notEmpty(table, "table cannot be empty");
+        notEmpty(where, "where cannot be empty");
+        notNull(parameters, "parameters cannot be null");
+
+        String sql = "DELETE FROM " + table + " WHERE " + where + " RETURNING COL_ID";
+
+        return em.unwrap(Session.class)
+                .doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        for (int i = 0; i < parameters.length; i++) {
+                            statement.setLong(i + 1, parameters[i]);
+                        }
+
+                        List<Long> ids = new ArrayList<>();
+                        try (ResultSet result = SqlMetrics.timed(SqlMetrics.STATEMENT, statement::executeQuery)) {
+                            while (result.next()) {
+                                ids.add(result.getLong(1));
+                            }
+                        }
+                        return ids;
+                    }
+                });
+    }
+}
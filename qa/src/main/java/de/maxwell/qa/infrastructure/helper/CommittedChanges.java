@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.helper;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Keeps an in-memory structure of rows up to date with the changes of committed transactions and rebuilds it from
+ * the database in batches ordered by id.
+ * <p>
+ * Transactions with changes wait to commit while the rebuild reads a batch, so each change committed during a
+ * rebuild is applied again to the rebuilt structure only if the batch of its row was read before the commit.
+ *
+ * @param <T> type of the structure
+ */
+public class CommittedChanges<T> {
+
+    /**
+     * Key of the changes of the current transaction in the transaction registry
+     */
+    private final Object key = new Object();
+
+    private final TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * Held shared by transactions with changes while they commit and exclusive by the rebuild while it reads a batch
+     */
+    private final StampedLock commits = new StampedLock();
+
+    private volatile T current;
+
+    /**
+     * Number of changes applied so far
+     */
+    private long applied;
+
+    /**
+     * Changes applied while a rebuild runs, candidates to apply again to the rebuilt structure. Null without a rebuild.
+     */
+    private List<Change<T>> changedDuringRebuild;
+
+    public CommittedChanges(final TransactionSynchronizationRegistry transactionRegistry, final T initial) {
+        notNull(transactionRegistry, "transactionRegistry cannot be null");
+        notNull(initial, "initial cannot be null");
+
+        this.transactionRegistry = transactionRegistry;
+        this.current = initial;
+    }
+
+    /**
+     * @return structure with all committed changes, must only be read
+     */
+    public T current() {
+        return current;
+    }
+
+    /**
+     * Apply the change once the current transaction is committed, or right away without one
+     *
+     * @param id     of the changed row
+     * @param update applies the change to a structure
+     */
+    @SuppressWarnings("unchecked")
+    public void afterCommit(final long id, final Consumer<T> update) {
+        notNull(update, "update cannot be null");
+
+        Change<T> change = new Change<>(id, update);
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            apply(Collections.singletonList(change));
+            return;
+        }
+
+        List<Change<T>> changes = (List<Change<T>>) transactionRegistry.getResource(key);
+        if (changes == null) {
+            changes = new ArrayList<>();
+            transactionRegistry.putResource(key, changes);
+            transactionRegistry.registerInterposedSynchronization(new CommitSynchronization(changes));
+        }
+        changes.add(change);
+    }
+
+    /**
+     * Read all rows in batches into the rebuilt structure and replace the current one with it. The current structure
+     * is used until the rebuilt one is complete. The changes applied since a batch was read are applied again to the
+     * rows of the batch.
+     *
+     * @param rebuilt   empty structure
+     * @param batchSize maximum number of rows of a batch
+     * @param batch     reads up to batchSize rows with an id greater than the given one, ordered by id, the id first
+     * @param add       adds a row of a batch to the structure
+     */
+    public void rebuild(final T rebuilt, final int batchSize, final LongFunction<List<Object[]>> batch,
+                        final BiConsumer<T, Object[]> add) {
+        notNull(rebuilt, "rebuilt cannot be null");
+        isTrue(batchSize > 0, "batchSize must be positive");
+        notNull(batch, "batch cannot be null");
+        notNull(add, "add cannot be null");
+
+        synchronized (this) {
+            changedDuringRebuild = new ArrayList<>();
+        }
+
+        try {
+            // highest id of each batch to the number of changes applied before it was read
+            NavigableMap<Long, Long> appliedBefore = new TreeMap<>();
+
+            long last = 0L;
+            List<Object[]> rows;
+            do {
+                long stamp = commits.writeLock();
+                long before;
+                try {
+                    synchronized (this) {
+                        before = applied;
+                    }
+                    rows = batch.apply(last);
+                } finally {
+                    commits.unlockWrite(stamp);
+                }
+
+                for (Object[] row : rows) {
+                    last = (Long) row[0];
+                    add.accept(rebuilt, row);
+                }
+                // the last batch covers all later ids
+                appliedBefore.put(rows.size() == batchSize ? last : Long.MAX_VALUE, before);
+            } while (rows.size() == batchSize);
+
+            synchronized (this) {
+                for (Change<T> change : changedDuringRebuild) {
+                    if (change.sequence > appliedBefore.ceilingEntry(change.id).getValue()) {
+                        change.update.accept(rebuilt);
+                    }
+                }
+                current = rebuilt;
+            }
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    private synchronized void apply(final List<Change<T>> changes) {
+        for (Change<T> change : changes) {
+            change.sequence = ++applied;
+            change.update.accept(current);
+
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(change);
+            }
+        }
+    }
+
+    private static final class Change<T> {
+
+        private final long id;
+
+        private final Consumer<T> update;
+
+        private long sequence;
+
+        private Change(final long id, final Consumer<T> update) {
+            this.id = id;
+            this.update = update;
+        }
+    }
+
+    /**
+     * Registered once per transaction. The interposed synchronizations run after Hibernate flushed the session, so
+     * the lock is held while the database commits only.
+     */
+    private final class CommitSynchronization implements Synchronization {
+
+        private final List<Change<T>> changes;
+
+        private long stamp;
+
+        private CommitSynchronization(final List<Change<T>> changes) {
+            this.changes = changes;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            stamp = commits.readLock();
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            try {
+                if (status == Status.STATUS_COMMITTED) {
+                    apply(changes);
+                }
+            } finally {
+                if (stamp != 0L) {
+                    commits.unlockRead(stamp);
+                }
+            }
+        }
+    }
+}
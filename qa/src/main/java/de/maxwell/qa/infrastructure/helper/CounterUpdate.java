@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.helper;
+
+import de.maxwell.qa.infrastructure.metrics.SqlMetrics;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.apache.commons.lang3.Validate.notEmpty;
+import static org.apache.commons.lang3.Validate.notNull;
+
+public class CounterUpdate {
+
+    /**
+     * Adds the delta to a counter column in a single {@code UPDATE ... RETURNING} statement and sets the modification
+     * date of the row. Concurrent updates of the same row are applied by the database one after another, so no update
+     * is lost. Must be called inside a transaction.
+     *
+     * @param em     entity manager of the current transaction
+     * @param table  of the entity, needs the columns COL_ID and COL_MODIFIED
+     * @param column of the counter
+     * @param id     of the row
+     * @param delta  added to the counter, can be negative
+     * @return new value of the counter or empty if there is no row with the id
+     */
+    public static Optional<Long> increment(final EntityManager em, final String table, final String column, final Long id, final long delta) {
+        return increment(em, table, column, id, delta, true);
+    }
+
+    /**
+     * Like {@link #increment(EntityManager, String, String, Long, long)}, for counters which are derived from other
+     * rows and do not modify the row itself, e.g. the number of answers of a question
+     *
+     * @param modified whether COL_MODIFIED of the row is set
+     */
+    public static Optional<Long> increment(final EntityManager em, final String table, final String column, final Long id, final long delta,
+                                           final boolean modified) {
+        notNull(em, "em cannot be null");
+        notEmpty(table, "table cannot be empty");
+        notEmpty(column, "column cannot be empty");
+        notNull(id, "id cannot be null");
+
+        String sql = "UPDATE " + table + " SET " + column + " = COALESCE(" + column + ", 0) + ?"
+                + (modified ? ", COL_MODIFIED = ?" : "") + " WHERE COL_ID = ? RETURNING " + column;
+
+        return em.unwrap(Session.class)
+                .doReturningWork(connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        int parameter = 1;
+                        statement.setLong(parameter++, delta);
+                        if (modified) {
+                            statement.setTimestamp(parameter++, Timestamp.valueOf(LocalDateTime.now()));
+                        }
+                        statement.setLong(parameter, id);
+
+                        try (ResultSet result = SqlMetrics.timed(SqlMetrics.STATEMENT, statement::executeQuery)) {
+                            if (!result.next()) {
+                                return Optional.empty();
+                            }
+                            return Optional.of(result.getLong(1));
+                        }
+                    }
+                });
+    }
+}
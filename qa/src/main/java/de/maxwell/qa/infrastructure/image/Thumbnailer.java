@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.image;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Makes square PNG thumbnails of the images ImageIO reads, which are PNG, JPEG, GIF and BMP. The largest centered
+ * square of the image is scaled in steps of at most half its size, so downscaling does not skip pixels. Images with
+ * more than {@value MAX_PIXELS} pixels are not decoded, a few bytes of header can declare an image which does not fit
+ * into memory.
+ */
+public class Thumbnailer {
+
+    public static final long MAX_PIXELS = 25_000_000L;
+
+    private Thumbnailer() {
+    }
+
+    /**
+     * @param image not closed
+     * @param size  width and height of the thumbnail in pixels
+     * @return the thumbnail as PNG, empty if the image cannot be read or is too large
+     */
+    public static Optional<byte[]> thumbnail(final InputStream image, final int size) throws IOException {
+        notNull(image, "image cannot be null");
+        isTrue(size > 0, "size must be positive");
+
+        BufferedImage original;
+        try {
+            original = read(image);
+        } catch (IIOException e) {
+            // a known format with broken content
+            return Optional.empty();
+        }
+        if (original == null) {
+            return Optional.empty();
+        }
+
+        int side = Math.min(original.getWidth(), original.getHeight());
+        BufferedImage scaled = original.getSubimage((original.getWidth() - side) / 2, (original.getHeight() - side) / 2, side, side);
+        do {
+            side = Math.max(side / 2, size);
+            scaled = scale(scaled, side);
+        } while (side > size);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "png", png);
+        return Optional.of(png.toByteArray());
+    }
+
+    /**
+     * @return the image, null if it has no format ImageIO reads or more than {@value MAX_PIXELS} pixels
+     */
+    private static BufferedImage read(final InputStream image) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // from the header, nothing is decoded yet
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(final BufferedImage image, final int side) {
+        BufferedImage scaled = new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, side, side, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
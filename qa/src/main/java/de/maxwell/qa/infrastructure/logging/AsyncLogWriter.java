@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.logging;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Hands log lines to a single writer thread through a bounded queue. Submitting never blocks, a line which does not
+ * fit into the full queue is dropped and counted.
+ */
+public class AsyncLogWriter {
+
+    private final BlockingQueue<Line> queue;
+
+    private final Counter dropped;
+
+    private static class Line {
+        private final Logger logger;
+
+        private final String message;
+
+        private Line(final Logger logger, final String message) {
+            this.logger = logger;
+            this.message = message;
+        }
+    }
+
+    public AsyncLogWriter(final int capacity, final Counter dropped) {
+        isTrue(capacity > 0, "capacity must be positive");
+        notNull(dropped, "dropped cannot be null");
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = dropped;
+    }
+
+    /**
+     * @param logger  which writes the line at info level
+     * @param message complete line
+     * @return false if the line was dropped
+     */
+    public boolean submit(final Logger logger, final String message) {
+        if (queue.offer(new Line(logger, message))) {
+            return true;
+        }
+
+        dropped.inc();
+        return false;
+    }
+
+    /**
+     * Start the daemon thread which writes the queued lines, and write the rest when the JVM shuts down
+     */
+    public void start() {
+        Thread writer = new Thread(this::run, "qa-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "qa-log-writer-shutdown"));
+    }
+
+    /**
+     * Write all queued lines on the calling thread
+     */
+    public void drain() {
+        List<Line> lines = new ArrayList<>();
+        queue.drainTo(lines);
+        lines.forEach(AsyncLogWriter::write);
+    }
+
+    private void run() {
+        List<Line> lines = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                lines.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            queue.drainTo(lines);
+            lines.forEach(AsyncLogWriter::write);
+            lines.clear();
+        }
+    }
+
+    private static void write(final Line line) {
+        try {
+            line.logger.info(line.message);
+        } catch (RuntimeException e) {
+            // a broken appender must not stop the writer thread
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.logging;
+
+import org.eclipse.microprofile.metrics.Counter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Lets at most perSecond lines of one logger pass per second and counts the others. The window is switched without
+ * a lock, so around the switch a few lines more or less may pass.
+ */
+public class LogSampler {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int perSecond;
+
+    private final LongSupplier ticker;
+
+    private final Counter dropped;
+
+    private final AtomicLong window = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong passed = new AtomicLong();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LogSampler(final int perSecond, final LongSupplier ticker, final Counter dropped) {
+        isTrue(perSecond > 0, "perSecond must be positive");
+        notNull(ticker, "ticker cannot be null");
+        notNull(dropped, "dropped cannot be null");
+
+        this.perSecond = perSecond;
+        this.ticker = ticker;
+        this.dropped = dropped;
+    }
+
+    /**
+     * @return true if the line may be logged, false if it has to be dropped
+     */
+    public boolean tryAcquire() {
+        long current = Math.floorDiv(ticker.getAsLong(), SECOND);
+        long previous = window.get();
+        if (current != previous && window.compareAndSet(previous, current)) {
+            passed.set(0);
+        }
+
+        if (passed.incrementAndGet() <= perSecond) {
+            return true;
+        }
+
+        suppressed.incrementAndGet();
+        dropped.inc();
+        return false;
+    }
+
+    /**
+     * @return number of lines dropped since the last call
+     */
+    public long takeSuppressed() {
+        return suppressed.getAndSet(0);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.logging;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * Logger for the request paths of resources, services and repositories. Info lines are sampled per logger, see
+ * {@code qa.log.sample-rate}, and written by a background thread, see {@code qa.log.queue-size}, so a request only
+ * pays for formatting the lines which pass. Lines are written as {@code msg="..." thread=... suppressed=...}, where
+ * suppressed is the number of lines of the logger dropped since the last one. Dropped lines are counted in
+ * {@code log_lines_dropped}, tagged with the reason.
+ * <p>
+ * Warnings and errors are never sampled or queued, they are written right away, so they may appear before info
+ * lines logged earlier.
+ */
+public class SampledLogger {
+
+    private final Logger delegate;
+
+    private final LogSampler sampler;
+
+    /**
+     * Initialized by the JVM when the first SampledLogger is constructed, i.e. while the first class with a
+     * SampledLogger field is initialized. The configuration is read once at that moment, whatever the application
+     * startup has reached by then, a property which is not available yet falls back to its default.
+     */
+    private static class Shared {
+        private static final MetricRegistry REGISTRY = MetricRegistries.get(MetricRegistry.Type.APPLICATION);
+
+        private static final int SAMPLE_RATE = config("qa.log.sample-rate", 50);
+
+        private static final Counter SAMPLED = REGISTRY.counter("log_lines_dropped", new Tag("reason", "sampled"));
+
+        private static final AsyncLogWriter WRITER = new AsyncLogWriter(config("qa.log.queue-size", 8192),
+                REGISTRY.counter("log_lines_dropped", new Tag("reason", "queue_full")));
+
+        static {
+            WRITER.start();
+        }
+
+        private static int config(final String name, final int defaultValue) {
+            return ConfigProvider.getConfig()
+                    .getOptionalValue(name, Integer.class)
+                    .orElse(defaultValue);
+        }
+    }
+
+    private SampledLogger(final Logger delegate) {
+        this.delegate = delegate;
+        this.sampler = new LogSampler(Shared.SAMPLE_RATE, System::nanoTime, Shared.SAMPLED);
+    }
+
+    public static SampledLogger getLogger(final Class<?> type) {
+        return new SampledLogger(LoggerFactory.getLogger(type));
+    }
+
+    public void info(final String message) {
+        if (delegate.isInfoEnabled() && sampler.tryAcquire()) {
+            submit(message);
+        }
+    }
+
+    public void info(final String format, final Object argument) {
+        if (delegate.isInfoEnabled() && sampler.tryAcquire()) {
+            submit(MessageFormatter.format(format, argument).getMessage());
+        }
+    }
+
+    public void info(final String format, final Object first, final Object second) {
+        if (delegate.isInfoEnabled() && sampler.tryAcquire()) {
+            submit(MessageFormatter.format(format, first, second).getMessage());
+        }
+    }
+
+    public void info(final String format, final Object... arguments) {
+        if (delegate.isInfoEnabled() && sampler.tryAcquire()) {
+            submit(MessageFormatter.arrayFormat(format, arguments).getMessage());
+        }
+    }
+
+    public void warn(final String format, final Object... arguments) {
+        delegate.warn(format, arguments);
+    }
+
+    public void error(final String format, final Object... arguments) {
+        delegate.error(format, arguments);
+    }
+
+    private void submit(final String message) {
+        StringBuilder line = new StringBuilder(message.length() + 48)
+                .append("msg=\"").append(message.replace("\"", "\\\"")).append('"')
+                .append(" thread=").append(Thread.currentThread().getName());
+
+        long suppressed = sampler.takeSuppressed();
+        if (suppressed > 0) {
+            line.append(" suppressed=").append(suppressed);
+        }
+
+        Shared.WRITER.submit(delegate, line.toString());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.metrics;
+
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records for every resource method, tagged with the http method and the {@link RouteTemplate}:
+ * <ul>
+ * <li>{@code http_server_requests} timer of the requests</li>
+ * <li>{@code http_server_requests_active} requests in progress</li>
+ * <li>{@code http_server_request_sql_statements} histogram of the SQL statements sent per request</li>
+ * <li>{@code http_server_request_sql} timer of the time a request spent in SQL statements</li>
+ * </ul>
+ * Requests which match no resource method are not recorded. Failed requests are recorded as well, as
+ * {@link UnhandledExceptionMapper} gives every exception a response.
+ */
+@Provider
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String ROUTE = RequestMetricsFilter.class.getName() + ".route";
+
+    private static final String START = RequestMetricsFilter.class.getName() + ".start";
+
+    private static final String TALLY = RequestMetricsFilter.class.getName() + ".tally";
+
+    private final ConcurrentMap<Method, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private static class RouteMetrics {
+        private final Timer requests;
+
+        private final ConcurrentGauge active;
+
+        private final Histogram statements;
+
+        private final Timer sql;
+
+        private RouteMetrics(final MetricRegistry metricRegistry, final Tag... tags) {
+            this.requests = metricRegistry.timer("http_server_requests", tags);
+            this.active = metricRegistry.concurrentGauge("http_server_requests_active", tags);
+            this.statements = metricRegistry.histogram("http_server_request_sql_statements", tags);
+            this.sql = metricRegistry.timer("http_server_request_sql", tags);
+        }
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext request) {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return;
+        }
+
+        RouteMetrics route = routes.computeIfAbsent(method, m -> new RouteMetrics(metricRegistry,
+                new Tag("method", request.getMethod()), new Tag("route", RouteTemplate.of(m))));
+        route.active.inc();
+
+        request.setProperty(ROUTE, route);
+        request.setProperty(TALLY, SqlMetrics.track());
+        request.setProperty(START, System.nanoTime());
+    }
+
+    @Override
+    public void filter(final ContainerRequestContext request, final ContainerResponseContext response) {
+        RouteMetrics route = (RouteMetrics) request.getProperty(ROUTE);
+        if (route == null) {
+            return;
+        }
+
+        // once only, a response filter may run again for the response of a failed response filter
+        request.removeProperty(ROUTE);
+        try {
+            long nanos = System.nanoTime() - (Long) request.getProperty(START);
+            SqlMetrics.Tally tally = (SqlMetrics.Tally) request.getProperty(TALLY);
+
+            route.requests.update(nanos, TimeUnit.NANOSECONDS);
+            route.statements.update(tally.getStatements());
+            route.sql.update(tally.getNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            SqlMetrics.untrack();
+            route.active.dec();
+        }
+    }
+}
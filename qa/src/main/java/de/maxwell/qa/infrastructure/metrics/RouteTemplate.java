@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.metrics;
+
+import javax.ws.rs.Path;
+import java.lang.reflect.Method;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+public class RouteTemplate {
+
+    /**
+     * Joins the {@link Path} of the resource class and of the method, like {@code /question/{id}/thread}. Unlike the
+     * request path it does not contain ids, so all requests of a resource method share it.
+     *
+     * @param method resource method, declared in a class annotated with {@link Path}
+     * @return path template of the method
+     */
+    public static String of(final Method method) {
+        notNull(method, "method cannot be null");
+
+        Path resource = method.getDeclaringClass().getAnnotation(Path.class);
+        notNull(resource, "%s has no @Path", method.getDeclaringClass().getName());
+
+        StringBuilder template = new StringBuilder();
+        append(template, resource.value());
+
+        Path path = method.getAnnotation(Path.class);
+        if (path != null) {
+            append(template, path.value());
+        }
+
+        return template.length() == 0 ? "/" : template.toString();
+    }
+
+    private static void append(final StringBuilder template, final String path) {
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                template.append('/').append(segment);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.metrics;
+
+import io.smallrye.metrics.MetricRegistries;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every SQL statement sent to the database in the timer {@code sql_statements}, tagged with the type
+ * {@value STATEMENT} or {@value BATCH}. Statements of Hibernate are reported by {@link SqlStatementListener}, plain
+ * JDBC work has to go through {@link #timed(String, SqlCall)}.
+ * <p>
+ * While a thread is tracked, which {@link RequestMetricsFilter} does for every request, its statements and their
+ * time are also added up, so they can be reported per request.
+ */
+public class SqlMetrics {
+
+    public static final String STATEMENT = "statement";
+
+    public static final String BATCH = "batch";
+
+    private static final ThreadLocal<Tally> TALLY = new ThreadLocal<>();
+
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * Statements of the tracked thread
+     */
+    static class Tally {
+        private long statements;
+
+        private long nanos;
+
+        long getStatements() {
+            return statements;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * @param type {@value STATEMENT} or {@value BATCH}
+     * @param call which executes the statement
+     * @return result of the call
+     */
+    public static <T> T timed(final String type, final SqlCall<T> call) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            record(type, System.nanoTime() - start);
+        }
+    }
+
+    static void record(final String type, final long nanos) {
+        // called by hibernate outside of CDI, so the registry is looked up directly
+        MetricRegistries.get(MetricRegistry.Type.APPLICATION)
+                .timer("sql_statements", new Tag("type", type))
+                .update(nanos, TimeUnit.NANOSECONDS);
+
+        Tally tally = TALLY.get();
+        if (tally != null) {
+            tally.statements++;
+            tally.nanos += nanos;
+        }
+    }
+
+    /**
+     * Start adding up the statements of the current thread, replaces a previous tally
+     */
+    static Tally track() {
+        Tally tally = new Tally();
+        TALLY.set(tally);
+        return tally;
+    }
+
+    static void untrack() {
+        TALLY.remove();
+    }
+}
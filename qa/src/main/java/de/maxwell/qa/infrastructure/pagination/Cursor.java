@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.pagination;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Position in a list ordered by creation date and id. Clients only see the opaque encoded form.
+ */
+public class Cursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+
+    private final Long id;
+
+    public Cursor(final LocalDateTime createdAt, final Long id) {
+        notNull(createdAt, "createdAt cannot be null");
+        notNull(id, "id cannot be null");
+
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * Decode a cursor as returned by {@link #encode()}
+     *
+     * @param value encoded cursor
+     * @return cursor or null for an empty value, which starts at the first element
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static Cursor decode(final String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("invalid cursor " + value);
+            }
+
+            return new Cursor(LocalDateTime.parse(decoded.substring(0, separator)), Long.valueOf(decoded.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid cursor " + value, e);
+        }
+    }
+
+    /**
+     * Restrict a query to the elements after the cursor. The redundant lower bound on the creation date lets the
+     * database start an index scan at the cursor instead of filtering from the first row.
+     *
+     * @param cb   criteria builder of the query
+     * @param root entity with the attributes createdAt and id
+     * @return predicate
+     */
+    public Predicate after(final CriteriaBuilder cb, final Root<?> root) {
+        Path<LocalDateTime> created = root.get("createdAt");
+        Path<Long> rowId = root.get("id");
+
+        return cb.and(
+                cb.greaterThanOrEqualTo(created, createdAt),
+                cb.or(
+                        cb.greaterThan(created, createdAt),
+                        cb.greaterThan(rowId, id)));
+    }
+
+    /**
+     * Order of the elements a cursor walks through
+     *
+     * @param cb   criteria builder of the query
+     * @param root entity with the attributes createdAt and id
+     * @return order by creation date and id
+     */
+    public static List<Order> order(final CriteriaBuilder cb, final Root<?> root) {
+        return Arrays.asList(cb.asc(root.get("createdAt")), cb.asc(root.get("id")));
+    }
+
+    public String encode() {
+        String value = createdAt + SEPARATOR + id;
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor{" +
+                "createdAt=" + createdAt +
+                ", id=" + id +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * One page of a cursor paginated list
+ *
+ * @param <T> type of the elements
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final String next;
+
+    public Page(final List<T> items, final String next) {
+        notNull(items, "items cannot be null");
+
+        this.items = items;
+        this.next = next;
+    }
+
+    /**
+     * Create a page from a query result which fetched one element more than the limit. The additional element only
+     * signals that there is a next page and is not part of this page.
+     *
+     * @param fetched  up to limit + 1 elements
+     * @param limit    max number of elements per page
+     * @param cursorOf position of an element
+     * @param <T>      type of the elements
+     * @return page
+     */
+    public static <T> Page<T> of(final List<T> fetched, final int limit, final Function<T, Cursor> cursorOf) {
+        notNull(fetched, "fetched cannot be null");
+        notNull(cursorOf, "cursorOf cannot be null");
+        isTrue(limit > 0, "limit must be positive");
+
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+
+        List<T> items = fetched.subList(0, limit);
+        String next = cursorOf.apply(items.get(limit - 1))
+                .encode();
+
+        return new Page<>(items, next);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor of the next page, null on the last page
+     */
+    public String getNext() {
+        return next;
+    }
+}
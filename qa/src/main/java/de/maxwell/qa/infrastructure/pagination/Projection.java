@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.pagination;
+
+import javax.persistence.Column;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notBlank;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Selection of some columns of an entity for a list, so only the requested columns are read from the database and
+ * sent to the client. The fields are the names of the column attributes of the entity, which are also their names in
+ * the JSON of the entity. The id is always part of a row, so a client can refer to it.
+ *
+ * @param <T> type of the entity
+ */
+public class Projection<T> {
+
+    private static final String ID = "id";
+
+    private static final String CREATED_AT = "createdAt";
+
+    private static final Map<Class<?>, Set<String>> COLUMNS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+
+    private final Set<String> fields;
+
+    private Projection(final Class<T> type, final Set<String> fields) {
+        this.type = type;
+        this.fields = fields;
+    }
+
+    /**
+     * @param type   of the entity
+     * @param fields names of column attributes separated by commas, like {@code id,title,createdAt}
+     * @throws IllegalArgumentException if a field is no column attribute of the entity
+     */
+    public static <T> Projection<T> of(final Class<T> type, final String fields) {
+        notNull(type, "type cannot be null");
+        notNull(fields, "fields cannot be null");
+        notBlank(fields, "fields cannot be blank");
+
+        Set<String> columns = COLUMNS.computeIfAbsent(type, Projection::columns);
+
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add(ID);
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            isTrue(columns.contains(name), "unknown field %s, known fields are %s", name, columns);
+            selected.add(name);
+        }
+
+        return new Projection<>(type, Collections.unmodifiableSet(selected));
+    }
+
+    /**
+     * @return names of the selected fields, the id first
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * Find a page of rows in the order of {@link Cursor#order}
+     *
+     * @param where  restriction of the rows, null for all rows
+     * @param limit  max number of rows per page
+     * @param offset of the page
+     * @return rows with the selected fields
+     */
+    public List<Map<String, Object>> list(final EntityManager em, final BiFunction<CriteriaBuilder, Root<T>, Predicate> where, final int limit, final int offset) {
+        TypedQuery<Tuple> query = query(em, where, null);
+        query.setFirstResult(offset * limit);
+        query.setMaxResults(limit);
+
+        return query.getResultList()
+                .stream()
+                .map(this::row)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Find a page of rows after the cursor
+     *
+     * @param where  restriction of the rows, null for all rows
+     * @param limit  max number of rows per page
+     * @param cursor position after the last row of the previous page, null for the first page
+     * @return page of rows with the selected fields
+     */
+    public Page<Map<String, Object>> listAfter(final EntityManager em, final BiFunction<CriteriaBuilder, Root<T>, Predicate> where, final int limit, final Cursor cursor) {
+        TypedQuery<Tuple> query = query(em, where, cursor);
+        query.setMaxResults(limit + 1);
+
+        Page<Tuple> page = Page.of(query.getResultList(), limit,
+                tuple -> new Cursor(tuple.get(CREATED_AT, LocalDateTime.class), tuple.get(ID, Long.class)));
+
+        List<Map<String, Object>> rows = page.getItems()
+                .stream()
+                .map(this::row)
+                .collect(Collectors.toList());
+
+        return new Page<>(rows, page.getNext());
+    }
+
+    private TypedQuery<Tuple> query(final EntityManager em, final BiFunction<CriteriaBuilder, Root<T>, Predicate> where, final Cursor cursor) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+
+        Root<T> root = cq.from(type);
+
+        // the creation date is always read, it is part of the cursor of the row
+        Set<String> read = new LinkedHashSet<>(fields);
+        read.add(CREATED_AT);
+        List<Selection<?>> selections = new ArrayList<>(read.size());
+        for (String field : read) {
+            selections.add(root.get(field).alias(field));
+        }
+        cq.multiselect(selections);
+
+        List<Predicate> predicates = new ArrayList<>(2);
+        if (where != null) {
+            predicates.add(where.apply(cb, root));
+        }
+        if (cursor != null) {
+            predicates.add(cursor.after(cb, root));
+        }
+        cq.where(predicates.toArray(new Predicate[0]));
+        cq.orderBy(Cursor.order(cb, root));
+
+        return em.createQuery(cq);
+    }
+
+    private Map<String, Object> row(final Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, tuple.get(field));
+        }
+        return row;
+    }
+
+    private static Set<String> columns(final Class<?> type) {
+        return Arrays.stream(type.getDeclaredFields())
+                .filter(field -> field.isAnnotationPresent(Column.class))
+                .map(Field::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
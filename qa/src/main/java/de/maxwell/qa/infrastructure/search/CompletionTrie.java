@@ -0,0 +1,462 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Completion of normalized texts by prefix, the heaviest completions first. The texts are lower cased, and every run of
+ * characters that are not letters or digits becomes one space, like the {@link Tokenizer} splits them.
+ * <p>
+ * The texts form a radix trie: an edge carries all characters up to the next branch, so a trie of long titles has few
+ * nodes. Every node knows the highest weight below it, so the best completions are found by always expanding the node
+ * or text with the highest weight first, without visiting all texts with the prefix. Changes keep the trie compressed
+ * and the highest weights up to date along the path of the text.
+ * <p>
+ * Completions run concurrently, changes wait for running completions and block new ones.
+ */
+public class CompletionTrie {
+
+    /**
+     * Longer texts are cut, completions rarely need more
+     */
+    static final int MAX_TEXT_LENGTH = 100;
+
+    private static final long[] NO_IDS = new long[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Node root = new Node(new char[0]);
+
+    private final LongIntMap slots = new LongIntMap();
+
+    private String[] texts = new String[16];
+
+    private long[] weights = new long[16];
+
+    private int[] freeSlots = new int[16];
+
+    private int free;
+
+    private int nextSlot;
+
+    /**
+     * Add the text or replace the previous text and weight of the id
+     *
+     * @param id     of the text
+     * @param text   to complete, can be null
+     * @param weight the heaviest completions come first
+     */
+    public void put(final long id, final String text, final long weight) {
+        String normalized = normalize(text, false);
+
+        lock.writeLock().lock();
+        try {
+            int slot = slots.get(id);
+            if (slot != LongIntMap.ABSENT && texts[slot].equals(normalized)) {
+                weights[slot] = weight;
+                refresh(path(normalized));
+                return;
+            }
+            if (slot != LongIntMap.ABSENT) {
+                detach(id, slot);
+            } else {
+                slot = allocate();
+                slots.put(id, slot);
+            }
+
+            texts[slot] = normalized;
+            weights[slot] = weight;
+            refresh(insert(id, normalized));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id    of the text
+     * @param delta added to the weight
+     * @return false if the id has no text
+     */
+    public boolean adjust(final long id, final long delta) {
+        lock.writeLock().lock();
+        try {
+            int slot = slots.get(id);
+            if (slot == LongIntMap.ABSENT) {
+                return false;
+            }
+
+            weights[slot] += delta;
+            refresh(path(texts[slot]));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the text
+     * @return false if the id has no text
+     */
+    public boolean remove(final long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = slots.remove(id);
+            if (slot == LongIntMap.ABSENT) {
+                return false;
+            }
+
+            detach(id, slot);
+            texts[slot] = null;
+            if (free == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, free * 2);
+            }
+            freeSlots[free++] = slot;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the heaviest texts starting with the prefix. A prefix ending with a space or another separator only
+     * completes whole words.
+     *
+     * @param prefix of the texts
+     * @param limit  maximum number of completions
+     * @return ids with their weight as score, heaviest first
+     */
+    public List<SearchHit> complete(final String prefix, final int limit) {
+        notNull(prefix, "prefix cannot be null");
+        isTrue(limit > 0, "limit must be positive");
+
+        String normalized = normalize(prefix, true);
+
+        lock.readLock().lock();
+        try {
+            Node start = find(normalized);
+            if (start == null) {
+                return new ArrayList<>();
+            }
+
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingLong((Candidate candidate) -> candidate.weight)
+                    .reversed()
+                    .thenComparingLong(candidate -> candidate.id));
+            candidates.add(new Candidate(start, 0L, start.best));
+
+            List<SearchHit> completions = new ArrayList<>(limit);
+            while (!candidates.isEmpty() && completions.size() < limit) {
+                Candidate candidate = candidates.poll();
+                if (candidate.node == null) {
+                    completions.add(new SearchHit(candidate.id, candidate.weight));
+                    continue;
+                }
+
+                for (long id : candidate.node.ids) {
+                    candidates.add(new Candidate(null, id, weights[slots.get(id)]));
+                }
+                for (Node child : candidate.node.children) {
+                    candidates.add(new Candidate(child, 0L, child.best));
+                }
+            }
+            return completions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of texts
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param completing a prefix keeps one trailing space, so it only completes whole words
+     */
+    static String normalize(final String text, final boolean completing) {
+        String normalized = String.join(" ", Tokenizer.tokenize(text));
+        if (completing && !normalized.isEmpty() && !Character.isLetterOrDigit(text.charAt(text.length() - 1))) {
+            normalized += " ";
+        }
+        return normalized.length() > MAX_TEXT_LENGTH ? normalized.substring(0, MAX_TEXT_LENGTH) : normalized;
+    }
+
+    private int allocate() {
+        if (free > 0) {
+            return freeSlots[--free];
+        }
+        if (nextSlot == texts.length) {
+            texts = Arrays.copyOf(texts, nextSlot * 2);
+            weights = Arrays.copyOf(weights, nextSlot * 2);
+        }
+        return nextSlot++;
+    }
+
+    /**
+     * Add the id to the node of the text, splitting edges and creating nodes as needed
+     *
+     * @return nodes from the root to the node of the text
+     */
+    private List<Node> insert(final long id, final String text) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+
+        int position = 0;
+        while (position < text.length()) {
+            int index = node.childIndex(text.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(text.substring(position).toCharArray());
+                node.addChild(-index - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonLength(child.label, text, position);
+            if (common < child.label.length) {
+                child = split(node, index, common);
+            }
+            node = child;
+            path.add(node);
+            position += common;
+        }
+
+        node.ids = Arrays.copyOf(node.ids, node.ids.length + 1);
+        node.ids[node.ids.length - 1] = id;
+        return path;
+    }
+
+    /**
+     * Remove the id from the node of its text, dropping and joining nodes which are not needed anymore
+     */
+    private void detach(final long id, final int slot) {
+        List<Node> path = path(texts[slot]);
+        Node node = path.get(path.size() - 1);
+
+        long[] ids = new long[node.ids.length - 1];
+        int kept = 0;
+        for (long other : node.ids) {
+            if (other != id) {
+                ids[kept++] = other;
+            }
+        }
+        node.ids = ids;
+
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node current = path.get(depth);
+            Node parent = path.get(depth - 1);
+            if (current.ids.length == 0 && current.children.length == 0) {
+                parent.removeChild(current);
+                path.remove(depth);
+            } else if (current.ids.length == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                char[] joined = Arrays.copyOf(current.label, current.label.length + only.label.length);
+                System.arraycopy(only.label, 0, joined, current.label.length, only.label.length);
+                current.label = joined;
+                current.ids = only.ids;
+                current.children = only.children;
+                current.best = only.best;
+            }
+        }
+        refresh(path);
+    }
+
+    /**
+     * @return nodes from the root to the node of the text, which must be in the trie
+     */
+    private List<Node> path(final String text) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+
+        int position = 0;
+        while (position < text.length()) {
+            node = node.children[node.childIndex(text.charAt(position))];
+            path.add(node);
+            position += node.label.length;
+        }
+        return path;
+    }
+
+    /**
+     * @return the node at or right below the end of the prefix, null if no text starts with it
+     */
+    private Node find(final String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+
+            node = node.children[index];
+            int common = commonLength(node.label, prefix, position);
+            if (common < node.label.length && position + common < prefix.length()) {
+                return null;
+            }
+            position += common;
+        }
+        return node;
+    }
+
+    /**
+     * Recompute the highest weights from the end of the path up to the root
+     */
+    private void refresh(final List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node node = path.get(depth);
+
+            long best = Long.MIN_VALUE;
+            for (long id : node.ids) {
+                best = Math.max(best, weights[slots.get(id)]);
+            }
+            for (Node child : node.children) {
+                best = Math.max(best, child.best);
+            }
+            node.best = best;
+        }
+    }
+
+    /**
+     * Split the edge to the child after the given number of characters
+     *
+     * @return the new node in the middle
+     */
+    private static Node split(final Node parent, final int index, final int length) {
+        Node child = parent.children[index];
+
+        Node middle = new Node(Arrays.copyOf(child.label, length));
+        middle.children = new Node[]{child};
+        middle.best = child.best;
+        child.label = Arrays.copyOfRange(child.label, length, child.label.length);
+        parent.children[index] = middle;
+        return middle;
+    }
+
+    private static int commonLength(final char[] label, final String text, final int offset) {
+        int length = 0;
+        while (length < label.length && offset + length < text.length() && label[length] == text.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static class Node {
+        private char[] label;
+
+        /**
+         * Sorted by the first character of their label
+         */
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * Ids of the texts ending at this node
+         */
+        private long[] ids = NO_IDS;
+
+        private long best = Long.MIN_VALUE;
+
+        private Node(final char[] label) {
+            this.label = label;
+        }
+
+        /**
+         * @return index of the child starting with the character, or -(insertion point) - 1
+         */
+        private int childIndex(final char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = children[middle].label[0];
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void addChild(final int index, final Node child) {
+            Node[] added = new Node[children.length + 1];
+            System.arraycopy(children, 0, added, 0, index);
+            added[index] = child;
+            System.arraycopy(children, index, added, index + 1, children.length - index);
+            children = added;
+        }
+
+        private void removeChild(final Node child) {
+            Node[] removed = new Node[children.length - 1];
+            int kept = 0;
+            for (Node other : children) {
+                if (other != child) {
+                    removed[kept++] = other;
+                }
+            }
+            children = removed;
+        }
+    }
+
+    private static class Candidate {
+        /**
+         * Null for a text
+         */
+        private final Node node;
+
+        private final long id;
+
+        private final long weight;
+
+        private Candidate(final Node node, final long id, final long weight) {
+            this.node = node;
+            this.id = id;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Ranks ids by weights which lose half of their value every half-life, and keeps the best ranked ids in order.
+ * <p>
+ * A weight is stored multiplied by its growth since a fixed moment instead of decaying every stored score over time.
+ * All scores decay by the same factor, so their order stays the same and an update touches one score only. The moment
+ * moves forward before the stored values get too large.
+ * <p>
+ * The scores of all ids are kept, the best {@code capacity} ids are kept ordered. An id which loses weight or a removed
+ * id may leave ids with a better score outside the order until these get new weight, so it should hold more ids than
+ * are read.
+ */
+public class DecayingTopK {
+
+    /**
+     * Move the moment forward once weights grow by more than 2^64
+     */
+    private static final double MAX_EXPONENT = 64 * Math.log(2);
+
+    private final double decayPerMilli;
+
+    private final int capacity;
+
+    private final LongSupplier clock;
+
+    private final LongIntMap slotsById = new LongIntMap();
+
+    private final TreeSet<Integer> top = new TreeSet<>(this::compare);
+
+    private long[] ids = new long[16];
+
+    private double[] scores = new double[16];
+
+    private int[] freeSlots = new int[16];
+
+    private int free;
+
+    private int nextSlot;
+
+    private long since;
+
+    public DecayingTopK(final Duration halfLife, final int capacity) {
+        this(halfLife, capacity, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock current time in milliseconds
+     */
+    public DecayingTopK(final Duration halfLife, final int capacity, final LongSupplier clock) {
+        notNull(halfLife, "halfLife cannot be null");
+        notNull(clock, "clock cannot be null");
+        isTrue(!halfLife.isNegative() && !halfLife.isZero(), "halfLife must be positive");
+        isTrue(capacity > 0, "capacity must be positive");
+
+        this.decayPerMilli = Math.log(2) / halfLife.toMillis();
+        this.capacity = capacity;
+        this.clock = clock;
+        this.since = clock.getAsLong();
+    }
+
+    /**
+     * Add weight to the id now
+     *
+     * @param weight can be negative
+     */
+    public synchronized void add(final long id, final double weight) {
+        add(id, weight, clock.getAsLong());
+    }
+
+    /**
+     * Add weight to the id as it was at the given time, it has decayed since. A time in the future counts as now, so
+     * a skewed clock cannot grow a weight.
+     *
+     * @param weight can be negative
+     * @param time   in milliseconds
+     */
+    public synchronized void add(final long id, final double weight, final long time) {
+        moveForward();
+        long at = Math.min(time, clock.getAsLong());
+
+        int slot = slotsById.get(id);
+        if (slot == LongIntMap.ABSENT) {
+            slot = allocate(id);
+        } else {
+            top.remove(slot);
+        }
+
+        scores[slot] += weight * Math.exp(decayPerMilli * (at - since));
+        offer(slot);
+    }
+
+    /**
+     * @return false if the id has no score
+     */
+    public synchronized boolean remove(final long id) {
+        int slot = slotsById.remove(id);
+        if (slot == LongIntMap.ABSENT) {
+            return false;
+        }
+
+        top.remove(slot);
+        scores[slot] = 0.0;
+        if (free == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, free * 2);
+        }
+        freeSlots[free++] = slot;
+        return true;
+    }
+
+    /**
+     * @param limit maximum number of ids, at most the capacity are ranked
+     * @return ids with their current score, best first
+     */
+    public synchronized List<SearchHit> top(final int limit) {
+        isTrue(limit > 0, "limit must be positive");
+
+        double decay = Math.exp(-decayPerMilli * (clock.getAsLong() - since));
+
+        List<SearchHit> hits = new ArrayList<>(Math.min(limit, top.size()));
+        for (Integer slot : top) {
+            if (hits.size() == limit) {
+                break;
+            }
+            hits.add(new SearchHit(ids[slot], scores[slot] * decay));
+        }
+        return hits;
+    }
+
+    /**
+     * @return current score of the id, 0 if it has none
+     */
+    public synchronized double score(final long id) {
+        int slot = slotsById.get(id);
+        if (slot == LongIntMap.ABSENT) {
+            return 0.0;
+        }
+        return scores[slot] * Math.exp(-decayPerMilli * (clock.getAsLong() - since));
+    }
+
+    /**
+     * @return number of ids with a score
+     */
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    private void offer(final int slot) {
+        if (top.size() < capacity) {
+            top.add(slot);
+        } else if (compare(slot, top.last()) < 0) {
+            top.pollLast();
+            top.add(slot);
+        }
+    }
+
+    private int allocate(final long id) {
+        int slot;
+        if (free > 0) {
+            slot = freeSlots[--free];
+        } else {
+            if (nextSlot == ids.length) {
+                ids = Arrays.copyOf(ids, nextSlot * 2);
+                scores = Arrays.copyOf(scores, nextSlot * 2);
+            }
+            slot = nextSlot++;
+        }
+
+        ids[slot] = id;
+        scores[slot] = 0.0;
+        slotsById.put(id, slot);
+        return slot;
+    }
+
+    /**
+     * Decay all stored scores to now and count growth from now on
+     */
+    private void moveForward() {
+        long now = clock.getAsLong();
+        if (decayPerMilli * (now - since) < MAX_EXPONENT) {
+            return;
+        }
+
+        double decay = Math.exp(-decayPerMilli * (now - since));
+        List<Integer> ranked = new ArrayList<>(top);
+        top.clear();
+        for (int slot = 0; slot < nextSlot; slot++) {
+            scores[slot] *= decay;
+        }
+        since = now;
+        // scores which decayed to the same value are ordered by id now
+        top.addAll(ranked);
+    }
+
+    /**
+     * Best score first, equal scores by id
+     */
+    private int compare(final int slot, final int other) {
+        int order = Double.compare(scores[other], scores[slot]);
+        return order != 0 ? order : Long.compare(ids[slot], ids[other]);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Full-text index of documents with a long id and some text fields, ranked with BM25. The fields of a document are
+ * indexed together, a term in a field counts as often as the weight of the field, so a title can count more than a
+ * description.
+ * <p>
+ * Every indexed version of a document gets the next internal document number. Updating or removing a document only
+ * marks the old number as removed, the postings of removed documents are dropped once there are more removed than
+ * live documents. Until then the document frequencies used by the ranking include removed documents.
+ * <p>
+ * Searches run concurrently, changes wait for running searches and block new ones. As the write buffer of a
+ * {@link SegmentedIndex} the index is guarded by the lock of the segmented index instead.
+ */
+public class InvertedIndex extends SegmentReader {
+
+    private static final int MIN_REMOVED_FOR_COMPACTION = 64;
+
+    private final int[] fieldWeights;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>(TERM_ORDER);
+
+    private final LongIntMap docsById = new LongIntMap();
+
+    private final BitSet removed = new BitSet();
+
+    private long[] ids = new long[16];
+
+    private int[] lengths = new int[16];
+
+    private int nextDoc;
+
+    private int removedDocs;
+
+    private long totalLength;
+
+    /**
+     * @param fieldWeights weight of every field, in the order the fields are passed to {@link #put(long, String...)}
+     */
+    public InvertedIndex(final int... fieldWeights) {
+        notNull(fieldWeights, "fieldWeights cannot be null");
+        isTrue(fieldWeights.length > 0, "there must be at least one field");
+        isTrue(Arrays.stream(fieldWeights).allMatch(weight -> weight > 0), "field weights must be positive");
+
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Add the document or replace its previous version
+     *
+     * @param id     of the document
+     * @param fields text of every field, can be null
+     */
+    public void put(final long id, final String... fields) {
+        notNull(fields, "fields cannot be null");
+        isTrue(fields.length == fieldWeights.length, "expected %d fields", fieldWeights.length);
+
+        Map<String, int[]> frequencies = new HashMap<>();
+        int length = 0;
+        for (int field = 0; field < fields.length; field++) {
+            for (String token : Tokenizer.tokenize(fields[field])) {
+                frequencies.computeIfAbsent(token, t -> new int[1])[0] += fieldWeights[field];
+                length += fieldWeights[field];
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            markRemoved(id);
+
+            if (!frequencies.isEmpty()) {
+                int doc = nextDoc++;
+                if (doc == ids.length) {
+                    ids = Arrays.copyOf(ids, doc * 2);
+                    lengths = Arrays.copyOf(lengths, doc * 2);
+                }
+                ids[doc] = id;
+                lengths[doc] = length;
+                totalLength += length;
+                docsById.put(id, doc);
+
+                frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, frequency[0]));
+            }
+
+            compactIfWorthwhile();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the document
+     * @return false if the document was not indexed
+     */
+    public boolean remove(final long id) {
+        lock.writeLock().lock();
+        try {
+            boolean found = markRemoved(id);
+            compactIfWorthwhile();
+            return found;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents containing any of the terms of the query, best first. A term ending with * matches all terms
+     * starting with it.
+     *
+     * @param query terms separated by white space
+     * @param limit maximum number of hits
+     * @return hits ordered by descending score
+     */
+    public List<SearchHit> search(final String query, final int limit) {
+        notNull(query, "query cannot be null");
+        isTrue(limit > 0, "limit must be positive");
+
+        lock.readLock().lock();
+        try {
+            return Searcher.search(Collections.singletonList(this), query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean markRemoved(final long id) {
+        int doc = docsById.remove(id);
+        if (doc == LongIntMap.ABSENT) {
+            return false;
+        }
+
+        removed.set(doc);
+        removedDocs++;
+        totalLength -= lengths[doc];
+        return true;
+    }
+
+    /**
+     * Drop removed documents from the postings once they are the majority, so the index stays proportional to the
+     * live documents
+     */
+    private void compactIfWorthwhile() {
+        if (removedDocs < MIN_REMOVED_FOR_COMPACTION || removedDocs <= docsById.size()) {
+            return;
+        }
+
+        int[] renumbered = new int[nextDoc];
+        int live = 0;
+        for (int doc = 0; doc < nextDoc; doc++) {
+            if (removed.get(doc)) {
+                renumbered[doc] = -1;
+            } else {
+                renumbered[doc] = live;
+                ids[live] = ids[doc];
+                lengths[live] = lengths[doc];
+                live++;
+            }
+        }
+
+        terms.values().removeIf(postings -> {
+            postings.renumber(renumbered);
+            return postings.size == 0;
+        });
+        docsById.replaceValues(doc -> renumbered[doc]);
+
+        removed.clear();
+        removedDocs = 0;
+        nextDoc = live;
+    }
+
+    @Override
+    int maxDoc() {
+        return nextDoc;
+    }
+
+    @Override
+    boolean isLive(final int doc) {
+        return !removed.get(doc);
+    }
+
+    @Override
+    long id(final int doc) {
+        return ids[doc];
+    }
+
+    @Override
+    int length(final int doc) {
+        return lengths[doc];
+    }
+
+    @Override
+    int liveDocs() {
+        return docsById.size();
+    }
+
+    @Override
+    long liveLength() {
+        return totalLength;
+    }
+
+    @Override
+    int docFrequency(final String term) {
+        Postings postings = terms.get(term);
+        return postings == null ? 0 : postings.size;
+    }
+
+    @Override
+    PostingsCursor postings(final String term) {
+        Postings postings = terms.get(term);
+        return postings == null || postings.size == 0 ? null : postings.cursor();
+    }
+
+    @Override
+    List<String> termsStartingWith(final String prefix, final int max) {
+        List<String> matched = new ArrayList<>();
+        for (String term : terms.tailMap(prefix, true).keySet()) {
+            if (matched.size() == max || !term.startsWith(prefix)) {
+                break;
+            }
+            matched.add(term);
+        }
+        return matched;
+    }
+
+    @Override
+    Iterator<String> terms() {
+        return terms.keySet().iterator();
+    }
+}
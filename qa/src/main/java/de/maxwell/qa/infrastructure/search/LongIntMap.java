@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Map of long keys to non-negative int values in two arrays with linear probing, without boxing
+ */
+class LongIntMap {
+
+    static final int ABSENT = -1;
+
+    private long[] keys = new long[16];
+
+    private int[] values = filled(16);
+
+    private int size;
+
+    int get(final long key) {
+        for (int slot = slot(key, keys.length); values[slot] != ABSENT; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return ABSENT;
+    }
+
+    void put(final long key, final int value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int slot = slot(key, keys.length);
+        while (values[slot] != ABSENT && keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (values[slot] == ABSENT) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * @return value of the removed key, ABSENT if there was none
+     */
+    int remove(final long key) {
+        int mask = keys.length - 1;
+
+        int hole = slot(key, keys.length);
+        while (values[hole] != ABSENT && keys[hole] != key) {
+            hole = (hole + 1) & mask;
+        }
+        int removed = values[hole];
+        if (removed == ABSENT) {
+            return ABSENT;
+        }
+
+        // move later entries of the probe sequence into the hole, so lookups do not stop early
+        for (int next = (hole + 1) & mask; values[next] != ABSENT; next = (next + 1) & mask) {
+            int home = slot(keys[next], keys.length);
+            boolean reachable = hole <= next ? home <= hole || home > next : home <= hole && home > next;
+            if (reachable) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = ABSENT;
+        size--;
+
+        return removed;
+    }
+
+    void replaceValues(final IntUnaryOperator function) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != ABSENT) {
+                values[slot] = function.applyAsInt(values[slot]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(final int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = filled(capacity);
+        size = 0;
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != ABSENT) {
+                put(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+
+    /**
+     * Home slot of the key in a table with a capacity that is a power of two, also used by the id tables of the
+     * segment files
+     */
+    static int slot(final long key, final int capacity) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    private static int[] filled(final int capacity) {
+        int[] values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        return values;
+    }
+}
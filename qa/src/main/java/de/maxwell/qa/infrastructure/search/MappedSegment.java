@@ -0,0 +1,326 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Segment file written by the {@link SegmentWriter}, mapped into memory and read in place, so the postings and the
+ * terms stay off the heap. Only the removed documents are kept on the heap, one bit per document.
+ * <p>
+ * Reading is thread-safe, removing documents has to be guarded by the owner.
+ */
+final class MappedSegment extends SegmentReader {
+
+    private final Path file;
+
+    private final ByteBuffer buffer;
+
+    private final int documents;
+
+    private final int terms;
+
+    private final long totalLength;
+
+    private final int lengthsOffset;
+
+    private final int idTableOffset;
+
+    private final int idTableCapacity;
+
+    private final int termBytesOffset;
+
+    private final int termIndexOffset;
+
+    private final BitSet removed;
+
+    private int removedDocs;
+
+    private long removedLength;
+
+    private MappedSegment(final Path file, final ByteBuffer buffer, final BitSet removed) {
+        this.file = file;
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != SegmentWriter.MAGIC || buffer.getInt(4) != SegmentWriter.VERSION) {
+            throw new IllegalStateException(file + " is not a segment file of version " + SegmentWriter.VERSION);
+        }
+        this.documents = buffer.getInt(8);
+        this.terms = buffer.getInt(12);
+        this.totalLength = buffer.getLong(16);
+        this.lengthsOffset = buffer.getInt(24);
+        this.idTableOffset = buffer.getInt(28);
+        this.idTableCapacity = buffer.getInt(32);
+        this.termBytesOffset = buffer.getInt(40);
+        this.termIndexOffset = buffer.getInt(44);
+
+        this.removed = removed;
+        for (int doc = removed.nextSetBit(0); doc >= 0; doc = removed.nextSetBit(doc + 1)) {
+            removedDocs++;
+            removedLength += length(doc);
+        }
+    }
+
+    /**
+     * @param removed documents removed since the segment was written
+     */
+    static MappedSegment open(final Path file, final BitSet removed) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new MappedSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), removed);
+        }
+    }
+
+    /**
+     * @return the same segment with a copy of the removed documents, which is not changed by later removals
+     */
+    MappedSegment snapshot() {
+        return new MappedSegment(file, buffer, (BitSet) removed.clone());
+    }
+
+    /**
+     * @return false if the segment has no live document with the id
+     */
+    boolean remove(final long id) {
+        int doc = find(id);
+        if (doc < 0 || removed.get(doc)) {
+            return false;
+        }
+
+        removed.set(doc);
+        removedDocs++;
+        removedLength += length(doc);
+        return true;
+    }
+
+    /**
+     * @return copy of the removed documents
+     */
+    BitSet removed() {
+        return (BitSet) removed.clone();
+    }
+
+    int removedDocs() {
+        return removedDocs;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long fileSize() {
+        return buffer.capacity();
+    }
+
+    @Override
+    int maxDoc() {
+        return documents;
+    }
+
+    @Override
+    boolean isLive(final int doc) {
+        return !removed.get(doc);
+    }
+
+    @Override
+    long id(final int doc) {
+        return buffer.getLong(SegmentWriter.HEADER_SIZE + doc * 8);
+    }
+
+    @Override
+    int length(final int doc) {
+        return buffer.getInt(lengthsOffset + doc * 4);
+    }
+
+    @Override
+    int liveDocs() {
+        return documents - removedDocs;
+    }
+
+    @Override
+    long liveLength() {
+        return totalLength - removedLength;
+    }
+
+    @Override
+    int docFrequency(final String term) {
+        int entry = find(term.getBytes(StandardCharsets.UTF_8));
+        return entry < 0 ? 0 : docFrequencyOf(entry);
+    }
+
+    @Override
+    PostingsCursor postings(final String term) {
+        int entry = find(term.getBytes(StandardCharsets.UTF_8));
+        if (entry < 0) {
+            return null;
+        }
+
+        int size = docFrequencyOf(entry);
+        int docsOffset = buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE + 12);
+        int frequenciesOffset = docsOffset + size * 4;
+        return new PostingsCursor() {
+            private int position;
+
+            @Override
+            public int doc() {
+                return buffer.getInt(docsOffset + position * 4);
+            }
+
+            @Override
+            public int frequency() {
+                return buffer.getInt(frequenciesOffset + position * 4);
+            }
+
+            @Override
+            public boolean next() {
+                return ++position < size;
+            }
+        };
+    }
+
+    @Override
+    List<String> termsStartingWith(final String prefix, final int max) {
+        byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+
+        List<String> matched = new ArrayList<>();
+        int entry = find(bytes);
+        for (entry = entry < 0 ? -entry - 1 : entry; entry < terms && matched.size() < max; entry++) {
+            if (!startsWith(entry, bytes)) {
+                break;
+            }
+            matched.add(termOf(entry));
+        }
+        return matched;
+    }
+
+    @Override
+    Iterator<String> terms() {
+        return new Iterator<String>() {
+            private int entry;
+
+            @Override
+            public boolean hasNext() {
+                return entry < terms;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return termOf(entry++);
+            }
+        };
+    }
+
+    /**
+     * @return document of the id, negative if the segment has none
+     */
+    private int find(final long id) {
+        int valuesOffset = idTableOffset + idTableCapacity * 8;
+        for (int slot = LongIntMap.slot(id, idTableCapacity); ; slot = (slot + 1) & (idTableCapacity - 1)) {
+            int doc = buffer.getInt(valuesOffset + slot * 4);
+            if (doc < 0 || buffer.getLong(idTableOffset + slot * 8) == id) {
+                return doc;
+            }
+        }
+    }
+
+    /**
+     * Binary search in the term index
+     *
+     * @return entry of the term, or -(insertion point) - 1 like {@link java.util.Arrays#binarySearch(int[], int)}
+     */
+    private int find(final byte[] term) {
+        int low = 0;
+        int high = terms - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Compares the unsigned bytes of the entry with the term
+     */
+    private int compare(final int entry, final byte[] term) {
+        int offset = termBytesOffset + buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE);
+        int length = buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE + 4);
+        for (int i = 0; i < Math.min(length, term.length); i++) {
+            int comparison = Integer.compare(buffer.get(offset + i) & 0xFF, term[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private boolean startsWith(final int entry, final byte[] prefix) {
+        int offset = termBytesOffset + buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE);
+        int length = buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE + 4);
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String termOf(final int entry) {
+        int offset = termBytesOffset + buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE);
+        int length = buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE + 4);
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int docFrequencyOf(final int entry) {
+        return buffer.getInt(termIndexOffset + entry * SegmentWriter.TERM_INDEX_ENTRY_SIZE + 8);
+    }
+}
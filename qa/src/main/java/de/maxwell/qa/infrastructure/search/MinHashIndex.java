@@ -0,0 +1,376 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Finds near-duplicate texts with MinHash signatures in a locality-sensitive hash index. A text is the set of its word
+ * pairs, the similarity of two texts is the Jaccard similarity of these sets, estimated from their signatures.
+ * <p>
+ * A signature is the lowest hash of the word pairs under each of {@link #HASHES} hash functions, of which only the
+ * lowest 8 bits are kept. The signature is cut into {@link #BANDS} bands, texts with an equal band are candidates.
+ * Texts with a similarity of 0.8 are candidates with a probability of 98%, texts with a similarity of 0.3 with 6%.
+ * Per text the index keeps the signature and one link per band, about 100 bytes.
+ * <p>
+ * A lookup compares at most {@link #MAX_CANDIDATES_PER_BAND} texts per band, the most recent ones, so it takes the same
+ * time for any number of texts. Removed texts stay in the buckets until {@link #compact()}.
+ * <p>
+ * Lookups run concurrently, changes wait for running lookups and block new ones.
+ */
+public class MinHashIndex {
+
+    static final int HASHES = 32;
+
+    static final int BANDS = 8;
+
+    private static final int ROWS = HASHES / BANDS;
+
+    static final int MAX_CANDIDATES_PER_BAND = 256;
+
+    private static final int NONE = -1;
+
+    /**
+     * Chance of two 8 bit values to be equal although the full hashes differ
+     */
+    private static final double ACCIDENTAL_MATCH = 1.0 / 256;
+
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < HASHES; i++) {
+            seed = mix(seed + i);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongIntMap docsById = new LongIntMap();
+
+    private final BitSet removed = new BitSet();
+
+    private long[] ids = new long[16];
+
+    private byte[] signatures = new byte[16 * HASHES];
+
+    /**
+     * Per band the previous document in the same bucket, chains start at the heads
+     */
+    private int[][] next = new int[BANDS][16];
+
+    private int[][] heads = newHeads(16);
+
+    private int nextDoc;
+
+    /**
+     * Add the text or replace the previous text of the id. Texts without words are not added.
+     *
+     * @param id   of the text
+     * @param text can be null
+     */
+    public void put(final long id, final String text) {
+        byte[] signature = signature(text);
+
+        lock.writeLock().lock();
+        try {
+            markRemoved(id);
+            if (signature == null) {
+                return;
+            }
+
+            if (nextDoc == ids.length) {
+                grow();
+            }
+            int doc = nextDoc++;
+            ids[doc] = id;
+            System.arraycopy(signature, 0, signatures, doc * HASHES, HASHES);
+            link(doc);
+            docsById.put(id, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the id has no text
+     */
+    public boolean remove(final long id) {
+        lock.writeLock().lock();
+        try {
+            return markRemoved(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the texts most similar to the text of the id, without the id itself
+     *
+     * @param threshold minimum estimated similarity between 0 and 1
+     * @return ids with their estimated similarity as score, most similar first
+     */
+    public List<SearchHit> similar(final long id, final int limit, final double threshold) {
+        lock.readLock().lock();
+        try {
+            int doc = docsById.get(id);
+            if (doc == LongIntMap.ABSENT) {
+                return new ArrayList<>();
+            }
+            return similar(Arrays.copyOfRange(signatures, doc * HASHES, (doc + 1) * HASHES), id, limit, threshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the texts most similar to a text which is not in the index
+     *
+     * @param threshold minimum estimated similarity between 0 and 1
+     * @return ids with their estimated similarity as score, most similar first
+     */
+    public List<SearchHit> similar(final String text, final int limit, final double threshold) {
+        byte[] signature = signature(text);
+        if (signature == null) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            return similar(signature, null, limit, threshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of texts
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop removed texts from the buckets
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            int live = 0;
+            for (int doc = 0; doc < nextDoc; doc++) {
+                if (!removed.get(doc)) {
+                    ids[live] = ids[doc];
+                    System.arraycopy(signatures, doc * HASHES, signatures, live * HASHES, HASHES);
+                    docsById.put(ids[live], live);
+                    live++;
+                }
+            }
+            nextDoc = live;
+            removed.clear();
+            relink();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the signature of the word pairs of the text, null if it has no words
+     */
+    static byte[] signature(final String text) {
+        List<String> tokens = Tokenizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        long[] minima = new long[HASHES];
+        Arrays.fill(minima, Long.MAX_VALUE);
+
+        long previous = hash(tokens.get(0));
+        if (tokens.size() == 1) {
+            update(minima, previous);
+        }
+        for (int i = 1; i < tokens.size(); i++) {
+            long current = hash(tokens.get(i));
+            update(minima, previous * 31 + current);
+            previous = current;
+        }
+
+        byte[] signature = new byte[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            signature[i] = (byte) minima[i];
+        }
+        return signature;
+    }
+
+    private List<SearchHit> similar(final byte[] signature, final Long self, final int limit, final double threshold) {
+        notNull(signature, "signature cannot be null");
+        isTrue(limit > 0, "limit must be positive");
+
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(SearchHit::getScore));
+        BitSet seen = new BitSet();
+
+        for (int band = 0; band < BANDS; band++) {
+            int compared = 0;
+            for (int doc = heads[band][bucket(signature, 0, band, heads[band].length)];
+                 doc != NONE && compared < MAX_CANDIDATES_PER_BAND;
+                 doc = next[band][doc]) {
+                compared++;
+                if (seen.get(doc) || removed.get(doc) || (self != null && ids[doc] == self)) {
+                    continue;
+                }
+                seen.set(doc);
+
+                double similarity = estimate(signature, doc);
+                if (similarity >= threshold && (best.size() < limit || similarity > best.peek().getScore())) {
+                    best.add(new SearchHit(ids[doc], similarity));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed().thenComparingLong(SearchHit::getId));
+        return hits;
+    }
+
+    /**
+     * Fraction of equal values, corrected for values which are equal by accident
+     */
+    private double estimate(final byte[] signature, final int doc) {
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (signatures[doc * HASHES + i] == signature[i]) {
+                equal++;
+            }
+        }
+        return Math.max((equal / (double) HASHES - ACCIDENTAL_MATCH) / (1.0 - ACCIDENTAL_MATCH), 0.0);
+    }
+
+    private boolean markRemoved(final long id) {
+        int doc = docsById.remove(id);
+        if (doc == LongIntMap.ABSENT) {
+            return false;
+        }
+        removed.set(doc);
+        return true;
+    }
+
+    private void link(final int doc) {
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(signatures, doc * HASHES, band, heads[band].length);
+            next[band][doc] = heads[band][bucket];
+            heads[band][bucket] = doc;
+        }
+    }
+
+    /**
+     * Rebuild the buckets, the chains keep the most recent documents first
+     */
+    private void relink() {
+        heads = newHeads(ids.length);
+        for (int doc = 0; doc < nextDoc; doc++) {
+            link(doc);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        signatures = Arrays.copyOf(signatures, capacity * HASHES);
+        for (int band = 0; band < BANDS; band++) {
+            next[band] = Arrays.copyOf(next[band], capacity);
+        }
+        relink();
+    }
+
+    /**
+     * @param capacity a power of two, one bucket per document
+     */
+    private static int[][] newHeads(final int capacity) {
+        int[][] heads = new int[BANDS][capacity];
+        for (int[] band : heads) {
+            Arrays.fill(band, NONE);
+        }
+        return heads;
+    }
+
+    private static int bucket(final byte[] signature, final int offset, final int band, final int buckets) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+            key = key << 8 | (signature[offset + band * ROWS + row] & 0xFF);
+        }
+        return (int) mix(key) & (buckets - 1);
+    }
+
+    private static void update(final long[] minima, final long shingle) {
+        for (int i = 0; i < HASHES; i++) {
+            long hash = mix(shingle ^ SEEDS[i]);
+            if (hash < minima[i]) {
+                minima[i] = hash;
+            }
+        }
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes of the token
+     */
+    private static long hash(final String token) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : token.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads every input bit over all output bits
+     */
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
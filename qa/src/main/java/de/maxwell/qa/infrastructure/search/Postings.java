@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.util.Arrays;
+
+/**
+ * Documents containing one term with the term frequency, in two parallel arrays sorted by document
+ */
+class Postings {
+
+    int[] docs = new int[2];
+
+    int[] frequencies = new int[2];
+
+    int size;
+
+    /**
+     * @param doc       greater than all documents added before
+     * @param frequency of the term in the document
+     */
+    void add(final int doc, final int frequency) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+        }
+        docs[size] = doc;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    /**
+     * Drop removed documents and renumber the others
+     *
+     * @param renumbered new number of every document, negative for removed ones
+     */
+    void renumber(final int[] renumbered) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int doc = renumbered[docs[i]];
+            if (doc >= 0) {
+                docs[kept] = doc;
+                frequencies[kept] = frequencies[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    PostingsCursor cursor() {
+        return new PostingsCursor() {
+            private int position;
+
+            @Override
+            public int doc() {
+                return docs[position];
+            }
+
+            @Override
+            public int frequency() {
+                return frequencies[position];
+            }
+
+            @Override
+            public boolean next() {
+                return ++position < size;
+            }
+        };
+    }
+}
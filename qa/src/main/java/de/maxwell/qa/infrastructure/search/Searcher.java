@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * BM25 ranking over the documents of several {@link SegmentReader}s. The document frequencies and the average length
+ * are taken over all readers, so a document scores the same no matter which reader holds it.
+ */
+final class Searcher {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /**
+     * A prefix query matches at most this many terms, the first ones in term order
+     */
+    static final int MAX_PREFIX_TERMS = 128;
+
+    private Searcher() {
+    }
+
+    /**
+     * Find the documents containing any of the terms of the query, best first. A term ending with * matches all terms
+     * starting with it.
+     */
+    static List<SearchHit> search(final List<? extends SegmentReader> readers, final String query, final int limit) {
+        int liveDocs = 0;
+        long liveLength = 0;
+        for (SegmentReader reader : readers) {
+            liveDocs += reader.liveDocs();
+            liveLength += reader.liveLength();
+        }
+        if (liveDocs == 0) {
+            return new ArrayList<>();
+        }
+
+        List<String> terms = terms(readers, query);
+        double[] idfs = new double[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            int docFrequency = 0;
+            for (SegmentReader reader : readers) {
+                docFrequency += reader.docFrequency(terms.get(i));
+            }
+            idfs[i] = Math.max(Math.log(1.0 + (liveDocs - docFrequency + 0.5) / (docFrequency + 0.5)), 0.0);
+        }
+
+        double averageLength = (double) liveLength / liveDocs;
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(SearchHit::getScore));
+        for (SegmentReader reader : readers) {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(Cursor::doc));
+            for (int i = 0; i < terms.size(); i++) {
+                PostingsCursor postings = reader.postings(terms.get(i));
+                if (postings != null) {
+                    cursors.add(new Cursor(postings, idfs[i]));
+                }
+            }
+            collect(reader, cursors, limit, averageLength, best);
+        }
+
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed().thenComparingLong(SearchHit::getId));
+        return hits;
+    }
+
+    /**
+     * The exact terms of the query and the terms the prefixes expand to
+     */
+    private static List<String> terms(final List<? extends SegmentReader> readers, final String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String part : query.trim().split("\\s+")) {
+            List<String> tokens = Tokenizer.tokenize(part);
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i == tokens.size() - 1 && part.endsWith("*")) {
+                    prefixes.add(tokens.get(i));
+                } else {
+                    terms.add(tokens.get(i));
+                }
+            }
+        }
+
+        for (String prefix : prefixes) {
+            TreeSet<String> expanded = new TreeSet<>(SegmentReader.TERM_ORDER);
+            for (SegmentReader reader : readers) {
+                expanded.addAll(reader.termsStartingWith(prefix, MAX_PREFIX_TERMS));
+            }
+            expanded.stream()
+                    .limit(MAX_PREFIX_TERMS)
+                    .forEach(terms::add);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Walk all postings of one reader at once in document order, score every document once and keep the best
+     */
+    private static void collect(final SegmentReader reader, final PriorityQueue<Cursor> cursors, final int limit,
+                                final double averageLength, final PriorityQueue<SearchHit> best) {
+        while (!cursors.isEmpty()) {
+            int doc = cursors.peek().doc();
+            boolean live = reader.isLive(doc);
+            double norm = K1 * (1.0 - B + B * reader.length(doc) / averageLength);
+
+            double score = 0.0;
+            while (!cursors.isEmpty() && cursors.peek().doc() == doc) {
+                Cursor cursor = cursors.poll();
+                if (live) {
+                    int frequency = cursor.postings.frequency();
+                    score += cursor.idf * frequency * (K1 + 1.0) / (frequency + norm);
+                }
+                if (cursor.postings.next()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            if (live && (best.size() < limit || score > best.peek().getScore())) {
+                best.add(new SearchHit(reader.id(doc), score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+    }
+
+    private static class Cursor {
+        private final PostingsCursor postings;
+
+        private final double idf;
+
+        private Cursor(final PostingsCursor postings, final double idf) {
+            this.postings = postings;
+            this.idf = idf;
+        }
+
+        private int doc() {
+            return postings.doc();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Documents numbered from 0 with their postings, either in memory or in a segment file. A search or a merge reads
+ * several of them one after the other.
+ * <p>
+ * Terms are ordered by code point, which is the order of their UTF-8 bytes in the segment files.
+ */
+abstract class SegmentReader {
+
+    static final Comparator<String> TERM_ORDER = SegmentReader::compareCodePoints;
+
+    /**
+     * @return number of document numbers in use, including removed documents
+     */
+    abstract int maxDoc();
+
+    abstract boolean isLive(int doc);
+
+    abstract long id(int doc);
+
+    abstract int length(int doc);
+
+    abstract int liveDocs();
+
+    /**
+     * @return sum of the lengths of the live documents
+     */
+    abstract long liveLength();
+
+    /**
+     * @return number of documents containing the term, including removed documents
+     */
+    abstract int docFrequency(String term);
+
+    /**
+     * @return null if no document contains the term
+     */
+    abstract PostingsCursor postings(String term);
+
+    /**
+     * @return the first terms starting with the prefix in term order
+     */
+    abstract List<String> termsStartingWith(String prefix, int max);
+
+    /**
+     * @return all terms in term order
+     */
+    abstract Iterator<String> terms();
+
+    private static int compareCodePoints(final String a, final String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the live documents of some readers into one immutable segment file, which {@link MappedSegment} maps into
+ * memory. The documents are numbered in the order of the readers, so the postings of a term are the postings of the
+ * readers one after the other.
+ * <p>
+ * Layout, all numbers big-endian:
+ * <pre>
+ * header      magic, version, documents, terms, total length, offsets of the sections below
+ * ids         long per document
+ * lengths     int per document
+ * id table    open addressing table of ids to documents, long keys followed by int values, -1 for free slots
+ * postings    per term the documents followed by the frequencies, int each
+ * term bytes  UTF-8 of all terms
+ * term index  per term in term order: offset and length of its bytes, document frequency, offset of its postings
+ * </pre>
+ * The file is written next to the target and moved into place when complete, so a segment file is never partial.
+ */
+final class SegmentWriter {
+
+    static final int MAGIC = 0x51415347;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 48;
+
+    static final int TERM_INDEX_ENTRY_SIZE = 16;
+
+    private SegmentWriter() {
+    }
+
+    static void write(final List<? extends SegmentReader> readers, final Path file) throws IOException {
+        int[][] renumbered = new int[readers.size()][];
+        int documents = 0;
+        for (int r = 0; r < readers.size(); r++) {
+            SegmentReader reader = readers.get(r);
+            renumbered[r] = new int[reader.maxDoc()];
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                renumbered[r][doc] = reader.isLive(doc) ? documents++ : -1;
+            }
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int terms = 0;
+        long totalLength = 0;
+        int lengthsOffset;
+        int idTableOffset;
+        int idTableCapacity = Integer.highestOneBit(Math.max(documents, 1)) * 4;
+        int postingsOffset;
+        int termBytesOffset;
+        int termIndexOffset;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.write(new byte[HEADER_SIZE]);
+
+            long[] ids = new long[documents];
+            for (int r = 0; r < readers.size(); r++) {
+                for (int doc = 0; doc < renumbered[r].length; doc++) {
+                    if (renumbered[r][doc] >= 0) {
+                        ids[renumbered[r][doc]] = readers.get(r).id(doc);
+                        out.writeLong(readers.get(r).id(doc));
+                    }
+                }
+            }
+
+            lengthsOffset = out.size();
+            for (int r = 0; r < readers.size(); r++) {
+                for (int doc = 0; doc < renumbered[r].length; doc++) {
+                    if (renumbered[r][doc] >= 0) {
+                        out.writeInt(readers.get(r).length(doc));
+                        totalLength += readers.get(r).length(doc);
+                    }
+                }
+            }
+
+            idTableOffset = out.size();
+            writeIdTable(out, ids, idTableCapacity);
+
+            postingsOffset = out.size();
+            ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+            ByteArrayOutputStream termIndexBytes = new ByteArrayOutputStream();
+            DataOutputStream termIndex = new DataOutputStream(termIndexBytes);
+            IntList docs = new IntList();
+            IntList frequencies = new IntList();
+
+            PriorityQueue<TermCursor> cursors = new PriorityQueue<>(Comparator.comparing(TermCursor::term, SegmentReader.TERM_ORDER)
+                    .thenComparingInt(cursor -> cursor.reader));
+            for (int r = 0; r < readers.size(); r++) {
+                TermCursor cursor = new TermCursor(r, readers.get(r).terms());
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            while (!cursors.isEmpty()) {
+                String term = cursors.peek().term;
+                docs.clear();
+                frequencies.clear();
+
+                // polled in the order of the readers, so the renumbered documents are ascending
+                while (!cursors.isEmpty() && cursors.peek().term.equals(term)) {
+                    TermCursor cursor = cursors.poll();
+                    PostingsCursor postings = readers.get(cursor.reader).postings(term);
+                    if (postings != null) {
+                        do {
+                            int doc = renumbered[cursor.reader][postings.doc()];
+                            if (doc >= 0) {
+                                docs.add(doc);
+                                frequencies.add(postings.frequency());
+                            }
+                        } while (postings.next());
+                    }
+                    if (cursor.next()) {
+                        cursors.add(cursor);
+                    }
+                }
+
+                if (docs.size > 0) {
+                    byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+                    termIndex.writeInt(termBytes.size());
+                    termIndex.writeInt(bytes.length);
+                    termIndex.writeInt(docs.size);
+                    termIndex.writeInt(out.size());
+                    termBytes.write(bytes);
+                    terms++;
+
+                    docs.writeTo(out);
+                    frequencies.writeTo(out);
+                    checkSize(out);
+                }
+            }
+
+            termBytesOffset = out.size();
+            termBytes.writeTo(out);
+
+            termIndexOffset = out.size();
+            termIndexBytes.writeTo(out);
+            checkSize(out);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(documents)
+                .putInt(terms)
+                .putLong(totalLength)
+                .putInt(lengthsOffset)
+                .putInt(idTableOffset)
+                .putInt(idTableCapacity)
+                .putInt(postingsOffset)
+                .putInt(termBytesOffset)
+                .putInt(termIndexOffset);
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeIdTable(final DataOutputStream out, final long[] ids, final int capacity) throws IOException {
+        long[] keys = new long[capacity];
+        int[] values = new int[capacity];
+        Arrays.fill(values, -1);
+
+        for (int doc = 0; doc < ids.length; doc++) {
+            int slot = LongIntMap.slot(ids[doc], capacity);
+            while (values[slot] != -1) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            keys[slot] = ids[doc];
+            values[slot] = doc;
+        }
+
+        for (long key : keys) {
+            out.writeLong(key);
+        }
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Segments are mapped with one buffer, which cannot be larger than 2 GB
+     */
+    private static void checkSize(final DataOutputStream out) {
+        if (out.size() == Integer.MAX_VALUE) {
+            throw new IllegalStateException("segment exceeds 2 GB");
+        }
+    }
+
+    private static class TermCursor {
+        private final int reader;
+
+        private final Iterator<String> terms;
+
+        private String term;
+
+        private TermCursor(final int reader, final Iterator<String> terms) {
+            this.reader = reader;
+            this.terms = terms;
+        }
+
+        private String term() {
+            return term;
+        }
+
+        private boolean next() {
+            term = terms.hasNext() ? terms.next() : null;
+            return term != null;
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[64];
+
+        private int size;
+
+        private void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private void writeTo(final DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(values[i]);
+            }
+        }
+    }
+}
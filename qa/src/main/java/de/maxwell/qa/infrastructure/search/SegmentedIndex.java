@@ -0,0 +1,486 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Full-text index like the {@link InvertedIndex}, kept in a directory of immutable segment files which are mapped into
+ * memory instead of being read onto the heap. Opening the index maps the segments and replays the write-ahead log,
+ * which takes about the same time for any number of documents.
+ * <p>
+ * Changes go to the write-ahead log and to an in-memory {@link InvertedIndex}. Once the number of changes reaches the
+ * buffer size, the buffered documents are written as a new segment. The manifest lists the segments with their removed
+ * documents, it is replaced atomically after every new segment, so the directory always holds a complete index.
+ * {@link #merge()} combines small segments and drops removed documents, it runs alongside searches and changes.
+ * <p>
+ * Searches run concurrently, changes wait for running searches and block new ones.
+ */
+public class SegmentedIndex implements Closeable {
+
+    private static final String MANIFEST = "manifest";
+
+    private static final String LOG = "wal";
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int MANIFEST_MAGIC = 0x5141534D;
+
+    private static final int MANIFEST_VERSION = 1;
+
+    /**
+     * More segments than this are merged, the smallest {@link #MERGE_FACTOR} at once
+     */
+    static final int MAX_SEGMENTS = 10;
+
+    static final int MERGE_FACTOR = 5;
+
+    /**
+     * Segments are mapped with one buffer each, merges stay well below its limit of 2 GB
+     */
+    private static final long MAX_MERGED_BYTES = 1L << 30;
+
+    private final Path directory;
+
+    private final int bufferSize;
+
+    private final int[] fieldWeights;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Object mergeLock = new Object();
+
+    private List<MappedSegment> segments = new ArrayList<>();
+
+    private InvertedIndex buffer;
+
+    private WriteAheadLog log;
+
+    private int changes;
+
+    private int nextSegment;
+
+    private SegmentedIndex(final Path directory, final int bufferSize, final int[] fieldWeights) {
+        this.directory = directory;
+        this.bufferSize = bufferSize;
+        this.fieldWeights = fieldWeights.clone();
+        this.buffer = new InvertedIndex(fieldWeights);
+    }
+
+    /**
+     * Open the index in the directory, an empty index if the directory has none
+     *
+     * @param directory    of the index, created if missing
+     * @param bufferSize   number of changes kept in memory and in the write-ahead log before they are written as a segment
+     * @param fieldWeights weight of every field, in the order the fields are passed to {@link #put(long, String...)}
+     */
+    public static SegmentedIndex open(final Path directory, final int bufferSize, final int... fieldWeights) {
+        notNull(directory, "directory cannot be null");
+        isTrue(bufferSize > 0, "bufferSize must be positive");
+
+        SegmentedIndex index = new SegmentedIndex(directory, bufferSize, fieldWeights);
+        try {
+            Files.createDirectories(directory);
+            index.readManifest();
+            index.deleteUnlistedSegments();
+            index.log = WriteAheadLog.open(directory.resolve(LOG), new WriteAheadLog.Replay() {
+                @Override
+                public void put(final long id, final String[] fields) {
+                    index.apply(id, fields);
+                }
+
+                @Override
+                public void remove(final long id) {
+                    index.apply(id);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the index in " + directory, e);
+        }
+        return index;
+    }
+
+    /**
+     * Add the document or replace its previous version
+     *
+     * @param id     of the document
+     * @param fields text of every field, can be null
+     */
+    public void put(final long id, final String... fields) {
+        notNull(fields, "fields cannot be null");
+        isTrue(fields.length == fieldWeights.length, "expected %d fields", fieldWeights.length);
+
+        lock.writeLock().lock();
+        try {
+            log.put(id, fields);
+            apply(id, fields);
+            flushIfFull();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Like {@link #put(long, String...)} without the write-ahead log, for filling a new index. The documents since the
+     * last segment are lost without a {@link #flush()}.
+     */
+    public void load(final long id, final String... fields) {
+        notNull(fields, "fields cannot be null");
+        isTrue(fields.length == fieldWeights.length, "expected %d fields", fieldWeights.length);
+
+        lock.writeLock().lock();
+        try {
+            apply(id, fields);
+            flushIfFull();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id of the document
+     * @return false if the document was not indexed
+     */
+    public boolean remove(final long id) {
+        lock.writeLock().lock();
+        try {
+            log.remove(id);
+            boolean found = apply(id);
+            flushIfFull();
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents containing any of the terms of the query, best first. A term ending with * matches all terms
+     * starting with it.
+     *
+     * @param query terms separated by white space
+     * @param limit maximum number of hits
+     * @return hits ordered by descending score
+     */
+    public List<SearchHit> search(final String query, final int limit) {
+        notNull(query, "query cannot be null");
+        isTrue(limit > 0, "limit must be positive");
+
+        lock.readLock().lock();
+        try {
+            List<SegmentReader> readers = new ArrayList<>(segments);
+            readers.add(buffer);
+            return Searcher.search(readers, query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed documents
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return segments.stream().mapToInt(MappedSegment::liveDocs).sum() + buffer.liveDocs();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of segment files
+     */
+    public int segments() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the buffered documents as a new segment and empty the write-ahead log
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (buffer.liveDocs() > 0) {
+                Path file = directory.resolve(SEGMENT_PREFIX + nextSegment++ + SEGMENT_SUFFIX);
+                SegmentWriter.write(Collections.singletonList(buffer), file);
+
+                List<MappedSegment> flushed = new ArrayList<>(segments);
+                flushed.add(MappedSegment.open(file, new BitSet()));
+                segments = flushed;
+            }
+            writeManifest();
+            log.reset();
+
+            buffer = new InvertedIndex(fieldWeights);
+            changes = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush the index in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merge the smallest segments once there are too many, otherwise rewrite a segment with more removed than live
+     * documents. The new segment is written without holding the lock, removals meanwhile are carried over.
+     *
+     * @return false if there was nothing to merge
+     */
+    public boolean merge() {
+        synchronized (mergeLock) {
+            List<MappedSegment> merged;
+            List<MappedSegment> snapshots;
+            Path file;
+
+            lock.writeLock().lock();
+            try {
+                merged = chooseMerge();
+                if (merged.isEmpty()) {
+                    return false;
+                }
+                snapshots = merged.stream()
+                        .map(MappedSegment::snapshot)
+                        .collect(Collectors.toList());
+                file = directory.resolve(SEGMENT_PREFIX + nextSegment++ + SEGMENT_SUFFIX);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                SegmentWriter.write(snapshots, file);
+                MappedSegment segment = MappedSegment.open(file, new BitSet());
+
+                lock.writeLock().lock();
+                try {
+                    for (int i = 0; i < merged.size(); i++) {
+                        BitSet removedMeanwhile = merged.get(i).removed();
+                        removedMeanwhile.andNot(snapshots.get(i).removed());
+                        for (int doc = removedMeanwhile.nextSetBit(0); doc >= 0; doc = removedMeanwhile.nextSetBit(doc + 1)) {
+                            segment.remove(merged.get(i).id(doc));
+                        }
+                    }
+
+                    List<MappedSegment> replaced = new ArrayList<>(segments);
+                    replaced.removeAll(merged);
+                    if (segment.liveDocs() > 0) {
+                        replaced.add(segment);
+                    }
+                    segments = replaced;
+                    writeManifest();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                if (segment.liveDocs() == 0) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not merge segments in " + directory, e);
+            }
+
+            // searches started before the swap may still read the old segments, their mappings stay valid
+            for (MappedSegment segment : merged) {
+                deleteQuietly(segment.file());
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(final long id, final String[] fields) {
+        for (MappedSegment segment : segments) {
+            segment.remove(id);
+        }
+        buffer.put(id, fields);
+        changes++;
+    }
+
+    private boolean apply(final long id) {
+        boolean found = buffer.remove(id);
+        for (MappedSegment segment : segments) {
+            found |= segment.remove(id);
+        }
+        changes++;
+        return found;
+    }
+
+    private void flushIfFull() {
+        if (changes >= bufferSize) {
+            flush();
+        }
+    }
+
+    private List<MappedSegment> chooseMerge() {
+        if (segments.size() > MAX_SEGMENTS) {
+            List<MappedSegment> smallest = segments.stream()
+                    .sorted(Comparator.comparingLong(MappedSegment::fileSize))
+                    .collect(Collectors.toList());
+
+            List<MappedSegment> merged = new ArrayList<>();
+            long bytes = 0;
+            for (MappedSegment segment : smallest) {
+                if (merged.size() == MERGE_FACTOR || bytes + segment.fileSize() > MAX_MERGED_BYTES) {
+                    break;
+                }
+                merged.add(segment);
+                bytes += segment.fileSize();
+            }
+            if (merged.size() > 1) {
+                return merged;
+            }
+        }
+
+        return segments.stream()
+                .filter(segment -> segment.removedDocs() > segment.liveDocs())
+                .limit(1)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The manifest lists the segments by number together with their removed documents
+     */
+    private void readManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                throw new IllegalStateException(manifest + " is not a manifest of version " + MANIFEST_VERSION);
+            }
+            nextSegment = in.readInt();
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int number = in.readInt();
+                long[] removed = new long[in.readInt()];
+                for (int word = 0; word < removed.length; word++) {
+                    removed[word] = in.readLong();
+                }
+                segments.add(MappedSegment.open(directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX), BitSet.valueOf(removed)));
+            }
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeInt(nextSegment);
+            out.writeInt(segments.size());
+            for (MappedSegment segment : segments) {
+                out.writeInt(number(segment.file()));
+                long[] removed = segment.removed().toLongArray();
+                out.writeInt(removed.length);
+                for (long word : removed) {
+                    out.writeLong(word);
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Segments written but never listed, because the process ended before the manifest was replaced
+     */
+    private void deleteUnlistedSegments() throws IOException {
+        Set<Path> listed = new HashSet<>();
+        for (MappedSegment segment : segments) {
+            listed.add(segment.file().getFileName());
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static int number(final Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void deleteQuietly(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // not listed in the manifest anymore, deleted when the index is opened again
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.search;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes not yet written to a segment. Every record carries its length and a checksum, a
+ * record torn by a crash ends the log and is cut off when the log is opened.
+ * <p>
+ * Records are handed to the operating system right away but not forced to disk, so they survive a crash of the
+ * process. {@link #reset()} forces the truncation once the changes are in a segment.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final byte PUT = 1;
+
+    private static final byte REMOVE = 2;
+
+    interface Replay {
+        void put(long id, String[] fields);
+
+        void remove(long id);
+    }
+
+    private final FileChannel channel;
+
+    private int records;
+
+    private WriteAheadLog(final FileChannel channel, final int records) {
+        this.channel = channel;
+        this.records = records;
+    }
+
+    /**
+     * Replay the complete records of the log and open it for appending after the last of them
+     */
+    static WriteAheadLog open(final Path file, final Replay replay) throws IOException {
+        long valid = 0;
+        int records = 0;
+
+        if (Files.exists(file)) {
+            long size = Files.size(file);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                byte[] payload;
+                while ((payload = read(in, size - valid)) != null) {
+                    apply(payload, replay);
+                    valid += 8 + payload.length;
+                    records++;
+                }
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        return new WriteAheadLog(channel, records);
+    }
+
+    void put(final long id, final String... fields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(PUT);
+        payload.writeLong(id);
+        payload.writeInt(fields.length);
+        for (String field : fields) {
+            if (field == null) {
+                payload.writeInt(-1);
+            } else {
+                byte[] utf8 = field.getBytes(StandardCharsets.UTF_8);
+                payload.writeInt(utf8.length);
+                payload.write(utf8);
+            }
+        }
+        append(bytes.toByteArray());
+    }
+
+    void remove(final long id) throws IOException {
+        append(ByteBuffer.allocate(9).put(REMOVE).putLong(id).array());
+    }
+
+    /**
+     * @return number of records since the log was reset
+     */
+    int records() {
+        return records;
+    }
+
+    /**
+     * Drop all records
+     */
+    void reset() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        records = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(final byte[] payload) throws IOException {
+        CRC32 checksum = new CRC32();
+        checksum.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) checksum.getValue())
+                .put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        records++;
+    }
+
+    /**
+     * @return payload of the next record, null at the end of the log or at a torn record
+     */
+    private static byte[] read(final DataInputStream in, final long remaining) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 0 || length > remaining - 8) {
+                return null;
+            }
+
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            CRC32 actual = new CRC32();
+            actual.update(payload);
+            return (int) actual.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void apply(final byte[] payload, final Replay replay) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        long id = in.readLong();
+        if (type == REMOVE) {
+            replay.remove(id);
+            return;
+        }
+
+        String[] fields = new String[in.readInt()];
+        for (int i = 0; i < fields.length; i++) {
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] utf8 = new byte[length];
+                in.readFully(utf8);
+                fields[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+        replay.put(id, fields);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.storage;
+
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Stores contents under the SHA-256 hash of their bytes. Equal contents are stored once, a stored content never
+ * changes, so a hash can be cached and compared like a strong ETag.
+ */
+public interface BlobStore {
+
+    /**
+     * Store the content while it is read
+     *
+     * @param content read to its end, not closed
+     * @return hash of the content in lower-case hex
+     * @throws BlobTooLargeException if the content exceeds the maximum size of the store
+     */
+    String put(InputStream content);
+
+    /**
+     * @param hash of the content in lower-case hex
+     * @return the stored content, empty if there is none
+     */
+    Optional<Blob> find(String hash);
+
+    /**
+     * @return false if there was no content with the hash
+     */
+    boolean remove(String hash);
+}
@@ -0,0 +1,246 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.maxwell.qa.infrastructure.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Keeps every content in a file named by its hash, in a directory named by the first two characters of the hash, so
+ * no directory gets too large. A content is written to a temporary file while it is read and hashed, and then moved
+ * to its name atomically, so a stored file is always complete.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+
+    private final Path temporary;
+
+    private final long maxSize;
+
+    /**
+     * @param maxSize of a content in bytes
+     */
+    public LocalBlobStore(final Path directory, final long maxSize) {
+        notNull(directory, "directory cannot be null");
+        isTrue(maxSize > 0, "maxSize must be positive");
+
+        this.directory = directory;
+        this.temporary = directory.resolve("tmp");
+        this.maxSize = maxSize;
+
+        try {
+            Files.createDirectories(temporary);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the blob store in " + directory, e);
+        }
+    }
+
+    @Override
+    public String put(final InputStream content) {
+        notNull(content, "content cannot be null");
+
+        Path file = null;
+        try {
+            file = Files.createTempFile(temporary, "put", ".tmp");
+            String hash = write(content, file);
+
+            Path target = path(hash);
+            if (Files.exists(target)) {
+                Files.delete(file);
+                return hash;
+            }
+
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // stored by a concurrent put of the same content
+                Files.delete(file);
+            }
+            return hash;
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Could not store content in " + directory, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Blob> find(final String hash) {
+        Path file = path(hash);
+        try {
+            return Optional.of(new LocalBlob(hash, file, Files.size(file)));
+        } catch (IOException e) {
+            if (Files.notExists(file)) {
+                return Optional.empty();
+            }
+            throw new UncheckedIOException("Could not read content " + hash, e);
+        }
+    }
+
+    @Override
+    public boolean remove(final String hash) {
+        try {
+            return Files.deleteIfExists(path(hash));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not remove content " + hash, e);
+        }
+    }
+
+    /**
+     * Copy the content to the file, hash it and write it to the disk
+     *
+     * @return hash of the content
+     */
+    private String write(final InputStream content, final Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0L;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new BlobTooLargeException(maxSize);
+                }
+
+                digest.update(buffer, 0, read);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            channel.force(true);
+        }
+
+        return hex(digest.digest());
+    }
+
+    private Path path(final String hash) {
+        notNull(hash, "hash cannot be null");
+        isTrue(HASH.matcher(hash).matches(), "hash must be 64 lower-case hex characters");
+
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static void deleteQuietly(final Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // left for the next start
+        }
+    }
+
+    private static class LocalBlob implements Blob {
+
+        private final String hash;
+
+        private final Path file;
+
+        private final long size;
+
+        LocalBlob(final String hash, final Path file, final long size) {
+            this.hash = hash;
+            this.file = file;
+            this.size = size;
+        }
+
+        @Override
+        public String getHash() {
+            return hash;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * {@link FileChannel#transferTo} lets the operating system copy the file to a file or socket channel
+         */
+        @Override
+        public void transferTo(final WritableByteChannel target) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long end = channel.size();
+                long position = 0L;
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, target);
+                }
+            }
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return Files.newInputStream(file);
+        }
+    }
+}
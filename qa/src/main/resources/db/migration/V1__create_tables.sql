@@ -0,0 +1,54 @@
+CREATE TABLE TAB_QUESTION
+(
+    COL_ID             BIGSERIAL    NOT NULL,
+    COL_USER_ID        VARCHAR(255) NOT NULL,
+    COL_TITLE          VARCHAR(255) NOT NULL,
+    COL_DESCRIPTION    VARCHAR(255) NOT NULL,
+    COL_RATING         BIGINT,
+    COL_VIEWS          BIGINT,
+    COL_NUM_ANSWER     BIGINT,
+    COL_CORRECT_ANSWER BIGINT,
+    COL_CREATED        TIMESTAMP    NOT NULL,
+    COL_MODIFIED       TIMESTAMP    NOT NULL,
+    CONSTRAINT PK_QUESTION PRIMARY KEY (COL_ID)
+);
+
+CREATE TABLE TAB_ANSWER
+(
+    COL_ID             BIGSERIAL    NOT NULL,
+    COL_USER_ID        VARCHAR(255) NOT NULL,
+    COL_QUESTION_ID    BIGINT       NOT NULL,
+    COL_DESCRIPTION    VARCHAR(255) NOT NULL,
+    COL_RATING         BIGINT,
+    COL_CORRECT_ANSWER BOOLEAN,
+    COL_CREATED        TIMESTAMP    NOT NULL,
+    COL_MODIFIED       TIMESTAMP    NOT NULL,
+    CONSTRAINT PK_ANSWER PRIMARY KEY (COL_ID)
+);
+
+CREATE TABLE TAB_COMMENT
+(
+    COL_ID          BIGSERIAL    NOT NULL,
+    COL_USER_ID     VARCHAR(255) NOT NULL,
+    COL_QUESTION_ID BIGINT,
+    COL_ANSWER_ID   BIGINT,
+    COL_DESCRIPTION VARCHAR(255) NOT NULL,
+    COL_RATING      BIGINT,
+    COL_CREATED     TIMESTAMP    NOT NULL,
+    COL_MODIFIED    TIMESTAMP    NOT NULL,
+    CONSTRAINT PK_COMMENT PRIMARY KEY (COL_ID)
+);
+
+CREATE TABLE TAB_PROFILE
+(
+    COL_ID          BIGSERIAL    NOT NULL,
+    COL_USER_ID     VARCHAR(255) NOT NULL,
+    COL_FIRST_NAME  VARCHAR(255) NOT NULL,
+    COL_LAST_NAME   VARCHAR(255),
+    COL_DESCRIPTION VARCHAR(255),
+    COL_IMAGE       BYTEA,
+    COL_REPUTATION  BIGINT       NOT NULL,
+    COL_CREATED     TIMESTAMP    NOT NULL,
+    COL_MODIFIED    TIMESTAMP    NOT NULL,
+    CONSTRAINT PK_PROFILE PRIMARY KEY (COL_ID)
+);
@@ -0,0 +1,22 @@
+-- every index ends with (COL_CREATED, COL_ID), the order of the paginated listings,
+-- so a page is read straight from the index without sorting the matching rows
+
+-- QuestionRepository: listAllPaginated, listAllAfter
+CREATE INDEX IDX_QUESTION_CREATED ON TAB_QUESTION (COL_CREATED, COL_ID);
+-- QuestionRepository: countNumberOfQuestionsOfUser
+CREATE INDEX IDX_QUESTION_USER ON TAB_QUESTION (COL_USER_ID);
+
+-- AnswerRepository: listAllPaginatedByQuestionID, listAllByQuestionIDAfter, listAllAnswers, countNumberOfAnswersOfQuestion
+CREATE INDEX IDX_ANSWER_QUESTION ON TAB_ANSWER (COL_QUESTION_ID, COL_CREATED, COL_ID);
+-- AnswerRepository: listAllPaginated, listAllAfter
+CREATE INDEX IDX_ANSWER_CREATED ON TAB_ANSWER (COL_CREATED, COL_ID);
+-- AnswerRepository: countNumberOfAnswersOfUser
+CREATE INDEX IDX_ANSWER_USER ON TAB_ANSWER (COL_USER_ID);
+
+-- CommentRepository: listAllPaginatedByQuestionID, listAllByQuestionID, listAllByQuestionIDAfter
+CREATE INDEX IDX_COMMENT_QUESTION ON TAB_COMMENT (COL_QUESTION_ID, COL_CREATED, COL_ID);
+-- CommentRepository: listAllPaginatedByAnswerID, listAllByAnswerID, listAllByAnswerIDAfter
+CREATE INDEX IDX_COMMENT_ANSWER ON TAB_COMMENT (COL_ANSWER_ID, COL_CREATED, COL_ID);
+
+-- ProfileRepository: listAllPaginated, listAllAfter
+CREATE INDEX IDX_PROFILE_CREATED ON TAB_PROFILE (COL_CREATED, COL_ID);
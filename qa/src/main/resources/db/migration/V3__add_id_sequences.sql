@@ -0,0 +1,23 @@
+-- the entities take their ids from these sequences in blocks of 50 (allocationSize of the @SequenceGenerator),
+-- so hibernate can batch inserts instead of reading back every generated id like with BIGSERIAL.
+-- a sequence value is the last id of a block, so each one starts one block above the highest existing id
+
+CREATE SEQUENCE SEQ_QUESTION INCREMENT BY 50;
+SELECT setval('SEQ_QUESTION', COALESCE(MAX(COL_ID), 0) + 50, false) FROM TAB_QUESTION;
+ALTER TABLE TAB_QUESTION ALTER COLUMN COL_ID DROP DEFAULT;
+DROP SEQUENCE IF EXISTS TAB_QUESTION_COL_ID_SEQ;
+
+CREATE SEQUENCE SEQ_ANSWER INCREMENT BY 50;
+SELECT setval('SEQ_ANSWER', COALESCE(MAX(COL_ID), 0) + 50, false) FROM TAB_ANSWER;
+ALTER TABLE TAB_ANSWER ALTER COLUMN COL_ID DROP DEFAULT;
+DROP SEQUENCE IF EXISTS TAB_ANSWER_COL_ID_SEQ;
+
+CREATE SEQUENCE SEQ_COMMENT INCREMENT BY 50;
+SELECT setval('SEQ_COMMENT', COALESCE(MAX(COL_ID), 0) + 50, false) FROM TAB_COMMENT;
+ALTER TABLE TAB_COMMENT ALTER COLUMN COL_ID DROP DEFAULT;
+DROP SEQUENCE IF EXISTS TAB_COMMENT_COL_ID_SEQ;
+
+CREATE SEQUENCE SEQ_PROFILE INCREMENT BY 50;
+SELECT setval('SEQ_PROFILE', COALESCE(MAX(COL_ID), 0) + 50, false) FROM TAB_PROFILE;
+ALTER TABLE TAB_PROFILE ALTER COLUMN COL_ID DROP DEFAULT;
+DROP SEQUENCE IF EXISTS TAB_PROFILE_COL_ID_SEQ;
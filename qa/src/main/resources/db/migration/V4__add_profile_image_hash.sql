@@ -0,0 +1,6 @@
+-- profile images are kept in the blob store, the profile refers to its image by the SHA-256 hash of the content.
+-- COL_IMAGE is read once more by the ProfileImageMover, which moves the stored images into the blob store
+ALTER TABLE TAB_PROFILE ADD COLUMN COL_IMAGE_HASH VARCHAR(64);
+
+-- an image is removed once no profile refers to its hash anymore
+CREATE INDEX IDX_PROFILE_IMAGE_HASH ON TAB_PROFILE (COL_IMAGE_HASH);
@@ -0,0 +1,35 @@
+-- read model of the question list: one narrow row per question with an excerpt of the description and the display
+-- name of the author. QuestionSummaryRepository keeps it in the transactions of the question and profile writes
+CREATE TABLE TAB_QUESTION_SUMMARY
+(
+    COL_ID          BIGINT       NOT NULL,
+    COL_USER_ID     VARCHAR(255) NOT NULL,
+    COL_AUTHOR_NAME VARCHAR(511) NOT NULL,
+    COL_TITLE       VARCHAR(255) NOT NULL,
+    COL_EXCERPT     VARCHAR(200) NOT NULL,
+    COL_RATING      BIGINT       NOT NULL,
+    COL_NUM_ANSWER  BIGINT       NOT NULL,
+    COL_VIEWS       BIGINT       NOT NULL,
+    COL_CREATED     TIMESTAMP    NOT NULL,
+    CONSTRAINT PK_QUESTION_SUMMARY PRIMARY KEY (COL_ID)
+);
+
+-- QuestionSummaryRepository: listAllAfter
+CREATE INDEX IDX_QUESTION_SUMMARY_CREATED ON TAB_QUESTION_SUMMARY (COL_CREATED, COL_ID);
+-- QuestionSummaryRepository: authorRenamed
+CREATE INDEX IDX_QUESTION_SUMMARY_USER ON TAB_QUESTION_SUMMARY (COL_USER_ID);
+-- QuestionSummaryRepository: author name of a question
+CREATE INDEX IDX_PROFILE_USER ON TAB_PROFILE (COL_USER_ID);
+
+INSERT INTO TAB_QUESTION_SUMMARY (COL_ID, COL_USER_ID, COL_AUTHOR_NAME, COL_TITLE, COL_EXCERPT, COL_RATING, COL_NUM_ANSWER, COL_VIEWS, COL_CREATED)
+SELECT q.COL_ID,
+       q.COL_USER_ID,
+       COALESCE((SELECT TRIM(p.COL_FIRST_NAME || ' ' || COALESCE(p.COL_LAST_NAME, '')) FROM TAB_PROFILE p
+                 WHERE p.COL_USER_ID = q.COL_USER_ID ORDER BY p.COL_ID LIMIT 1), q.COL_USER_ID),
+       q.COL_TITLE,
+       LEFT(REGEXP_REPLACE(q.COL_DESCRIPTION, '\s+', ' ', 'g'), 200),
+       COALESCE(q.COL_RATING, 0),
+       COALESCE(q.COL_NUM_ANSWER, 0),
+       COALESCE(q.COL_VIEWS, 0),
+       q.COL_CREATED
+FROM TAB_QUESTION q;
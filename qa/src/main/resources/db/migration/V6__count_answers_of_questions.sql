@@ -0,0 +1,12 @@
+-- the number of answers is kept in the question by AnswerRepository, starting from the actual counts.
+-- The AnswerCountReconciler repairs counts which drift apart later
+UPDATE TAB_QUESTION q
+SET COL_NUM_ANSWER = (SELECT count(*) FROM TAB_ANSWER a WHERE a.COL_QUESTION_ID = q.COL_ID);
+
+ALTER TABLE TAB_QUESTION ALTER COLUMN COL_NUM_ANSWER SET DEFAULT 0;
+ALTER TABLE TAB_QUESTION ALTER COLUMN COL_NUM_ANSWER SET NOT NULL;
+
+UPDATE TAB_QUESTION_SUMMARY s
+SET COL_NUM_ANSWER = q.COL_NUM_ANSWER
+FROM TAB_QUESTION q
+WHERE q.COL_ID = s.COL_ID;
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.answer.AnswerCountReconciler;
+import de.maxwell.qa.domain.answer.AnswerRepository;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Keeps the number of answers in the question while answers are removed and repairs counts which were changed behind
+ * the back of the repository
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AnswerCountIT {
+
+    private static final long ID = 1_920_000L;
+
+    @TestHTTPResource("answer")
+    URL answers;
+
+    @Inject
+    AnswerRepository answerRepository;
+
+    @Inject
+    AnswerCountReconciler reconciler;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        insertQuestion(ID + 3, 2);
+        insertAnswer(ID + 3, ID + 3);
+        insertAnswer(ID + 4, ID + 3);
+
+        insertQuestion(ID + 4, 2);
+        insertAnswer(ID + 5, ID + 4);
+        insertAnswer(ID + 6, ID + 4);
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testReconcileRepairsDrift() throws SQLException {
+        // inserted here and not before all tests, the scheduled run right after startup would repair them first
+        insertQuestion(ID, 0);
+        insertAnswer(ID, ID);
+        insertAnswer(ID + 1, ID);
+
+        insertQuestion(ID + 1, 5);
+
+        insertQuestion(ID + 2, 1);
+        insertAnswer(ID + 2, ID + 2);
+        idFilterRebuilder.rebuild();
+
+        reconciler.reconcile();
+
+        assertThat(answerRepository.countNumberOfAnswersOfQuestion(ID)).isEqualTo(2L);
+        assertThat(answerRepository.countNumberOfAnswersOfQuestion(ID + 1)).isEqualTo(0L);
+        assertThat(answerRepository.countNumberOfAnswersOfQuestion(ID + 2)).isEqualTo(1L);
+        assertThat(reconciler.reconcile()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRemoveAnswerDecrements() throws IOException, SQLException {
+        answerRepository.removeAnswer(ID + 3);
+
+        assertThat(answerRepository.countNumberOfAnswersOfQuestion(ID + 3)).isEqualTo(1L);
+        assertThat(read(new URL(answers + "/" + (ID + 3) + "/question"))).isEqualTo("1");
+        // the question itself did not change
+        assertThat(selectModified(ID + 3)).isEqualTo(Timestamp.valueOf("1971-06-01 00:00:00"));
+    }
+
+    @Test
+    public void testRemoveAllAnswersOfQuestion() {
+        answerRepository.removeAllAnswersOfQuestion(ID + 4);
+
+        assertThat(answerRepository.countNumberOfAnswersOfQuestion(ID + 4)).isEqualTo(0L);
+    }
+
+    private void insertQuestion(final long id, final long numberOfAnswers) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_NUM_ANSWER, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'count', 'count', 'count', 0, 0, ?, '1971-06-01 00:00:00', '1971-06-01 00:00:00')")) {
+            statement.setLong(1, id);
+            statement.setLong(2, numberOfAnswers);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertAnswer(final long id, final long questionID) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'count', ?, 'count', 0, '1971-06-01 00:00:00', now())")) {
+            statement.setLong(1, id);
+            statement.setLong(2, questionID);
+            statement.executeUpdate();
+        }
+    }
+
+    private Timestamp selectModified(final long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COL_MODIFIED FROM TAB_QUESTION WHERE COL_ID = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet result = statement.executeQuery()) {
+                assertThat(result.next()).isTrue();
+                return result.getTimestamp(1);
+            }
+        }
+    }
+
+    private static String read(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        try (InputStream body = connection.getInputStream();
+             Scanner scanner = new Scanner(body, StandardCharsets.UTF_8.name())) {
+            return scanner.useDelimiter("\\A").next();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
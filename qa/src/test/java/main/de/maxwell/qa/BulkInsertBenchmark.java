@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionService;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the rows per second of creating questions one at a time with the batched bulk import. Takes ids from the
+ * sequences the other tests rely on, so it is not an *IT and runs only on demand:
+ * {@code mvn verify -Dit.test=BulkInsertBenchmark}
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BulkInsertBenchmark {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkInsertBenchmark.class);
+
+    private static final int WARMUP = 500;
+
+    private static final int ROWS = 5000;
+
+    private static final String USER = "bulk-benchmark";
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    DataSource dataSource;
+
+    @AfterAll
+    public void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("DELETE FROM TAB_QUESTION WHERE COL_USER_ID = ?")) {
+            statement.setString(1, USER);
+            statement.executeUpdate();
+        }
+    }
+
+    @Test
+    public void testBulkImportIsFasterThanSingleInserts() {
+        single(WARMUP);
+        bulk(WARMUP);
+
+        double single = single(ROWS);
+        double bulk = bulk(ROWS);
+
+        LOG.info("{} questions one at a time: {} rows/s, bulk: {} rows/s", ROWS, Math.round(single), Math.round(bulk));
+
+        assertThat(bulk).isGreaterThan(single);
+    }
+
+    /**
+     * @return rows per second
+     */
+    private double single(final int rows) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            questionService.createQuestion(USER, "title " + i, "description " + i);
+        }
+        return rowsPerSecond(rows, System.nanoTime() - start);
+    }
+
+    /**
+     * @return rows per second
+     */
+    private double bulk(final int rows) {
+        List<Question> questions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            questions.add(Question.newBuilder()
+                    .withUserID(USER)
+                    .withTitle("title " + i)
+                    .withDescription("description " + i)
+                    .build());
+        }
+
+        long start = System.nanoTime();
+        List<Question> created = questionService.createQuestions(questions);
+        long elapsed = System.nanoTime() - start;
+
+        List<Long> ids = created.stream()
+                .map(Question::getId)
+                .distinct()
+                .collect(Collectors.toList());
+        assertThat(ids).hasSize(rows);
+        assertThat(questionService.findQuestion(ids.get(rows - 1)).getUserID()).isEqualTo(USER);
+
+        return rowsPerSecond(rows, elapsed);
+    }
+
+    private static double rowsPerSecond(final int rows, final long nanos) {
+        return rows * 1_000_000_000.0 / nanos;
+    }
+}
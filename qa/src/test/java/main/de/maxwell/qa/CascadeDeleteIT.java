@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.answer.AnswerNotFoundException;
+import de.maxwell.qa.domain.answer.AnswerService;
+import de.maxwell.qa.domain.comment.CommentNotFoundException;
+import de.maxwell.qa.domain.comment.CommentService;
+import de.maxwell.qa.domain.question.QuestionNotFoundException;
+import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Removes questions and answers together with everything that belongs to them through the set-based deletes
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CascadeDeleteIT {
+
+    private static final Long QUESTION = 1_200_000L;
+
+    private static final Long OTHER_QUESTION = 1_200_001L;
+
+    private static final Long MISSING_QUESTION = 1_200_002L;
+
+    private static final Long ANSWER = 1_200_000L;
+
+    private static final Long SECOND_ANSWER = 1_200_001L;
+
+    private static final Long OTHER_ANSWER = 1_200_002L;
+
+    private static final Long KEPT_ANSWER = 1_200_003L;
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    AnswerService answerService;
+
+    @Inject
+    CommentService commentService;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        try (Connection connection = dataSource.getConnection()) {
+            insertQuestion(connection, QUESTION);
+            insertQuestion(connection, OTHER_QUESTION);
+
+            insertAnswer(connection, ANSWER, QUESTION);
+            insertAnswer(connection, SECOND_ANSWER, QUESTION);
+            insertAnswer(connection, OTHER_ANSWER, OTHER_QUESTION);
+            insertAnswer(connection, KEPT_ANSWER, OTHER_QUESTION);
+
+            insertComment(connection, 1_200_000L, QUESTION, null);
+            insertComment(connection, 1_200_001L, null, ANSWER);
+            insertComment(connection, 1_200_002L, null, SECOND_ANSWER);
+            insertComment(connection, 1_200_003L, null, OTHER_ANSWER);
+            insertComment(connection, 1_200_004L, null, OTHER_ANSWER);
+            insertComment(connection, 1_200_005L, OTHER_QUESTION, null);
+            insertComment(connection, 1_200_006L, null, KEPT_ANSWER);
+            insertComment(connection, 1_200_007L, MISSING_QUESTION, null);
+        }
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testRemoveQuestionRemovesAnswersAndComments() {
+        // cached before the delete, which has to evict them
+        assertThat(questionService.findQuestion(QUESTION).getId()).isEqualTo(QUESTION);
+        assertThat(answerService.findAnswer(ANSWER).getId()).isEqualTo(ANSWER);
+        assertThat(commentService.findComment(1_200_001L).getId()).isEqualTo(1_200_001L);
+
+        questionService.removeQuestion(QUESTION);
+
+        assertThatThrownBy(() -> questionService.findQuestion(QUESTION)).isInstanceOf(QuestionNotFoundException.class);
+        assertThatThrownBy(() -> answerService.findAnswer(ANSWER)).isInstanceOf(AnswerNotFoundException.class);
+        assertThatThrownBy(() -> answerService.findAnswer(SECOND_ANSWER)).isInstanceOf(AnswerNotFoundException.class);
+        assertThatThrownBy(() -> commentService.findComment(1_200_000L)).isInstanceOf(CommentNotFoundException.class);
+        assertThatThrownBy(() -> commentService.findComment(1_200_001L)).isInstanceOf(CommentNotFoundException.class);
+        assertThatThrownBy(() -> commentService.findComment(1_200_002L)).isInstanceOf(CommentNotFoundException.class);
+
+        assertThat(questionService.findQuestion(OTHER_QUESTION).getId()).isEqualTo(OTHER_QUESTION);
+        assertThat(commentService.findComment(1_200_005L).getId()).isEqualTo(1_200_005L);
+    }
+
+    @Test
+    public void testRemoveAnswerRemovesComments() {
+        assertThat(commentService.findComment(1_200_003L).getId()).isEqualTo(1_200_003L);
+
+        answerService.removeAnswer(OTHER_ANSWER);
+
+        assertThatThrownBy(() -> answerService.findAnswer(OTHER_ANSWER)).isInstanceOf(AnswerNotFoundException.class);
+        assertThatThrownBy(() -> commentService.findComment(1_200_003L)).isInstanceOf(CommentNotFoundException.class);
+        assertThatThrownBy(() -> commentService.findComment(1_200_004L)).isInstanceOf(CommentNotFoundException.class);
+
+        assertThat(answerService.findAnswer(KEPT_ANSWER).getId()).isEqualTo(KEPT_ANSWER);
+        assertThat(commentService.findComment(1_200_006L).getId()).isEqualTo(1_200_006L);
+    }
+
+    @Test
+    public void testRemoveMissingQuestionRemovesNothing() {
+        assertThatThrownBy(() -> questionService.removeQuestion(MISSING_QUESTION)).isInstanceOf(QuestionNotFoundException.class);
+
+        assertThat(commentService.findComment(1_200_007L).getId()).isEqualTo(1_200_007L);
+    }
+
+    private void insertQuestion(final Connection connection, final Long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                        + "VALUES (?, 'cascade', 'cascade', 'cascade', 0, 0, now(), now())")) {
+            statement.setLong(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertAnswer(final Connection connection, final Long id, final Long questionID) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                        + "VALUES (?, 'cascade', ?, 'cascade', 0, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setLong(2, questionID);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertComment(final Connection connection, final Long id, final Long questionID, final Long answerID) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO TAB_COMMENT (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_ANSWER_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                        + "VALUES (?, 'cascade', ?, ?, 'cascade', 0, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setObject(2, questionID);
+            statement.setObject(3, answerID);
+            statement.executeUpdate();
+        }
+    }
+}
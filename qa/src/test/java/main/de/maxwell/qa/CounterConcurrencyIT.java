@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.answer.AnswerRepository;
+import de.maxwell.qa.domain.comment.CommentRepository;
+import de.maxwell.qa.domain.profile.ProfileRepository;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CounterConcurrencyIT {
+    private static final Logger LOG = LoggerFactory.getLogger(CounterConcurrencyIT.class);
+
+    private static final int THREADS = 16;
+
+    private static final int VOTES = 2000;
+
+    private static final Long ID = 1_000_000L;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    AnswerRepository answerRepository;
+
+    @Inject
+    CommentRepository commentRepository;
+
+    @Inject
+    ProfileRepository profileRepository;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        insert("INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'counter', 'counter', 'counter', 0, now(), now())");
+        insert("INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'counter', " + ID + ", 'counter', 0, now(), now())");
+        insert("INSERT INTO TAB_COMMENT (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'counter', " + ID + ", 'counter', 0, now(), now())");
+        insert("INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_FIRST_NAME, COL_LAST_NAME, COL_REPUTATION, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'counter', 'counter', 'counter', 0, now(), now())");
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testQuestionRatingLosesNoVotes() throws Exception {
+        vote("question rating", () -> questionRepository.updateRating(ID, 1));
+
+        assertThat(questionRepository.findById(ID).getRating()).isEqualTo(VOTES);
+    }
+
+    @Test
+    public void testAnswerRatingLosesNoVotes() throws Exception {
+        vote("answer rating", () -> answerRepository.updateRating(ID, -1));
+
+        assertThat(answerRepository.findById(ID).getRating()).isEqualTo(-VOTES);
+    }
+
+    @Test
+    public void testCommentRatingLosesNoVotes() throws Exception {
+        vote("comment rating", () -> commentRepository.updateRating(ID, 1));
+
+        assertThat(commentRepository.findById(ID).getRating()).isEqualTo(VOTES);
+    }
+
+    @Test
+    public void testProfileReputationLosesNoUpdates() throws Exception {
+        vote("profile reputation", () -> profileRepository.updateReputation(ID, 5));
+
+        assertThat(profileRepository.findById(ID).getReputation()).isEqualTo(VOTES * 5L);
+    }
+
+    private void insert(final String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, ID);
+            statement.executeUpdate();
+        }
+    }
+
+    private void vote(final String counter, final Runnable update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(VOTES);
+            for (int i = 0; i < VOTES; i++) {
+                tasks.add(() -> {
+                    update.run();
+                    return null;
+                });
+            }
+
+            long start = System.nanoTime();
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+            LOG.info("{} updates of {} with {} threads in {} s ({} updates/s)",
+                    VOTES, counter, THREADS, String.format("%.3f", seconds), String.format("%.0f", VOTES / seconds));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.answer.AnswerRepository;
+import de.maxwell.qa.domain.question.HotQuestions;
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Builds the hot questions from questions inserted behind the back of the repositories and follows the views, votes,
+ * answers and removals made through them
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class HotQuestionsIT {
+
+    private static final long FIRST_ID = 1_600_000L;
+
+    @TestHTTPResource("question/hot")
+    URL hot;
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    AnswerRepository answerRepository;
+
+    @Inject
+    HotQuestions hotQuestions;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect,
+        // with more views than the questions of the other tests
+        insert(FIRST_ID, 1_000_000, 0);
+        insert(FIRST_ID + 1, 2_000_000, 0);
+        insert(FIRST_ID + 2, 3_000_000, 0);
+        // one minute older than the next one, but with an answer
+        insert(FIRST_ID + 3, 1_000, 1);
+        insertAnswer(FIRST_ID + 3, FIRST_ID + 3);
+        insert(FIRST_ID + 4, 1_000, 0);
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+        hotQuestions.rebuild();
+    }
+
+    @Test
+    public void testMostActiveFirst() {
+        assertThat(ids().subList(0, 3)).containsExactly(FIRST_ID + 2, FIRST_ID + 1, FIRST_ID);
+    }
+
+    @Test
+    public void testEventsAreRanked() {
+        long first = FIRST_ID + 3;
+        long second = FIRST_ID + 4;
+
+        assertThat(ids()).containsSubsequence(first, second);
+
+        answerRepository.removeAnswer(FIRST_ID + 3);
+        assertThat(ids()).containsSubsequence(second, first);
+
+        questionRepository.updateRating(first, 1);
+        assertThat(ids()).containsSubsequence(first, second);
+
+        questionRepository.addViews(Collections.singletonMap(second, 100L));
+        assertThat(ids()).containsSubsequence(second, first);
+
+        questionRepository.removeQuestion(second);
+        assertThat(ids()).contains(first).doesNotContain(second);
+    }
+
+    @Test
+    public void testFutureCreationCountsAsNow() {
+        Question question = new Question();
+        question.setId(FIRST_ID + 5);
+        question.setCreatedAt(LocalDateTime.now().plusYears(1));
+
+        hotQuestions.created(question);
+        assertThat(hotQuestions.hot(3)).containsExactly(FIRST_ID + 2, FIRST_ID + 1, FIRST_ID);
+
+        hotQuestions.removed(FIRST_ID + 5);
+    }
+
+    @Test
+    public void testInvalidLimit() throws IOException {
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.findHotQuestions(0));
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.findHotQuestions(101));
+
+        assertThat(status(hot)).isEqualTo(200);
+        assertThat(status(new URL(hot + "?limit=0"))).isEqualTo(400);
+    }
+
+    private List<Long> ids() {
+        return questionService.findHotQuestions(100)
+                .stream()
+                .map(Question::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void insert(final long id, final long views, final int minutesAgo) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'hot', 'hot', 'hot', 0, ?, now() - ? * interval '1 minute', now())")) {
+            statement.setLong(1, id);
+            statement.setLong(2, views);
+            statement.setInt(3, minutesAgo);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertAnswer(final long id, final long questionID) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'hot', ?, 'hot', 0, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setLong(2, questionID);
+            statement.executeUpdate();
+        }
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
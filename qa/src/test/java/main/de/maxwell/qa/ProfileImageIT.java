@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.profile.Profile;
+import de.maxwell.qa.domain.profile.ProfileImageMover;
+import de.maxwell.qa.domain.profile.ProfileImageSweeper;
+import de.maxwell.qa.domain.profile.ProfileRepository;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import de.maxwell.qa.infrastructure.storage.BlobStore;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Moves an image stored in the profile table into the blob store and downloads it, with and without a current copy
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ProfileImageIT {
+
+    private static final long ID = 1_700_000L;
+
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3, 4};
+
+    @TestHTTPResource("profile")
+    URL profile;
+
+    @Inject
+    ProfileRepository profileRepository;
+
+    @Inject
+    ProfileImageMover imageMover;
+
+    @Inject
+    ProfileImageSweeper imageSweeper;
+
+    @Inject
+    BlobStore blobStore;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, stored like before the blob store
+        insert(ID, IMAGE);
+        insert(ID + 1, null);
+        insert(ID + 2, null);
+        insert(ID + 3, null);
+
+        imageMover.move();
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testStoredImageIsMoved() throws SQLException {
+        Profile moved = profileRepository.findById(ID);
+
+        assertThat(moved.getImageHash()).hasSize(64);
+        assertThat(profileRepository.findById(ID + 1).getImageHash()).isNull();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT count(*) FROM TAB_PROFILE WHERE COL_IMAGE IS NOT NULL AND COL_ID >= " + ID);
+             ResultSet count = statement.executeQuery()) {
+            count.next();
+            assertThat(count.getLong(1)).isZero();
+        }
+    }
+
+    @Test
+    public void testImageIsStreamed() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(profile + "/" + ID + "/image").openConnection();
+
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).isEqualTo("image/png");
+        assertThat(connection.getHeaderField("ETag")).isEqualTo("\"" + profileRepository.findById(ID).getImageHash() + "\"");
+        assertThat(read(connection.getInputStream())).isEqualTo(IMAGE);
+        connection.disconnect();
+    }
+
+    @Test
+    public void testCurrentCopyIsNotSentAgain() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(profile + "/" + ID + "/image").openConnection();
+        connection.setRequestProperty("If-None-Match", "\"" + profileRepository.findById(ID).getImageHash() + "\"");
+
+        assertThat(connection.getResponseCode()).isEqualTo(304);
+        connection.disconnect();
+    }
+
+    @Test
+    public void testSharedImageIsKeptWhileReferenced() {
+        byte[] shared = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 5, 6, 7, 8};
+        String hash = profileRepository.updateImage(ID + 2, new ByteArrayInputStream(shared));
+        profileRepository.updateImage(ID + 3, new ByteArrayInputStream(shared));
+
+        profileRepository.updateImage(ID + 2, new ByteArrayInputStream(IMAGE));
+        imageSweeper.sweep();
+        assertThat(blobStore.find(hash)).isPresent();
+
+        profileRepository.updateImage(ID + 3, new ByteArrayInputStream(IMAGE));
+        imageSweeper.sweep();
+        assertThat(blobStore.find(hash)).isEmpty();
+    }
+
+    @Test
+    public void testMissingImage() throws IOException {
+        assertThat(status(new URL(profile + "/" + (ID + 1) + "/image"))).isEqualTo(404);
+        assertThat(status(new URL(profile + "/" + (ID + 99) + "/image"))).isEqualTo(404);
+    }
+
+    private void insert(final long id, final byte[] image) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_IMAGE, COL_REPUTATION, COL_FIRST_NAME, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'image', ?, 0, 'image', now(), now())")) {
+            statement.setLong(1, id);
+            statement.setBytes(2, image);
+            statement.executeUpdate();
+        }
+    }
+
+    private static byte[] read(final InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        input.close();
+        return bytes.toByteArray();
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.profile.ProfileImageSweeper;
+import de.maxwell.qa.domain.profile.ProfileRepository;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.imageio.ImageIO;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uploads images through the repository, waits for their thumbnails to be made in the background and reads them
+ * with and without a current copy
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ProfileThumbnailsIT {
+
+    private static final long ID = 1_800_000L;
+
+    private static final Path DIRECTORY = Paths.get("target/thumbnails");
+
+    @TestHTTPResource("profile/thumbnail")
+    URL thumbnail;
+
+    @Inject
+    ProfileRepository profileRepository;
+
+    @Inject
+    ProfileImageSweeper imageSweeper;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    private String hash;
+
+    @BeforeAll
+    public void setUp() throws IOException, SQLException {
+        // explicit ids outside of the generated range
+        insert(ID);
+        insert(ID + 1);
+
+        hash = profileRepository.updateImage(ID, new ByteArrayInputStream(image(200, 100, 0x336699)));
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testThumbnailsAreMadeInTheBackground() throws InterruptedException {
+        for (int size : new int[]{32, 64, 128}) {
+            assertThat(await(file(hash, size), true)).isTrue();
+        }
+    }
+
+    @Test
+    public void testThumbnailIsServedForAYear() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(thumbnail + "/" + hash + "/64").openConnection();
+
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).isEqualTo("image/png");
+        assertThat(connection.getHeaderField("ETag")).isEqualTo("\"" + hash + "-64\"");
+        assertThat(connection.getHeaderField("Cache-Control")).contains("max-age=31536000");
+
+        BufferedImage read = ImageIO.read(connection.getInputStream());
+        assertThat(read.getWidth()).isEqualTo(64);
+        assertThat(read.getHeight()).isEqualTo(64);
+        connection.disconnect();
+    }
+
+    @Test
+    public void testCurrentCopyIsNotSentAgain() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(thumbnail + "/" + hash + "/32").openConnection();
+        connection.setRequestProperty("If-None-Match", "\"" + hash + "-32\"");
+
+        assertThat(connection.getResponseCode()).isEqualTo(304);
+        connection.disconnect();
+    }
+
+    @Test
+    public void testInvalidThumbnails() throws IOException {
+        assertThat(status(new URL(thumbnail + "/" + hash + "/65"))).isEqualTo(400);
+        assertThat(status(new URL(thumbnail + "/" + hash.toUpperCase() + "/64"))).isEqualTo(400);
+        assertThat(status(new URL(thumbnail + "/" + hash.replace(hash.charAt(0), hash.charAt(0) == 'a' ? 'b' : 'a') + "/64"))).isEqualTo(404);
+    }
+
+    @Test
+    public void testReplacedImageLosesItsThumbnails() throws IOException, InterruptedException {
+        String first = profileRepository.updateImage(ID + 1, new ByteArrayInputStream(image(50, 50, 0xff0000)));
+        assertThat(await(file(first, 32), true)).isTrue();
+
+        String second = profileRepository.updateImage(ID + 1, new ByteArrayInputStream(image(50, 50, 0x00ff00)));
+        imageSweeper.sweep();
+
+        assertThat(await(file(first, 32), false)).isTrue();
+        assertThat(status(new URL(thumbnail + "/" + first + "/32"))).isEqualTo(404);
+        assertThat(status(new URL(thumbnail + "/" + second + "/32"))).isEqualTo(200);
+    }
+
+    private static Path file(final String hash, final int size) {
+        return DIRECTORY.resolve(hash.substring(0, 2)).resolve(hash + "-" + size + ".png");
+    }
+
+    private static boolean await(final Path file, final boolean exists) throws InterruptedException {
+        for (int i = 0; i < 100 && Files.exists(file) != exists; i++) {
+            Thread.sleep(50);
+        }
+        return Files.exists(file) == exists;
+    }
+
+    private void insert(final long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_REPUTATION, COL_FIRST_NAME, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'thumbnail', 0, 'thumbnail', now(), now())")) {
+            statement.setLong(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private static byte[] image(final int width, final int height, final int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans the statements of the repositories against a seeded table and fails if one of them reads a whole table.
+ * The statements mirror the criteria queries of the repositories with the parameters filled in.
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanIT {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryPlanIT.class);
+
+    private static final long ID = 2_000_000L;
+
+    private static final int QUESTIONS = 20_000;
+
+    private static final int ANSWERS = 100_000;
+
+    private static final int COMMENTS = 100_000;
+
+    private static final int PROFILES = 20_000;
+
+    private static final int USERS = 500;
+
+    private static final String CURSOR = "now() - INTERVAL '1 hour'";
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        execute("INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'plan-' || i % " + USERS + ", 'title', 'description', 0, 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (QUESTIONS - 1) + ") i");
+        execute("INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'plan-' || i % " + USERS + ", " + ID + " + i % " + QUESTIONS + ", 'description', 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (ANSWERS - 1) + ") i");
+        execute("INSERT INTO TAB_COMMENT (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_ANSWER_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'plan-' || i % " + USERS + ", "
+                + "CASE WHEN i % 2 = 0 THEN " + ID + " + i % " + QUESTIONS + " END, "
+                + "CASE WHEN i % 2 = 1 THEN " + ID + " + i % " + ANSWERS + " END, 'description', 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (COMMENTS - 1) + ") i");
+        execute("INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_FIRST_NAME, COL_LAST_NAME, COL_REPUTATION, COL_CREATED, COL_MODIFIED) "
+                + "SELECT " + ID + " + i, 'plan-' || i, 'first', 'last', 0, "
+                + "now() - i * INTERVAL '1 second', now() FROM generate_series(0, " + (PROFILES - 1) + ") i");
+        execute("ANALYZE TAB_QUESTION, TAB_ANSWER, TAB_COMMENT, TAB_PROFILE");
+    }
+
+    @AfterAll
+    public void tearDown() throws SQLException {
+        execute("DELETE FROM TAB_COMMENT WHERE COL_ID >= " + ID);
+        execute("DELETE FROM TAB_ANSWER WHERE COL_ID >= " + ID);
+        execute("DELETE FROM TAB_QUESTION WHERE COL_ID >= " + ID);
+        execute("DELETE FROM TAB_PROFILE WHERE COL_ID >= " + ID);
+        execute("ANALYZE TAB_QUESTION, TAB_ANSWER, TAB_COMMENT, TAB_PROFILE");
+    }
+
+    @Test
+    public void testQuestionQueriesUseIndexes() throws SQLException {
+        assertNoSeqScan("findById", "SELECT * FROM TAB_QUESTION WHERE COL_ID = " + ID);
+        assertNoSeqScan("listAllPaginated", "SELECT * FROM TAB_QUESTION ORDER BY COL_CREATED, COL_ID LIMIT 5 OFFSET 10");
+        assertNoSeqScan("listAllAfter", "SELECT * FROM TAB_QUESTION WHERE COL_CREATED >= " + CURSOR
+                + " AND (COL_CREATED > " + CURSOR + " OR COL_ID > " + ID + ") ORDER BY COL_CREATED, COL_ID LIMIT 6");
+        assertNoSeqScan("countNumberOfQuestionsOfUser", "SELECT COUNT(COL_ID) FROM TAB_QUESTION WHERE COL_USER_ID = 'plan-1'");
+        assertNoSeqScan("addViews", "UPDATE TAB_QUESTION SET COL_VIEWS = COALESCE(COL_VIEWS, 0) + 1, COL_MODIFIED = now() WHERE COL_ID = " + ID);
+        assertNoSeqScan("updateRating", "UPDATE TAB_QUESTION SET COL_RATING = COALESCE(COL_RATING, 0) + 1, COL_MODIFIED = now() "
+                + "WHERE COL_ID = " + ID + " RETURNING COL_RATING");
+    }
+
+    @Test
+    public void testAnswerQueriesUseIndexes() throws SQLException {
+        assertNoSeqScan("findById", "SELECT * FROM TAB_ANSWER WHERE COL_ID = " + ID);
+        assertNoSeqScan("listAllPaginatedByQuestionID", "SELECT * FROM TAB_ANSWER WHERE COL_QUESTION_ID = " + ID
+                + " ORDER BY COL_CREATED, COL_ID LIMIT 5 OFFSET 0");
+        assertNoSeqScan("listAllPaginated", "SELECT * FROM TAB_ANSWER ORDER BY COL_CREATED, COL_ID LIMIT 5 OFFSET 10");
+        assertNoSeqScan("listAllByQuestionIDAfter", "SELECT * FROM TAB_ANSWER WHERE COL_QUESTION_ID = " + ID
+                + " AND COL_CREATED >= " + CURSOR + " AND (COL_CREATED > " + CURSOR + " OR COL_ID > " + ID + ")"
+                + " ORDER BY COL_CREATED, COL_ID LIMIT 6");
+        assertNoSeqScan("listAllAfter", "SELECT * FROM TAB_ANSWER WHERE COL_CREATED >= " + CURSOR
+                + " AND (COL_CREATED > " + CURSOR + " OR COL_ID > " + ID + ") ORDER BY COL_CREATED, COL_ID LIMIT 6");
+        assertNoSeqScan("listAllAnswers", "SELECT * FROM TAB_ANSWER WHERE COL_QUESTION_ID = " + ID);
+        assertNoSeqScan("countNumberOfAnswersOfUser", "SELECT COUNT(COL_ID) FROM TAB_ANSWER WHERE COL_USER_ID = 'plan-1'");
+        assertNoSeqScan("countNumberOfAnswersOfQuestion", "SELECT COL_NUM_ANSWER FROM TAB_QUESTION WHERE COL_ID = " + ID);
+        assertNoSeqScan("repairNumberOfAnswers", "SELECT count(*) FROM TAB_ANSWER WHERE COL_QUESTION_ID = " + ID);
+        assertNoSeqScan("updateRating", "UPDATE TAB_ANSWER SET COL_RATING = COALESCE(COL_RATING, 0) + 1, COL_MODIFIED = now() "
+                + "WHERE COL_ID = " + ID + " RETURNING COL_RATING");
+        assertNoSeqScan("removeAllAnswersOfQuestion", "DELETE FROM TAB_ANSWER WHERE COL_QUESTION_ID = " + ID + " RETURNING COL_ID");
+    }
+
+    @Test
+    public void testCommentQueriesUseIndexes() throws SQLException {
+        assertNoSeqScan("findById", "SELECT * FROM TAB_COMMENT WHERE COL_ID = " + ID);
+        assertNoSeqScan("listAllPaginatedByQuestionID", "SELECT * FROM TAB_COMMENT WHERE COL_QUESTION_ID = " + ID
+                + " ORDER BY COL_CREATED, COL_ID LIMIT 5 OFFSET 0");
+        assertNoSeqScan("listAllByQuestionID", "SELECT * FROM TAB_COMMENT WHERE COL_QUESTION_ID = " + ID);
+        assertNoSeqScan("listAllPaginatedByAnswerID", "SELECT * FROM TAB_COMMENT WHERE COL_ANSWER_ID = " + (ID + 1)
+                + " ORDER BY COL_CREATED, COL_ID LIMIT 5 OFFSET 0");
+        assertNoSeqScan("listAllByAnswerID", "SELECT * FROM TAB_COMMENT WHERE COL_ANSWER_ID = " + (ID + 1));
+        assertNoSeqScan("listAllByQuestionIDAfter", "SELECT * FROM TAB_COMMENT WHERE COL_QUESTION_ID = " + ID
+                + " AND COL_CREATED >= " + CURSOR + " AND (COL_CREATED > " + CURSOR + " OR COL_ID > " + ID + ")"
+                + " ORDER BY COL_CREATED, COL_ID LIMIT 6");
+        assertNoSeqScan("listAllByAnswerIDAfter", "SELECT * FROM TAB_COMMENT WHERE COL_ANSWER_ID = " + (ID + 1)
+                + " AND COL_CREATED >= " + CURSOR + " AND (COL_CREATED > " + CURSOR + " OR COL_ID > " + ID + ")"
+                + " ORDER BY COL_CREATED, COL_ID LIMIT 6");
+        assertNoSeqScan("listAllByQuestionIDOrAnswerIDs", "SELECT * FROM TAB_COMMENT WHERE COL_QUESTION_ID = " + ID
+                + " OR COL_ANSWER_ID IN (" + (ID + 1) + ", " + (ID + 3) + ", " + (ID + 5) + ") ORDER BY COL_CREATED, COL_ID");
+        assertNoSeqScan("updateRating", "UPDATE TAB_COMMENT SET COL_RATING = COALESCE(COL_RATING, 0) + 1, COL_MODIFIED = now() "
+                + "WHERE COL_ID = " + ID + " RETURNING COL_RATING");
+        assertNoSeqScan("removeAllCommentsOfQuestion", "DELETE FROM TAB_COMMENT WHERE COL_QUESTION_ID = " + ID + " RETURNING COL_ID");
+        assertNoSeqScan("removeAllCommentsOfQuestion", "DELETE FROM TAB_COMMENT WHERE COL_ANSWER_ID IN "
+                + "(SELECT COL_ID FROM TAB_ANSWER WHERE COL_QUESTION_ID = " + ID + ") RETURNING COL_ID");
+        assertNoSeqScan("removeAllCommentsOfAnswer", "DELETE FROM TAB_COMMENT WHERE COL_ANSWER_ID = " + (ID + 1) + " RETURNING COL_ID");
+    }
+
+    @Test
+    public void testProfileQueriesUseIndexes() throws SQLException {
+        assertNoSeqScan("findById", "SELECT * FROM TAB_PROFILE WHERE COL_ID = " + ID);
+        assertNoSeqScan("listAllPaginated", "SELECT * FROM TAB_PROFILE ORDER BY COL_CREATED, COL_ID LIMIT 5 OFFSET 10");
+        assertNoSeqScan("listAllAfter", "SELECT * FROM TAB_PROFILE WHERE COL_CREATED >= " + CURSOR
+                + " AND (COL_CREATED > " + CURSOR + " OR COL_ID > " + ID + ") ORDER BY COL_CREATED, COL_ID LIMIT 6");
+        assertNoSeqScan("updateReputation", "UPDATE TAB_PROFILE SET COL_REPUTATION = COALESCE(COL_REPUTATION, 0) + 1, COL_MODIFIED = now() "
+                + "WHERE COL_ID = " + ID + " RETURNING COL_REPUTATION");
+    }
+
+    private void assertNoSeqScan(final String query, final String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+        }
+
+        LOG.info("Plan of {}:\n{}", query, plan);
+
+        assertThat(plan.toString()).as("plan of %s", query).doesNotContain("Seq Scan");
+    }
+
+    private void execute(final String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionDuplicates;
+import de.maxwell.qa.domain.question.QuestionNotFoundException;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Builds the near-duplicate index from questions inserted behind the back of the repository and follows descriptions
+ * and removals made through the repository
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QuestionDuplicatesIT {
+
+    private static final long FIRST_ID = 1_500_000L;
+
+    private static final String TITLE = "Merge two sorted linked lists in place";
+
+    private static final String DESCRIPTION = "Given the heads of two sorted singly linked lists, how do I merge them "
+            + "into one sorted list without allocating new nodes and in linear time?";
+
+    @TestHTTPResource("question")
+    URL question;
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    QuestionDuplicates duplicates;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        insert(FIRST_ID, TITLE, DESCRIPTION);
+        insert(FIRST_ID + 1, TITLE + "?", DESCRIPTION.replace("linear time", "O(n) time"));
+        insert(FIRST_ID + 2, "Reverse a string in Haskell", "What is the idiomatic way to reverse a string?");
+        insert(FIRST_ID + 3, "Parse dates in Rust", "Which crate parses ISO dates with time zones?");
+        insert(FIRST_ID + 4, "Parse dates in Rust", "Which crate parses ISO dates with time zones?");
+
+        duplicates.rebuild();
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testNearDuplicatesAreFound() {
+        assertThat(ids(FIRST_ID)).containsExactly(FIRST_ID + 1);
+        assertThat(ids(FIRST_ID + 1)).containsExactly(FIRST_ID);
+        assertThat(ids(FIRST_ID + 2)).isEmpty();
+    }
+
+    @Test
+    public void testChangesAreFound() {
+        questionRepository.updateDescription(FIRST_ID + 4, "How do I print a list of floats in Rust with two decimals?");
+        assertThat(ids(FIRST_ID + 3)).isEmpty();
+
+        questionRepository.updateDescription(FIRST_ID + 4, "Which crate parses ISO dates with time zones?");
+        assertThat(ids(FIRST_ID + 3)).containsExactly(FIRST_ID + 4);
+
+        questionRepository.removeQuestion(FIRST_ID + 4);
+        assertThat(ids(FIRST_ID + 3)).isEmpty();
+    }
+
+    @Test
+    public void testInvalidRequests() throws IOException {
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.findSimilarQuestions(FIRST_ID, 100));
+        assertThatExceptionOfType(QuestionNotFoundException.class).isThrownBy(() -> questionService.findSimilarQuestions(FIRST_ID + 99, 10));
+
+        assertThat(status(new URL(question + "/" + FIRST_ID + "/similar"))).isEqualTo(200);
+        assertThat(status(new URL(question + "/" + FIRST_ID + "/similar?limit=0"))).isEqualTo(400);
+        assertThat(status(new URL(question + "/" + (FIRST_ID + 99) + "/similar"))).isEqualTo(404);
+    }
+
+    private List<Long> ids(final long id) {
+        return questionService.findSimilarQuestions(id, 10)
+                .stream()
+                .map(Question::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void insert(final long id, final String title, final String description) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'duplicates', ?, ?, 0, 0, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setString(2, title);
+            statement.setString(3, description);
+            statement.executeUpdate();
+        }
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
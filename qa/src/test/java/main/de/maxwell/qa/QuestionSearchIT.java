@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionSearchIndex;
+import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Builds the search index from questions inserted behind the back of the repository and follows changes made
+ * through the repository
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QuestionSearchIT {
+
+    private static final long FIRST_ID = 1_300_000L;
+
+    @TestHTTPResource("question/search")
+    URL search;
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    QuestionSearchIndex searchIndex;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        insert(FIRST_ID, "Quuxification of zebras", "How do I quuxify a zebra?");
+        insert(FIRST_ID + 1, "Zebra stripes", "Why do zebras have stripes, is it quuxification?");
+        insert(FIRST_ID + 2, "Giraffe necks", "Long necks and quuxes");
+        insert(FIRST_ID + 3, "Gazelle horns", "Do gazelles have horns?");
+
+        searchIndex.rebuild();
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testSearchRanksTitleMatchesFirst() {
+        assertThat(ids("quuxification")).containsExactly(FIRST_ID, FIRST_ID + 1);
+    }
+
+    @Test
+    public void testPrefixSearch() {
+        assertThat(ids("quux*")).containsExactlyInAnyOrder(FIRST_ID, FIRST_ID + 1, FIRST_ID + 2);
+    }
+
+    @Test
+    public void testUpdatesAndRemovalsAreIndexed() {
+        questionRepository.updateTitle(FIRST_ID + 3, "Okapi horns");
+        assertThat(ids("okapi")).containsExactly(FIRST_ID + 3);
+        assertThat(ids("gazelle")).isEmpty();
+
+        questionRepository.updateDescription(FIRST_ID + 3, "Do okapis have horns?");
+        assertThat(ids("gazelles")).isEmpty();
+
+        questionRepository.removeQuestion(FIRST_ID + 3);
+        assertThat(ids("okapi")).isEmpty();
+    }
+
+    @Test
+    public void testInvalidQuery() throws IOException {
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.searchQuestions(" ", 10));
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.searchQuestions("zebra", 1000));
+
+        assertThat(status(new URL(search + "?q=zebra"))).isEqualTo(200);
+        assertThat(status(search)).isEqualTo(400);
+    }
+
+    private List<Long> ids(final String query) {
+        return questionService.searchQuestions(query, 10)
+                .stream()
+                .map(Question::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void insert(final long id, final String title, final String description) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'search', ?, ?, 0, 0, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setString(2, title);
+            statement.setString(3, description);
+            statement.executeUpdate();
+        }
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
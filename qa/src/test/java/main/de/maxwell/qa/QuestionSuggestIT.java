@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.domain.question.QuestionSuggestions;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Builds the title suggestions from questions inserted behind the back of the repository and follows titles, votes
+ * and removals made through the repository
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QuestionSuggestIT {
+
+    private static final long FIRST_ID = 1_400_000L;
+
+    @TestHTTPResource("question/suggest")
+    URL suggest;
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    QuestionSuggestions suggestions;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, so the other tests see the ids and counts they expect
+        insert(FIRST_ID, "Zyzzyva larvae", 10, 0);
+        insert(FIRST_ID + 1, "Zyzzyva wings", 5, 2);
+        insert(FIRST_ID + 2, "Zyzzyvas in winter", 100, 0);
+        insert(FIRST_ID + 3, "Quetzal feathers", 0, 0);
+        insert(FIRST_ID + 4, "Quetzal nests", 0, 0);
+
+        suggestions.rebuild();
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testMostPopularFirst() {
+        // 100 views, then 5 views + 2 votes of 10 views each, then 10 views
+        assertThat(ids("zyzz")).containsExactly(FIRST_ID + 2, FIRST_ID + 1, FIRST_ID);
+        assertThat(ids("Zyzzyva ")).containsExactly(FIRST_ID + 1, FIRST_ID);
+    }
+
+    @Test
+    public void testChangesAreSuggested() {
+        questionRepository.updateRating(FIRST_ID + 4, 1);
+        assertThat(ids("quetzal")).containsExactly(FIRST_ID + 4, FIRST_ID + 3);
+
+        questionRepository.updateTitle(FIRST_ID + 3, "Resplendent quetzal");
+        assertThat(ids("quetzal")).containsExactly(FIRST_ID + 4);
+        assertThat(ids("resplendent")).containsExactly(FIRST_ID + 3);
+
+        questionRepository.removeQuestion(FIRST_ID + 4);
+        assertThat(ids("quetzal")).isEmpty();
+    }
+
+    @Test
+    public void testInvalidPrefix() throws IOException {
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.suggestQuestions(" ", 10));
+        assertThatIllegalArgumentException().isThrownBy(() -> questionService.suggestQuestions("zyzz", 100));
+
+        assertThat(status(new URL(suggest + "?prefix=zyzz"))).isEqualTo(200);
+        assertThat(status(suggest)).isEqualTo(400);
+    }
+
+    private List<Long> ids(final String prefix) {
+        return questionService.suggestQuestions(prefix, 10)
+                .stream()
+                .map(Question::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void insert(final long id, final String title, final long views, final long rating) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'suggest', ?, 'suggest', ?, ?, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setString(2, title);
+            statement.setLong(3, rating);
+            statement.setLong(4, views);
+            statement.executeUpdate();
+        }
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.profile.ProfileRepository;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionSummaryRepository;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.sql.DataSource;
+import javax.transaction.UserTransaction;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Follows the question summaries through the writes of the question and profile repositories and pages through
+ * them. The questions are inserted behind the back of the repositories, their first write through the repository
+ * creates their summary.
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QuestionSummaryIT {
+
+    private static final long ID = 1_910_000L;
+
+    private static final String BEFORE = new Cursor(LocalDateTime.of(1969, 12, 31, 0, 0), 0L).encode();
+
+    @TestHTTPResource("question/summaries")
+    URL summaries;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    ProfileRepository profileRepository;
+
+    @Inject
+    QuestionSummaryRepository summaryRepository;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range, the listed questions are created before all others
+        insertProfile(ID, "summary-listed", "Ada", "Lovelace");
+        insertProfile(ID + 1, "summary-renamed", "Grace", null);
+        insertQuestion(ID, "summary-listed", "First summary", "1970-01-01 00:00:00");
+        insertQuestion(ID + 1, "summary-listed", "Second summary", "1970-01-01 00:01:00");
+        insertQuestion(ID + 2, "summary-renamed", "Renamed author", "1972-01-01 00:00:00");
+        insertQuestion(ID + 3, "summary-removed", "Removed question", "1972-01-01 00:01:00");
+        insertQuestion(ID + 4, "summary-removed", "Removed with many ids", "1972-01-01 00:02:00");
+
+        for (long id = ID; id < ID + 5; id++) {
+            questionRepository.updateDescription(id, "An  excerpt\nof the\tdescription " + id);
+        }
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testPagesOfSummaries() throws IOException {
+        JsonObject first = read(new URL(summaries + "?limit=1&cursor=" + BEFORE));
+
+        JsonObject summary = first.getJsonArray("items").getJsonObject(0);
+        assertThat(summary.getJsonNumber("id").longValue()).isEqualTo(ID);
+        assertThat(summary.getString("title")).isEqualTo("First summary");
+        assertThat(summary.getString("excerpt")).isEqualTo("An excerpt of the description " + ID);
+        assertThat(summary.getString("authorName")).isEqualTo("Ada Lovelace");
+        assertThat(summary.containsKey("description")).isFalse();
+
+        JsonObject second = read(new URL(summaries + "?limit=1&cursor=" + first.getString("next")));
+
+        assertThat(second.getJsonArray("items").getJsonObject(0).getJsonNumber("id").longValue()).isEqualTo(ID + 1);
+    }
+
+    @Test
+    public void testCountersFollowTheQuestion() throws SQLException {
+        questionRepository.updateRating(ID + 1, 1);
+        questionRepository.addViews(Collections.singletonMap(ID + 1, 5L));
+
+        assertThat(select(ID + 1, "COL_RATING")).isEqualTo("1");
+        assertThat(select(ID + 1, "COL_VIEWS")).isEqualTo("5");
+    }
+
+    @Test
+    public void testAuthorNameFollowsTheProfile() throws SQLException {
+        assertThat(select(ID + 2, "COL_AUTHOR_NAME")).isEqualTo("Grace");
+
+        profileRepository.updateLastName(ID + 1, "Hopper");
+        assertThat(select(ID + 2, "COL_AUTHOR_NAME")).isEqualTo("Grace Hopper");
+
+        profileRepository.removeProfile(ID + 1);
+        assertThat(select(ID + 2, "COL_AUTHOR_NAME")).isEqualTo("summary-renamed");
+    }
+
+    @Test
+    public void testRemovedQuestionHasNoSummary() throws SQLException {
+        assertThat(select(ID + 3, "COL_TITLE")).isEqualTo("Removed question");
+
+        questionRepository.removeQuestion(ID + 3);
+
+        assertThat(select(ID + 3, "COL_TITLE")).isNull();
+    }
+
+    @Test
+    public void testMoreIdsThanStatementParameters() throws Exception {
+        assertThat(select(ID + 4, "COL_TITLE")).isEqualTo("Removed with many ids");
+
+        // postgres allows at most 32767 parameters per statement
+        List<Long> ids = LongStream.range(ID + 4, ID + 4 + 40_000).boxed().collect(Collectors.toList());
+        transaction.begin();
+        try {
+            summaryRepository.removed(ids);
+        } finally {
+            transaction.commit();
+        }
+
+        assertThat(select(ID + 4, "COL_TITLE")).isNull();
+    }
+
+    @Test
+    public void testInvalidRequest() throws IOException {
+        assertThat(status(new URL(summaries + "?limit=0"))).isEqualTo(400);
+        assertThat(status(new URL(summaries + "?limit=10&cursor=invalid"))).isEqualTo(400);
+    }
+
+    private String select(final long id, final String column) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT " + column + " FROM TAB_QUESTION_SUMMARY WHERE COL_ID = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? row.getString(1) : null;
+            }
+        }
+    }
+
+    private void insertProfile(final long id, final String userID, final String firstName, final String lastName) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_REPUTATION, COL_FIRST_NAME, COL_LAST_NAME, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, ?, 0, ?, ?, now(), now())")) {
+            statement.setLong(1, id);
+            statement.setString(2, userID);
+            statement.setString(3, firstName);
+            statement.setString(4, lastName);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertQuestion(final long id, final String userID, final String title, final String created) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, ?, ?, 'summary', 0, 0, '" + created + "', now())")) {
+            statement.setLong(1, id);
+            statement.setString(2, userID);
+            statement.setString(3, title);
+            statement.executeUpdate();
+        }
+    }
+
+    private static JsonObject read(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        try (JsonReader reader = Json.createReader(connection.getInputStream())) {
+            return reader.readObject();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.application.health.DatabaseProbe;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Calls the readiness endpoint over http
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+public class ReadinessIT {
+
+    @TestHTTPResource("health/ready")
+    URL ready;
+
+    @Inject
+    DatabaseProbe probe;
+
+    @Test
+    public void testReadyAfterProbe() throws IOException {
+        assertThat(probe.probe().isValid()).isTrue();
+
+        HttpURLConnection connection = (HttpURLConnection) ready.openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+
+        String body = read(connection.getInputStream()).replaceAll("\\s", "");
+        assertThat(body).contains("\"ready\":true", "\"probe_valid\":true", "\"pool_max\":", "\"pool_saturation_percent\":");
+    }
+
+    @Test
+    public void testChecksDoNotLeakConnections() throws IOException {
+        probe.probe();
+
+        for (int i = 0; i < 50; i++) {
+            HttpURLConnection connection = (HttpURLConnection) ready.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            read(connection.getInputStream());
+        }
+
+        assertThat(probe.probe().isValid()).isTrue();
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toString(StandardCharsets.UTF_8.name());
+    }
+}
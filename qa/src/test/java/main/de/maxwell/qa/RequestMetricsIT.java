@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.eclipse.microprofile.metrics.ConcurrentGauge;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.MetricID;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends requests over http and checks the request and SQL metrics recorded for them
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+public class RequestMetricsIT {
+
+    private static final Tag[] LIST_QUESTIONS = {new Tag("method", "GET"), new Tag("route", "/question")};
+
+    private static final Tag[] FAILING = {new Tag("method", "GET"), new Tag("route", "/metrics-failing")};
+
+    @TestHTTPResource("question")
+    URL questions;
+
+    @TestHTTPResource("metrics-failing")
+    URL failing;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Test
+    public void testRequestsAreTimedPerRoute() throws IOException {
+        long before = timer("http_server_requests", LIST_QUESTIONS).getCount();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(get(new URL(questions + "?limit=5&offset=0"))).isEqualTo(200);
+        }
+
+        assertThat(timer("http_server_requests", LIST_QUESTIONS).getCount()).isEqualTo(before + 3);
+        assertThat(timer("http_server_request_sql", LIST_QUESTIONS).getCount()).isEqualTo(before + 3);
+        assertThat(metricRegistry.getConcurrentGauges().get(new MetricID("http_server_requests_active", LIST_QUESTIONS)))
+                .extracting(ConcurrentGauge::getCount)
+                .isEqualTo(0L);
+    }
+
+    @Test
+    public void testStatementsAreCountedPerRequest() throws IOException {
+        assertThat(get(new URL(questions + "?limit=5&offset=0"))).isEqualTo(200);
+
+        Histogram statements = metricRegistry.getHistograms().get(new MetricID("http_server_request_sql_statements", LIST_QUESTIONS));
+        assertThat(statements.getSnapshot().getMax()).isGreaterThanOrEqualTo(1L);
+        assertThat(timer("sql_statements", new Tag("type", "statement")).getCount()).isGreaterThanOrEqualTo(1L);
+    }
+
+    @Test
+    public void testUnmatchedRequestsAreNotRecorded() throws IOException {
+        assertThat(get(new URL(questions + "/not/a/route"))).isEqualTo(404);
+
+        assertThat(metricRegistry.getTimers().keySet())
+                .noneMatch(id -> id.getTags().containsValue("/question/not/a/route"));
+    }
+
+    @Test
+    public void testFailedRequestsAreEnded() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            assertThat(get(failing)).isEqualTo(500);
+        }
+
+        assertThat(timer("http_server_requests", FAILING).getCount()).isEqualTo(3L);
+        assertThat(metricRegistry.getConcurrentGauges().get(new MetricID("http_server_requests_active", FAILING)))
+                .extracting(ConcurrentGauge::getCount)
+                .isEqualTo(0L);
+    }
+
+    @Test
+    public void testRestEasyFailuresKeepTheirStatus() throws IOException {
+        assertThat(send("OPTIONS", questions, null)).isEqualTo(200);
+        assertThat(send("POST", questions, "{not json")).isEqualTo(400);
+    }
+
+    /**
+     * Fails with an exception no resource handles
+     */
+    @Path("metrics-failing")
+    public static class FailingResource {
+
+        @GET
+        public String fail() {
+            throw new IllegalStateException("failed on purpose");
+        }
+    }
+
+    private Timer timer(final String name, final Tag... tags) {
+        return metricRegistry.timer(name, tags);
+    }
+
+    private static int get(final URL url) throws IOException {
+        return send("GET", url, null);
+    }
+
+    private static int send(final String method, final URL url, final String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            while (in != null && in.read() != -1) {
+                // read to the end, so the connection can be reused
+            }
+        }
+        return status;
+    }
+}
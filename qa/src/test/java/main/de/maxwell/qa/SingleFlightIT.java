@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionService;
+import de.maxwell.qa.infrastructure.cache.EntityCache;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends bursts of concurrent lookups of one question with a cold cache and counts the database loads, once through
+ * the service and once directly through the repository. Both share the misses of the cache.
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SingleFlightIT {
+    private static final Logger LOG = LoggerFactory.getLogger(SingleFlightIT.class);
+
+    private static final int THREADS = 64;
+
+    private static final int ROUNDS = 20;
+
+    private static final Long ID = 1_100_000L;
+
+    @Inject
+    QuestionService questionService;
+
+    @Inject
+    QuestionRepository questionRepository;
+
+    @Inject
+    EntityCache entityCache;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit id outside of the generated range, so the other tests see the ids and counts they expect
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'flight', 'flight', 'flight', 0, 0, now(), now())")) {
+            statement.setLong(1, ID);
+            statement.executeUpdate();
+        }
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testConcurrentLookupsShareOneLoad() throws Exception {
+        long repository = burst("repository", questionRepository::findById);
+        long service = burst("service", questionService::findQuestion);
+
+        // a lookup missing right after a flight ended and before its question was cached loads once more
+        assertThat(repository).isBetween((long) ROUNDS, (long) ROUNDS * THREADS / 8);
+        assertThat(service).isBetween((long) ROUNDS, (long) ROUNDS * THREADS / 8);
+    }
+
+    /**
+     * @return number of database loads
+     */
+    private long burst(final String name, final Function<Long, Question> lookup) throws Exception {
+        long loadsBefore = count("single_flight_question_loads");
+        long coalescedBefore = count("single_flight_question_coalesced");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                entityCache.invalidate(Question.class, ID);
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Question>> results = new ArrayList<>(THREADS);
+                for (int i = 0; i < THREADS; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+
+                        // like a http request, which the entity manager outside of a transaction needs
+                        ManagedContext requestContext = Arc.container().requestContext();
+                        requestContext.activate();
+                        try {
+                            return lookup.apply(ID);
+                        } finally {
+                            requestContext.terminate();
+                        }
+                    }));
+                }
+                start.countDown();
+
+                for (Future<Question> result : results) {
+                    assertThat(result.get().getId()).isEqualTo(ID);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long loads = count("single_flight_question_loads") - loadsBefore;
+        LOG.info("{} lookups through the {} in bursts of {}: {} database loads, {} coalesced",
+                ROUNDS * THREADS, name, THREADS, loads, count("single_flight_question_coalesced") - coalescedBefore);
+
+        return loads;
+    }
+
+    private long count(final String counter) {
+        return metricRegistry.counter(counter).getCount();
+    }
+}
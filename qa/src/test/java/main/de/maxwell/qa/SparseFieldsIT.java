@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa;
+
+import de.maxwell.qa.domain.answer.AnswerService;
+import de.maxwell.qa.domain.comment.CommentService;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lists questions, answers, comments and profiles with only some of their fields. The rows are created long ago, so
+ * a cursor right before them starts the page with them and they are never hot.
+ */
+@QuarkusTest
+@QuarkusTestResource(DatabaseResource.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SparseFieldsIT {
+
+    private static final long ID = 1_900_000L;
+
+    private static final String CREATED = "1971-01-01 00:00:00";
+
+    private static final String BEFORE = new Cursor(LocalDateTime.of(1970, 12, 31, 0, 0), 0L).encode();
+
+    @TestHTTPResource("question")
+    URL question;
+
+    @TestHTTPResource("profile")
+    URL profile;
+
+    @Inject
+    AnswerService answerService;
+
+    @Inject
+    CommentService commentService;
+
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        // explicit ids outside of the generated range
+        execute("INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'fields', 'Sparse title', 'long description', 0, 7, '" + CREATED + "', now())", ID);
+        execute("INSERT INTO TAB_ANSWER (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'fields', " + ID + ", 'long answer', 3, '" + CREATED + "', now())", ID + 1);
+        execute("INSERT INTO TAB_COMMENT (COL_ID, COL_USER_ID, COL_QUESTION_ID, COL_ANSWER_ID, COL_DESCRIPTION, COL_RATING, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'fields', NULL, " + (ID + 1) + ", 'long comment', 0, '" + CREATED + "', now())", ID + 2);
+        execute("INSERT INTO TAB_PROFILE (COL_ID, COL_USER_ID, COL_REPUTATION, COL_FIRST_NAME, COL_DESCRIPTION, COL_CREATED, COL_MODIFIED) "
+                + "VALUES (?, 'fields', 5, 'Sparse', 'long profile', '" + CREATED + "', now())", ID + 3);
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
+    }
+
+    @Test
+    public void testQuestionPageHasOnlyTheFields() throws IOException {
+        JsonObject page = read(new URL(question + "?limit=1&cursor=" + BEFORE + "&fields=title,views")).asJsonObject();
+
+        JsonArray items = page.getJsonArray("items");
+        assertThat(items).hasSize(1);
+        assertThat(items.getJsonObject(0).keySet()).containsExactly("id", "title", "views");
+        assertThat(items.getJsonObject(0).getJsonNumber("id").longValue()).isEqualTo(ID);
+        assertThat(items.getJsonObject(0).getString("title")).isEqualTo("Sparse title");
+    }
+
+    @Test
+    public void testProfileListHasOnlyTheFields() throws IOException {
+        JsonArray profiles = read(new URL(profile + "?limit=5&offset=0&fields=firstName")).asJsonArray();
+
+        assertThat(profiles).isNotEmpty();
+        for (JsonValue row : profiles) {
+            assertThat(row.asJsonObject().keySet()).containsExactly("id", "firstName");
+        }
+    }
+
+    @Test
+    public void testAnswersAndCommentsHaveOnlyTheFields() {
+        Page<Map<String, Object>> answers = answerService.findAnswersByQuestionIDAfter(ID, 10, BEFORE, "rating,createdAt");
+        assertThat(answers.getItems()).hasSize(1);
+        assertThat(answers.getItems().get(0)).containsOnlyKeys("id", "rating", "createdAt");
+        assertThat(answers.getItems().get(0)).containsEntry("rating", 3L);
+
+        List<Map<String, Object>> comments = commentService.listCommentsPaginatedByAnswerID(ID + 1, 10, 0, "userID");
+        assertThat(comments).hasSize(1);
+        assertThat(comments.get(0)).containsOnlyKeys("id", "userID");
+        assertThat(comments.get(0)).containsEntry("userID", "fields");
+    }
+
+    @Test
+    public void testUnknownField() throws IOException {
+        assertThat(status(new URL(question + "?limit=10&offset=0&fields=title,password"))).isEqualTo(400);
+        assertThat(status(new URL(profile + "?limit=10&cursor=" + BEFORE + "&fields=image"))).isEqualTo(400);
+    }
+
+    private void execute(final String sql, final long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private static JsonValue read(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        try (JsonReader reader = Json.createReader(connection.getInputStream())) {
+            return reader.readValue();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int status(final URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+}
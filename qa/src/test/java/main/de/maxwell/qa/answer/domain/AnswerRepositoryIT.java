@@ -27,6 +27,9 @@ package main.de.maxwell.qa.answer.domain;
 import de.maxwell.qa.domain.answer.Answer;
 import de.maxwell.qa.domain.answer.AnswerNotFoundException;
 import de.maxwell.qa.domain.answer.AnswerRepository;
+import de.maxwell.qa.infrastructure.cache.IdFilterRebuilder;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import main.de.maxwell.qa.DatabaseResource;
@@ -40,6 +43,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -52,11 +59,19 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 public class AnswerRepositoryIT {
     private static final Logger LOG = LoggerFactory.getLogger(AnswerRepositoryIT.class);
 
+    private static final long QUESTION_ID = 1_920_100L;
+
     @Inject
     AnswerRepository answerRepository;
 
+    @Inject
+    IdFilterRebuilder idFilterRebuilder;
+
+    @Inject
+    DataSource dataSource;
+
     @BeforeAll
-    public void setUp() {
+    public void setUp() throws SQLException {
         answerRepository.createAnswer("1", 1L, "test1");
         answerRepository.createAnswer("2", 1L, "test2");
         answerRepository.createAnswer("3", 1L, "test3");
@@ -64,6 +79,13 @@ public class AnswerRepositoryIT {
         answerRepository.createAnswer("5", 2L, "test5");
         answerRepository.createAnswer("6", 2L, "test6");
         answerRepository.createAnswer("7", 3L, "test7");
+
+        insertQuestion(QUESTION_ID);
+        answerRepository.createAnswer("8", QUESTION_ID, "test8");
+        answerRepository.createAnswer("9", QUESTION_ID, "test9");
+
+        // inserted behind the back of the repositories, the id filters learn them with a rebuild
+        idFilterRebuilder.rebuild();
     }
 
     @Test
@@ -88,6 +110,18 @@ public class AnswerRepositoryIT {
         assertThat(answers.size()).isEqualTo(5);
     }
 
+    @Test
+    public void testListAllByQuestionIDAfter() {
+        Page<Answer> first = answerRepository.listAllByQuestionIDAfter(1L, 2, null);
+        Page<Answer> last = answerRepository.listAllByQuestionIDAfter(1L, 2, Cursor.decode(first.getNext()));
+
+        assertThat(first.getItems()).extracting(Answer::getUserID)
+                .containsExactly("1", "2");
+        assertThat(last.getItems()).extracting(Answer::getUserID)
+                .containsExactly("3");
+        assertThat(last.getNext()).isNull();
+    }
+
     @Test
     public void testUpdateDescription() {
         Answer answer = answerRepository.updateDescription(2L, "new Description");
@@ -144,9 +178,9 @@ public class AnswerRepositoryIT {
 
     @Test
     public void testCountNumberOfAnswersOfQuestion() {
-        Long count = answerRepository.countNumberOfAnswersOfQuestion(1L);
+        Long count = answerRepository.countNumberOfAnswersOfQuestion(QUESTION_ID);
 
-        assertThat(count).isEqualTo(3L);
+        assertThat(count).isEqualTo(2L);
     }
 
     @Test
@@ -169,4 +203,14 @@ public class AnswerRepositoryIT {
         assertThatThrownBy(() -> answerRepository.removeAnswer(99L)).isInstanceOf(AnswerNotFoundException.class)
                 .hasMessageContaining("Could not find answer with id 99");
     }
+
+    private void insertQuestion(final long id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO TAB_QUESTION (COL_ID, COL_USER_ID, COL_TITLE, COL_DESCRIPTION, COL_RATING, COL_VIEWS, COL_CREATED, COL_MODIFIED) "
+                             + "VALUES (?, 'answers', 'answers', 'answers', 0, 0, '1971-06-01 00:00:00', now())")) {
+            statement.setLong(1, id);
+            statement.executeUpdate();
+        }
+    }
 }
@@ -27,6 +27,8 @@ package main.de.maxwell.qa.comment.domain;
 import de.maxwell.qa.domain.comment.Comment;
 import de.maxwell.qa.domain.comment.CommentNotFoundException;
 import de.maxwell.qa.domain.comment.CommentRepository;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import main.de.maxwell.qa.DatabaseResource;
@@ -38,6 +40,8 @@ import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestMethodOrder;
 
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,6 +65,9 @@ public class CommentRepositoryIT {
         commentRepository.createComment("1", 1L, null, "test5");
         commentRepository.createComment("1", 1L, null, "test6");
         commentRepository.createComment("1", 1L, null, "test7");
+        commentRepository.createComment("1", null, 500L, "answer500");
+        commentRepository.createComment("1", null, 501L, "answer501");
+        commentRepository.createComment("1", null, 502L, "answer502");
     }
 
     @Test
@@ -91,6 +98,33 @@ public class CommentRepositoryIT {
         assertThat(comments.size()).isEqualTo(0);
     }
 
+    @Test
+    public void testListAllByQuestionIDAfter() {
+        Page<Comment> first = commentRepository.listAllByQuestionIDAfter(1L, 4, null);
+        Page<Comment> last = commentRepository.listAllByQuestionIDAfter(1L, 4, Cursor.decode(first.getNext()));
+
+        assertThat(first.getItems()).hasSize(4);
+        assertThat(last.getItems()).hasSize(2);
+        assertThat(last.getNext()).isNull();
+    }
+
+    @Test
+    public void testListAllByQuestionIDOrAnswerIDs() {
+        List<Comment> comments = commentRepository.listAllByQuestionIDOrAnswerIDs(1L, Arrays.asList(500L, 501L));
+
+        assertThat(comments).hasSize(8);
+        assertThat(comments).filteredOn(comment -> comment.getAnswerID() != null)
+                .extracting(Comment::getDescription)
+                .containsExactly("answer500", "answer501");
+    }
+
+    @Test
+    public void testListAllByQuestionIDOrAnswerIDsWithoutAnswers() {
+        List<Comment> comments = commentRepository.listAllByQuestionIDOrAnswerIDs(1L, Collections.emptyList());
+
+        assertThat(comments).hasSize(6);
+    }
+
     @Test
     public void testUpdateDescription() {
         Comment comment = commentRepository.updateDescription(2L, "new Description");
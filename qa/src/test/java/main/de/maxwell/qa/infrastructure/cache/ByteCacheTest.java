@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.cache;
+
+import de.maxwell.qa.infrastructure.cache.ByteCache;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class ByteCacheTest {
+
+    private final ByteCache cache = new ByteCache(10);
+
+    @Test
+    public void testPutAndGet() {
+        cache.put("a", new byte[]{1, 2, 3});
+
+        assertThat(cache.get("a")).containsExactly(1, 2, 3);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.bytes()).isEqualTo(3L);
+    }
+
+    @Test
+    public void testLeastRecentlyReadIsEvictedOverBudget() {
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        cache.get("a");
+        cache.put("c", new byte[4]);
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.bytes()).isEqualTo(8L);
+    }
+
+    @Test
+    public void testReplacedValueIsNotCountedTwice() {
+        cache.put("a", new byte[4]);
+        cache.put("a", new byte[6]);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.bytes()).isEqualTo(6L);
+    }
+
+    @Test
+    public void testTooLargeValueIsNotCached() {
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[11]);
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+    }
+
+    @Test
+    public void testRemove() {
+        cache.put("a", new byte[4]);
+        cache.remove("a");
+        cache.remove("b");
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.bytes()).isZero();
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new ByteCache(0));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.cache;
+
+import de.maxwell.qa.infrastructure.cache.CacheRegion;
+import io.smallrye.metrics.app.CounterImpl;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+public class CacheRegionTest {
+
+    private static final long TTL = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Counter hits;
+
+    private Counter misses;
+
+    private Counter evictions;
+
+    private CacheRegion<String> region;
+
+    @BeforeEach
+    public void setUp() {
+        this.hits = new CounterImpl();
+        this.misses = new CounterImpl();
+        this.evictions = new CounterImpl();
+        this.region = new CacheRegion<>(2, TTL, ticker::get, hits, misses, evictions);
+    }
+
+    @Test
+    public void testSecondGetIsHit() {
+        assertThat(region.get(1L, this::load)).isEqualTo("1-1");
+        assertThat(region.get(1L, this::load)).isEqualTo("1-1");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(hits.getCount()).isEqualTo(1L);
+        assertThat(misses.getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testExpiredEntryIsReloaded() {
+        region.get(1L, this::load);
+        ticker.addAndGet(TTL);
+
+        assertThat(region.get(1L, this::load)).isEqualTo("1-2");
+        assertThat(misses.getCount()).isEqualTo(2L);
+        assertThat(evictions.getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        region.get(1L, this::load);
+        region.get(2L, this::load);
+        region.get(1L, this::load);
+        region.get(3L, this::load);
+
+        assertThat(region.size()).isEqualTo(2);
+        assertThat(evictions.getCount()).isEqualTo(1L);
+
+        region.get(1L, this::load);
+        assertThat(hits.getCount()).isEqualTo(2L);
+
+        region.get(2L, this::load);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void testInvalidate() {
+        region.get(1L, this::load);
+        region.invalidate(1L);
+
+        assertThat(region.get(1L, this::load)).isEqualTo("1-2");
+    }
+
+    @Test
+    public void testInvalidateWhileLoadingIsNotCached() {
+        String loaded = region.get(1L, id -> {
+            region.invalidate(id);
+            return load(id);
+        });
+
+        assertThat(loaded).isEqualTo("1-1");
+        assertThat(region.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testInvalidateOfOtherIdWhileLoadingIsCached() {
+        region.get(1L, id -> {
+            region.invalidate(2L);
+            return load(id);
+        });
+
+        assertThat(region.get(1L, this::load)).isEqualTo("1-1");
+        assertThat(hits.getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testSegmentsHoldTheirShare() {
+        region = new CacheRegion<>(4, 2, TTL, ticker::get, hits, misses, evictions);
+
+        for (long id = 1; id <= 8; id++) {
+            region.get(id, this::load);
+        }
+
+        assertThat(region.size()).isEqualTo(4);
+        assertThat(evictions.getCount()).isEqualTo(4L);
+        assertThat(region.get(8L, this::load)).isEqualTo("8-8");
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        assertThatIllegalStateException().isThrownBy(() -> region.get(1L, id -> {
+            throw new IllegalStateException("not found");
+        }));
+
+        assertThat(region.size()).isEqualTo(0);
+        assertThat(region.get(1L, this::load)).isEqualTo("1-1");
+    }
+
+    @Test
+    public void testGetAllLoadsOnlyMissesAtOnce() {
+        region.get(1L, this::load);
+
+        List<Collection<Long>> batches = new ArrayList<>();
+        Map<Long, String> found = region.getAll(Arrays.asList(1L, 2L, 3L), ids -> {
+            batches.add(new ArrayList<>(ids));
+            return ids.stream()
+                    .filter(id -> id != 3L)
+                    .collect(Collectors.toMap(Function.identity(), this::load));
+        });
+
+        assertThat(batches).containsExactly(Arrays.asList(2L, 3L));
+        assertThat(found).containsOnlyKeys(1L, 2L);
+        assertThat(found.get(1L)).isEqualTo("1-1");
+        assertThat(hits.getCount()).isEqualTo(1L);
+        assertThat(misses.getCount()).isEqualTo(3L);
+        assertThat(region.get(2L, this::load)).isEqualTo("2-2");
+    }
+
+    @Test
+    public void testGetAllDoesNotCacheInvalidatedIds() {
+        region.getAll(Arrays.asList(1L, 2L), ids -> {
+            region.invalidate(1L);
+            return ids.stream().collect(Collectors.toMap(Function.identity(), this::load));
+        });
+
+        assertThat(region.size()).isEqualTo(1);
+        assertThat(region.get(1L, this::load)).isEqualTo("1-3");
+    }
+
+    @Test
+    public void testInvalidMaxSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new CacheRegion<String>(0, TTL, ticker::get, hits, misses, evictions));
+        assertThatIllegalArgumentException().isThrownBy(() -> new CacheRegion<String>(2, 3, TTL, ticker::get, hits, misses, evictions));
+    }
+
+    private String load(final Long id) {
+        return id + "-" + loads.incrementAndGet();
+    }
+}
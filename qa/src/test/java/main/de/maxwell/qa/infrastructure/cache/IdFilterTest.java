@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.cache;
+
+import de.maxwell.qa.infrastructure.cache.IdFilter;
+import io.smallrye.metrics.app.CounterImpl;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdFilterTest {
+
+    private Counter checked;
+
+    private Counter rejected;
+
+    private Counter falsePositives;
+
+    private IdFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        this.checked = new CounterImpl();
+        this.rejected = new CounterImpl();
+        this.falsePositives = new CounterImpl();
+        this.filter = new IdFilter(checked, rejected, falsePositives);
+    }
+
+    @Test
+    public void testEverythingPassesBeforeTheFirstBuild() {
+        assertThat(filter.mightContain(1L)).isTrue();
+        assertThat(filter.mightContain(1_000_000L)).isTrue();
+        assertThat(checked.getCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testRebuiltIdsPassAndGapsAreRejected() {
+        rebuild(1L, 2L, 70_000L);
+
+        assertThat(filter.getWatermark()).isEqualTo(70_000L);
+        assertThat(filter.mightContain(1L)).isTrue();
+        assertThat(filter.mightContain(70_000L)).isTrue();
+        assertThat(filter.mightContain(3L)).isFalse();
+        assertThat(filter.mightContain(69_999L)).isFalse();
+        assertThat(checked.getCount()).isEqualTo(4L);
+        assertThat(rejected.getCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testIdsAboveTheWatermarkAreRejected() {
+        rebuild(1L, 2L);
+
+        assertThat(filter.mightContain(3L)).isFalse();
+        assertThat(filter.mightContain(1_000_000L)).isFalse();
+        assertThat(rejected.getCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testAllocatedBlockRaisesTheWatermark() {
+        rebuild(1L, 2L);
+        filter.allocated(100L);
+        filter.add(51L);
+
+        assertThat(filter.getWatermark()).isEqualTo(100L);
+        assertThat(filter.mightContain(51L)).isTrue();
+        assertThat(filter.mightContain(52L)).isFalse();
+
+        // a rebuild which reads less keeps the allocated ids
+        rebuild(1L, 2L);
+        assertThat(filter.getWatermark()).isEqualTo(100L);
+        assertThat(filter.mightContain(51L)).isTrue();
+    }
+
+    @Test
+    public void testAllocationBeforeTheFirstBuildPasses() {
+        filter.allocated(50L);
+
+        assertThat(filter.mightContain(10L)).isTrue();
+        assertThat(checked.getCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testRemove() {
+        rebuild(1L, 2L, 3L);
+
+        filter.remove(2L);
+
+        assertThat(filter.mightContain(2L)).isFalse();
+        assertThat(filter.mightContain(3L)).isTrue();
+    }
+
+    @Test
+    public void testChangesDuringRebuildAreKept() {
+        rebuild(1L, 2L, 3L);
+
+        filter.beginRebuild();
+        filter.add(5L);
+        filter.remove(1L);
+        filter.addRebuilt(Arrays.asList(2L, 3L, 4L));
+        filter.endRebuild(4L);
+
+        assertThat(filter.mightContain(1L)).isFalse();
+        assertThat(filter.mightContain(5L)).isTrue();
+    }
+
+    @Test
+    public void testUncommittedIdIsKeptByRebuild() {
+        rebuild(1L, 2L);
+        filter.add(3L);
+
+        rebuild(1L, 2L, 4L);
+        assertThat(filter.mightContain(3L)).isTrue();
+
+        filter.settled(3L);
+        rebuild(1L, 2L, 4L);
+        assertThat(filter.mightContain(3L)).isFalse();
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        rebuild(1L, 2L, 3L, 4L);
+
+        filter.mightContain(1L);
+        filter.mightContain(2L);
+        filter.mightContain(5L);
+        filter.falsePositive(2L);
+
+        assertThat(falsePositives.getCount()).isEqualTo(1L);
+        assertThat(filter.falsePositiveRate()).isEqualTo(0.5d);
+    }
+
+    @Test
+    public void testFalsePositiveRateWithoutLookups() {
+        assertThat(filter.falsePositiveRate()).isEqualTo(0d);
+    }
+
+    private void rebuild(final Long... ids) {
+        filter.beginRebuild();
+        filter.addRebuilt(Arrays.asList(ids));
+        filter.endRebuild(ids.length == 0 ? 0L : Collections.max(Arrays.asList(ids)));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.cache;
+
+import de.maxwell.qa.infrastructure.cache.SingleFlightGroup;
+import io.smallrye.metrics.app.CounterImpl;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightGroupTest {
+
+    private static final int CALLERS = 8;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Counter loadCounter;
+
+    private Counter coalesced;
+
+    private SingleFlightGroup<String> group;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        this.loadCounter = new CounterImpl();
+        this.coalesced = new CounterImpl();
+        this.group = new SingleFlightGroup<>(loadCounter, coalesced);
+        this.executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentLoadsShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> group.load(1L, id -> {
+                loads.incrementAndGet();
+                await(release);
+                return "question " + id;
+            })));
+        }
+
+        waitUntilCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("question 1");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(loadCounter.getCount()).isEqualTo(1L);
+        assertThat(coalesced.getCount()).isEqualTo(CALLERS - 1L);
+        assertThat(group.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExceptionIsPassedToWaitingCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> group.load(1L, id -> {
+            await(release);
+            throw new IllegalStateException("not found");
+        }));
+        waitUntilInFlight();
+
+        Future<String> follower = executor.submit(() -> group.load(1L, id -> "loaded again"));
+        waitUntilCoalesced(1);
+        release.countDown();
+
+        assertThatIllegalStateException().isThrownBy(() -> unwrap(leader)).withMessage("not found");
+        assertThatIllegalStateException().isThrownBy(() -> unwrap(follower)).withMessage("not found");
+        assertThat(group.inFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void testErrorIsPassedToWaitingCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> group.load(1L, id -> {
+            await(release);
+            throw new StackOverflowError("too deep");
+        }));
+        waitUntilInFlight();
+
+        Future<String> follower = executor.submit(() -> group.load(1L, id -> "loaded again"));
+        waitUntilCoalesced(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        assertThat(group.inFlight()).isEqualTo(0);
+        assertThat(group.load(1L, id -> "loaded again")).isEqualTo("loaded again");
+    }
+
+    @Test
+    public void testSequentialLoadsAreNotShared() {
+        group.load(1L, id -> "first " + loads.incrementAndGet());
+
+        assertThat(group.load(1L, id -> "second " + loads.incrementAndGet())).isEqualTo("second 2");
+        assertThat(coalesced.getCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void testLoadAfterForgetStartsNewFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> stale = executor.submit(() -> group.load(1L, id -> {
+            await(release);
+            return "before write";
+        }));
+        waitUntilInFlight();
+
+        group.forget(1L);
+        assertThat(group.load(1L, id -> "after write")).isEqualTo("after write");
+
+        release.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("before write");
+        assertThat(coalesced.getCount()).isEqualTo(0L);
+        assertThat(group.inFlight()).isEqualTo(0);
+    }
+
+    private void waitUntilInFlight() throws InterruptedException {
+        while (group.inFlight() == 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void waitUntilCoalesced(final long callers) throws InterruptedException {
+        while (coalesced.getCount() < callers) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String unwrap(final Future<String> future) throws Exception {
+        try {
+            return future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.helper;
+
+import de.maxwell.qa.infrastructure.helper.CommittedChanges;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommittedChangesTest {
+
+    private TestRegistry registry;
+
+    private CommittedChanges<Map<Long, Long>> changes;
+
+    /**
+     * Rows of the database by id
+     */
+    private NavigableMap<Long, Long> database;
+
+    @BeforeEach
+    public void setUp() {
+        this.registry = new TestRegistry();
+        this.changes = new CommittedChanges<>(registry, new HashMap<>());
+        this.database = new TreeMap<>();
+    }
+
+    @Test
+    public void testChangesAreAppliedOnCommit() {
+        registry.begin();
+        changes.afterCommit(1L, counts -> counts.merge(1L, 1L, Long::sum));
+        changes.afterCommit(2L, counts -> counts.merge(2L, 1L, Long::sum));
+
+        assertThat(changes.current()).isEmpty();
+
+        registry.complete(Status.STATUS_COMMITTED);
+
+        assertThat(changes.current()).containsEntry(1L, 1L).containsEntry(2L, 1L);
+        assertThat(registry.synchronizations).hasSize(1);
+    }
+
+    @Test
+    public void testChangesAreDroppedOnRollback() {
+        registry.begin();
+        changes.afterCommit(1L, counts -> counts.merge(1L, 1L, Long::sum));
+        registry.complete(Status.STATUS_ROLLEDBACK);
+
+        assertThat(changes.current()).isEmpty();
+    }
+
+    @Test
+    public void testChangeWithoutTransactionIsAppliedRightAway() {
+        changes.afterCommit(1L, counts -> counts.merge(1L, 1L, Long::sum));
+
+        assertThat(changes.current()).containsEntry(1L, 1L);
+    }
+
+    @Test
+    public void testRebuildReplaysOnlyChangesAfterTheBatchOfTheirRow() {
+        database.put(1L, 10L);
+        database.put(2L, 20L);
+        database.put(3L, 30L);
+
+        Map<Long, Long> rebuilt = new HashMap<>();
+        changes.rebuild(rebuilt, 2, this::batch, (counts, row) -> {
+            counts.put((Long) row[0], (Long) row[1]);
+
+            // committed after the first batch was read and before the second one
+            if ((Long) row[0] == 2L) {
+                view(1L);
+                view(3L);
+            }
+        });
+
+        assertThat(changes.current()).isSameAs(rebuilt);
+        assertThat(rebuilt).containsEntry(1L, 11L).containsEntry(2L, 20L).containsEntry(3L, 31L);
+    }
+
+    @Test
+    public void testChangesAfterTheRebuildGoToTheRebuiltStructure() {
+        database.put(1L, 10L);
+
+        changes.rebuild(new HashMap<>(), 2, this::batch, (counts, row) -> counts.put((Long) row[0], (Long) row[1]));
+        view(1L);
+
+        assertThat(changes.current()).containsEntry(1L, 11L);
+    }
+
+    private void view(final long id) {
+        database.merge(id, 1L, Long::sum);
+        changes.afterCommit(id, counts -> counts.merge(id, 1L, Long::sum));
+    }
+
+    private List<Object[]> batch(final long last) {
+        return database.tailMap(last, false)
+                .entrySet()
+                .stream()
+                .limit(2)
+                .map(row -> new Object[]{row.getKey(), row.getValue()})
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Registry of a single transaction at a time, completed by the test
+     */
+    private static final class TestRegistry implements TransactionSynchronizationRegistry {
+
+        private final Map<Object, Object> resources = new HashMap<>();
+
+        private final List<Synchronization> synchronizations = new ArrayList<>();
+
+        private int status = Status.STATUS_NO_TRANSACTION;
+
+        private void begin() {
+            status = Status.STATUS_ACTIVE;
+        }
+
+        private void complete(final int completion) {
+            synchronizations.forEach(Synchronization::beforeCompletion);
+            status = completion;
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(completion));
+            status = Status.STATUS_NO_TRANSACTION;
+            resources.clear();
+        }
+
+        @Override
+        public Object getTransactionKey() {
+            return status == Status.STATUS_NO_TRANSACTION ? null : this;
+        }
+
+        @Override
+        public void putResource(final Object key, final Object value) {
+            resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(final Object key) {
+            return resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(final Synchronization synchronization) {
+            synchronizations.add(synchronization);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return status;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.image;
+
+import de.maxwell.qa.infrastructure.image.Thumbnailer;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class ThumbnailerTest {
+
+    @Test
+    public void testThumbnailIsSquarePng() throws IOException {
+        Optional<byte[]> thumbnail = Thumbnailer.thumbnail(new ByteArrayInputStream(image(300, 200, "png")), 64);
+
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(thumbnail.get()));
+        assertThat(read.getWidth()).isEqualTo(64);
+        assertThat(read.getHeight()).isEqualTo(64);
+        assertThat(thumbnail.get()).startsWith(0x89, 'P', 'N', 'G');
+    }
+
+    @Test
+    public void testCenterIsKept() throws IOException {
+        // red stripes left and right, blue center square
+        BufferedImage image = new BufferedImage(400, 100, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 400; x++) {
+            for (int y = 0; y < 100; y++) {
+                image.setRGB(x, y, x >= 150 && x < 250 ? Color.BLUE.getRGB() : Color.RED.getRGB());
+            }
+        }
+
+        BufferedImage read = ImageIO.read(new ByteArrayInputStream(
+                Thumbnailer.thumbnail(new ByteArrayInputStream(encode(image, "png")), 32).get()));
+
+        assertThat(read.getRGB(0, 16)).isEqualTo(Color.BLUE.getRGB());
+        assertThat(read.getRGB(31, 16)).isEqualTo(Color.BLUE.getRGB());
+    }
+
+    @Test
+    public void testSmallImageIsScaledUp() throws IOException {
+        Optional<byte[]> thumbnail = Thumbnailer.thumbnail(new ByteArrayInputStream(image(10, 20, "jpg")), 128);
+
+        assertThat(ImageIO.read(new ByteArrayInputStream(thumbnail.get())).getWidth()).isEqualTo(128);
+    }
+
+    @Test
+    public void testUnreadableImage() throws IOException {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3, 4};
+
+        assertThat(Thumbnailer.thumbnail(new ByteArrayInputStream(png), 64)).isEmpty();
+        assertThatIllegalArgumentException().isThrownBy(() -> Thumbnailer.thumbnail(new ByteArrayInputStream(png), 0));
+    }
+
+    @Test
+    public void testImageDeclaringTooManyPixelsIsNotDecoded() throws IOException {
+        byte[] png = image(1, 1, "png");
+        // IHDR is the first chunk: length, type, width, height, ..., CRC of type and data
+        ByteBuffer header = ByteBuffer.wrap(png);
+        header.putInt(16, 30_000);
+        header.putInt(20, 30_000);
+        CRC32 crc = new CRC32();
+        crc.update(png, 12, 17);
+        header.putInt(29, (int) crc.getValue());
+
+        assertThat(Thumbnailer.thumbnail(new ByteArrayInputStream(png), 64)).isEmpty();
+    }
+
+    private static byte[] image(final int width, final int height, final String format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        return encode(image, format);
+    }
+
+    private static byte[] encode(final BufferedImage image, final String format) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, format, bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.logging;
+
+import de.maxwell.qa.infrastructure.logging.AsyncLogWriter;
+import io.smallrye.metrics.app.CounterImpl;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class AsyncLogWriterTest {
+
+    private final List<String> written = new ArrayList<>();
+
+    private Counter dropped;
+
+    private AsyncLogWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        this.dropped = new CounterImpl();
+        this.writer = new AsyncLogWriter(2, dropped);
+    }
+
+    @Test
+    public void testQueuedLinesAreWrittenInOrder() {
+        Logger logger = recordingLogger();
+
+        assertThat(writer.submit(logger, "first")).isTrue();
+        assertThat(writer.submit(logger, "second")).isTrue();
+        assertThat(written).isEmpty();
+
+        writer.drain();
+
+        assertThat(written).containsExactly("first", "second");
+    }
+
+    @Test
+    public void testFullQueueDrops() {
+        Logger logger = recordingLogger();
+
+        writer.submit(logger, "first");
+        writer.submit(logger, "second");
+
+        assertThat(writer.submit(logger, "third")).isFalse();
+        assertThat(dropped.getCount()).isEqualTo(1L);
+
+        writer.drain();
+
+        assertThat(written).containsExactly("first", "second");
+        assertThat(writer.submit(logger, "fourth")).isTrue();
+    }
+
+    @Test
+    public void testCapacityMustBePositive() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new AsyncLogWriter(0, dropped));
+    }
+
+    /**
+     * Logger which records the lines written with info(String), the only method the writer uses
+     */
+    private Logger recordingLogger() {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class}, (proxy, method, arguments) -> {
+            if (method.getName().equals("info") && arguments.length == 1) {
+                written.add((String) arguments[0]);
+            }
+            return null;
+        });
+    }
+}
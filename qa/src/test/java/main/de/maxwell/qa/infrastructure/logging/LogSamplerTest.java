@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.logging;
+
+import de.maxwell.qa.infrastructure.logging.LogSampler;
+import io.smallrye.metrics.app.CounterImpl;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class LogSamplerTest {
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    private Counter dropped;
+
+    private LogSampler sampler;
+
+    @BeforeEach
+    public void setUp() {
+        this.dropped = new CounterImpl();
+        this.sampler = new LogSampler(3, ticker::get, dropped);
+    }
+
+    @Test
+    public void testLinesBeyondRateAreDropped() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(sampler.tryAcquire()).isTrue();
+        }
+        assertThat(sampler.tryAcquire()).isFalse();
+        assertThat(sampler.tryAcquire()).isFalse();
+
+        assertThat(dropped.getCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testNextSecondPassesAgain() {
+        for (int i = 0; i < 4; i++) {
+            sampler.tryAcquire();
+        }
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(sampler.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void testTakeSuppressedResets() {
+        for (int i = 0; i < 5; i++) {
+            sampler.tryAcquire();
+        }
+
+        assertThat(sampler.takeSuppressed()).isEqualTo(2L);
+        assertThat(sampler.takeSuppressed()).isEqualTo(0L);
+        assertThat(dropped.getCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testNegativeTicker() {
+        ticker.set(-1L);
+
+        assertThat(sampler.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void testRateMustBePositive() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new LogSampler(0, ticker::get, dropped));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.metrics;
+
+import de.maxwell.qa.application.answer.AnswerResource;
+import de.maxwell.qa.application.question.QuestionResource;
+import de.maxwell.qa.infrastructure.metrics.RouteTemplate;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+public class RouteTemplateTest {
+
+    @Test
+    public void testMethodWithoutPath() throws NoSuchMethodException {
+        assertThat(RouteTemplate.of(QuestionResource.class.getMethod("listQuestionsPaginated", Integer.class, Integer.class, String.class, String.class)))
+                .isEqualTo("/question");
+    }
+
+    @Test
+    public void testMethodWithPathKeepsParameters() throws NoSuchMethodException {
+        assertThat(RouteTemplate.of(QuestionResource.class.getMethod("getThread", Long.class)))
+                .isEqualTo("/question/{id}/thread");
+        assertThat(RouteTemplate.of(AnswerResource.class.getMethod("getAnswer", Long.class)))
+                .isEqualTo("/answer/{id}");
+    }
+
+    @Test
+    public void testMethodOutsideOfResource() throws NoSuchMethodException {
+        assertThatNullPointerException().isThrownBy(() -> RouteTemplate.of(Object.class.getMethod("toString")));
+    }
+
+    @Test
+    public void testNullMethod() {
+        assertThatNullPointerException().isThrownBy(() -> RouteTemplate.of(null));
+    }
+}
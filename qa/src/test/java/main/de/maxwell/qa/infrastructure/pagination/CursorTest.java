@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.pagination;
+
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+public class CursorTest {
+
+    @Test
+    public void testEncodeDecode() {
+        LocalDateTime createdAt = LocalDateTime.of(2020, 3, 1, 12, 30, 15, 123456000);
+
+        Cursor cursor = Cursor.decode(new Cursor(createdAt, 42L).encode());
+
+        assertThat(cursor.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(cursor.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    public void testEncodeIsUrlSafe() {
+        String encoded = new Cursor(LocalDateTime.now(), Long.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    public void testDecodeEmptyStartsAtFirstElement() {
+        assertThat(Cursor.decode(null)).isNull();
+        assertThat(Cursor.decode("")).isNull();
+    }
+
+    @Test
+    public void testDecodeShouldFailForInvalidBase64() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursor.decode("not a cursor!"));
+    }
+
+    @Test
+    public void testDecodeShouldFailForInvalidContent() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursor.decode("dGVzdA"));
+        assertThatIllegalArgumentException().isThrownBy(() -> Cursor.decode("dGVzdHwx"));
+    }
+
+    @Test
+    public void testCursorShouldFailForNullId() {
+        assertThatNullPointerException().isThrownBy(() -> new Cursor(LocalDateTime.now(), null));
+    }
+
+    @Test
+    public void testCursorShouldFailForNullCreatedAt() {
+        assertThatNullPointerException().isThrownBy(() -> new Cursor(null, 1L));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.pagination;
+
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class PageTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2020, 3, 1, 12, 0);
+
+    @Test
+    public void testLastPage() {
+        Page<Long> page = Page.of(Arrays.asList(1L, 2L), 2, id -> new Cursor(CREATED_AT, id));
+
+        assertThat(page.getItems()).containsExactly(1L, 2L);
+        assertThat(page.getNext()).isNull();
+    }
+
+    @Test
+    public void testPageWithNext() {
+        Page<Long> page = Page.of(Arrays.asList(1L, 2L, 3L), 2, id -> new Cursor(CREATED_AT, id));
+
+        assertThat(page.getItems()).containsExactly(1L, 2L);
+        assertThat(Cursor.decode(page.getNext()).getId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testEmptyPage() {
+        Page<Long> page = Page.of(Collections.emptyList(), 2, id -> new Cursor(CREATED_AT, id));
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNext()).isNull();
+    }
+
+    @Test
+    public void testPageShouldFailForZeroLimit() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Page.of(Collections.singletonList(1L), 0, id -> new Cursor(CREATED_AT, id)));
+    }
+}
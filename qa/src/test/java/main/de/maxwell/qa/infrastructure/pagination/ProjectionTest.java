@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.pagination;
+
+import de.maxwell.qa.domain.profile.Profile;
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.infrastructure.pagination.Projection;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+public class ProjectionTest {
+
+    @Test
+    public void testIdIsAlwaysFirst() {
+        assertThat(Projection.of(Question.class, "title,createdAt").getFields()).containsExactly("id", "title", "createdAt");
+        assertThat(Projection.of(Question.class, "views, id").getFields()).containsExactly("id", "views");
+    }
+
+    @Test
+    public void testFieldsAreSelectedOnce() {
+        assertThat(Projection.of(Profile.class, "firstName,firstName").getFields()).containsExactly("id", "firstName");
+    }
+
+    @Test
+    public void testOnlyColumnsAreFields() {
+        assertThatIllegalArgumentException().isThrownBy(() -> Projection.of(Question.class, "title,password"));
+        assertThatIllegalArgumentException().isThrownBy(() -> Projection.of(Question.class, "Title"));
+        assertThatIllegalArgumentException().isThrownBy(() -> Projection.of(Question.class, "title,,views"));
+        assertThatIllegalArgumentException().isThrownBy(() -> Projection.of(Question.class, " "));
+        assertThatNullPointerException().isThrownBy(() -> Projection.of(Question.class, null));
+    }
+}
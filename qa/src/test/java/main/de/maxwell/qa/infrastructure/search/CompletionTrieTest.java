@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.search;
+
+import de.maxwell.qa.infrastructure.search.CompletionTrie;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class CompletionTrieTest {
+
+    private CompletionTrie trie;
+
+    @BeforeEach
+    public void setUp() {
+        this.trie = new CompletionTrie();
+    }
+
+    @Test
+    public void testHeaviestCompletionsFirst() {
+        trie.put(1L, "Java streams", 5L);
+        trie.put(2L, "Java lists", 50L);
+        trie.put(3L, "JavaScript promises", 20L);
+        trie.put(4L, "Python lists", 100L);
+
+        assertThat(ids("jav")).containsExactly(2L, 3L, 1L);
+        assertThat(ids("java", 2)).containsExactly(2L, 3L);
+        assertThat(ids("p")).containsExactly(4L);
+        assertThat(ids("rust")).isEmpty();
+    }
+
+    @Test
+    public void testTitlesAreNormalized() {
+        trie.put(1L, "How do I use   C++ streams?", 1L);
+
+        assertThat(ids("HOW DO i")).containsExactly(1L);
+        assertThat(ids("how do i use c str")).containsExactly(1L);
+    }
+
+    @Test
+    public void testTrailingSeparatorCompletesWholeWords() {
+        trie.put(1L, "Java streams", 1L);
+        trie.put(2L, "JavaScript promises", 2L);
+
+        assertThat(ids("java ")).containsExactly(1L);
+        assertThat(ids("java")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void testPrefixEndingWithinAnEdge() {
+        trie.put(1L, "abcdef", 1L);
+        trie.put(2L, "abcxyz", 2L);
+
+        assertThat(ids("abcd")).containsExactly(1L);
+        assertThat(ids("abx")).isEmpty();
+        assertThat(ids("abcdefg")).isEmpty();
+    }
+
+    @Test
+    public void testSameTitleTwice() {
+        trie.put(1L, "Java", 1L);
+        trie.put(2L, "Java", 2L);
+
+        assertThat(ids("java")).containsExactly(2L, 1L);
+
+        trie.remove(2L);
+        assertThat(ids("java")).containsExactly(1L);
+    }
+
+    @Test
+    public void testPutReplacesTitleAndWeight() {
+        trie.put(1L, "Java", 1L);
+        trie.put(2L, "Java streams", 2L);
+        trie.put(1L, "Kotlin", 3L);
+
+        assertThat(ids("java")).containsExactly(2L);
+        assertThat(ids("kotlin")).containsExactly(1L);
+        assertThat(trie.size()).isEqualTo(2);
+
+        trie.put(2L, "Java streams", 0L);
+        assertThat(trie.complete("java", 1).get(0).getScore()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testAdjustReorders() {
+        trie.put(1L, "Java streams", 5L);
+        trie.put(2L, "Java lists", 3L);
+
+        assertThat(trie.adjust(2L, 10L)).isTrue();
+        assertThat(trie.adjust(3L, 10L)).isFalse();
+        assertThat(ids("java")).containsExactly(2L, 1L);
+
+        trie.adjust(2L, -20L);
+        assertThat(ids("java")).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void testRemoveKeepsOtherCompletions() {
+        trie.put(1L, "abc", 1L);
+        trie.put(2L, "abcdef", 2L);
+        trie.put(3L, "abxyz", 3L);
+
+        assertThat(trie.remove(1L)).isTrue();
+        assertThat(trie.remove(1L)).isFalse();
+
+        assertThat(ids("abc")).containsExactly(2L);
+        assertThat(ids("ab")).containsExactly(3L, 2L);
+        assertThat(trie.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(7);
+        Map<Long, String> titles = new HashMap<>();
+        Map<Long, Long> weights = new HashMap<>();
+
+        for (int operation = 0; operation < 5_000; operation++) {
+            long id = random.nextInt(300);
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                String title = word(random) + " " + word(random);
+                long weight = random.nextInt(1_000) - 100;
+                trie.put(id, title, weight);
+                titles.put(id, title);
+                weights.put(id, weight);
+            } else if (kind < 8) {
+                long delta = random.nextInt(200) - 100;
+                boolean known = trie.adjust(id, delta);
+                assertThat(known).isEqualTo(titles.containsKey(id));
+                weights.computeIfPresent(id, (key, weight) -> weight + delta);
+            } else {
+                assertThat(trie.remove(id)).isEqualTo(titles.remove(id) != null);
+                weights.remove(id);
+            }
+
+            if (operation % 50 == 0) {
+                String prefix = word(random).substring(0, 1 + random.nextInt(2));
+                List<Long> expected = titles.entrySet()
+                        .stream()
+                        .filter(entry -> entry.getValue().startsWith(prefix))
+                        .map(entry -> weights.get(entry.getKey()))
+                        .sorted(Comparator.reverseOrder())
+                        .limit(5)
+                        .collect(Collectors.toList());
+
+                List<Long> actual = new ArrayList<>();
+                for (SearchHit hit : trie.complete(prefix, 5)) {
+                    assertThat(titles.get(hit.getId())).startsWith(prefix);
+                    actual.add((long) hit.getScore());
+                }
+                assertThat(actual).isEqualTo(expected);
+            }
+        }
+        assertThat(trie.size()).isEqualTo(titles.size());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> trie.complete("java", 0));
+    }
+
+    private List<Long> ids(final String prefix) {
+        return ids(prefix, 10);
+    }
+
+    private List<Long> ids(final String prefix, final int limit) {
+        return trie.complete(prefix, limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static String word(final Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 2 + random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.search;
+
+import de.maxwell.qa.infrastructure.search.DecayingTopK;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.within;
+
+public class DecayingTopKTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private long now;
+
+    private DecayingTopK ranking;
+
+    @BeforeEach
+    public void setUp() {
+        this.now = 1_000_000_000L;
+        this.ranking = new DecayingTopK(Duration.ofHours(1), 3, () -> now);
+    }
+
+    @Test
+    public void testHighestWeightFirst() {
+        ranking.add(1L, 10.0);
+        ranking.add(2L, 30.0);
+        ranking.add(3L, 20.0);
+        ranking.add(1L, 15.0);
+
+        assertThat(ids(10)).containsExactly(2L, 1L, 3L);
+        assertThat(ids(1)).containsExactly(2L);
+        assertThat(ranking.top(1).get(0).getScore()).isEqualTo(30.0, within(1e-9));
+    }
+
+    @Test
+    public void testWeightsHalveEveryHalfLife() {
+        ranking.add(1L, 100.0);
+        now += HOUR;
+        ranking.add(2L, 60.0);
+
+        assertThat(ranking.score(1L)).isEqualTo(50.0, within(1e-9));
+        assertThat(ids(10)).containsExactly(2L, 1L);
+
+        ranking.add(3L, 100.0, now - 2 * HOUR);
+        assertThat(ranking.score(3L)).isEqualTo(25.0, within(1e-9));
+        assertThat(ranking.score(4L)).isZero();
+    }
+
+    @Test
+    public void testFutureTimeCountsAsNow() {
+        ranking.add(1L, 10.0, now + 10 * HOUR);
+        ranking.add(2L, 20.0);
+
+        assertThat(ranking.score(1L)).isEqualTo(10.0, within(1e-9));
+        assertThat(ids(10)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void testOnlyTheBestAreKept() {
+        ranking.add(1L, 10.0);
+        ranking.add(2L, 20.0);
+        ranking.add(3L, 30.0);
+        ranking.add(4L, 5.0);
+
+        assertThat(ids(10)).containsExactly(3L, 2L, 1L);
+        assertThat(ranking.size()).isEqualTo(4);
+
+        // the score of the unranked id is kept, so a little more weight ranks it
+        ranking.add(4L, 10.0);
+        assertThat(ids(10)).containsExactly(3L, 2L, 4L);
+    }
+
+    @Test
+    public void testNegativeWeightMovesDown() {
+        ranking.add(1L, 10.0);
+        ranking.add(2L, 20.0);
+        ranking.add(2L, -15.0);
+
+        assertThat(ids(10)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void testRemove() {
+        ranking.add(1L, 10.0);
+        ranking.add(2L, 20.0);
+
+        assertThat(ranking.remove(2L)).isTrue();
+        assertThat(ranking.remove(2L)).isFalse();
+        assertThat(ids(10)).containsExactly(1L);
+        assertThat(ranking.score(2L)).isZero();
+
+        ranking.add(3L, 5.0);
+        assertThat(ids(10)).containsExactly(1L, 3L);
+        assertThat(ranking.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testScoresStayFiniteOverLongTimes() {
+        ranking.add(1L, 10.0);
+        for (int day = 0; day < 100; day++) {
+            now += 24 * HOUR;
+            ranking.add(2L, 1.0);
+        }
+        ranking.add(3L, 1.0);
+
+        assertThat(ranking.score(2L)).isEqualTo(1.0, within(1e-6));
+        assertThat(ranking.score(1L)).isZero();
+        assertThat(ids(10)).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        ranking = new DecayingTopK(Duration.ofHours(1), 1_000, () -> now);
+        Map<Long, Double> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            now += random.nextInt(60_000);
+            long id = random.nextInt(200);
+            if (random.nextInt(20) == 0) {
+                ranking.remove(id);
+                expected.remove(id);
+            } else {
+                double weight = random.nextInt(10) - 2;
+                ranking.add(id, weight);
+                expected.merge(id, weight * Math.pow(2, now / (double) HOUR), Double::sum);
+            }
+        }
+
+        List<Long> brute = expected.entrySet()
+                .stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(20)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        assertThat(ids(20)).isEqualTo(brute);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new DecayingTopK(Duration.ZERO, 10));
+        assertThatIllegalArgumentException().isThrownBy(() -> new DecayingTopK(Duration.ofHours(1), 0));
+        assertThatIllegalArgumentException().isThrownBy(() -> ranking.top(0));
+    }
+
+    private List<Long> ids(final int limit) {
+        return ranking.top(limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.search;
+
+import de.maxwell.qa.infrastructure.search.InvertedIndex;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class InvertedIndexTest {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = new InvertedIndex(2, 1);
+    }
+
+    @Test
+    public void testFindsDocumentsContainingAnyTerm() {
+        index.put(1L, "Java streams", "How do I collect a stream?");
+        index.put(2L, "Python lists", "How do I sort a list?");
+        index.put(3L, "Kotlin", "Is it like Java?");
+
+        assertThat(ids("java")).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(ids("python kotlin")).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(ids("rust")).isEmpty();
+    }
+
+    @Test
+    public void testTitleCountsMoreThanDescription() {
+        index.put(1L, "Sorting", "Use java for it");
+        index.put(2L, "Java", "Sorting");
+
+        assertThat(ids("java")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void testRareTermsCountMore() {
+        index.put(1L, "common rare", "");
+        index.put(2L, "common", "");
+        index.put(3L, "common", "");
+        index.put(4L, "common other", "");
+
+        assertThat(ids("common rare").get(0)).isEqualTo(1L);
+    }
+
+    @Test
+    public void testShorterDocumentsRankHigher() {
+        index.put(1L, "java", "one two three four five six seven eight nine ten");
+        index.put(2L, "java", "one");
+
+        assertThat(ids("java")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void testPrefixQuery() {
+        index.put(1L, "Streaming data", "");
+        index.put(2L, "Stream API", "");
+        index.put(3L, "Strings", "");
+
+        assertThat(ids("stream*")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids("str*")).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(ids("stream")).containsExactly(2L);
+    }
+
+    @Test
+    public void testPutReplacesPreviousVersion() {
+        index.put(1L, "Java", "");
+        index.put(1L, "Python", "");
+
+        assertThat(ids("java")).isEmpty();
+        assertThat(ids("python")).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRemove() {
+        index.put(1L, "Java", "");
+
+        assertThat(index.remove(1L)).isTrue();
+        assertThat(index.remove(1L)).isFalse();
+        assertThat(ids("java")).isEmpty();
+        assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCompactionKeepsLiveDocuments() {
+        for (long id = 1; id <= 300; id++) {
+            index.put(id, "question " + id, id % 2 == 0 ? "even" : "odd");
+        }
+        for (long id = 1; id <= 250; id++) {
+            index.remove(id);
+        }
+        index.put(7L, "question 7", "odd again");
+
+        assertThat(index.size()).isEqualTo(51);
+        assertThat(ids("even", 100)).hasSize(25).allMatch(id -> id > 250 && id % 2 == 0);
+        assertThat(ids("odd", 100)).hasSize(26).contains(7L);
+        assertThat(ids("299")).containsExactly(299L);
+    }
+
+    @Test
+    public void testLimit() {
+        for (long id = 1; id <= 10; id++) {
+            index.put(id, "java", "");
+        }
+
+        List<SearchHit> hits = index.search("java", 3);
+
+        assertThat(hits).hasSize(3);
+        assertThat(hits).isSortedAccordingTo((a, b) -> Double.compare(b.getScore(), a.getScore()));
+    }
+
+    @Test
+    public void testQueryWithoutTerms() {
+        index.put(1L, "java", "");
+
+        assertThat(ids(" ?! ")).isEmpty();
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> index.search("java", 0));
+        assertThatIllegalArgumentException().isThrownBy(() -> index.put(1L, "only title"));
+        assertThatIllegalArgumentException().isThrownBy(() -> new InvertedIndex(1, 0));
+    }
+
+    private List<Long> ids(final String query) {
+        return ids(query, 10);
+    }
+
+    private List<Long> ids(final String query, final int limit) {
+        return index.search(query, limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+}
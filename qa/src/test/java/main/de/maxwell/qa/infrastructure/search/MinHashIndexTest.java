@@ -0,0 +1,211 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.search;
+
+import de.maxwell.qa.infrastructure.search.MinHashIndex;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+public class MinHashIndexTest {
+
+    private static final String QUESTION = "How do I sort a list of maps by a value of the map in Java 8 with streams "
+            + "and a comparator, without copying the list first";
+
+    private MinHashIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        this.index = new MinHashIndex();
+    }
+
+    @Test
+    public void testNearDuplicatesAreFound() {
+        index.put(1L, QUESTION);
+        index.put(2L, QUESTION.replace("Java 8", "Java 11"));
+        index.put(3L, "Why does my Python script print None after the loop over the dictionary finishes");
+
+        assertThat(ids(index.similar(QUESTION, 10, 0.5))).containsExactly(1L, 2L);
+        assertThat(ids(index.similar("Unrelated words about cooking pasta with tomatoes", 10, 0.5))).isEmpty();
+    }
+
+    @Test
+    public void testSimilarToIdLeavesOutTheId() {
+        index.put(1L, QUESTION);
+        index.put(2L, QUESTION + " please");
+
+        List<SearchHit> hits = index.similar(1L, 10, 0.5);
+
+        assertThat(ids(hits)).containsExactly(2L);
+        assertThat(hits.get(0).getScore()).isBetween(0.7, 1.0);
+        assertThat(index.similar(3L, 10, 0.5)).isEmpty();
+    }
+
+    @Test
+    public void testPutReplacesAndRemoveDrops() {
+        index.put(1L, QUESTION);
+        index.put(2L, QUESTION);
+        index.put(2L, "Something entirely different about databases and their indexes");
+
+        assertThat(ids(index.similar(1L, 10, 0.5))).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+
+        index.put(3L, QUESTION);
+        assertThat(index.remove(3L)).isTrue();
+        assertThat(index.remove(3L)).isFalse();
+
+        assertThat(ids(index.similar(QUESTION, 10, 0.5))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testTextsWithoutWordsAreNotIndexed() {
+        index.put(1L, " ?! ");
+        index.put(2L, null);
+
+        assertThat(index.size()).isZero();
+        assertThat(index.similar("", 10, 0.0)).isEmpty();
+    }
+
+    @Test
+    public void testCompactKeepsTheLiveTexts() {
+        for (long id = 1; id <= 100; id++) {
+            index.put(id, text(new Random(id), 30));
+        }
+        index.put(101L, QUESTION);
+        for (long id = 1; id <= 100; id += 2) {
+            index.remove(id);
+        }
+
+        index.compact();
+
+        assertThat(index.size()).isEqualTo(51);
+        assertThat(ids(index.similar(QUESTION, 10, 0.9))).containsExactly(101L);
+        assertThat(ids(index.similar(text(new Random(2), 30), 10, 0.9))).containsExactly(2L);
+        assertThat(index.similar(text(new Random(1), 30), 10, 0.9)).isEmpty();
+    }
+
+    @Test
+    public void testLimitKeepsTheMostSimilar() {
+        String[] words = QUESTION.split(" ");
+        for (int text = 0; text < 5; text++) {
+            StringBuilder changed = new StringBuilder();
+            for (int i = 0; i < words.length; i++) {
+                changed.append(i < 3 * text ? "other" + i : words[i]).append(' ');
+            }
+            index.put(text, changed.toString());
+        }
+
+        assertThat(ids(index.similar(QUESTION, 2, 0.0))).containsExactly(0L, 1L);
+        assertThatIllegalArgumentException().isThrownBy(() -> index.similar(QUESTION, 0, 0.5));
+    }
+
+    @Test
+    public void testEstimateIsCloseToTheJaccardSimilarity() {
+        Random random = new Random(42);
+        double error = 0.0;
+        int found = 0;
+
+        for (int pair = 0; pair < 200; pair++) {
+            index = new MinHashIndex();
+            List<String> words = words(random, 60);
+            List<String> changed = new ArrayList<>(words);
+            int changes = random.nextInt(10);
+            for (int i = 0; i < changes; i++) {
+                changed.set(random.nextInt(changed.size()), "changed" + random.nextInt(1000));
+            }
+            double jaccard = jaccard(pairs(words), pairs(changed));
+
+            index.put(1L, String.join(" ", words));
+            List<SearchHit> hits = index.similar(String.join(" ", changed), 1, 0.0);
+
+            if (jaccard >= 0.8) {
+                assertThat(hits).hasSize(1);
+            }
+            if (!hits.isEmpty()) {
+                error += Math.abs(hits.get(0).getScore() - jaccard);
+                found++;
+            }
+        }
+
+        assertThat(error / found).isLessThan(0.1);
+    }
+
+    @Test
+    public void testGrowsBeyondTheInitialCapacity() {
+        for (long id = 1; id <= 10_000; id++) {
+            index.put(id, text(new Random(id), 20));
+        }
+
+        assertThat(index.size()).isEqualTo(10_000);
+        for (long id = 1; id <= 10_000; id += 997) {
+            assertThat(ids(index.similar(text(new Random(id), 20), 1, 0.9))).containsExactly(id);
+        }
+    }
+
+    private static List<Long> ids(final List<SearchHit> hits) {
+        return hits.stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static String text(final Random random, final int length) {
+        return String.join(" ", words(random, length));
+    }
+
+    private static List<String> words(final Random random, final int length) {
+        List<String> words = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            words.add("word" + random.nextInt(500));
+        }
+        return words;
+    }
+
+    private static Set<String> pairs(final List<String> words) {
+        Set<String> pairs = new HashSet<>();
+        for (int i = 1; i < words.size(); i++) {
+            pairs.add(words.get(i - 1) + " " + words.get(i));
+        }
+        return pairs;
+    }
+
+    private static double jaccard(final Set<String> a, final Set<String> b) {
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return intersection.size() / (double) union.size();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.search;
+
+import de.maxwell.qa.infrastructure.search.InvertedIndex;
+import de.maxwell.qa.infrastructure.search.SearchHit;
+import de.maxwell.qa.infrastructure.search.SegmentedIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SegmentedIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testSearchesSegmentsAndBuffer() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 3, 2, 1)) {
+            for (long id = 1; id <= 7; id++) {
+                index.put(id, "question " + id, id % 2 == 0 ? "even" : "odd");
+            }
+
+            assertThat(index.segments()).isEqualTo(2);
+            assertThat(index.size()).isEqualTo(7);
+            assertThat(ids(index, "even")).containsExactlyInAnyOrder(2L, 4L, 6L);
+            assertThat(ids(index, "7 odd", 1)).containsExactly(7L);
+        }
+    }
+
+    @Test
+    public void testRanksLikeTheInMemoryIndex() throws IOException {
+        InvertedIndex expected = new InvertedIndex(2, 1);
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 4, 2, 1)) {
+            for (long id = 1; id <= 30; id++) {
+                String title = "title " + (id % 3 == 0 ? "java" : "python");
+                String description = id % 5 == 0 ? "java streams and more java" : "lists";
+                expected.put(id, title, description);
+                index.put(id, title, description);
+            }
+
+            assertThat(index.search("java lists", 30)).usingFieldByFieldElementComparator()
+                    .containsExactlyElementsOf(expected.search("java lists", 30));
+        }
+    }
+
+    @Test
+    public void testPutReplacesDocumentOfSegment() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 1, 2, 1)) {
+            index.put(1L, "Java", "");
+            index.put(1L, "Python", "");
+
+            assertThat(ids(index, "java")).isEmpty();
+            assertThat(ids(index, "python")).containsExactly(1L);
+            assertThat(index.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testPrefixQueryOverSegments() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 1, 2, 1)) {
+            index.put(1L, "Streaming data", "");
+            index.put(2L, "Stream API", "");
+            index.put(3L, "Strings", "");
+
+            assertThat(ids(index, "stream*")).containsExactlyInAnyOrder(1L, 2L);
+            assertThat(ids(index, "str*")).containsExactlyInAnyOrder(1L, 2L, 3L);
+        }
+    }
+
+    @Test
+    public void testReopenRestoresSegmentsAndReplaysTheLog() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 3, 2, 1)) {
+            index.put(1L, "Java", "");
+            index.put(2L, "Python", "");
+            index.put(3L, "Kotlin", "");
+            index.put(4L, "Java again", "");
+            index.remove(2L);
+        }
+
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 3, 2, 1)) {
+            assertThat(index.size()).isEqualTo(3);
+            assertThat(index.segments()).isEqualTo(1);
+            assertThat(ids(index, "java")).containsExactlyInAnyOrder(1L, 4L);
+            assertThat(ids(index, "python")).isEmpty();
+        }
+    }
+
+    @Test
+    public void testRemovalsOfSegmentsSurviveAFlush() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 2, 2, 1)) {
+            index.put(1L, "Java", "");
+            index.put(2L, "Python", "");
+            index.remove(1L);
+            index.flush();
+        }
+
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 2, 2, 1)) {
+            assertThat(ids(index, "java")).isEmpty();
+            assertThat(index.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testTornLogRecordIsDropped() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 100, 2, 1)) {
+            index.put(1L, "Java", "");
+        }
+        Files.write(directory.resolve("wal"), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 100, 2, 1)) {
+            assertThat(ids(index, "java")).containsExactly(1L);
+            index.put(2L, "Python", "");
+        }
+
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 100, 2, 1)) {
+            assertThat(index.size()).isEqualTo(2);
+            assertThat(ids(index, "python")).containsExactly(2L);
+        }
+    }
+
+    @Test
+    public void testMergeKeepsLiveDocuments() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 1, 2, 1)) {
+            for (long id = 1; id <= 12; id++) {
+                index.put(id, "question " + id, id % 2 == 0 ? "even" : "odd");
+            }
+            index.remove(2L);
+            index.remove(3L);
+            List<Long> even = ids(index, "even");
+
+            while (index.merge()) {
+                assertThat(index.size()).isEqualTo(10);
+            }
+
+            assertThat(index.segments()).isLessThanOrEqualTo(10);
+            assertThat(segmentFiles()).hasSize(index.segments());
+            assertThat(ids(index, "even")).containsExactlyInAnyOrderElementsOf(even);
+            assertThat(ids(index, "odd")).doesNotContain(3L).hasSize(5);
+        }
+
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 1, 2, 1)) {
+            assertThat(index.size()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    public void testMergeRewritesSegmentWithMostlyRemovedDocuments() throws IOException {
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 4, 2, 1)) {
+            for (long id = 1; id <= 4; id++) {
+                index.put(id, "question " + id, "");
+            }
+            index.remove(1L);
+            index.remove(2L);
+            index.remove(3L);
+            index.flush();
+
+            assertThat(index.merge()).isTrue();
+            assertThat(index.merge()).isFalse();
+            assertThat(index.segments()).isEqualTo(1);
+            assertThat(ids(index, "question")).containsExactly(4L);
+        }
+    }
+
+    @Test
+    public void testUnlistedSegmentsAreDeleted() throws IOException {
+        Files.write(directory.resolve("segment-99.seg"), new byte[]{1, 2, 3});
+
+        try (SegmentedIndex index = SegmentedIndex.open(directory, 1, 2, 1)) {
+            assertThat(index.size()).isEqualTo(0);
+        }
+        assertThat(segmentFiles()).isEmpty();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<Long> ids(final SegmentedIndex index, final String query) {
+        return ids(index, query, 10);
+    }
+
+    private static List<Long> ids(final SegmentedIndex index, final String query, final int limit) {
+        return index.search(query, limit)
+                .stream()
+                .map(SearchHit::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.search;
+
+import de.maxwell.qa.infrastructure.search.Tokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenizerTest {
+
+    @Test
+    public void testSplitsAtNonLetters() {
+        assertThat(Tokenizer.tokenize("How do I use Java-8 streams?")).containsExactly("how", "do", "i", "use", "java", "8", "streams");
+    }
+
+    @Test
+    public void testKeepsNonAsciiLetters() {
+        assertThat(Tokenizer.tokenize("Gr\u00f6\u00dfe \u00fcber \u00c4rger"))
+                .containsExactly("gr\u00f6\u00dfe", "\u00fcber", "\u00e4rger");
+    }
+
+    @Test
+    public void testCutsLongTokens() {
+        assertThat(Tokenizer.tokenize("a" + String.join("", Collections.nCopies(40, "b"))).get(0)).hasSize(32);
+    }
+
+    @Test
+    public void testEmptyAndNull() {
+        assertThat(Tokenizer.tokenize(null)).isEmpty();
+        assertThat(Tokenizer.tokenize(" ?! ")).isEmpty();
+    }
+}
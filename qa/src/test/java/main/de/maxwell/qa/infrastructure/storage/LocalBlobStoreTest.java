@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.infrastructure.storage;
+
+import de.maxwell.qa.infrastructure.storage.Blob;
+import de.maxwell.qa.infrastructure.storage.BlobTooLargeException;
+import de.maxwell.qa.infrastructure.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LocalBlobStoreTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private LocalBlobStore store;
+
+    @BeforeEach
+    public void setUp() {
+        this.store = new LocalBlobStore(directory, MAX_SIZE);
+    }
+
+    @Test
+    public void testHashIsTheSha256OfTheContent() {
+        String hash = store.put(stream("abc"));
+
+        assertThat(hash).isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        assertThat(Files.exists(directory.resolve("ba").resolve(hash))).isTrue();
+    }
+
+    @Test
+    public void testStoredContentIsTransferred() throws IOException {
+        byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+
+        Blob blob = store.find(store.put(new ByteArrayInputStream(content))).get();
+
+        ByteArrayOutputStream transferred = new ByteArrayOutputStream();
+        blob.transferTo(Channels.newChannel(transferred));
+        assertThat(transferred.toByteArray()).isEqualTo(content);
+        assertThat(blob.getSize()).isEqualTo(content.length);
+
+        try (InputStream opened = blob.open()) {
+            assertThat(opened).hasSameContentAs(new ByteArrayInputStream(content));
+        }
+    }
+
+    @Test
+    public void testEqualContentIsStoredOnce() throws IOException {
+        String first = store.put(stream("same"));
+        String second = store.put(stream("same"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(files()).hasSize(1);
+    }
+
+    @Test
+    public void testRemove() {
+        String hash = store.put(stream("removed"));
+
+        assertThat(store.remove(hash)).isTrue();
+        assertThat(store.remove(hash)).isFalse();
+        assertThat(store.find(hash)).isEmpty();
+    }
+
+    @Test
+    public void testTooLargeContentIsNotStored() throws IOException {
+        assertThatThrownBy(() -> store.put(new ByteArrayInputStream(new byte[(int) MAX_SIZE + 1])))
+                .isInstanceOf(BlobTooLargeException.class);
+
+        assertThat(files()).isEmpty();
+        assertThat(store.put(new ByteArrayInputStream(new byte[(int) MAX_SIZE]))).isNotNull();
+    }
+
+    @Test
+    public void testInvalidHashIsRejected() {
+        assertThatIllegalArgumentException().isThrownBy(() -> store.find("../../etc/passwd"));
+        assertThatIllegalArgumentException().isThrownBy(() -> store.find("BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD"));
+        assertThat(store.find("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad")).isEmpty();
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return all files of the store, including temporary ones
+     */
+    private Object[] files() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).toArray();
+        }
+    }
+}
@@ -51,7 +51,7 @@ public class ProfileBuilderTest {
         Profile profile = builder
                 .withUserID("0")
                 .withReputation(0L)
-                .withImage(new Byte[0])
+                .withImageHash("hash")
                 .withFirstName("first")
                 .withLastName("last")
                 .withDescription("test")
@@ -60,7 +60,7 @@ public class ProfileBuilderTest {
                 .build();
 
         assertThat(profile.getUserID()).isEqualTo("0");
-        assertThat(profile.getImage()).isEqualTo(new Byte[0]);
+        assertThat(profile.getImageHash()).isEqualTo("hash");
         assertThat(profile.getFirstName()).isEqualTo("first");
         assertThat(profile.getLastName()).isEqualTo("last");
         assertThat(profile.getDescription()).isEqualTo("test");
@@ -75,8 +75,8 @@ public class ProfileBuilderTest {
     }
 
     @Test
-    public void testBuildShouldFailForNullImage() {
-        assertThatNullPointerException().isThrownBy(() -> builder.withImage(null)
+    public void testBuildShouldFailForNullImageHash() {
+        assertThatNullPointerException().isThrownBy(() -> builder.withImageHash(null)
                 .build());
     }
 
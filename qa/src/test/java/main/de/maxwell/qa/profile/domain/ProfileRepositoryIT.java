@@ -40,6 +40,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -126,18 +131,24 @@ public class ProfileRepositoryIT {
     }
 
     @Test
-    public void testUpdateImage() {
-        profileRepository.updateImage(2L, new Byte[0]);
+    public void testUpdateImage() throws IOException {
+        byte[] image = "image of profile 2".getBytes(StandardCharsets.UTF_8);
+        String hash = profileRepository.updateImage(2L, new ByteArrayInputStream(image));
 
         Profile profile = profileRepository.findById(2L);
 
         assertThat(profile.getUserID()).isEqualTo("2");
-        assertThat(profile.getImage()).isEqualTo(new Byte[0]);
+        assertThat(profile.getImageHash()).isEqualTo(hash);
+
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        profileRepository.findImage(2L).get().transferTo(Channels.newChannel(stored));
+        assertThat(stored.toByteArray()).isEqualTo(image);
+        assertThat(profileRepository.findImage(3L)).isEmpty();
     }
 
     @Test
     public void testUpdateImageNotFound() {
-        assertThatThrownBy(() -> profileRepository.updateImage(99L, new Byte[0])).isInstanceOf(ProfileNotFoundException.class)
+        assertThatThrownBy(() -> profileRepository.updateImage(99L, new ByteArrayInputStream(new byte[0]))).isInstanceOf(ProfileNotFoundException.class)
                 .hasMessageContaining("Could not find profile with id 99");
     }
 
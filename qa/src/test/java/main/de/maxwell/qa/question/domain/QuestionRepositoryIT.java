@@ -27,9 +27,14 @@ package main.de.maxwell.qa.question.domain;
 import de.maxwell.qa.domain.question.Question;
 import de.maxwell.qa.domain.question.QuestionNotFoundException;
 import de.maxwell.qa.domain.question.QuestionRepository;
+import de.maxwell.qa.domain.question.QuestionViewFlusher;
+import de.maxwell.qa.infrastructure.cache.IdFilters;
+import de.maxwell.qa.infrastructure.pagination.Cursor;
+import de.maxwell.qa.infrastructure.pagination.Page;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import main.de.maxwell.qa.DatabaseResource;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
@@ -39,6 +44,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 
 import javax.inject.Inject;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -53,6 +59,15 @@ public class QuestionRepositoryIT {
     @Inject
     QuestionRepository questionRepository;
 
+    @Inject
+    QuestionViewFlusher viewFlusher;
+
+    @Inject
+    IdFilters idFilters;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
     @BeforeAll
     public void setUp() {
         questionRepository.createQuestion("1", "test1", "test1");
@@ -73,12 +88,36 @@ public class QuestionRepositoryIT {
         assertThat(question.getDescription()).isEqualTo("test1");
     }
 
+    @Test
+    public void testFindByIdIsCachedUntilUpdate() {
+        Question question = questionRepository.findById(4L);
+
+        assertThat(questionRepository.findById(4L)).isSameAs(question);
+
+        questionRepository.updateDescription(4L, "cached");
+
+        assertThat(questionRepository.findById(4L).getDescription()).isEqualTo("cached");
+    }
+
     @Test
     public void testFindByIdNotFound() {
         assertThatThrownBy(() -> questionRepository.findById(99L)).isInstanceOf(QuestionNotFoundException.class)
                 .hasMessageContaining("Could not find question with id 99");
     }
 
+    @Test
+    public void testFindByIdOfRemovedQuestionIsRejectedByIdFilter() {
+        Question removed = questionRepository.createQuestion("filter", "removed", "removed");
+        questionRepository.createQuestion("filter", "kept", "kept");
+        questionRepository.removeQuestion(removed.getId());
+        idFilters.rebuild();
+
+        long rejected = metricRegistry.counter("id_filter_question_rejected").getCount();
+
+        assertThatThrownBy(() -> questionRepository.findById(removed.getId())).isInstanceOf(QuestionNotFoundException.class);
+        assertThat(metricRegistry.counter("id_filter_question_rejected").getCount()).isEqualTo(rejected + 1);
+    }
+
     @Test
     public void testListAllPaginated() {
         List<Question> questions = questionRepository.listAllPaginated(5, 0);
@@ -86,6 +125,18 @@ public class QuestionRepositoryIT {
         assertThat(questions.size()).isEqualTo(5);
     }
 
+    @Test
+    public void testListAllAfter() {
+        Page<Question> first = questionRepository.listAllAfter(2, null);
+        Page<Question> second = questionRepository.listAllAfter(2, Cursor.decode(first.getNext()));
+
+        assertThat(first.getItems()).hasSize(2);
+        assertThat(first.getNext()).isNotNull();
+        assertThat(second.getItems()).hasSize(2);
+        assertThat(second.getItems()).extracting(Question::getId)
+                .doesNotContainAnyElementsOf(first.getItems().stream().map(Question::getId).collect(Collectors.toList()));
+    }
+
     @Test
     public void testUpdateTitle() {
         Question question = questionRepository.updateTitle(2L, "new Title");
@@ -119,6 +170,18 @@ public class QuestionRepositoryIT {
         assertThat(view).isEqualTo(1);
     }
 
+    @Test
+    public void testFlushViews() {
+        Question question = questionRepository.createQuestion("2", "views", "views");
+
+        questionRepository.incrementView(question.getId());
+        questionRepository.incrementView(question.getId());
+        viewFlusher.flush();
+
+        assertThat(questionRepository.findById(question.getId()).getViews()).isEqualTo(2L);
+        assertThat(questionRepository.incrementView(question.getId())).isEqualTo(3L);
+    }
+
     @Test
     public void testIncrementViewNotFound() {
         assertThatThrownBy(() -> questionRepository.incrementView(99L)).isInstanceOf(QuestionNotFoundException.class)
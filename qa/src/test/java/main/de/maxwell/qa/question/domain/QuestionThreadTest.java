@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.question.domain;
+
+import de.maxwell.qa.domain.answer.Answer;
+import de.maxwell.qa.domain.comment.Comment;
+import de.maxwell.qa.domain.question.AnswerThread;
+import de.maxwell.qa.domain.question.Question;
+import de.maxwell.qa.domain.question.QuestionThread;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+
+public class QuestionThreadTest {
+
+    private final Question question = Question.newBuilder()
+            .withUserID("0")
+            .withTitle("title")
+            .withDescription("description")
+            .build();
+
+    @Test
+    public void testCommentsAreAssignedToTheirAnswer() {
+        Answer first = answer(1L);
+        Answer second = answer(2L);
+        Comment onQuestion = Comment.newBuilder().withUserID("0").withDescription("q").withQuestionID(9L).build();
+        Comment onFirst = Comment.newBuilder().withUserID("0").withDescription("a1").withAnswerID(1L).build();
+        Comment onSecond = Comment.newBuilder().withUserID("0").withDescription("a2").withAnswerID(2L).build();
+        Comment alsoOnFirst = Comment.newBuilder().withUserID("0").withDescription("a1b").withAnswerID(1L).build();
+
+        QuestionThread thread = QuestionThread.of(question, Arrays.asList(first, second),
+                Arrays.asList(onFirst, onQuestion, onSecond, alsoOnFirst));
+
+        assertThat(thread.getQuestion()).isSameAs(question);
+        assertThat(thread.getComments()).containsExactly(onQuestion);
+        assertThat(thread.getAnswers()).extracting(AnswerThread::getAnswer).containsExactly(first, second);
+        assertThat(thread.getAnswers().get(0).getComments()).containsExactly(onFirst, alsoOnFirst);
+        assertThat(thread.getAnswers().get(1).getComments()).containsExactly(onSecond);
+    }
+
+    @Test
+    public void testAnswerWithoutComments() {
+        QuestionThread thread = QuestionThread.of(question, Collections.singletonList(answer(1L)), Collections.emptyList());
+
+        assertThat(thread.getComments()).isEmpty();
+        assertThat(thread.getAnswers()).hasSize(1);
+        assertThat(thread.getAnswers().get(0).getComments()).isEmpty();
+    }
+
+    @Test
+    public void testNullQuestion() {
+        assertThatNullPointerException().isThrownBy(() -> QuestionThread.of(null, Collections.emptyList(), Collections.emptyList()));
+    }
+
+    private Answer answer(final Long id) {
+        Answer answer = Answer.newBuilder()
+                .withUserID("0")
+                .withQuestionID(9L)
+                .withDescription("answer " + id)
+                .build();
+        answer.setId(id);
+
+        return answer;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 Max Weis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package main.de.maxwell.qa.question.domain;
+
+import de.maxwell.qa.domain.question.QuestionNotFoundException;
+import de.maxwell.qa.domain.question.QuestionViewCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuestionViewCounterTest {
+
+    private QuestionViewCounter counter;
+
+    @BeforeEach
+    public void setUp() {
+        this.counter = new QuestionViewCounter();
+    }
+
+    @Test
+    public void testIncrement() {
+        assertThat(counter.increment(1L, () -> 10L)).isEqualTo(11L);
+        assertThat(counter.increment(1L, () -> 10L)).isEqualTo(12L);
+        assertThat(counter.pendingViews(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void testIncrementLoadsPersistedViewsOnce() {
+        AtomicInteger loads = new AtomicInteger();
+
+        counter.increment(1L, () -> loads.incrementAndGet());
+        counter.increment(1L, () -> loads.incrementAndGet());
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testIncrementNotFound() {
+        assertThatThrownBy(() -> counter.increment(99L, () -> {
+            throw new QuestionNotFoundException(99L);
+        })).isInstanceOf(QuestionNotFoundException.class);
+
+        assertThat(counter.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void testIncrementShouldFailForNullId() {
+        assertThatNullPointerException().isThrownBy(() -> counter.increment(null, () -> 0L));
+    }
+
+    @Test
+    public void testPendingViewsOfUntrackedQuestion() {
+        assertThat(counter.pendingViews(1L)).isEqualTo(0L);
+    }
+
+    @Test
+    public void testCommitKeepsViewsAfterSnapshot() {
+        counter.increment(1L, () -> 0L);
+        counter.increment(1L, () -> 0L);
+
+        Map<Long, Long> snapshot = counter.snapshot();
+        counter.increment(1L, () -> 0L);
+        counter.commit(snapshot);
+
+        assertThat(snapshot.get(1L)).isEqualTo(2L);
+        assertThat(counter.pendingViews(1L)).isEqualTo(1L);
+        assertThat(counter.increment(1L, () -> 0L)).isEqualTo(4L);
+    }
+
+    @Test
+    public void testCommitReleasesIdleQuestions() {
+        counter.increment(1L, () -> 0L);
+        counter.commit(counter.snapshot());
+
+        counter.commit(counter.snapshot());
+
+        assertThat(counter.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void testCommitKeepsIdleQuestionViewedAfterSnapshot() {
+        counter.increment(1L, () -> 0L);
+        counter.commit(counter.snapshot());
+
+        Map<Long, Long> idle = counter.snapshot();
+        counter.increment(1L, () -> 0L);
+        counter.commit(idle);
+
+        assertThat(counter.pendingViews(1L)).isEqualTo(1L);
+        assertThat(counter.views(1L)).contains(2L);
+    }
+
+    @Test
+    public void testFlushedViewsAreNotCountedTwice() {
+        counter.increment(1L, () -> 10L);
+        counter.increment(1L, () -> 10L);
+
+        Map<Long, Long> snapshot = counter.snapshot();
+        assertThat(counter.views(1L)).contains(12L);
+
+        counter.commit(snapshot);
+
+        assertThat(counter.views(1L)).contains(12L);
+        assertThat(counter.pendingViews(1L)).isEqualTo(0L);
+    }
+
+    @Test
+    public void testViewsOfReleasedQuestion() {
+        counter.increment(1L, () -> 0L);
+        counter.commit(counter.snapshot());
+        counter.commit(counter.snapshot());
+
+        assertThat(counter.views(1L)).isEmpty();
+        assertThat(counter.increment(1L, () -> 1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void testEvict() {
+        counter.increment(1L, () -> 0L);
+        counter.evict(1L);
+
+        assertThat(counter.pendingViews(1L)).isEqualTo(0L);
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10_000; i++) {
+            executor.execute(() -> counter.increment(1L, () -> 0L));
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertThat(counter.pendingViews(1L)).isEqualTo(10_000L);
+    }
+
+    @Test
+    public void testConcurrentIncrementsWhileFlushing() throws InterruptedException {
+        AtomicLong persisted = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100_000; i++) {
+            executor.execute(() -> counter.increment(1L, persisted::get));
+        }
+        executor.shutdown();
+
+        while (!executor.isTerminated()) {
+            Map<Long, Long> snapshot = counter.snapshot();
+            snapshot.values().forEach(persisted::addAndGet);
+            counter.commit(snapshot);
+        }
+
+        assertThat(persisted.get() + counter.pendingViews(1L)).isEqualTo(100_000L);
+    }
+}